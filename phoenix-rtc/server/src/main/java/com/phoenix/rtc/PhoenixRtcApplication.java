@@ -1,5 +1,6 @@
 package com.phoenix.rtc;
 
+import com.phoenix.rtc.config.VirtualThreadCarrierReservation;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
@@ -19,7 +20,9 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 public class PhoenixRtcApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(PhoenixRtcApplication.class, args);
+        SpringApplication application = new SpringApplication(PhoenixRtcApplication.class);
+        application.addListeners(new VirtualThreadCarrierReservation());
+        application.run(args);
         System.out.println("=================================");
         System.out.println("Phoenix RTC Server Started!");
         System.out.println("=================================");
@@ -0,0 +1,66 @@
+package com.phoenix.rtc.adapter;
+
+import com.phoenix.rtc.adapter.MediaAdapter.RoomConfig;
+import io.livekit.server.RoomInfo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 媒体服务器适配器异步接口
+ * 调用在专用的媒体 I/O 线程池上执行，调用方可以先发出媒体调用，再做数据库 / Redis 工作，最后汇合；
+ * 超时、并发上限与重试和同步接口一致 (见 MediaCallGuard)。
+ *
+ * Token 本地签发，不需要异步版本
+ */
+public interface AsyncMediaAdapter {
+
+    /**
+     * 创建房间
+     */
+    CompletableFuture<RoomInfo> createRoomAsync(String name, RoomConfig config);
+
+    /**
+     * 在指定媒体节点创建房间 (预建房间池按节点补充)
+     *
+     * @param nodeUrl 媒体节点 URL (见 MediaAdapter.getRoomUrl)
+     */
+    CompletableFuture<RoomInfo> createRoomOnAsync(String nodeUrl, String name, RoomConfig config);
+
+    /**
+     * 删除房间，不重试；失败时 Future 异常完成，由调用方决定是否忽略
+     */
+    CompletableFuture<Void> deleteRoomAsync(String roomName);
+
+    /**
+     * 获取房间信息，房间不存在或调用失败时为 null
+     */
+    CompletableFuture<RoomInfo> getRoomInfoAsync(String roomName);
+
+    /**
+     * 在各自所在节点批量删除房间 (大批量清理)，同时在途的删除数有上限，不会占满舱壁。
+     * 只删除，不扣除节点记账；删除成功或放弃后由调用方 releaseRoom
+     *
+     * @return 删除失败的房间
+     */
+    CompletableFuture<List<MediaRoom>> deleteRoomsAsync(Collection<MediaRoom> rooms);
+
+    /**
+     * 房间已删除 (或放弃删除)，从所在节点的房间数、参与者数和预留中扣除
+     */
+    void releaseRoom(MediaRoom room);
+
+    /**
+     * 媒体服务器上现存的全部房间及所在节点 (对账用)，某个节点查询失败时跳过该节点
+     */
+    CompletableFuture<List<MediaRoom>> listRoomsAsync();
+
+    /**
+     * 媒体节点上的一个房间
+     *
+     * @param nodeUrl 媒体节点 URL (见 MediaAdapter.getRoomUrl)
+     */
+    record MediaRoom(String nodeUrl, String name) {
+    }
+}
@@ -0,0 +1,144 @@
+package com.phoenix.rtc.adapter;
+
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 熔断器 (按调用次数的滑动窗口)
+ * 1. CLOSED: 记录最近 windowSize 次调用结果，至少 minimumCalls 次且失败率达到阈值时打开
+ * 2. OPEN: 直接拒绝调用，openMillis 后进入半开
+ * 3. HALF_OPEN: 只放行 halfOpenCalls 个探测调用，全部成功则关闭，任一失败重新打开
+ *
+ * 每个媒体节点一个实例；调用结果的记录和状态切换都在锁内，临界区只有几次数组读写
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED(0), OPEN(1), HALF_OPEN(2);
+
+        private final int code;
+
+        State(int code) {
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+
+    private final int minimumCalls;
+    private final int failureRatePercent;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+    private final BiConsumer<State, State> onTransition;
+
+    // 环形窗口: true 表示失败
+    private final boolean[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, int failureRatePercent, long openMillis,
+                          int halfOpenCalls, LongSupplier clock, BiConsumer<State, State> onTransition) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRatePercent = failureRatePercent;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.onTransition = onTransition;
+    }
+
+    /**
+     * 申请调用许可，打开状态 (且未到半开时间) 或半开探测名额用尽时返回 false
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openMillis) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    /**
+     * 取得许可后未实际发出调用 (如被舱壁拒绝) 时归还
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                transition(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transition(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures * 100 >= failureRatePercent * recorded) {
+                transition(State.OPEN);
+            }
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    private void record(boolean failed) {
+        if (recorded == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = failed;
+        if (failed) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void transition(State to) {
+        State from = state;
+        state = to;
+        switch (to) {
+            case OPEN -> openedAt = clock.getAsLong();
+            case HALF_OPEN -> {
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+            }
+            case CLOSED -> {
+                next = 0;
+                recorded = 0;
+                failures = 0;
+            }
+        }
+        onTransition.accept(from, to);
+    }
+}
@@ -1,31 +1,51 @@
 package com.phoenix.rtc.adapter;
 
+import com.phoenix.rtc.cache.CoalescingCache;
 import io.livekit.server.CreateRoomRequest;
-import io.livekit.server.LiveKitServerClient;
 import io.livekit.server.RoomInfo;
-import io.livekit.server.TokenOptions;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.util.function.Supplier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.ToDoubleFunction;
 
 /**
  * LiveKit 媒体服务器适配器实现
  * 实现 MediaAdapter 接口，封装 LiveKit SDK 调用
  *
  * 修复说明:
- * 1. 增加重试机制，处理短暂的网络波动
- * 2. 所有外部调用都添加重试逻辑
+ * 1. 外部调用经 MediaCallGuard 执行: 抖动退避重试 (不在请求线程上 sleep)、按节点熔断、舱壁限流、截止时间
+ * 2. 删除房间不重试，失败仅记录日志
+ * 3. Token 由 LiveKitTokenMinter 本地签发，不经过 SDK，也不需要重试
+ * 4. 同时实现 AsyncMediaAdapter，异步方法与同步方法共用同一套调用保护
+ * 5. 多节点: 建房时由 MediaCluster 选择节点，其余操作发往房间所在节点；熔断、舱壁按节点独立
+ * 6. 房间信息查询经过按节点的短 TTL 缓存 (app.rtc.media.query-cache.*): 并发查询同一房间合并为一次请求，
+ *    建房、删房 (含回收器按节点删除) 完成后失效
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
-public class LiveKitAdapter implements MediaAdapter {
+public class LiveKitAdapter implements MediaAdapter, AsyncMediaAdapter {
 
-    private final LiveKitServerClient liveKitClient;
+    private final MediaCluster mediaCluster;
+    private final LiveKitTokenMinter tokenMinter;
+    private final MediaCallGuard callGuard;
+
+    // 键带节点地址: 不同节点上的同名房间 (迁移、对账遗留) 各自缓存
+    private final CoalescingCache<MediaRoom, RoomInfo> roomInfoCache;
 
     @Value("${LIVEKIT_URL}")
     private String liveKitUrl;
@@ -36,9 +56,23 @@ public class LiveKitAdapter implements MediaAdapter {
     @Value("${LIVEKIT_API_SECRET}")
     private String apiSecret;
 
-    // 重试配置
-    private static final int MAX_RETRIES = 3;
-    private static final long RETRY_DELAY_MS = 500; // 500ms 延迟
+    @Value("${app.rtc.media.batch-parallelism:8}")
+    private int batchParallelism;
+
+    public LiveKitAdapter(MediaCluster mediaCluster,
+                          LiveKitTokenMinter tokenMinter,
+                          MediaCallGuard callGuard,
+                          @Qualifier("rtcMediaExecutor") AsyncTaskExecutor mediaExecutor,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.rtc.media.query-cache.max-rooms:10000}") int maxRooms,
+                          @Value("${app.rtc.media.query-cache.fresh-ms:1000}") long freshMs,
+                          @Value("${app.rtc.media.query-cache.stale-ms:4000}") long staleMs) {
+        this.mediaCluster = mediaCluster;
+        this.tokenMinter = tokenMinter;
+        this.callGuard = callGuard;
+        this.roomInfoCache = new CoalescingCache<>(maxRooms, freshMs, staleMs, mediaExecutor);
+        bindMetrics(meterRegistry, "getRoomInfo", roomInfoCache);
+    }
 
     /**
      * 启动时检查 LiveKit 配置
@@ -59,81 +93,144 @@ public class LiveKitAdapter implements MediaAdapter {
 
     @Override
     public RoomInfo createRoom(String name, RoomConfig config) {
-        return executeWithRetry(() -> {
-            CreateRoomRequest request = new CreateRoomRequest();
-            request.setName(name);
-
-            if (config.getEmptyTimeout() != null) {
-                request.setEmptyTimeout(config.getEmptyTimeout());
-            }
-
-            if (config.getMaxParticipants() != null) {
-                request.setMaxParticipants(config.getMaxParticipants());
-            }
+        MediaNode node = mediaCluster.place(name, expectedParticipants(config));
+        try {
+            return callGuard.execute(node.getUrl(), "createRoom", createRoomCall(node, name, config));
+        } catch (RuntimeException e) {
+            mediaCluster.release(name);
+            throw e;
+        } finally {
+            roomInfoCache.invalidate(new MediaRoom(node.getUrl(), name));
+        }
+    }
 
-            // LiveKit 原生支持元数据，可以存储 roomType 等信息
-            if (config.getRoomType() != null || config.getRecordingEnabled() != null) {
-                StringBuilder metadata = new StringBuilder();
-                if (config.getRoomType() != null) {
-                    metadata.append("roomType:").append(config.getRoomType());
-                }
-                if (config.getRecordingEnabled() != null) {
-                    if (metadata.length() > 0) metadata.append(",");
-                    metadata.append("recording:").append(config.getRecordingEnabled());
-                }
-                request.setMetadata(metadata.toString());
-            }
+    @Override
+    public CompletableFuture<RoomInfo> createRoomAsync(String name, RoomConfig config) {
+        MediaNode node = mediaCluster.place(name, expectedParticipants(config));
+        return callGuard.submit(node.getUrl(), "createRoom", createRoomCall(node, name, config))
+                .whenComplete((ignored, error) -> {
+                    roomInfoCache.invalidate(new MediaRoom(node.getUrl(), name));
+                    if (error != null) {
+                        mediaCluster.release(name);
+                    }
+                });
+    }
 
-            RoomInfo roomInfo = liveKitClient.createRoom(request);
-            log.info("LiveKit 创建房间成功 - 名称: {}, 类型: {}", name, config.getRoomType());
-            return roomInfo;
-        }, "createRoom", name);
+    @Override
+    public CompletableFuture<RoomInfo> createRoomOnAsync(String nodeUrl, String name, RoomConfig config) {
+        MediaNode node = mediaCluster.getNode(nodeUrl);
+        if (node == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("未知的媒体节点: " + nodeUrl));
+        }
+        try {
+            mediaCluster.placeOn(name, node, expectedParticipants(config));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return callGuard.submit(node.getUrl(), "createRoom", createRoomCall(node, name, config))
+                .whenComplete((ignored, error) -> {
+                    roomInfoCache.invalidate(new MediaRoom(node.getUrl(), name));
+                    if (error != null) {
+                        mediaCluster.release(name);
+                    }
+                });
     }
 
     @Override
     public String generateToken(String userId, String roomName, String role) {
-        return executeWithRetry(() -> {
-            long expirationTime = System.currentTimeMillis() + (2 * 60 * 60 * 1000); // 2小时
-
-            TokenOptions options = TokenOptions.builder()
-                    .setRoomJoin(true)
-                    .setRoomName(roomName)
-                    .setIdentity(userId)
-                    .setGrants(true, true)
-                    .setExpiration(expirationTime)
-                    .build();
-
-            // 根据角色设置权限
-            if ("host".equals(role)) {
-                options.setGrants(true, true); // 可推流可拉流
-            } else if ("subscriber".equals(role)) {
-                options.setGrants(false, true); // 只能拉流
-            } else {
-                options.setGrants(true, true); // 默认可推可拉
-            }
-
-            String token = liveKitClient.createToken(apiKey, apiSecret, options);
-            log.debug("生成 LiveKit Token - 用户: {}, 房间: {}, 角色: {}", userId, roomName, role);
-            return token;
-        }, "generateToken", roomName + ":" + userId);
+        // 本地 HMAC 签名，微秒级，有效期 app.rtc.token.ttl-seconds
+        return tokenMinter.mint(userId, roomName, role);
     }
 
     @Override
     public void deleteRoom(String roomName) {
+        MediaNode node = null;
         try {
             // 删除操作不重试，失败仅记录日志
-            liveKitClient.deleteRoom(roomName);
+            node = mediaCluster.locate(roomName);
+            callGuard.execute(node.getUrl(), "deleteRoom", 1, deleteRoomCall(node, roomName));
             log.info("删除房间成功 - 房间: {}", roomName);
         } catch (Exception e) {
             log.error("删除房间失败: {}，已忽略", roomName, e);
             // 不抛出异常，避免影响主流程
+        } finally {
+            // 删除失败的房间由 LiveKit 空房超时回收，节点房间数由定时校准修正
+            mediaCluster.release(roomName);
+            if (node != null) {
+                roomInfoCache.invalidate(new MediaRoom(node.getUrl(), roomName));
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteRoomAsync(String roomName) {
+        MediaNode node = mediaCluster.locate(roomName);
+        return callGuard.submit(node.getUrl(), "deleteRoom", 1, deleteRoomCall(node, roomName))
+                .whenComplete((ignored, error) -> {
+                    mediaCluster.release(roomName);
+                    roomInfoCache.invalidate(new MediaRoom(node.getUrl(), roomName));
+                    if (error == null) {
+                        log.info("删除房间成功 - 房间: {}", roomName);
+                    } else {
+                        log.warn("删除房间失败 - 房间: {}, 原因: {}", roomName, error.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * 批量删除: batch-parallelism 条删除链并行，每条链上一个删除结束再发下一个
+     */
+    @Override
+    public CompletableFuture<List<MediaRoom>> deleteRoomsAsync(Collection<MediaRoom> rooms) {
+        Queue<MediaRoom> pending = new ConcurrentLinkedQueue<>(rooms);
+        Queue<MediaRoom> failed = new ConcurrentLinkedQueue<>();
+        int lanes = Math.min(batchParallelism, pending.size());
+        CompletableFuture<?>[] done = new CompletableFuture<?>[lanes];
+        for (int i = 0; i < lanes; i++) {
+            CompletableFuture<Void> lane = new CompletableFuture<>();
+            done[i] = lane;
+            drain(pending, failed, lane);
+        }
+        return CompletableFuture.allOf(done).thenApply(ignored -> List.copyOf(failed));
+    }
+
+    /**
+     * 只在房间仍记在该节点时扣除，对账发现的其他节点上的同名房间不影响记账
+     */
+    @Override
+    public void releaseRoom(MediaRoom room) {
+        if (mediaCluster.locate(room.name()).getUrl().equals(room.nodeUrl())) {
+            mediaCluster.release(room.name());
         }
     }
 
+    /**
+     * 各节点并行 listRooms，查询失败的节点 (熔断、超时) 不计入结果
+     */
+    @Override
+    public CompletableFuture<List<MediaRoom>> listRoomsAsync() {
+        List<CompletableFuture<List<MediaRoom>>> listings = new ArrayList<>();
+        for (MediaNode node : mediaCluster.getNodes()) {
+            listings.add(callGuard.submit(node.getUrl(), "listRooms", 1, () -> node.getClient().listRooms())
+                    .thenApply(rooms -> rooms.stream().map(room -> new MediaRoom(node.getUrl(), room.getName())).toList())
+                    .exceptionally(error -> {
+                        log.warn("列出媒体节点房间失败，本轮跳过 - 节点: {}: {}", node.getUrl(), error.getMessage());
+                        return List.of();
+                    }));
+        }
+        return CompletableFuture.allOf(listings.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> listings.stream()
+                        .flatMap(listing -> listing.join().stream())
+                        .toList());
+    }
+
+    /**
+     * 获取房间信息 (缓存，同步与异步查询共用在途请求)
+     */
     @Override
     public RoomInfo getRoomInfo(String roomName) {
         try {
-            return executeWithRetry(() -> liveKitClient.getRoom(roomName), "getRoomInfo", roomName);
+            return getRoomInfoAsync(roomName).join();
         } catch (Exception e) {
             log.error("获取房间信息失败: {}", roomName, e);
             return null;
@@ -141,44 +238,169 @@ public class LiveKitAdapter implements MediaAdapter {
     }
 
     /**
-     * 获取 LiveKit 服务器 URL
+     * 获取房间信息 (缓存): 新鲜值直接返回，并发查询同一房间合并为一次请求，失败不缓存
      */
-    public String getLiveKitUrl() {
-        return liveKitUrl;
+    @Override
+    public CompletableFuture<RoomInfo> getRoomInfoAsync(String roomName) {
+        MediaNode node = mediaCluster.locate(roomName);
+        return roomInfoCache.getAsync(new MediaRoom(node.getUrl(), roomName),
+                        room -> callGuard.submit(node.getUrl(), "getRoomInfo", () -> node.getClient().getRoom(roomName)))
+                .exceptionally(error -> {
+                    log.error("获取房间信息失败: {}", roomName, error);
+                    return null;
+                });
+    }
+
+    @Override
+    public String getRoomUrl(String roomName) {
+        return mediaCluster.locate(roomName).getUrl();
+    }
+
+    @Override
+    public void participantJoined(String roomName) {
+        mediaCluster.participantJoined(roomName);
+    }
+
+    @Override
+    public void participantLeft(String roomName) {
+        mediaCluster.participantLeft(roomName);
     }
 
     /**
-     * 执行带重试的操作
-     *
-     * @param supplier 业务逻辑
-     * @param operation 操作名称（用于日志）
-     * @param context 上下文信息（用于日志）
-     * @param <T> 返回类型
-     * @return 执行结果
+     * 按 LiveKit 实际数据校准各节点的房间数和参与者数 (本地计数漏掉了其他实例的记账、空房超时回收的房间、
+     * 未经本服务离开的参与者)。每个节点一次 listRooms，房间信息里带有参与者数，不需要逐个房间 getRoomInfo
      */
-    private <T> T executeWithRetry(Supplier<T> supplier, String operation, String context) {
-        Exception lastException = null;
-
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+    @Scheduled(fixedDelayString = "${app.rtc.media.placement.refresh-ms:30000}",
+            initialDelayString = "${app.rtc.media.placement.refresh-ms:30000}")
+    public void refreshNodeLoad() {
+        for (MediaNode node : mediaCluster.getNodes()) {
             try {
-                return supplier.get();
+                List<RoomInfo> rooms = callGuard.execute(node.getUrl(), "listRooms", 1, () -> node.getClient().listRooms());
+                mediaCluster.sample(node, rooms);
+                if (node.isDraining() && rooms.isEmpty()) {
+                    log.info("媒体节点排空完成，可以下线 - 节点: {}", node.getUrl());
+                }
             } catch (Exception e) {
-                lastException = e;
-                log.warn("LiveKit {} 操作失败 (尝试 {}/{}): {} - {}",
-                        operation, attempt, MAX_RETRIES, context, e.getMessage());
-
-                if (attempt < MAX_RETRIES) {
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS * attempt); // 指数退避
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("操作被中断", ie);
+                log.warn("校准媒体节点房间数失败 - 节点: {}: {}", node.getUrl(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 一条删除链: 已完成的删除 (如被熔断直接拒绝) 在循环里继续，未完成的在回调里继续，不会递归加深调用栈
+     */
+    private void drain(Queue<MediaRoom> pending, Queue<MediaRoom> failed, CompletableFuture<Void> lane) {
+        MediaRoom room;
+        while ((room = pending.poll()) != null) {
+            CompletableFuture<Void> deletion = deleteRoomOn(room);
+            if (!deletion.isDone()) {
+                MediaRoom current = room;
+                deletion.whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        failed.add(current);
                     }
-                }
+                    drain(pending, failed, lane);
+                });
+                return;
+            }
+            if (deletion.isCompletedExceptionally()) {
+                failed.add(room);
             }
         }
+        lane.complete(null);
+    }
+
+    /**
+     * 在指定节点删除房间，不重试，不扣除节点记账
+     */
+    private CompletableFuture<Void> deleteRoomOn(MediaRoom room) {
+        MediaNode node = mediaCluster.getNode(room.nodeUrl());
+        if (node == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("未知的媒体节点: " + room.nodeUrl()));
+        }
+        return callGuard.submit(node.getUrl(), "deleteRoom", 1, deleteRoomCall(node, room.name()))
+                .whenComplete((ignored, error) -> {
+                    roomInfoCache.invalidate(room);
+                    if (error == null) {
+                        log.info("删除房间成功 - 房间: {}, 节点: {}", room.name(), node.getUrl());
+                    } else {
+                        log.warn("删除房间失败 - 房间: {}, 节点: {}, 原因: {}", room.name(), node.getUrl(), error.getMessage());
+                    }
+                });
+    }
+
+    private Callable<RoomInfo> createRoomCall(MediaNode node, String name, RoomConfig config) {
+        return () -> {
+            CreateRoomRequest request = new CreateRoomRequest();
+            request.setName(name);
+
+            if (config.getEmptyTimeout() != null) {
+                request.setEmptyTimeout(config.getEmptyTimeout());
+            }
+
+            if (config.getMaxParticipants() != null) {
+                request.setMaxParticipants(config.getMaxParticipants());
+            }
+
+            // LiveKit 原生支持元数据，可以存储 roomType 等信息
+            if (config.getRoomType() != null || config.getRecordingEnabled() != null) {
+                StringBuilder metadata = new StringBuilder();
+                if (config.getRoomType() != null) {
+                    metadata.append("roomType:").append(config.getRoomType());
+                }
+                if (config.getRecordingEnabled() != null) {
+                    if (metadata.length() > 0) metadata.append(",");
+                    metadata.append("recording:").append(config.getRecordingEnabled());
+                }
+                request.setMetadata(metadata.toString());
+            }
+
+            long start = System.nanoTime();
+            RoomInfo roomInfo = node.getClient().createRoom(request);
+            mediaCluster.recordCreateLatency(node, System.nanoTime() - start);
+            log.info("LiveKit 创建房间成功 - 名称: {}, 类型: {}, 节点: {}", name, config.getRoomType(), node.getUrl());
+            return roomInfo;
+        };
+    }
+
+    private static int expectedParticipants(RoomConfig config) {
+        return config.getMaxParticipants() != null ? config.getMaxParticipants() : 0;
+    }
+
+    private Callable<Void> deleteRoomCall(MediaNode node, String roomName) {
+        return () -> {
+            node.getClient().deleteRoom(roomName);
+            return null;
+        };
+    }
+
+    /**
+     * 查询缓存指标: 各结果的调用次数、实际请求数、命中率、合并率
+     */
+    private static void bindMetrics(MeterRegistry meterRegistry, String operation, CoalescingCache<MediaRoom, ?> cache) {
+        requests(meterRegistry, operation, "hit", cache, CoalescingCache::hitCount);
+        requests(meterRegistry, operation, "stale", cache, CoalescingCache::staleHitCount);
+        requests(meterRegistry, operation, "miss", cache, CoalescingCache::missCount);
+        requests(meterRegistry, operation, "coalesced", cache, CoalescingCache::coalescedCount);
+        FunctionCounter.builder("rtc.media.query.loads", cache, CoalescingCache::loadCount)
+                .tag("operation", operation)
+                .description("实际发往 LiveKit 的查询次数 (含后台刷新)")
+                .register(meterRegistry);
+        Gauge.builder("rtc.media.query.hit.ratio", cache, CoalescingCache::hitRatio)
+                .tag("operation", operation)
+                .description("媒体查询缓存命中率 (含陈旧值)")
+                .register(meterRegistry);
+        Gauge.builder("rtc.media.query.coalescing.ratio", cache, CoalescingCache::coalescingRatio)
+                .tag("operation", operation)
+                .description("未命中的查询中合并到在途请求的占比")
+                .register(meterRegistry);
+    }
 
-        // 所有重试都失败
-        throw new RuntimeException(operation + " 失败 (重试 " + MAX_RETRIES + " 次): " + lastException.getMessage(), lastException);
+    private static void requests(MeterRegistry meterRegistry, String operation, String result,
+                                 CoalescingCache<MediaRoom, ?> cache, ToDoubleFunction<CoalescingCache<MediaRoom, ?>> count) {
+        FunctionCounter.builder("rtc.media.query.requests", cache, count)
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry);
     }
 }
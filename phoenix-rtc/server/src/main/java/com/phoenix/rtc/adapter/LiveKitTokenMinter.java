@@ -0,0 +1,180 @@
+package com.phoenix.rtc.adapter;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * 本地签发 LiveKit 访问 Token
+ * LiveKit Token 是 HS256 签名的 JWT，签发只需要 API Key/Secret，不需要访问 LiveKit 服务器。
+ * 1. 签名密钥、JWT 头、grant JSON 的固定片段启动时编码好，签发时只拼接可变字段 (identity/room/时间)
+ * 2. 平台线程复用 Mac 实例；虚拟线程用完即弃，每次从原型 clone，不放进 ThreadLocal
+ * 3. 纯 CPU 计算，失败即是配置或代码错误，不做重试
+ *
+ * claims: iss=API Key, sub=identity, nbf/exp, video={roomJoin, room, canPublish, canSubscribe}, 可选 metadata
+ */
+public final class LiveKitTokenMinter {
+
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    private static final byte[] HEADER = BASE64URL.encode(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.US_ASCII));
+
+    // 所有 Token 相同的前缀 (JWT 头 + '.')，存储时可以去掉
+    private static final String HEADER_PREFIX = new String(HEADER, StandardCharsets.US_ASCII) + ".";
+
+    private static final String GRANT_PUBLISHER = "\"canPublish\":true,\"canSubscribe\":true}";
+    private static final String GRANT_SUBSCRIBER = "\"canPublish\":false,\"canSubscribe\":true}";
+
+    private final String claimsPrefix;
+    private final Mac prototype;
+    private final ThreadLocal<Mac> localMac;
+    private final long defaultTtlSeconds;
+
+    public LiveKitTokenMinter(String apiKey, String apiSecret, long defaultTtlSeconds) {
+        this.claimsPrefix = "{\"iss\":\"" + escape(apiKey) + "\",\"sub\":\"";
+        this.defaultTtlSeconds = defaultTtlSeconds;
+        try {
+            this.prototype = Mac.getInstance("HmacSHA256");
+            this.prototype.init(new SecretKeySpec(apiSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化 LiveKit Token 签名密钥失败", e);
+        }
+        this.localMac = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * 签发默认有效期的 Token
+     */
+    public String mint(String identity, String roomName, String role) {
+        return mint(identity, roomName, role, null, defaultTtlSeconds);
+    }
+
+    /**
+     * 签发 Token
+     *
+     * @param role subscriber 只能拉流，其余角色可推可拉
+     * @param metadata 参与者元数据，可为空
+     */
+    public String mint(String identity, String roomName, String role, String metadata, long ttlSeconds) {
+        long now = System.currentTimeMillis() / 1000;
+
+        StringBuilder claims = new StringBuilder(192 + (metadata != null ? metadata.length() : 0))
+                .append(claimsPrefix).append(escape(identity))
+                .append("\",\"nbf\":").append(now)
+                .append(",\"exp\":").append(now + ttlSeconds);
+        if (metadata != null && !metadata.isEmpty()) {
+            claims.append(",\"metadata\":\"").append(escape(metadata)).append('"');
+        }
+        claims.append(",\"video\":{\"roomJoin\":true,\"room\":\"").append(escape(roomName)).append("\",")
+                .append("subscriber".equals(role) ? GRANT_SUBSCRIBER : GRANT_PUBLISHER)
+                .append('}');
+
+        byte[] payload = BASE64URL.encode(claims.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] signingInput = new byte[HEADER.length + 1 + payload.length];
+        System.arraycopy(HEADER, 0, signingInput, 0, HEADER.length);
+        signingInput[HEADER.length] = '.';
+        System.arraycopy(payload, 0, signingInput, HEADER.length + 1, payload.length);
+
+        byte[] signature = BASE64URL.encode(mac().doFinal(signingInput));
+        byte[] token = new byte[signingInput.length + 1 + signature.length];
+        System.arraycopy(signingInput, 0, token, 0, signingInput.length);
+        token[signingInput.length] = '.';
+        System.arraycopy(signature, 0, token, signingInput.length + 1, signature.length);
+        return new String(token, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 去掉固定的 JWT 头，用于批量预签后紧凑存储
+     */
+    public static String detachHeader(String token) {
+        if (!token.startsWith(HEADER_PREFIX)) {
+            throw new IllegalArgumentException("不是本签发器生成的 Token");
+        }
+        return token.substring(HEADER_PREFIX.length());
+    }
+
+    /**
+     * {@link #detachHeader(String)} 的逆操作
+     */
+    public static String attachHeader(String compact) {
+        return HEADER_PREFIX + compact;
+    }
+
+    /**
+     * 读取本签发器生成的 Token 的过期时间 (exp，Unix 秒)
+     */
+    public static long expiresAt(String token) {
+        int start = token.indexOf('.');
+        int end = token.indexOf('.', start + 1);
+        if (start < 0 || end < 0) {
+            throw new IllegalArgumentException("不是本签发器生成的 Token");
+        }
+        String claims = new String(Base64.getUrlDecoder().decode(token.substring(start + 1, end)), StandardCharsets.UTF_8);
+        int exp = claims.indexOf(",\"exp\":");
+        if (exp < 0) {
+            throw new IllegalArgumentException("Token 缺少 exp");
+        }
+        int from = exp + ",\"exp\":".length();
+        int to = from;
+        while (to < claims.length() && Character.isDigit(claims.charAt(to))) {
+            to++;
+        }
+        return Long.parseLong(claims.substring(from, to));
+    }
+
+    public long getDefaultTtlSeconds() {
+        return defaultTtlSeconds;
+    }
+
+    private Mac mac() {
+        return Thread.currentThread().isVirtual() ? newMac() : localMac.get();
+    }
+
+    private Mac newMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HmacSHA256 不支持 clone", e);
+        }
+    }
+
+    /**
+     * JSON 字符串转义 (引号、反斜杠、控制字符)，不含需要转义的字符时原样返回
+     */
+    static String escape(String value) {
+        int n = value.length();
+        int i = 0;
+        while (i < n) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                break;
+            }
+            i++;
+        }
+        if (i == n) {
+            return value;
+        }
+        StringBuilder escaped = new StringBuilder(n + 8).append(value, 0, i);
+        for (; i < n; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -44,6 +44,28 @@ public interface MediaAdapter {
      */
     RoomInfo getRoomInfo(String roomName);
 
+    /**
+     * 客户端连接房间所用的媒体节点地址 (多节点部署时每个房间可能不同)
+     *
+     * @param roomName 房间名称
+     * @return 节点 URL
+     */
+    String getRoomUrl(String roomName);
+
+    /**
+     * 参与者加入房间 (本服务的加入记账)，多节点实现据此估计节点负载
+     *
+     * @param roomName 房间名称
+     */
+    void participantJoined(String roomName);
+
+    /**
+     * 参与者离开房间 (本服务的离开记账)
+     *
+     * @param roomName 房间名称
+     */
+    void participantLeft(String roomName);
+
     /**
      * 房间配置类
      */
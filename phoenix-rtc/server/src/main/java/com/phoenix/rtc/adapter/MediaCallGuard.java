@@ -0,0 +1,328 @@
+package com.phoenix.rtc.adapter;
+
+import com.phoenix.rtc.adapter.CircuitBreaker.State;
+import com.phoenix.rtc.exception.MediaUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 媒体服务器调用保护
+ * 替代 LiveKitAdapter 原来在请求线程上 Thread.sleep 的重试: LiveKit 变慢时每个 Tomcat 线程都要多睡 0.5~1.5 秒。
+ *
+ * 1. 调用在专用的 rtcMediaExecutor 上执行，失败后的重试由调度线程按退避时间重新提交，退避期间不占用任何线程
+ * 2. 退避 = [0, min(backoff-max, backoff-base * 2^(n-1))] 内随机 (full jitter)，避免大量请求同时重试
+ * 3. 每个媒体节点一个熔断器，打开时直接失败，不再等待超时
+ * 4. 每个媒体节点一个舱壁 (信号量)，限制同时在途的调用数，已满时直接失败
+ * 5. 每次调用 (含全部重试) 一个截止时间，剩余时间不够下一次退避时不再重试
+ * 6. 只重试暂时性错误 (网络异常、5xx、429、Twirp unavailable 等)；already_exists、not_found 等确定性的 4xx
+ *    重试也不会成功，直接失败，且说明节点正常响应，不计入熔断失败
+ * 7. 重试不会在调度线程上执行: 线程池把任务回落到调度线程 (CallerRuns) 时直接失败，不阻塞后续的重试调度
+ *
+ * 熔断、舱壁拒绝和超时抛出 MediaUnavailableException (HTTP 503)
+ */
+@Component
+@Slf4j
+public class MediaCallGuard {
+
+    // 确定性错误 (Twirp 错误码)，重试不会成功
+    private static final List<String> PERMANENT_CODES = List.of("already_exists", "not_found", "invalid_argument",
+            "malformed", "bad_route", "permission_denied", "unauthenticated", "failed_precondition", "out_of_range",
+            "unimplemented");
+
+    // 暂时性错误 (Twirp 错误码、连接异常)
+    private static final List<String> TRANSIENT_CODES = List.of("unavailable", "internal", "unknown",
+            "deadline_exceeded", "resource_exhausted", "aborted", "canceled",
+            "connection refused", "connection reset", "broken pipe");
+
+    private static final Pattern HTTP_STATUS = Pattern.compile("\\b([45]\\d\\d)\\b");
+
+    private final AsyncTaskExecutor mediaExecutor;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+
+    private volatile Thread retryThread;
+
+    @Value("${app.rtc.media.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.rtc.media.retry.backoff-base-ms:100}")
+    private long backoffBaseMs;
+
+    @Value("${app.rtc.media.retry.backoff-max-ms:1000}")
+    private long backoffMaxMs;
+
+    @Value("${app.rtc.media.call-timeout-ms:3000}")
+    private long callTimeoutMs;
+
+    @Value("${app.rtc.media.bulkhead.max-concurrent:32}")
+    private int maxConcurrent;
+
+    @Value("${app.rtc.media.circuit.window-size:20}")
+    private int windowSize;
+
+    @Value("${app.rtc.media.circuit.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${app.rtc.media.circuit.failure-rate-percent:50}")
+    private int failureRatePercent;
+
+    @Value("${app.rtc.media.circuit.open-ms:10000}")
+    private long openMs;
+
+    @Value("${app.rtc.media.circuit.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    public MediaCallGuard(@Qualifier("rtcMediaExecutor") AsyncTaskExecutor mediaExecutor, MeterRegistry meterRegistry) {
+        this.mediaExecutor = mediaExecutor;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rtc-media-retry");
+            thread.setDaemon(true);
+            retryThread = thread;
+            return thread;
+        });
+    }
+
+    /**
+     * 同步调用，等待结果 (最长到截止时间)
+     *
+     * @param node      媒体节点 (熔断、舱壁的粒度)
+     * @param operation 操作名称 (日志、指标)
+     * @param attempts  最多尝试次数，1 表示不重试
+     */
+    public <T> T execute(String node, String operation, int attempts, Callable<T> call) {
+        try {
+            return submit(node, operation, attempts, call).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MediaUnavailableException(operation + " 被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException(operation + " 失败: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    public <T> T execute(String node, String operation, Callable<T> call) {
+        return execute(node, operation, maxAttempts, call);
+    }
+
+    public <T> CompletableFuture<T> submit(String node, String operation, Callable<T> call) {
+        return submit(node, operation, maxAttempts, call);
+    }
+
+    /**
+     * 异步调用，返回的 Future 最迟在截止时间完成
+     */
+    public <T> CompletableFuture<T> submit(String node, String operation, int attempts, Callable<T> call) {
+        Call<T> context = new Call<>(node(node), operation, attempts, call,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(callTimeoutMs));
+        attempt(context, 1);
+        return context.result;
+    }
+
+    public State getState(String node) {
+        return node(node).breaker.getState();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private <T> void attempt(Call<T> call, int attempt) {
+        Node node = call.node;
+        if (!node.breaker.tryAcquire()) {
+            node.circuitRejections.increment();
+            call.result.completeExceptionally(new MediaUnavailableException(
+                    call.operation + " 失败: 媒体节点熔断中 " + node.name));
+            return;
+        }
+        if (!node.bulkhead.tryAcquire()) {
+            node.breaker.release();
+            node.bulkheadRejections.increment();
+            call.result.completeExceptionally(new MediaUnavailableException(
+                    call.operation + " 失败: 媒体节点并发已满 " + node.name));
+            return;
+        }
+
+        CompletableFuture<T> running;
+        try {
+            running = CompletableFuture.supplyAsync(() -> {
+                if (Thread.currentThread() == retryThread) {
+                    // 线程池用尽后由提交线程执行: 不能在唯一的调度线程上发起阻塞调用
+                    throw new CompletionException(new RejectedExecutionException("任务回落到重试调度线程"));
+                }
+                try {
+                    return call.call.call();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, mediaExecutor);
+        } catch (RejectedExecutionException e) {
+            node.bulkhead.release();
+            node.breaker.release();
+            node.bulkheadRejections.increment();
+            call.result.completeExceptionally(new MediaUnavailableException(call.operation + " 失败: 媒体 I/O 线程池已满", e));
+            return;
+        }
+        // 舱壁名额在调用真正结束时归还，超时放弃等待的调用仍然计入在途
+        running.whenComplete((value, error) -> node.bulkhead.release());
+
+        long remaining = call.deadline - System.nanoTime();
+        running.copy().orTimeout(Math.max(remaining, 0), TimeUnit.NANOSECONDS).whenComplete((value, error) -> {
+            if (error == null) {
+                node.breaker.onSuccess();
+                call.result.complete(value);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof RejectedExecutionException) {
+                node.breaker.release();
+                node.bulkheadRejections.increment();
+                call.result.completeExceptionally(new MediaUnavailableException(
+                        call.operation + " 失败: 媒体 I/O 线程池已满", cause));
+                return;
+            }
+            boolean timeout = cause instanceof TimeoutException;
+            boolean retryable = !timeout && isRetryable(cause);
+            if (timeout || retryable) {
+                node.breaker.onFailure();
+            } else {
+                // 节点正常返回了确定性错误
+                node.breaker.onSuccess();
+            }
+
+            long backoffMs = backoff(attempt);
+            long left = TimeUnit.NANOSECONDS.toMillis(call.deadline - System.nanoTime());
+            if (retryable && attempt < call.attempts && left > backoffMs) {
+                log.warn("媒体调用失败，{}ms 后重试 - 操作: {}, 节点: {}, 尝试: {}/{}, 原因: {}",
+                        backoffMs, call.operation, node.name, attempt, call.attempts, cause.getMessage());
+                meterRegistry.counter("rtc.media.calls.retries", "operation", call.operation).increment();
+                scheduler.schedule(() -> attempt(call, attempt + 1), backoffMs, TimeUnit.MILLISECONDS);
+                return;
+            }
+            if (timeout) {
+                call.result.completeExceptionally(new MediaUnavailableException(
+                        call.operation + " 超时 (" + callTimeoutMs + "ms) - 节点: " + node.name, cause));
+            } else {
+                call.result.completeExceptionally(new RuntimeException(
+                        call.operation + " 失败 (尝试 " + attempt + " 次): " + cause.getMessage(), cause));
+            }
+        });
+    }
+
+    /**
+     * 错误是否值得重试
+     * SDK 把 Twirp 错误包装为普通异常，按异常链上的 I/O 异常类型、错误码和 HTTP 状态判断；无法识别的错误不重试
+     */
+    static boolean isRetryable(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof MediaUnavailableException || t instanceof RejectedExecutionException) {
+                return false;
+            }
+            if (t instanceof IOException) {
+                return true;
+            }
+            String message = t.getMessage();
+            if (message == null) {
+                continue;
+            }
+            String lower = message.toLowerCase(Locale.ROOT);
+            if (PERMANENT_CODES.stream().anyMatch(lower::contains)) {
+                return false;
+            }
+            if (TRANSIENT_CODES.stream().anyMatch(lower::contains)) {
+                return true;
+            }
+            Matcher status = HTTP_STATUS.matcher(lower);
+            if (status.find()) {
+                int code = Integer.parseInt(status.group(1));
+                return code >= 500 || code == 408 || code == 429;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * full jitter 退避
+     */
+    long backoff(int attempt) {
+        long ceiling = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt - 1, 20));
+        return 1 + ThreadLocalRandom.current().nextLong(Math.max(ceiling, 1));
+    }
+
+    private Node node(String name) {
+        Node node = nodes.get(name);
+        return node != null ? node : nodes.computeIfAbsent(name, this::newNode);
+    }
+
+    private Node newNode(String name) {
+        CircuitBreaker breaker = new CircuitBreaker(windowSize, minimumCalls, failureRatePercent, openMs,
+                halfOpenCalls, System::currentTimeMillis, (from, to) -> {
+                    log.warn("媒体节点熔断状态变化 - 节点: {}, {} -> {}", name, from, to);
+                    meterRegistry.counter("rtc.media.circuit.transitions",
+                            "node", name, "from", from.name(), "to", to.name()).increment();
+                });
+        Semaphore bulkhead = new Semaphore(maxConcurrent);
+
+        Gauge.builder("rtc.media.circuit.state", breaker, b -> b.getState().getCode())
+                .description("媒体节点熔断状态 (0 关闭, 1 打开, 2 半开)")
+                .tag("node", name)
+                .register(meterRegistry);
+        Gauge.builder("rtc.media.bulkhead.in.flight", bulkhead, s -> maxConcurrent - s.availablePermits())
+                .description("媒体节点在途调用数")
+                .tag("node", name)
+                .register(meterRegistry);
+        return new Node(name, breaker, bulkhead,
+                rejections(name, "circuit_open"), rejections(name, "bulkhead_full"));
+    }
+
+    private Counter rejections(String node, String reason) {
+        return Counter.builder("rtc.media.calls.rejected")
+                .description("被熔断器或舱壁拒绝的媒体调用数")
+                .tag("node", node)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private record Node(String name, CircuitBreaker breaker, Semaphore bulkhead,
+                        Counter circuitRejections, Counter bulkheadRejections) {
+    }
+
+    private record Call<T>(Node node, String operation, int attempts, Callable<T> call, long deadline,
+                           CompletableFuture<T> result) {
+        Call(Node node, String operation, int attempts, Callable<T> call, long deadline) {
+            this(node, operation, attempts, call, deadline, new CompletableFuture<>());
+        }
+    }
+}
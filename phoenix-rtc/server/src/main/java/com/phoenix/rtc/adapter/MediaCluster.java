@@ -0,0 +1,462 @@
+package com.phoenix.rtc.adapter;
+
+import com.phoenix.rtc.cache.NearCache;
+import com.phoenix.rtc.exception.MediaUnavailableException;
+import io.livekit.server.RoomInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 媒体节点集群与房间放置
+ * 单个 LIVEKIT_URL 时整个部署的容量受限于一台 SFU，这里把房间分散到多台节点上。两种放置策略:
+ *
+ * 1. least-loaded (默认): 选负载分数最小的节点。分数 = max(房间占用率, (参与者 + 大房间预留) / 参与者容量)
+ *    + latencyWeight * min(1, createRoom 平均耗时 / latencyTarget)；
+ *    分数在加入/离开、建房/删房、定时采样时更新到负载索引 (锦标赛树)，选择时 O(1)、更新 O(log N)，不分配内存
+ * 2. consistent-hash: 每个节点按容量比例在环上放置虚拟节点，房间名哈希后顺时针找到首选节点；
+ *    有界负载: 节点房间数上限 = min(容量, ceil(loadFactor * (总房间数 + 1) * 节点容量 / 总容量))，超限时沿环顺延
+ *
+ * 大房间 (预计人数 >= largeRoomParticipants，如万人直播) 建房时按 预计人数 * largeRoomReserveRatio 预留参与者名额，
+ * 观众陆续到场时逐个抵扣，避免开播前的空房间看起来很闲、又被放进别的大房间。
+ *
+ * 排空中的节点不参与放置，已有房间照常服务直到结束；排空状态由 MediaDrainService 经 Redis 在各实例间同步。
+ * 房间所在节点: 本节点放置的房间记在本地；其他实例放置的房间由 placementLookup 从房间元数据读取，
+ * 都没有时 (旧房间) 取环上的首选节点
+ */
+@Slf4j
+public class MediaCluster {
+
+    public enum Strategy {
+        LEAST_LOADED, CONSISTENT_HASH
+    }
+
+    /**
+     * 放置参数
+     *
+     * @param virtualNodes          容量最大的节点在环上的虚拟节点数，其余节点按容量比例
+     * @param loadFactor            有界负载系数 (> 1)，越小越均衡，越大越贴近纯一致性哈希
+     * @param largeRoomParticipants 预计人数达到该值的房间按大房间预留名额
+     * @param largeRoomReserveRatio 大房间预留 预计人数 * ratio 个参与者名额
+     * @param latencyTargetMs       createRoom 平均耗时达到该值时延迟惩罚取满
+     * @param latencyWeight         延迟惩罚在分数中的权重
+     */
+    public record Policy(Strategy strategy, int virtualNodes, double loadFactor, int largeRoomParticipants,
+                         double largeRoomReserveRatio, long latencyTargetMs, double latencyWeight) {
+    }
+
+    private static final double LATENCY_EWMA_ALPHA = 0.2;
+
+    private final List<MediaNode> nodes;
+    private final Map<String, MediaNode> nodesByUrl;
+    private final Policy policy;
+    private final Function<String, String> placementLookup;
+    private final NearCache<String, Placement> placements;
+
+    // 环: 按哈希值排序的虚拟节点
+    private final long[] ringHashes;
+    private final MediaNode[] ringNodes;
+
+    // 负载索引，分数的计算与写入在同一把锁内，避免旧分数覆盖新分数
+    private final NodeLoadIndex loadIndex;
+
+    private final Map<String, Counter> primaryPlacements = new LinkedHashMap<>();
+    private final Map<String, Counter> spillPlacements = new LinkedHashMap<>();
+
+    /**
+     * @param placementLookup 房间名 -> 房间元数据中记录的节点 URL，没有时返回 null
+     */
+    public MediaCluster(List<MediaNode> nodes, Policy policy, Function<String, String> placementLookup,
+                        int maxRooms, long placementTtlMillis, MeterRegistry meterRegistry) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个媒体节点");
+        }
+        if (policy.loadFactor() <= 1.0) {
+            throw new IllegalArgumentException("有界负载系数必须大于 1: " + policy.loadFactor());
+        }
+        this.nodes = List.copyOf(nodes);
+        this.policy = policy;
+        this.placementLookup = placementLookup;
+        this.placements = new NearCache<>(maxRooms, placementTtlMillis);
+
+        Map<String, MediaNode> byUrl = new LinkedHashMap<>();
+        int maxCapacity = 0;
+        for (int i = 0; i < this.nodes.size(); i++) {
+            MediaNode node = this.nodes.get(i);
+            if (byUrl.put(node.getUrl(), node) != null) {
+                throw new IllegalArgumentException("媒体节点重复: " + node.getUrl());
+            }
+            node.setIndex(i);
+            maxCapacity = Math.max(maxCapacity, node.getCapacity());
+        }
+        this.nodesByUrl = Collections.unmodifiableMap(byUrl);
+
+        List<long[]> points = new ArrayList<>();
+        for (MediaNode node : this.nodes) {
+            int replicas = (int) Math.max(1,
+                    Math.round((double) policy.virtualNodes() * node.getCapacity() / maxCapacity));
+            for (int r = 0; r < replicas; r++) {
+                points.add(new long[]{hash(node.getUrl() + "#" + r), node.getIndex()});
+            }
+        }
+        points.sort((a, b) -> Long.compare(a[0], b[0]));
+        this.ringHashes = new long[points.size()];
+        this.ringNodes = new MediaNode[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            ringHashes[i] = points.get(i)[0];
+            ringNodes[i] = this.nodes.get((int) points.get(i)[1]);
+        }
+
+        this.loadIndex = new NodeLoadIndex(this.nodes.size());
+        for (MediaNode node : this.nodes) {
+            rescore(node);
+            Gauge.builder("rtc.media.node.rooms", node, MediaNode::getRooms)
+                    .description("媒体节点上的房间数 (估计值，定时按 LiveKit 校准)")
+                    .tag("node", node.getUrl())
+                    .register(meterRegistry);
+            Gauge.builder("rtc.media.node.participants", node, MediaNode::getParticipants)
+                    .description("媒体节点上的参与者数 (估计值，定时按 LiveKit 校准)")
+                    .tag("node", node.getUrl())
+                    .register(meterRegistry);
+            Gauge.builder("rtc.media.node.reserved", node, MediaNode::getReserved)
+                    .description("大房间预留但尚未到场的参与者名额")
+                    .tag("node", node.getUrl())
+                    .register(meterRegistry);
+            Gauge.builder("rtc.media.node.create.latency", node, MediaNode::getCreateLatencyMs)
+                    .description("createRoom 耗时的指数加权平均 (毫秒)")
+                    .tag("node", node.getUrl())
+                    .register(meterRegistry);
+            Gauge.builder("rtc.media.node.score", this, c -> c.getScore(node))
+                    .description("媒体节点负载分数 (越小越空闲，不可用时为无穷大)")
+                    .tag("node", node.getUrl())
+                    .register(meterRegistry);
+            Gauge.builder("rtc.media.node.draining", node, n -> n.isDraining() ? 1 : 0)
+                    .description("媒体节点是否排空中")
+                    .tag("node", node.getUrl())
+                    .register(meterRegistry);
+            primaryPlacements.put(node.getUrl(), placementCounter(meterRegistry, node, "primary"));
+            spillPlacements.put(node.getUrl(), placementCounter(meterRegistry, node, "spill"));
+        }
+        log.info("媒体集群初始化 - 节点: {}, 策略: {}, 环上虚拟节点: {}", this.nodes, policy.strategy(), ringHashes.length);
+    }
+
+    /**
+     * 为新房间选择节点并计入该节点的房间数
+     *
+     * @param expectedParticipants 预计人数 (房间人数上限)，未知时为 0
+     * @throws MediaUnavailableException 所有节点都已排空或满载
+     */
+    public MediaNode place(String roomName, int expectedParticipants) {
+        int reserve = expectedParticipants >= policy.largeRoomParticipants()
+                ? (int) Math.ceil(expectedParticipants * policy.largeRoomReserveRatio()) : 0;
+        MediaNode node;
+        synchronized (loadIndex) {
+            node = policy.strategy() == Strategy.LEAST_LOADED ? leastLoaded(reserve) : hashed(roomName);
+            node.roomAdded();
+            node.reservedChanged(reserve);
+            loadIndex.update(node.getIndex(), score(node));
+        }
+        placements.put(roomName, new Placement(node, reserve, new AtomicInteger()));
+        return node;
+    }
+
+    public MediaNode place(String roomName) {
+        return place(roomName, 0);
+    }
+
+    /**
+     * 在指定节点放置房间 (预建房间池按节点补充)
+     *
+     * @throws MediaUnavailableException 节点排空中或已满载
+     */
+    public MediaNode placeOn(String roomName, MediaNode node, int expectedParticipants) {
+        int reserve = expectedParticipants >= policy.largeRoomParticipants()
+                ? (int) Math.ceil(expectedParticipants * policy.largeRoomReserveRatio()) : 0;
+        synchronized (loadIndex) {
+            if (loadIndex.score(node.getIndex()) == Double.POSITIVE_INFINITY) {
+                throw new MediaUnavailableException("媒体节点不可放置 (排空中或满载): " + node.getUrl());
+            }
+            node.roomAdded();
+            node.reservedChanged(reserve);
+            loadIndex.update(node.getIndex(), score(node));
+        }
+        placements.put(roomName, new Placement(node, reserve, new AtomicInteger()));
+        return node;
+    }
+
+    /**
+     * 接管其他实例已放置的房间 (从预建房间池取出): 记录所在节点并计入本实例的节点房间数，
+     * 与之后的 release 对称；本实例自己放置的房间已计入，不重复计入
+     */
+    public void adopt(String roomName, MediaNode node) {
+        NearCache.Entry<Placement> entry = placements.getEntry(roomName);
+        if (entry != null && entry.value().node() == node) {
+            return;
+        }
+        synchronized (loadIndex) {
+            node.roomAdded();
+            loadIndex.update(node.getIndex(), score(node));
+        }
+        placements.put(roomName, new Placement(node, 0, new AtomicInteger()));
+    }
+
+    /**
+     * 房间所在节点
+     */
+    public MediaNode locate(String roomName) {
+        return placement(roomName).node();
+    }
+
+    /**
+     * 房间已删除 (或建房失败)，从节点的房间数、参与者数和预留中扣除
+     */
+    public void release(String roomName) {
+        Placement placement = placement(roomName);
+        placements.invalidate(roomName);
+        MediaNode node = placement.node();
+        int present = placement.participants().get();
+        node.roomRemoved();
+        node.participantsChanged(-present);
+        node.reservedChanged(-Math.max(0, placement.reserve() - present));
+        rescore(node);
+    }
+
+    /**
+     * 本服务的加入记账: 参与者计入房间所在节点，大房间抵扣一个预留名额
+     */
+    public void participantJoined(String roomName) {
+        Placement placement = placement(roomName);
+        int present = placement.participants().incrementAndGet();
+        MediaNode node = placement.node();
+        node.participantsChanged(1);
+        if (present <= placement.reserve()) {
+            node.reservedChanged(-1);
+        }
+        rescore(node);
+    }
+
+    /**
+     * 本服务的离开记账，大房间归还一个预留名额
+     */
+    public void participantLeft(String roomName) {
+        Placement placement = placement(roomName);
+        int present = placement.participants().getAndDecrement();
+        if (present <= 0) {
+            placement.participants().incrementAndGet();
+            return;
+        }
+        MediaNode node = placement.node();
+        node.participantsChanged(-1);
+        if (present <= placement.reserve()) {
+            node.reservedChanged(1);
+        }
+        rescore(node);
+    }
+
+    /**
+     * 按 LiveKit 采样的实际数据校准节点: 房间数、参与者数，以及本地放置的房间各自的到场人数。
+     * 预留按采样结果从头重算，只计仍在 LiveKit 上、且本地还有放置记录的大房间；
+     * 放置记录过期或被淘汰后，release 扣不到它的预留，由下一次采样清掉，不会一直泄漏
+     */
+    public void sample(MediaNode node, List<RoomInfo> rooms) {
+        int participants = 0;
+        int reserved = 0;
+        for (RoomInfo room : rooms) {
+            participants += room.getNumParticipants();
+            NearCache.Entry<Placement> entry = placements.getEntry(room.getName());
+            if (entry != null && entry.value().node() == node) {
+                Placement placement = entry.value();
+                placement.participants().set(room.getNumParticipants());
+                reserved += Math.max(0, placement.reserve() - room.getNumParticipants());
+            }
+        }
+        node.syncRooms(rooms.size());
+        node.syncParticipants(participants);
+        node.syncReserved(reserved);
+        rescore(node);
+    }
+
+    /**
+     * 记录一次 createRoom 耗时
+     */
+    public void recordCreateLatency(MediaNode node, long nanos) {
+        node.recordCreateLatency(nanos / 1_000_000.0, LATENCY_EWMA_ALPHA);
+        rescore(node);
+    }
+
+    /**
+     * 开始排空节点
+     *
+     * @return 节点不存在时返回 false
+     */
+    public boolean drain(String url) {
+        MediaNode node = nodesByUrl.get(url);
+        if (node == null) {
+            return false;
+        }
+        node.setDraining(true);
+        rescore(node);
+        log.warn("媒体节点开始排空 - 节点: {}, 剩余房间: {}", url, node.getRooms());
+        return true;
+    }
+
+    /**
+     * 取消排空，节点重新参与放置
+     */
+    public boolean undrain(String url) {
+        MediaNode node = nodesByUrl.get(url);
+        if (node == null) {
+            return false;
+        }
+        node.setDraining(false);
+        rescore(node);
+        log.info("媒体节点恢复放置 - 节点: {}", url);
+        return true;
+    }
+
+    public List<MediaNode> getNodes() {
+        return nodes;
+    }
+
+    public MediaNode getNode(String url) {
+        return nodesByUrl.get(url);
+    }
+
+    public double getScore(MediaNode node) {
+        synchronized (loadIndex) {
+            return loadIndex.score(node.getIndex());
+        }
+    }
+
+    private MediaNode leastLoaded(int reserve) {
+        int winner = loadIndex.min();
+        if (winner < 0) {
+            throw new MediaUnavailableException("没有可用的媒体节点 (全部排空或满载)");
+        }
+        MediaNode node = nodes.get(winner);
+        // 最空闲的节点也放不下大房间的预留时拒绝，而不是把大房间挤进快满的节点
+        if (reserve > 0 && (long) node.getParticipants() + node.getReserved() + reserve > node.getParticipantCapacity()) {
+            throw new MediaUnavailableException("没有足够余量承载大房间 (预留 " + reserve + " 人)");
+        }
+        primaryPlacements.get(node.getUrl()).increment();
+        return node;
+    }
+
+    private MediaNode hashed(String roomName) {
+        long totalRooms = 0;
+        long totalCapacity = 0;
+        for (MediaNode node : nodes) {
+            if (!node.isDraining()) {
+                totalRooms += node.getRooms();
+                totalCapacity += node.getCapacity();
+            }
+        }
+        if (totalCapacity == 0) {
+            throw new MediaUnavailableException("没有可用的媒体节点 (全部排空中)");
+        }
+
+        int start = firstPoint(hash(roomName));
+        MediaNode primary = ringNodes[start];
+        for (int i = 0; i < ringNodes.length; i++) {
+            MediaNode node = ringNodes[(start + i) % ringNodes.length];
+            if (node.isDraining() || node.getRooms() >= bound(node, totalRooms, totalCapacity)) {
+                continue;
+            }
+            (node == primary ? primaryPlacements : spillPlacements).get(node.getUrl()).increment();
+            return node;
+        }
+        throw new MediaUnavailableException("没有可用的媒体节点 (全部满载)");
+    }
+
+    private void rescore(MediaNode node) {
+        synchronized (loadIndex) {
+            loadIndex.update(node.getIndex(), score(node));
+        }
+    }
+
+    /**
+     * 负载分数，排空中或房间数/参与者数已满时为无穷大
+     */
+    private double score(MediaNode node) {
+        long participants = (long) node.getParticipants() + node.getReserved();
+        if (node.isDraining() || node.getRooms() >= node.getCapacity() || participants >= node.getParticipantCapacity()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double roomLoad = (double) node.getRooms() / node.getCapacity();
+        double participantLoad = (double) participants / node.getParticipantCapacity();
+        double latency = policy.latencyWeight() * Math.min(1.0, node.getCreateLatencyMs() / policy.latencyTargetMs());
+        return Math.max(roomLoad, participantLoad) + latency;
+    }
+
+    private Placement placement(String roomName) {
+        return placements.get(roomName, this::lookup);
+    }
+
+    private Placement lookup(String roomName) {
+        String url = null;
+        try {
+            url = placementLookup.apply(roomName);
+        } catch (Exception e) {
+            log.warn("读取房间所在媒体节点失败，按首选节点处理 - 房间: {}: {}", roomName, e.getMessage());
+        }
+        MediaNode node = url != null ? nodesByUrl.get(url) : null;
+        return new Placement(node != null ? node : ringNodes[firstPoint(hash(roomName))], 0, new AtomicInteger());
+    }
+
+    private long bound(MediaNode node, long totalRooms, long totalCapacity) {
+        long fair = (long) Math.ceil(policy.loadFactor() * (totalRooms + 1) * node.getCapacity() / totalCapacity);
+        return Math.min(node.getCapacity(), fair);
+    }
+
+    /**
+     * 环上第一个哈希值 >= h 的虚拟节点，超过末尾时回到开头
+     */
+    private int firstPoint(long h) {
+        int index = Arrays.binarySearch(ringHashes, h);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index == ringHashes.length ? 0 : index;
+    }
+
+    /**
+     * 64 位 FNV-1a + murmur3 fmix64，逐字符计算，不分配内存
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static Counter placementCounter(MeterRegistry registry, MediaNode node, String result) {
+        return Counter.builder("rtc.media.placements")
+                .description("房间放置次数 (primary 首选/最空闲节点, spill 一致性哈希首选节点超限后顺延)")
+                .tag("node", node.getUrl())
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * 房间所在节点，以及本地记账的预留名额和到场人数
+     */
+    private record Placement(MediaNode node, int reserve, AtomicInteger participants) {
+    }
+}
@@ -0,0 +1,148 @@
+package com.phoenix.rtc.adapter;
+
+import io.livekit.server.LiveKitServerClient;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 媒体节点 (一台 LiveKit SFU)
+ * 房间数、参与者数是本节点估计值: 建房/删房、加入/离开时增减，定时按 LiveKit 的实际数据校准
+ */
+public final class MediaNode {
+
+    private final String url;
+    private final int capacity;
+    private final int participantCapacity;
+    private final LiveKitServerClient client;
+    private final AtomicInteger rooms = new AtomicInteger();
+    private final AtomicInteger participants = new AtomicInteger();
+    // 大房间预留但尚未到场的参与者名额
+    private final AtomicInteger reserved = new AtomicInteger();
+    private volatile double createLatencyMs;
+    private volatile boolean draining;
+
+    // 在 MediaCluster 节点列表中的下标 (负载索引的叶子)
+    private int index = -1;
+
+    public MediaNode(String url, int capacity, LiveKitServerClient client) {
+        this(url, capacity, Integer.MAX_VALUE, client);
+    }
+
+    public MediaNode(String url, int capacity, int participantCapacity, LiveKitServerClient client) {
+        if (capacity <= 0 || participantCapacity <= 0) {
+            throw new IllegalArgumentException("媒体节点容量必须大于 0: " + url);
+        }
+        this.url = url;
+        this.capacity = capacity;
+        this.participantCapacity = participantCapacity;
+        this.client = client;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * 最多承载的房间数
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 最多承载的参与者数
+     */
+    public int getParticipantCapacity() {
+        return participantCapacity;
+    }
+
+    public LiveKitServerClient getClient() {
+        return client;
+    }
+
+    public int getRooms() {
+        return rooms.get();
+    }
+
+    public int getParticipants() {
+        return participants.get();
+    }
+
+    public int getReserved() {
+        return reserved.get();
+    }
+
+    /**
+     * 最近 createRoom 耗时的指数加权平均 (毫秒)
+     */
+    public double getCreateLatencyMs() {
+        return createLatencyMs;
+    }
+
+    /**
+     * 排空中: 不再放置新房间，已有房间照常服务直到结束
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    void setDraining(boolean draining) {
+        this.draining = draining;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    void roomAdded() {
+        rooms.incrementAndGet();
+    }
+
+    void roomRemoved() {
+        rooms.updateAndGet(count -> Math.max(0, count - 1));
+    }
+
+    void syncRooms(int actual) {
+        rooms.set(actual);
+    }
+
+    void participantsChanged(int delta) {
+        addFloorZero(participants, delta);
+    }
+
+    void syncParticipants(int actual) {
+        participants.set(actual);
+    }
+
+    void reservedChanged(int delta) {
+        addFloorZero(reserved, delta);
+    }
+
+    void syncReserved(int actual) {
+        reserved.set(actual);
+    }
+
+    void recordCreateLatency(double millis, double alpha) {
+        double previous = createLatencyMs;
+        createLatencyMs = previous == 0 ? millis : previous + alpha * (millis - previous);
+    }
+
+    /**
+     * 加减后不低于 0 (校准后本地计数可能先于实际值归零)；CAS 循环，不分配内存
+     */
+    private static void addFloorZero(AtomicInteger counter, int delta) {
+        int current;
+        do {
+            current = counter.get();
+        } while (!counter.compareAndSet(current, Math.max(0, current + delta)));
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
@@ -0,0 +1,65 @@
+package com.phoenix.rtc.adapter;
+
+import java.util.Arrays;
+
+/**
+ * 媒体节点负载索引 (锦标赛树)
+ * 叶子是各节点的负载分数，内部节点记录子树中分数最小的叶子；
+ * 更新一个节点 O(log N)，取最空闲节点 O(1)，全部是原始类型数组，不分配内存。
+ *
+ * 非线程安全，由 MediaCluster 在锁内调用
+ */
+final class NodeLoadIndex {
+
+    private final int leaves;
+    private final double[] scores;
+    // winners[i]: 以 i 为根的子树中分数最小的节点下标，-1 表示没有节点
+    private final int[] winners;
+
+    NodeLoadIndex(int size) {
+        int capacity = 1;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        this.leaves = capacity;
+        this.scores = new double[capacity];
+        this.winners = new int[capacity * 2];
+        Arrays.fill(scores, Double.POSITIVE_INFINITY);
+        Arrays.fill(winners, -1);
+        for (int i = 0; i < size; i++) {
+            winners[capacity + i] = i;
+        }
+        for (int i = capacity - 1; i > 0; i--) {
+            winners[i] = better(winners[2 * i], winners[2 * i + 1]);
+        }
+    }
+
+    void update(int node, double score) {
+        scores[node] = score;
+        for (int i = (leaves + node) >> 1; i > 0; i >>= 1) {
+            winners[i] = better(winners[2 * i], winners[2 * i + 1]);
+        }
+    }
+
+    /**
+     * 分数最小的节点，全部不可用 (分数为无穷大) 时返回 -1
+     */
+    int min() {
+        int winner = winners[1];
+        return winner >= 0 && scores[winner] != Double.POSITIVE_INFINITY ? winner : -1;
+    }
+
+    double score(int node) {
+        return scores[node];
+    }
+
+    private int better(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        return scores[b] < scores[a] ? b : a;
+    }
+}
@@ -1,18 +1,18 @@
 package com.phoenix.rtc.aspect;
 
 import com.phoenix.rtc.config.JwtConfig;
+import com.phoenix.rtc.redis.RtcKeyBuilder;
+import com.phoenix.rtc.redis.RtcReactiveOperations;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import jakarta.servlet.http.HttpServletRequest;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 限流切面
@@ -24,7 +24,7 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class RateLimitAspect {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RtcReactiveOperations rtcReactiveOperations;
     private final JwtConfig jwtConfig;
 
     // 限制规则: 每60秒最多10次请求
@@ -47,26 +47,18 @@ public class RateLimitAspect {
             return; // 未认证用户不进行限流
         }
 
-        String redisKey = String.format("ratelimit:rtc:%s", userId);
+        // 固定窗口计数: INCR 一次往返，首次请求再设置过期时间
+        // Key 直接以字节构造，走 Lettuce 异步命令的 byte[] API，不经过 String.format 和 Key 序列化
+        byte[] redisKey = RtcKeyBuilder.rateLimit(userId);
+        Long currentCount = rtcReactiveOperations.await(
+            rtcReactiveOperations.incrementWindow(redisKey, TIME_WINDOW));
 
-        // 获取当前计数
-        Integer currentCount = (Integer) redisTemplate.opsForValue().get(redisKey);
-
-        if (currentCount == null) {
-            // 第一次请求，设置计数和过期时间
-            redisTemplate.opsForValue().set(redisKey, 1, TIME_WINDOW, TimeUnit.SECONDS);
-            return;
-        }
-
-        if (currentCount >= MAX_REQUESTS) {
+        if (currentCount != null && currentCount > MAX_REQUESTS) {
             // 超过限制
-            Long ttl = redisTemplate.getExpire(redisKey);
+            Long ttl = rtcReactiveOperations.await(rtcReactiveOperations.ttl(redisKey));
             throw new RateLimitException("请求过于频繁，请稍后再试。限制: " + MAX_REQUESTS +
                 "次/" + TIME_WINDOW + "秒。剩余时间: " + ttl + "秒");
         }
-
-        // 计数+1
-        redisTemplate.opsForValue().increment(redisKey);
     }
 
     private String extractUserIdFromHeader(String authHeader) {
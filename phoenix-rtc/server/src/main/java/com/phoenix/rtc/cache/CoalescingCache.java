@@ -0,0 +1,301 @@
+package com.phoenix.rtc.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 合并请求的短 TTL 缓存 (single-flight + stale-while-revalidate)
+ * 用于远程查询结果: 同一个 key 同时只有一次加载在途，并发的调用方等待并共享这次加载的结果。
+ *
+ * 1. 加载后 freshMillis 内直接返回缓存值
+ * 2. 之后 staleMillis 内仍返回缓存值，同时在 refreshExecutor 上后台刷新 (同一 key 只刷新一次)
+ * 3. 超过 freshMillis + staleMillis 视为未命中，由第一个调用方加载，其余调用方合并到这次加载
+ *
+ * loader 返回 null 或抛异常时不缓存；异常会抛给所有合并的调用方，后台刷新失败时继续返回旧值直到过期。
+ * getAsync 的 loader 返回 Future，等待加载不占用线程，后台刷新也不经过 refreshExecutor；与 get 共用缓存和在途加载。
+ * invalidate 时递增该 key 的代数并移除在途的加载: 失效之前发起的加载返回后不写缓存，避免旧值覆盖失效
+ */
+@Slf4j
+public class CoalescingCache<K, V> {
+
+    private final NearCache<K, V> store;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    // 有加载在途的 key 的代数，加载全部结束后移除
+    private final Map<K, Generation> generations = new ConcurrentHashMap<>();
+    private final long freshMillis;
+    private final long staleMillis;
+    private final Executor refreshExecutor;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+
+    public CoalescingCache(int maxSize, long freshMillis, long staleMillis, Executor refreshExecutor) {
+        this.store = new NearCache<>(maxSize, freshMillis + staleMillis);
+        this.freshMillis = freshMillis;
+        this.staleMillis = staleMillis;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * 读取缓存，未命中时加载或合并到在途的加载
+     */
+    public V get(K key, Function<K, V> loader) {
+        NearCache.Entry<V> entry = store.getEntry(key);
+        if (entry != null) {
+            if (System.currentTimeMillis() - entry.loadedAt() <= freshMillis) {
+                hits.increment();
+            } else {
+                staleHits.increment();
+                refresh(key, loader);
+            }
+            return entry.value();
+        }
+
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        misses.increment();
+        // 查缓存和抢到加载之间，上一次加载可能刚好完成
+        entry = store.getEntry(key);
+        if (entry != null) {
+            inFlight.remove(key, created);
+            created.complete(entry.value());
+            return entry.value();
+        }
+        return load(key, loader, created);
+    }
+
+    /**
+     * 异步读取: 命中时返回已完成的 Future，未命中时发起异步加载或合并到在途的加载
+     */
+    public CompletableFuture<V> getAsync(K key, Function<K, CompletableFuture<V>> loader) {
+        NearCache.Entry<V> entry = store.getEntry(key);
+        if (entry != null) {
+            if (System.currentTimeMillis() - entry.loadedAt() <= freshMillis) {
+                hits.increment();
+            } else {
+                staleHits.increment();
+                refreshAsync(key, loader);
+            }
+            return CompletableFuture.completedFuture(entry.value());
+        }
+
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+        misses.increment();
+        entry = store.getEntry(key);
+        if (entry != null) {
+            inFlight.remove(key, created);
+            created.complete(entry.value());
+            return created.copy();
+        }
+        loadAsync(key, loader, created);
+        return created.copy();
+    }
+
+    /**
+     * 失效缓存值；在途的加载结果不再写入缓存，之后的调用重新加载
+     */
+    public void invalidate(K key) {
+        generations.computeIfPresent(key, (k, generation) -> {
+            generation.value++;
+            return generation;
+        });
+        inFlight.remove(key);
+        store.invalidate(key);
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public long freshMillis() {
+        return freshMillis;
+    }
+
+    public long staleMillis() {
+        return staleMillis;
+    }
+
+    /**
+     * 返回新鲜缓存值的次数
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * 返回陈旧值并触发后台刷新的次数
+     */
+    public long staleHitCount() {
+        return staleHits.sum();
+    }
+
+    /**
+     * 自己发起加载的调用次数
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 合并到他人在途加载的调用次数
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * 实际调用 loader 的次数 (含后台刷新)
+     */
+    public long loadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * 命中率: 不需要等待加载的调用占比 (陈旧值也算命中)
+     */
+    public double hitRatio() {
+        double served = hits.sum() + staleHits.sum();
+        double total = served + misses.sum() + coalesced.sum();
+        return total == 0 ? 0 : served / total;
+    }
+
+    /**
+     * 合并率: 未命中的调用中合并到在途加载、没有各自发请求的占比
+     */
+    public double coalescingRatio() {
+        double joined = coalesced.sum();
+        double total = joined + misses.sum();
+        return total == 0 ? 0 : joined / total;
+    }
+
+    private void refresh(K key, Function<K, V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, created) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(key, loader, created);
+                } catch (RuntimeException e) {
+                    log.warn("后台刷新缓存失败，继续使用旧值: {}", key, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+    }
+
+    private void refreshAsync(K key, Function<K, CompletableFuture<V>> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, created) != null) {
+            return;
+        }
+        loadAsync(key, loader, created).exceptionally(error -> {
+            log.warn("后台刷新缓存失败，继续使用旧值: {}", key, error);
+            return null;
+        });
+    }
+
+    private CompletableFuture<V> loadAsync(K key, Function<K, CompletableFuture<V>> loader, CompletableFuture<V> created) {
+        loads.increment();
+        long started = begin(key);
+        CompletableFuture<V> loading;
+        try {
+            loading = loader.apply(key);
+        } catch (RuntimeException e) {
+            loading = CompletableFuture.failedFuture(e);
+        }
+        loading.whenComplete((value, error) -> {
+            finish(key, started, error == null ? value : null);
+            inFlight.remove(key, created);
+            if (error == null) {
+                created.complete(value);
+            } else {
+                created.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+        });
+        return created;
+    }
+
+    private V load(K key, Function<K, V> loader, CompletableFuture<V> created) {
+        loads.increment();
+        long started = begin(key);
+        try {
+            V value = loader.apply(key);
+            finish(key, started, value);
+            created.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            finish(key, started, null);
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    /**
+     * 登记一次在途加载，返回加载开始时的代数
+     */
+    private long begin(K key) {
+        return generations.compute(key, (k, generation) -> {
+            Generation current = generation != null ? generation : new Generation();
+            current.loads++;
+            return current;
+        }).value;
+    }
+
+    /**
+     * 加载结束: 与 invalidate 在同一个 key 上串行，代数未变才写缓存
+     */
+    private void finish(K key, long started, V value) {
+        generations.computeIfPresent(key, (k, generation) -> {
+            if (value != null && generation.value == started) {
+                store.put(key, value);
+            }
+            return --generation.loads == 0 ? null : generation;
+        });
+    }
+
+    /**
+     * key 的代数和在途加载数，只在 generations 的 compute 中读写
+     */
+    private static final class Generation {
+        long value;
+        int loads;
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
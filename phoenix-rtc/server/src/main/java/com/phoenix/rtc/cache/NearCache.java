@@ -0,0 +1,146 @@
+package com.phoenix.rtc.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 节点本地近端缓存
+ * 容量有上限，超限时批量淘汰最早加载的条目；条目带 TTL 兜底，防止丢失失效通知后长期读到旧值。
+ * 读路径只有一次 ConcurrentHashMap.get，无锁。
+ * get 加载期间发生 invalidate 时，这次加载的结果不写缓存，避免旧值覆盖失效。
+ */
+public class NearCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    // 有加载在途的 key 的代数，加载全部结束后移除
+    private final Map<K, Generation> generations = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    public NearCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 读取未过期的条目，不存在或已过期返回 null
+     */
+    public Entry<V> getEntry(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.loadedAt() > ttlMillis) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 读取缓存，未命中时调用 loader 加载；loader 返回 null 或加载期间 key 被失效时不缓存
+     */
+    public V get(K key, Function<K, V> loader) {
+        Entry<V> entry = getEntry(key);
+        if (entry != null) {
+            return entry.value();
+        }
+        long started = generations.compute(key, (k, generation) -> {
+            Generation current = generation != null ? generation : new Generation();
+            current.loads++;
+            return current;
+        }).value;
+        V value = null;
+        try {
+            value = loader.apply(key);
+            return value;
+        } finally {
+            finish(key, started, value);
+        }
+    }
+
+    public void put(K key, V value) {
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+    }
+
+    public void invalidate(K key) {
+        generations.computeIfPresent(key, (k, generation) -> {
+            generation.value++;
+            return generation;
+        });
+        entries.remove(key);
+    }
+
+    public void clear() {
+        generations.replaceAll((k, generation) -> {
+            generation.value++;
+            return generation;
+        });
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 加载结束: 与 invalidate 在同一个 key 上串行，代数未变才写缓存
+     */
+    private void finish(K key, long started, V value) {
+        generations.computeIfPresent(key, (k, generation) -> {
+            if (value != null && generation.value == started) {
+                put(key, value);
+            }
+            return --generation.loads == 0 ? null : generation;
+        });
+    }
+
+    /**
+     * 淘汰约 1/8 的条目，优先过期条目，其次最早加载的条目
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        int target = Math.max(1, maxSize / 8);
+        long oldest = Long.MAX_VALUE;
+        int removed = 0;
+        for (Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<K, Entry<V>> e = it.next();
+            long age = now - e.getValue().loadedAt();
+            if (age > ttlMillis) {
+                it.remove();
+                removed++;
+            } else {
+                oldest = Math.min(oldest, e.getValue().loadedAt());
+            }
+        }
+        if (removed >= target) {
+            return;
+        }
+        // 按加载时间从早到晚淘汰: 以最早时间起逐步放宽阈值
+        long threshold = oldest + Math.max(1, (now - oldest) / 8);
+        for (Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator(); it.hasNext() && removed < target; ) {
+            if (it.next().getValue().loadedAt() <= threshold) {
+                it.remove();
+                removed++;
+            }
+        }
+    }
+
+    /**
+     * 缓存条目，loadedAt 用于计算数据陈旧度
+     */
+    public record Entry<V>(V value, long loadedAt) {}
+
+    /**
+     * key 的代数和在途加载数，只在 generations 的 compute 中读写
+     */
+    private static final class Generation {
+        long value;
+        int loads;
+    }
+}
@@ -0,0 +1,165 @@
+package com.phoenix.rtc.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.phoenix.rtc.model.dto.WSMessage;
+import com.phoenix.rtc.service.WebSocketService.AcceptData;
+import com.phoenix.rtc.service.WebSocketService.InviteData;
+import com.phoenix.rtc.service.WebSocketService.LeaveData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * rtc 命令的紧凑 CBOR 编码
+ *
+ * 帧格式为定长数组，不重复字段名:
+ *   [schemaVersion, cmdCode, timestamp, ...字段]
+ *
+ * cmdCode:
+ *   1 ringing       [inviterId, inviterName, roomName, mode, title, inviteId]
+ *   2 peer_accepted [userId, roomName]
+ *   3 peer_left     [userId, roomName]
+ *   4 error         [message]
+ *   0 其他命令       [type, cmd, data]  (data 为通用 CBOR 结构)
+ *
+ * 房间广播在末尾追加房间版本号: [..., version]
+ */
+public class RtcBinaryCodec {
+
+    public static final int SCHEMA_VERSION = 1;
+
+    static final int CMD_GENERIC = 0;
+    static final int CMD_RINGING = 1;
+    static final int CMD_PEER_ACCEPTED = 2;
+    static final int CMD_PEER_LEFT = 3;
+    static final int CMD_ERROR = 4;
+
+    // 各命令的定长字段数 (不含头部三个元素)
+    private static final Map<Integer, Integer> FIELD_COUNTS = Map.of(
+            CMD_GENERIC, 3,
+            CMD_RINGING, 6,
+            CMD_PEER_ACCEPTED, 2,
+            CMD_PEER_LEFT, 2,
+            CMD_ERROR, 1
+    );
+
+    private final CBORFactory factory = new CBORFactory();
+    private final ObjectMapper cborMapper = new ObjectMapper(factory);
+
+    /**
+     * 编码消息
+     */
+    public byte[] encode(WSMessage message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        try (CBORGenerator gen = factory.createGenerator(out)) {
+            int cmd = compactCmd(message);
+
+            gen.writeStartArray();
+            gen.writeNumber(SCHEMA_VERSION);
+            gen.writeNumber(cmd);
+            gen.writeNumber(message.getTimestamp() != null ? message.getTimestamp() : 0L);
+
+            switch (cmd) {
+                case CMD_RINGING -> {
+                    InviteData invite = (InviteData) message.getData();
+                    gen.writeString(invite.inviterId());
+                    gen.writeString(invite.inviterName());
+                    gen.writeString(invite.roomName());
+                    gen.writeString(invite.mode());
+                    gen.writeString(invite.title());
+                    gen.writeString(invite.inviteId());
+                }
+                case CMD_PEER_ACCEPTED -> {
+                    AcceptData accept = (AcceptData) message.getData();
+                    gen.writeString(accept.userId());
+                    gen.writeString(accept.roomName());
+                }
+                case CMD_PEER_LEFT -> {
+                    if (message.getData() instanceof LeaveData leave) {
+                        gen.writeString(leave.userId());
+                        gen.writeString(leave.roomName());
+                    } else {
+                        Map<?, ?> data = (Map<?, ?>) message.getData();
+                        gen.writeString((String) data.get("userId"));
+                        gen.writeString((String) data.get("roomName"));
+                    }
+                }
+                case CMD_ERROR -> gen.writeString((String) message.getData());
+                default -> {
+                    gen.writeString(message.getType());
+                    gen.writeString(message.getCmd());
+                    gen.writeObject(message.getData());
+                }
+            }
+            if (message.getVersion() != null) {
+                gen.writeNumber(message.getVersion());
+            }
+            gen.writeEndArray();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码消息 (客户端实现参考，服务端用于测试和基准)
+     */
+    public WSMessage decode(byte[] bytes) throws IOException {
+        JsonNode frame = cborMapper.readTree(bytes);
+        if (!frame.isArray() || frame.size() < 3) {
+            throw new IOException("无效的 rtc 二进制帧");
+        }
+        if (frame.get(0).asInt() != SCHEMA_VERSION) {
+            throw new IOException("不支持的 rtc 二进制帧版本: " + frame.get(0).asInt());
+        }
+
+        int cmd = frame.get(1).asInt();
+        long timestamp = frame.get(2).asLong();
+
+        WSMessage message = switch (cmd) {
+            case CMD_RINGING -> rtc("ringing", timestamp, new InviteData(text(frame, 3), text(frame, 4),
+                    text(frame, 5), text(frame, 6), text(frame, 7), text(frame, 8)));
+            case CMD_PEER_ACCEPTED -> rtc("peer_accepted", timestamp, new AcceptData(text(frame, 3), text(frame, 4)));
+            case CMD_PEER_LEFT -> rtc("peer_left", timestamp, new LeaveData(text(frame, 3), text(frame, 4)));
+            case CMD_ERROR -> rtc("error", timestamp, text(frame, 3));
+            default -> WSMessage.builder()
+                    .type(text(frame, 3))
+                    .cmd(text(frame, 4))
+                    .data(cborMapper.treeToValue(frame.get(5), Object.class))
+                    .timestamp(timestamp)
+                    .build();
+        };
+
+        // 超出定长字段的尾部元素为房间版本号
+        int fields = FIELD_COUNTS.getOrDefault(cmd, 3);
+        if (frame.size() > 3 + fields) {
+            message.setVersion(frame.get(3 + fields).asLong());
+        }
+        return message;
+    }
+
+    private static int compactCmd(WSMessage message) {
+        if (!"rtc".equals(message.getType()) || message.getCmd() == null) {
+            return CMD_GENERIC;
+        }
+        Object data = message.getData();
+        return switch (message.getCmd()) {
+            case "ringing" -> data instanceof InviteData ? CMD_RINGING : CMD_GENERIC;
+            case "peer_accepted" -> data instanceof AcceptData ? CMD_PEER_ACCEPTED : CMD_GENERIC;
+            case "peer_left" -> data instanceof LeaveData || data instanceof Map ? CMD_PEER_LEFT : CMD_GENERIC;
+            case "error" -> data instanceof String ? CMD_ERROR : CMD_GENERIC;
+            default -> CMD_GENERIC;
+        };
+    }
+
+    private static WSMessage rtc(String cmd, long timestamp, Object data) {
+        return WSMessage.builder().type("rtc").cmd(cmd).data(data).timestamp(timestamp).build();
+    }
+
+    private static String text(JsonNode frame, int index) {
+        JsonNode node = frame.get(index);
+        return node == null || node.isNull() ? null : node.asText();
+    }
+}
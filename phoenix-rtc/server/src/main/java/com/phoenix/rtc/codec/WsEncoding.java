@@ -0,0 +1,61 @@
+package com.phoenix.rtc.codec;
+
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * WebSocket 消息编码
+ * 客户端在 STOMP CONNECT 帧中通过 x-rtc-encoding 头协商，未协商或不支持时使用 JSON
+ */
+public enum WsEncoding {
+
+    /** JSON 文本 (默认，兼容旧客户端) */
+    JSON("json", new MimeType("application", "json", StandardCharsets.UTF_8)),
+
+    /** 紧凑 CBOR 二进制，仅原生 WebSocket 连接可用 (SockJS 只能传文本) */
+    CBOR("cbor", MimeTypeUtils.APPLICATION_OCTET_STREAM);
+
+    /** CONNECT 协商头，同时标记在二进制 MESSAGE 帧上 */
+    public static final String HEADER = "x-rtc-encoding";
+
+    private final String code;
+    private final MimeType contentType;
+
+    WsEncoding(String code, MimeType contentType) {
+        this.code = code;
+        this.contentType = contentType;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public MimeType getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 设置出站消息的内容类型和编码标记
+     * 二进制帧必须使用 application/octet-stream，否则 STOMP 处理器会按文本帧发送
+     */
+    public void applyTo(SimpMessageHeaderAccessor accessor) {
+        accessor.setContentType(contentType);
+        if (this != JSON) {
+            accessor.setNativeHeader(HEADER, code);
+        }
+    }
+
+    public static WsEncoding fromHeader(String value) {
+        if (value != null) {
+            for (WsEncoding encoding : values()) {
+                if (encoding.code.equalsIgnoreCase(value.trim())) {
+                    return encoding;
+                }
+            }
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,41 @@
+package com.phoenix.rtc.codec;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 会话编码注册表
+ * 记录每个 WebSocket 会话在 CONNECT 时协商的编码，只保存非 JSON 会话
+ */
+@Component
+@Slf4j
+public class WsEncodingRegistry {
+
+    private final Map<String, WsEncoding> sessionEncodings = new ConcurrentHashMap<>();
+
+    public void register(String sessionId, WsEncoding encoding) {
+        if (sessionId == null) {
+            return;
+        }
+        if (encoding == WsEncoding.JSON) {
+            sessionEncodings.remove(sessionId);
+        } else {
+            sessionEncodings.put(sessionId, encoding);
+            log.debug("会话协商编码 - 会话: {}, 编码: {}", sessionId, encoding.getCode());
+        }
+    }
+
+    public WsEncoding getEncoding(String sessionId) {
+        return sessionId == null ? WsEncoding.JSON : sessionEncodings.getOrDefault(sessionId, WsEncoding.JSON);
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessionEncodings.remove(event.getSessionId());
+    }
+}
@@ -0,0 +1,49 @@
+package com.phoenix.rtc.codec;
+
+import com.phoenix.rtc.model.dto.WSMessage;
+
+/**
+ * 共享消息帧
+ * 同一条消息推送给多个会话时，每种编码只序列化一次
+ */
+public final class WsFrame {
+
+    /** 随消息传递到出站通道的头，供编码拦截器按会话转码 */
+    public static final String HEADER = "rtcFrame";
+
+    private final WSMessage message;
+    private final WsMessageCodec codec;
+
+    private volatile byte[] json;
+    private volatile byte[] cbor;
+
+    WsFrame(WSMessage message, WsMessageCodec codec) {
+        this.message = message;
+        this.codec = codec;
+    }
+
+    public WSMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * 获取指定编码的帧数据，首次访问时编码并缓存
+     * 并发首次访问可能重复编码，结果相同，无需加锁
+     */
+    public byte[] bytes(WsEncoding encoding) {
+        if (encoding == WsEncoding.CBOR) {
+            byte[] bytes = cbor;
+            if (bytes == null) {
+                bytes = codec.encode(message, WsEncoding.CBOR);
+                cbor = bytes;
+            }
+            return bytes;
+        }
+        byte[] bytes = json;
+        if (bytes == null) {
+            bytes = codec.encode(message, WsEncoding.JSON);
+            json = bytes;
+        }
+        return bytes;
+    }
+}
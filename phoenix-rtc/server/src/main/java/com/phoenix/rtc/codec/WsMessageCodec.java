@@ -0,0 +1,41 @@
+package com.phoenix.rtc.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phoenix.rtc.model.dto.WSMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * WebSocket 消息编解码入口
+ * JSON 使用 Spring 的 ObjectMapper，保持与默认消息转换器一致；CBOR 使用紧凑 schema
+ */
+@Component
+@RequiredArgsConstructor
+public class WsMessageCodec {
+
+    private final ObjectMapper objectMapper;
+    private final RtcBinaryCodec binaryCodec = new RtcBinaryCodec();
+
+    /**
+     * 创建共享帧
+     */
+    public WsFrame frame(WSMessage message) {
+        return new WsFrame(message, this);
+    }
+
+    /**
+     * 按指定编码序列化
+     */
+    public byte[] encode(WSMessage message, WsEncoding encoding) {
+        try {
+            return encoding == WsEncoding.CBOR
+                    ? binaryCodec.encode(message)
+                    : objectMapper.writeValueAsBytes(message);
+        } catch (IOException e) {
+            throw new UncheckedIOException("消息编码失败: " + message.getCmd(), e);
+        }
+    }
+}
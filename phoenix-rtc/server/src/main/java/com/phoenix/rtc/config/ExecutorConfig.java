@@ -0,0 +1,187 @@
+package com.phoenix.rtc.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 业务线程池配置
+ * 将耗时的推送/IO 工作移出 Tomcat 请求线程
+ *
+ * 虚拟线程模式 (spring.threads.virtual.enabled=true) 下 @Async 每个任务一个虚拟线程；
+ * 广播扇出是 CPU 密集的序列化 + 写 Session，仍使用固定大小的平台线程池
+ */
+@Configuration
+@Slf4j
+public class ExecutorConfig {
+
+    @Value("${app.rtc.fanout.threads:0}")
+    private int fanoutThreads;
+
+    @Value("${app.rtc.fanout.queue-capacity:10000}")
+    private int fanoutQueueCapacity;
+
+    @Value("${app.rtc.invite.threads:8}")
+    private int inviteThreads;
+
+    @Value("${app.rtc.invite.queue-capacity:1000}")
+    private int inviteQueueCapacity;
+
+    @Value("${app.rtc.async.threads:8}")
+    private int asyncThreads;
+
+    @Value("${app.rtc.io.threads:64}")
+    private int ioThreads;
+
+    @Value("${app.rtc.media.threads:64}")
+    private int mediaThreads;
+
+    private final Environment environment;
+
+    public ExecutorConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * @Async 默认线程池
+     * 存在 rtcFanoutExecutor 时 Spring Boot 不再自动创建 applicationTaskExecutor，
+     * 这里显式声明，避免 @Async 任务落到广播扇出线程池
+     */
+    @Bean(name = {"taskExecutor", "applicationTaskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("rtc-async-");
+            executor.setVirtualThreads(true);
+            log.info("@Async 线程池初始化完成 - 虚拟线程");
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncThreads);
+        executor.setMaxPoolSize(asyncThreads);
+        executor.setThreadNamePrefix("rtc-async-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        log.info("@Async 线程池初始化完成 - 线程数: {}", asyncThreads);
+        return executor;
+    }
+
+    /**
+     * 房间广播扇出线程池
+     * 默认线程数 = CPU 核数，队列满时由调用线程执行，保证消息不丢
+     */
+    @Bean(name = "rtcFanoutExecutor")
+    public ThreadPoolTaskExecutor rtcFanoutExecutor() {
+        int threads = fanoutThreads > 0 ? fanoutThreads : Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(fanoutQueueCapacity);
+        executor.setThreadNamePrefix("rtc-fanout-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+
+        log.info("房间广播扇出线程池初始化完成 - 线程数: {}, 队列: {}", threads, fanoutQueueCapacity);
+        return executor;
+    }
+
+    /**
+     * 呼叫邀请推送线程池
+     * 与广播扇出分开: 发起请求在这里等待推送结果，不会排在大房间的广播后面，也不会被广播任务回落到请求线程上执行。
+     * 只有发起呼叫的请求线程向这里提交，队列满时由该请求线程自己推送
+     */
+    @Bean(name = "rtcInviteExecutor")
+    public ThreadPoolTaskExecutor rtcInviteExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(inviteThreads);
+        executor.setMaxPoolSize(inviteThreads);
+        executor.setQueueCapacity(inviteQueueCapacity);
+        executor.setKeepAliveSeconds(60);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("rtc-invite-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+
+        log.info("邀请推送线程池初始化完成 - 线程数: {}, 队列: {}", inviteThreads, inviteQueueCapacity);
+        return executor;
+    }
+
+    /**
+     * 阻塞 I/O 编排线程池 (LiveKit HTTP 调用等)
+     * 同一请求内互不依赖的外部调用提交到这里并发执行。不排队: 线程用尽时由调用线程直接执行，
+     * 退化为顺序调用而不是在队列里等待。虚拟线程模式下每个任务一个虚拟线程
+     */
+    @Bean(name = "rtcIoExecutor")
+    public AsyncTaskExecutor rtcIoExecutor() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("rtc-io-");
+            executor.setVirtualThreads(true);
+            log.info("阻塞 I/O 线程池初始化完成 - 虚拟线程");
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(ioThreads);
+        executor.setMaxPoolSize(ioThreads);
+        executor.setQueueCapacity(0);
+        executor.setKeepAliveSeconds(60);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("rtc-io-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        log.info("阻塞 I/O 线程池初始化完成 - 线程数: {}", ioThreads);
+        return executor;
+    }
+
+    /**
+     * 媒体服务器 (LiveKit) 调用专用线程池
+     * 与 rtcIoExecutor 分开，批量删房等大量媒体调用不会挤占请求编排。并发由 MediaCallGuard 的舱壁限制，
+     * 线程用尽时拒绝 (快速失败) 而不是由调用线程执行: 重试由调度线程提交，不能在调度线程上阻塞
+     */
+    @Bean(name = "rtcMediaExecutor")
+    public AsyncTaskExecutor rtcMediaExecutor() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("rtc-media-");
+            executor.setVirtualThreads(true);
+            log.info("媒体 I/O 线程池初始化完成 - 虚拟线程");
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mediaThreads);
+        executor.setMaxPoolSize(mediaThreads);
+        executor.setQueueCapacity(0);
+        executor.setKeepAliveSeconds(60);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("rtc-media-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        log.info("媒体 I/O 线程池初始化完成 - 线程数: {}", mediaThreads);
+        return executor;
+    }
+
+    /**
+     * 以虚拟线程为工作线程的 ThreadPoolTaskExecutor，用于只接受 ThreadPoolTaskExecutor 的扩展点 (STOMP 通道)
+     * 最多 maxConcurrency 个虚拟线程并发执行，超出排队；空闲线程 60 秒后退出。
+     * 返回的执行器未初始化，由注册方作为 Bean 初始化
+     */
+    public static ThreadPoolTaskExecutor virtualThreadPool(String namePrefix, int maxConcurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(Thread.ofVirtual().name(namePrefix, 0).factory());
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setKeepAliveSeconds(60);
+        executor.setAllowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
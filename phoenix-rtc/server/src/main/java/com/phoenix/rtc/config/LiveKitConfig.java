@@ -1,6 +1,13 @@
 package com.phoenix.rtc.config;
 
+import com.phoenix.rtc.adapter.LiveKitTokenMinter;
+import com.phoenix.rtc.adapter.MediaCluster;
+import com.phoenix.rtc.adapter.MediaNode;
+import com.phoenix.rtc.redis.RtcHashOperations;
+import com.phoenix.rtc.redis.RtcKeys;
+import com.phoenix.rtc.redis.codec.RtcFields;
 import io.livekit.server.LiveKitServerClient;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -8,10 +15,16 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * LiveKit 配置类
  * 修复: 移除硬编码默认值，强制使用环境变量
+ *
+ * 多节点: app.rtc.media.nodes 配置 "url=房间容量:参与者容量" 列表 (容量省略时取 node-capacity / node-participant-capacity)，
+ * 未配置时只有 LIVEKIT_URL 一个节点。所有节点共用同一组 API Key/Secret
  */
 @Configuration
 @Data
@@ -27,6 +40,42 @@ public class LiveKitConfig {
     @Value("${LIVEKIT_API_SECRET}")
     private String apiSecret;
 
+    @Value("${app.rtc.token.ttl-seconds:7200}")
+    private long tokenTtlSeconds;
+
+    @Value("${app.rtc.media.nodes:}")
+    private List<String> nodes;
+
+    @Value("${app.rtc.media.node-capacity:1000}")
+    private int nodeCapacity;
+
+    @Value("${app.rtc.media.node-participant-capacity:20000}")
+    private int nodeParticipantCapacity;
+
+    @Value("${app.rtc.media.placement.strategy:least-loaded}")
+    private String placementStrategy;
+
+    @Value("${app.rtc.media.placement.virtual-nodes:160}")
+    private int virtualNodes;
+
+    @Value("${app.rtc.media.placement.load-factor:1.25}")
+    private double loadFactor;
+
+    @Value("${app.rtc.media.placement.max-rooms:100000}")
+    private int placementMaxRooms;
+
+    @Value("${app.rtc.media.placement.large-room-participants:1000}")
+    private int largeRoomParticipants;
+
+    @Value("${app.rtc.media.placement.large-room-reserve-ratio:0.5}")
+    private double largeRoomReserveRatio;
+
+    @Value("${app.rtc.media.placement.latency-target-ms:500}")
+    private long latencyTargetMs;
+
+    @Value("${app.rtc.media.placement.latency-weight:0.25}")
+    private double latencyWeight;
+
     /**
      * 启动时检查 LiveKit 配置
      */
@@ -48,4 +97,57 @@ public class LiveKitConfig {
     public LiveKitServerClient liveKitServerClient() {
         return new LiveKitServerClient(url, apiKey, apiSecret);
     }
+
+    /**
+     * 媒体节点集群，房间所在节点记录在房间元数据 (mediaNode) 中
+     */
+    @Bean
+    public MediaCluster mediaCluster(LiveKitServerClient liveKitServerClient, RtcHashOperations rtcHashOperations,
+                                     MeterRegistry meterRegistry) {
+        List<MediaNode> mediaNodes = new ArrayList<>();
+        if (nodes == null || nodes.stream().allMatch(String::isBlank)) {
+            mediaNodes.add(new MediaNode(url, nodeCapacity, nodeParticipantCapacity, liveKitServerClient));
+        } else {
+            for (String entry : nodes) {
+                if (!entry.isBlank()) {
+                    mediaNodes.add(parseNode(entry.trim(), liveKitServerClient));
+                }
+            }
+        }
+        MediaCluster.Policy policy = new MediaCluster.Policy(
+                MediaCluster.Strategy.valueOf(placementStrategy.trim().toUpperCase().replace('-', '_')),
+                virtualNodes, loadFactor, largeRoomParticipants, largeRoomReserveRatio, latencyTargetMs, latencyWeight);
+        return new MediaCluster(mediaNodes, policy,
+                roomName -> rtcHashOperations.get(RtcKeys.roomMeta(roomName), RtcFields.META_MEDIA_NODE),
+                placementMaxRooms, TimeUnit.HOURS.toMillis(2), meterRegistry);
+    }
+
+    /**
+     * "ws://livekit-2:7880=500:20000"、"ws://livekit-2:7880=500" 或 "ws://livekit-2:7880"
+     * 与 LIVEKIT_URL 相同的节点复用已有客户端
+     */
+    private MediaNode parseNode(String entry, LiveKitServerClient defaultClient) {
+        String nodeUrl = entry;
+        int rooms = nodeCapacity;
+        int participants = nodeParticipantCapacity;
+        int sep = entry.lastIndexOf('=');
+        if (sep > 0 && entry.substring(sep + 1).matches("\\d+(:\\d+)?")) {
+            nodeUrl = entry.substring(0, sep);
+            String[] capacities = entry.substring(sep + 1).split(":");
+            rooms = Integer.parseInt(capacities[0]);
+            if (capacities.length > 1) {
+                participants = Integer.parseInt(capacities[1]);
+            }
+        }
+        LiveKitServerClient client = nodeUrl.equals(url) ? defaultClient : new LiveKitServerClient(nodeUrl, apiKey, apiSecret);
+        return new MediaNode(nodeUrl, rooms, participants, client);
+    }
+
+    /**
+     * 本地 Token 签发器，签名密钥启动时初始化一次
+     */
+    @Bean
+    public LiveKitTokenMinter liveKitTokenMinter() {
+        return new LiveKitTokenMinter(apiKey, apiSecret, tokenTtlSeconds);
+    }
 }
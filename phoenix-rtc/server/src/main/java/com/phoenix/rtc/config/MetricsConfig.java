@@ -33,6 +33,9 @@ public class MetricsConfig {
     // 今日失败通话数
     private final AtomicInteger failedCallsToday = new AtomicInteger(0);
 
+    // 本节点 WebSocket 连接数
+    private final AtomicInteger websocketConnections = new AtomicInteger(0);
+
     /**
      * 活跃通话数 Gauge
      */
@@ -90,8 +93,7 @@ public class MetricsConfig {
      */
     @Bean
     public Gauge websocketConnectionsGauge() {
-        AtomicInteger wsConnections = new AtomicInteger(0);
-        return Gauge.builder("rtc.websocket.connections", wsConnections, AtomicInteger::get)
+        return Gauge.builder("rtc.websocket.connections", websocketConnections, AtomicInteger::get)
                 .description("当前WebSocket连接数")
                 .register(meterRegistry);
     }
@@ -129,6 +131,30 @@ public class MetricsConfig {
         meterRegistry.counter("rtc.calls.failed").increment();
     }
 
+    /**
+     * 增加 WebSocket 连接数
+     */
+    public void incrementWebsocketConnections() {
+        websocketConnections.incrementAndGet();
+    }
+
+    /**
+     * 减少 WebSocket 连接数
+     */
+    public void decrementWebsocketConnections() {
+        websocketConnections.decrementAndGet();
+        if (websocketConnections.get() < 0) {
+            websocketConnections.set(0);
+        }
+    }
+
+    /**
+     * 获取当前 WebSocket 连接数
+     */
+    public int getWebsocketConnections() {
+        return websocketConnections.get();
+    }
+
     /**
      * 获取当前指标值
      */
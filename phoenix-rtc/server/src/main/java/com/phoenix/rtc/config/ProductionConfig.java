@@ -1,5 +1,6 @@
 package com.phoenix.rtc.config;
 
+import com.phoenix.rtc.redis.codec.RtcValueSerializer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -7,7 +8,10 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
@@ -32,7 +36,7 @@ public class ProductionConfig {
      * 支持高并发连接池
      */
     @Bean
-    public RedisConnectionFactory redisConnectionFactory() {
+    public LettuceConnectionFactory redisConnectionFactory() {
         LettuceConnectionFactory factory = new LettuceConnectionFactory(redisHost, redisPort);
 
         // 生产环境密码认证
@@ -53,15 +57,43 @@ public class ProductionConfig {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(factory);
 
-        // 使用 String 序列化器，提高性能
+        // Key 和 Hash 字段名使用 String 序列化器
+        // 值使用紧凑编码序列化器: 数字/布尔按 Redis 可整数化存储的格式写入，带类型的读取见 RtcHashOperations
         StringRedisSerializer serializer = new StringRedisSerializer();
+        RtcValueSerializer valueSerializer = new RtcValueSerializer();
         template.setKeySerializer(serializer);
-        template.setValueSerializer(serializer);
+        template.setValueSerializer(valueSerializer);
         template.setHashKeySerializer(serializer);
-        template.setHashValueSerializer(serializer);
+        template.setHashValueSerializer(valueSerializer);
 
         template.afterPropertiesSet();
         log.info("Redis 模板初始化完成");
         return template;
     }
+
+    /**
+     * 响应式 Redis 模板
+     * 与 redisTemplate 共用同一个 Lettuce 连接工厂和值编码，非阻塞访问见 RtcReactiveOperations
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(LettuceConnectionFactory factory) {
+        RtcValueSerializer valueSerializer = new RtcValueSerializer();
+        RedisSerializationContext<String, Object> context = RedisSerializationContext
+                .<String, Object>newSerializationContext(StringRedisSerializer.UTF_8)
+                .value(valueSerializer)
+                .hashValue(valueSerializer)
+                .build();
+        return new ReactiveRedisTemplate<>(factory, context);
+    }
+
+    /**
+     * Redis 订阅容器
+     * 用于节点间广播 (近端缓存失效等)
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        return container;
+    }
 }
@@ -0,0 +1,63 @@
+package com.phoenix.rtc.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * STOMP 连接认证拦截器
+ * 从 CONNECT 帧的 Authorization 头解析 JWT，把用户ID绑定为会话 Principal，
+ * 使 /user/{userId}/queue/rtc 推送和在线状态可以按用户定位会话
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StompAuthInterceptor implements ChannelInterceptor {
+
+    private final JwtConfig jwtConfig;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String authHeader = accessor.getFirstNativeHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            log.debug("WebSocket 连接未携带 Token，按匿名会话处理 - 会话: {}", accessor.getSessionId());
+            return message;
+        }
+
+        String token = authHeader.substring(7);
+        if (!jwtConfig.validateToken(token)) {
+            log.warn("WebSocket 连接 Token 无效 - 会话: {}", accessor.getSessionId());
+            return message;
+        }
+
+        String userId = jwtConfig.extractUserId(token);
+        if (userId != null) {
+            accessor.setUser(new RtcPrincipal(userId));
+            log.debug("WebSocket 认证成功 - 用户: {}, 会话: {}", userId, accessor.getSessionId());
+        }
+        return message;
+    }
+
+    /**
+     * 会话用户
+     */
+    public record RtcPrincipal(String userId) implements Principal {
+        @Override
+        public String getName() {
+            return userId;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.phoenix.rtc.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * 虚拟线程模式下为 JDBC 预留载体线程
+ * MySQL 驱动 (8.x) 在 synchronized 块内做 Socket 读写，虚拟线程执行 JDBC 时会钉住 (pin) 载体线程。
+ * 默认载体线程数 = CPU 核数，数据库请求一多就会钉住全部载体线程，只访问 Redis / LiveKit 的请求也无法被调度。
+ *
+ * 同时执行 JDBC 的线程数受 Hikari 连接池上限约束，因此载体线程数设为 CPU 核数 + 连接池大小:
+ * 连接全部借出时仍有 CPU 核数个载体线程可用。
+ * 载体线程数只能在第一个虚拟线程创建前通过系统属性设置，必须在 Environment 准备好、Tomcat 启动前执行，
+ * 由 PhoenixRtcApplication 注册 (不是 Bean)
+ */
+@Slf4j
+public class VirtualThreadCarrierReservation implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+    static final String PARALLELISM = "jdk.virtualThreadScheduler.parallelism";
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        ConfigurableEnvironment environment = event.getEnvironment();
+        if (!Threading.VIRTUAL.isActive(environment)) {
+            return;
+        }
+        if (System.getProperty(PARALLELISM) != null) {
+            log.info("虚拟线程载体线程数由启动参数指定: {}", System.getProperty(PARALLELISM));
+            return;
+        }
+
+        int carriers = carrierThreads(environment, Runtime.getRuntime().availableProcessors());
+        System.setProperty(PARALLELISM, String.valueOf(carriers));
+        log.info("虚拟线程模式 - 载体线程数: {} (CPU 核数 + 数据库连接池预留)", carriers);
+    }
+
+    /**
+     * app.rtc.virtual-threads.carrier-threads 大于 0 时直接使用，否则为 CPU 核数 + hikari maximum-pool-size
+     */
+    static int carrierThreads(ConfigurableEnvironment environment, int cpus) {
+        int configured = environment.getProperty("app.rtc.virtual-threads.carrier-threads", Integer.class, 0);
+        if (configured > 0) {
+            return configured;
+        }
+        int jdbcPool = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        return cpus + jdbcPool;
+    }
+}
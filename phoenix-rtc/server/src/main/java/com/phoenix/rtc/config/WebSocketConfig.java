@@ -1,11 +1,21 @@
 package com.phoenix.rtc.config;
 
-import com.phoenix.rtc.service.WebSocketService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
 
 /**
  * WebSocket 配置
@@ -13,8 +23,16 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  */
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final WsEncodingInterceptor wsEncodingInterceptor;
+    private final StompAuthInterceptor stompAuthInterceptor;
+    private final Environment environment;
+
+    @Value("${app.rtc.virtual-threads.stomp-max-concurrency:1024}")
+    private int stompMaxConcurrency;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // 启用简单消息代理，向客户端推送消息
@@ -31,5 +49,45 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws/rtc")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+
+        // 原生 WebSocket 端点，可在 CONNECT 时协商二进制编码 (x-rtc-encoding: cbor)
+        registry.addEndpoint("/ws/rtc/raw")
+                .setAllowedOriginPatterns("*")
+                .addInterceptors(new BinaryCapableHandshakeInterceptor());
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthInterceptor, wsEncodingInterceptor.inbound());
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // @MessageMapping 处理中会同步访问 Redis/数据库，虚拟线程下阻塞不占用平台线程
+            registration.taskExecutor(ExecutorConfig.virtualThreadPool("rtc-stomp-in-", stompMaxConcurrency));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(wsEncodingInterceptor);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            registration.taskExecutor(ExecutorConfig.virtualThreadPool("rtc-stomp-out-", stompMaxConcurrency));
+        }
+    }
+
+    /**
+     * 标记原生 WebSocket 连接可以接收二进制帧
+     */
+    private static class BinaryCapableHandshakeInterceptor implements HandshakeInterceptor {
+
+        @Override
+        public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Map<String, Object> attributes) {
+            attributes.put(WsEncodingInterceptor.BINARY_CAPABLE_ATTR, Boolean.TRUE);
+            return true;
+        }
+
+        @Override
+        public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Exception exception) {
+        }
     }
 }
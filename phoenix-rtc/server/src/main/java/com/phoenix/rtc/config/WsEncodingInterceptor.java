@@ -0,0 +1,89 @@
+package com.phoenix.rtc.config;
+
+import com.phoenix.rtc.codec.WsEncoding;
+import com.phoenix.rtc.codec.WsEncodingRegistry;
+import com.phoenix.rtc.codec.WsFrame;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * WebSocket 消息编码拦截器
+ * 入站: 在 CONNECT 帧上读取 x-rtc-encoding 协商头，记录会话编码
+ * 出站: 对协商了二进制编码的会话，把携带共享帧的消息替换为对应编码
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WsEncodingInterceptor implements ChannelInterceptor {
+
+    /** 握手属性: 当前连接是否为原生 WebSocket (可传二进制帧) */
+    public static final String BINARY_CAPABLE_ATTR = "rtc.binaryCapable";
+
+    private final WsEncodingRegistry encodingRegistry;
+
+    /**
+     * 入站拦截: 协商编码
+     */
+    public ChannelInterceptor inbound() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+                if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+                    negotiate(accessor);
+                }
+                return message;
+            }
+        };
+    }
+
+    private void negotiate(StompHeaderAccessor accessor) {
+        WsEncoding requested = WsEncoding.fromHeader(accessor.getFirstNativeHeader(WsEncoding.HEADER));
+        if (requested == WsEncoding.JSON) {
+            return;
+        }
+
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        boolean binaryCapable = attributes != null && Boolean.TRUE.equals(attributes.get(BINARY_CAPABLE_ATTR));
+        if (!binaryCapable) {
+            log.debug("会话不支持二进制帧，回退 JSON - 会话: {}", accessor.getSessionId());
+            return;
+        }
+        encodingRegistry.register(accessor.getSessionId(), requested);
+    }
+
+    /**
+     * 出站拦截: 按会话编码转码
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!(message.getHeaders().get(WsFrame.HEADER) instanceof WsFrame frame)) {
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE) {
+            return message;
+        }
+
+        WsEncoding encoding = encodingRegistry.getEncoding(accessor.getSessionId());
+        if (encoding == WsEncoding.JSON) {
+            // payload 已由默认转换器序列化为 JSON
+            return message;
+        }
+
+        encoding.applyTo(accessor);
+        accessor.removeHeader(WsFrame.HEADER);
+        return MessageBuilder.createMessage(frame.bytes(encoding), accessor.getMessageHeaders());
+    }
+}
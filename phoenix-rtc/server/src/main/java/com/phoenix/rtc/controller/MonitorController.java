@@ -1,11 +1,18 @@
 package com.phoenix.rtc.controller;
 
+import com.phoenix.rtc.adapter.MediaCluster;
+import com.phoenix.rtc.config.JwtConfig;
 import com.phoenix.rtc.config.MetricsConfig;
+import com.phoenix.rtc.service.MediaDrainService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
@@ -21,6 +28,9 @@ import java.util.Map;
 public class MonitorController {
 
     private final MetricsConfig metricsConfig;
+    private final MediaCluster mediaCluster;
+    private final MediaDrainService mediaDrainService;
+    private final JwtConfig jwtConfig;
 
     /**
      * 获取系统健康状态
@@ -79,4 +89,78 @@ public class MonitorController {
             )
         ));
     }
+
+    /**
+     * 媒体节点状态
+     * GET /api/monitor/media-nodes
+     */
+    @GetMapping("/media-nodes")
+    public ResponseEntity<?> mediaNodes() {
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "data", mediaCluster.getNodes().stream().map(node -> Map.of(
+                "url", node.getUrl(),
+                "capacity", node.getCapacity(),
+                "rooms", node.getRooms(),
+                "participantCapacity", node.getParticipantCapacity(),
+                "participants", node.getParticipants(),
+                "reserved", node.getReserved(),
+                "createLatencyMs", Math.round(node.getCreateLatencyMs()),
+                "score", mediaCluster.getScore(node),
+                "draining", node.isDraining()
+            )).toList()
+        ));
+    }
+
+    /**
+     * 排空媒体节点: 所有实例不再放置新房间，已有房间结束后即可下线 (需要管理员 Token)
+     * POST /api/monitor/media-nodes/drain?url=ws://livekit-2:7880
+     */
+    @PostMapping("/media-nodes/drain")
+    public ResponseEntity<?> drainMediaNode(@RequestParam String url,
+                                            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        ResponseEntity<?> denied = requireAdmin(authHeader);
+        if (denied != null) {
+            return denied;
+        }
+        if (!mediaDrainService.drain(url)) {
+            return ResponseEntity.notFound().build();
+        }
+        log.warn("管理员排空媒体节点 - 节点: {}", url);
+        return ResponseEntity.ok(Map.of("success", true, "url", url, "rooms", mediaCluster.getNode(url).getRooms()));
+    }
+
+    /**
+     * 取消排空 (需要管理员 Token)
+     * POST /api/monitor/media-nodes/undrain?url=ws://livekit-2:7880
+     */
+    @PostMapping("/media-nodes/undrain")
+    public ResponseEntity<?> undrainMediaNode(@RequestParam String url,
+                                              @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        ResponseEntity<?> denied = requireAdmin(authHeader);
+        if (denied != null) {
+            return denied;
+        }
+        if (!mediaDrainService.undrain(url)) {
+            return ResponseEntity.notFound().build();
+        }
+        log.info("管理员取消排空媒体节点 - 节点: {}", url);
+        return ResponseEntity.ok(Map.of("success", true, "url", url));
+    }
+
+    /**
+     * 校验管理员 Token (role=admin)，通过时返回 null
+     */
+    private ResponseEntity<?> requireAdmin(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")
+                || !jwtConfig.validateToken(authHeader.substring(7))) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of("success", false, "message", "未授权的访问"));
+        }
+        if (!"admin".equals(jwtConfig.extractRole(authHeader.substring(7)))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("success", false, "message", "需要管理员权限"));
+        }
+        return null;
+    }
 }
@@ -4,8 +4,18 @@ import com.phoenix.rtc.aspect.RateLimitAspect;
 import com.phoenix.rtc.config.JwtConfig;
 import com.phoenix.rtc.model.dto.CallRequest;
 import com.phoenix.rtc.model.dto.JoinRequest;
+import com.phoenix.rtc.model.dto.LivePrewarmRequest;
 import com.phoenix.rtc.model.dto.TokenResponse;
-import com.phoenix.rtc.model.dto.WSMessage;
+import com.phoenix.rtc.service.CallInvitationService;
+import com.phoenix.rtc.service.CallInvitationService.Delivery;
+import com.phoenix.rtc.service.CallInvitationService.InvitationPlan;
+import com.phoenix.rtc.service.InviteService;
+import com.phoenix.rtc.service.InviteService.Invite;
+import com.phoenix.rtc.service.OptimizedRoomService;
+import com.phoenix.rtc.service.RingTimeoutService;
+import com.phoenix.rtc.service.RoomEventCoalescer;
+import com.phoenix.rtc.service.RoomMetaCache;
+import com.phoenix.rtc.service.RoomMetaCache.RoomMeta;
 import com.phoenix.rtc.service.RoomService;
 import com.phoenix.rtc.service.StateManagementService;
 import com.phoenix.rtc.service.WebSocketService;
@@ -13,12 +23,14 @@ import com.phoenix.rtc.statemachine.CallState;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -33,9 +45,19 @@ public class RtcController {
 
     private final RoomService roomService;
     private final WebSocketService webSocketService;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RoomMetaCache roomMetaCache;
     private final JwtConfig jwtConfig;
     private final StateManagementService stateManagementService;
+    private final RoomEventCoalescer roomEventCoalescer;
+    private final InviteService inviteService;
+    private final CallInvitationService callInvitationService;
+    private final RingTimeoutService ringTimeoutService;
+    private final OptimizedRoomService optimizedRoomService;
+
+    // 在线状态是否可信 (全部客户端都经 STOMP 订阅 /user/queue/rtc)。可信时被叫全部离线直接拒绝发起；
+    // 不可信时 (原生 WebSocket 客户端不会出现在在线状态中) 照常邀请全部被叫并振铃
+    @Value("${app.rtc.presence.require-online:false}")
+    private boolean requireOnline;
 
     /**
      * 发起通话
@@ -69,28 +91,43 @@ public class RtcController {
                     .body(Map.of("success", false, "message", "当前正在通话中，无法发起新呼叫"));
             }
 
+            // 被叫去重并批量检查在线状态，全部离线时快速失败，不创建房间
+            InvitationPlan plan = callInvitationService.prepare(request.getTargetUserIds(), currentUserId);
+            if (requireOnline && !plan.hasOnline()) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "message", "对方不在线", "offlineUserIds", plan.offlineUserIds()));
+            }
+            InvitationPlan ringing = requireOnline ? plan : plan.ringAll();
+            if (!plan.offlineUserIds().isEmpty()) {
+                log.info("部分被叫不在线 - 发起人: {}, 离线: {}, 仍然邀请: {}",
+                        currentUserId, plan.offlineUserIds(), !requireOnline);
+            }
+
             TokenResponse response = roomService.startCall(request, currentUserId);
 
             // 设置状态为 CALLING
             stateManagementService.startCalling(response.getRoomName(), currentUserId);
 
-            // 通过 WebSocket 通知被叫用户
-            for (String targetUserId : request.getTargetUserIds()) {
-                webSocketService.sendInvite(
-                        targetUserId,
-                        currentUserId,
-                        "用户" + currentUserId,
-                        response.getRoomName(),
-                        request.getSessionType(),
-                        request.getTitle()
-                );
-            }
+            // 通过 WebSocket 通知在线的被叫用户 (邀请一次 pipeline 写入，并发推送)
+            List<Delivery> invites = callInvitationService.dispatch(
+                    ringing,
+                    currentUserId,
+                    "用户" + currentUserId,
+                    response.getRoomName(),
+                    request.getSessionType(),
+                    request.getTitle()
+            );
+
+            // 登记振铃超时，到期无人接听转为 NO_ANSWER
+            ringTimeoutService.schedule(response.getRoomName(), currentUserId, ringing.onlineUserIds());
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "data", response,
                     "message", "通话已发起，正在等待对方接听",
-                    "state", CallState.CALLING.getCode()
+                    "state", CallState.CALLING.getCode(),
+                    "offlineUserIds", plan.offlineUserIds(),
+                    "invites", invites
             ));
         } catch (IllegalArgumentException e) {
             log.warn("参数验证失败: {}", e.getMessage());
@@ -122,18 +159,54 @@ public class RtcController {
                     .body(Map.of("success", false, "message", "房间名称不能为空"));
             }
 
-            // 设置状态为 CONNECTING
-            stateManagementService.acceptCall(request.getRoomName(), currentUserId);
+            TokenResponse response = doJoin(request.getRoomName(), currentUserId);
 
-            TokenResponse response = roomService.joinCall(request.getRoomName(), currentUserId);
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "data", response,
+                    "message", "成功加入通话",
+                    "state", CallState.CONNECTED.getCode()
+            ));
+        } catch (IllegalArgumentException e) {
+            log.warn("参数验证失败: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                .body(Map.of("success", false, "message", e.getMessage()));
+        } catch (Exception e) {
+            log.error("加入通话失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("success", false, "message", "服务器内部错误"));
+        }
+    }
 
-            // 设置状态为 CONNECTED
-            stateManagementService.connected(request.getRoomName(), currentUserId);
+    /**
+     * 接听邀请
+     * POST /api/rtc/invite/{inviteId}/accept
+     */
+    @PostMapping("/invite/{inviteId}/accept")
+    public ResponseEntity<?> acceptInvite(@PathVariable String inviteId,
+                                          @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        try {
+            String currentUserId = extractUserIdFromAuth(authHeader);
+            if (currentUserId == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("success", false, "message", "未授权的访问"));
+            }
+
+            // 一次往返读取并消费邀请
+            Invite invite = inviteService.consumeInvite(inviteId, currentUserId);
+            ResponseEntity<?> invalid = checkInvite(invite, currentUserId);
+            if (invalid != null) {
+                return invalid;
+            }
 
-            // 通知发起方
-            String initiatorId = (String) redisTemplate.opsForHash().get(String.format("rtc:room:%s:meta", request.getRoomName()), "initiatorId");
-            if (initiatorId != null) {
-                webSocketService.notifyPeerAccepted(initiatorId, currentUserId, request.getRoomName());
+            TokenResponse response;
+            try {
+                response = doJoin(invite.roomName(), currentUserId);
+            } catch (RuntimeException e) {
+                // 加入失败 (房间已满、数据库异常等) 时放回邀请，被叫可以重新接听
+                boolean restored = inviteService.restoreInvite(invite);
+                log.warn("接听后加入房间失败 - 邀请: {}, 用户: {}, 已放回: {}", inviteId, currentUserId, restored);
+                throw e;
             }
 
             return ResponseEntity.ok(Map.of(
@@ -147,7 +220,48 @@ public class RtcController {
             return ResponseEntity.badRequest()
                 .body(Map.of("success", false, "message", e.getMessage()));
         } catch (Exception e) {
-            log.error("加入通话失败", e);
+            log.error("接听邀请失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("success", false, "message", "服务器内部错误"));
+        }
+    }
+
+    /**
+     * 拒绝邀请
+     * POST /api/rtc/invite/{inviteId}/decline
+     */
+    @PostMapping("/invite/{inviteId}/decline")
+    public ResponseEntity<?> declineInvite(@PathVariable String inviteId,
+                                           @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        try {
+            String currentUserId = extractUserIdFromAuth(authHeader);
+            if (currentUserId == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("success", false, "message", "未授权的访问"));
+            }
+
+            Invite invite = inviteService.consumeInvite(inviteId, currentUserId);
+            ResponseEntity<?> invalid = checkInvite(invite, currentUserId);
+            if (invalid != null) {
+                return invalid;
+            }
+
+            // 1v1 通话被拒绝即结束呼叫；群聊只停止该被叫的振铃并通知发起方
+            if (!"group".equalsIgnoreCase(invite.mode()) && !"live".equalsIgnoreCase(invite.mode())) {
+                ringTimeoutService.cancel(invite.roomName());
+                stateManagementService.rejectCall(invite.roomName(), invite.inviterId());
+            } else {
+                ringTimeoutService.declined(invite.roomName(), currentUserId);
+            }
+            webSocketService.notifyPeerDeclined(invite.inviterId(), currentUserId, invite.roomName());
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "message", "已拒绝通话",
+                    "state", CallState.REJECTED.getCode()
+            ));
+        } catch (Exception e) {
+            log.error("拒绝邀请失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("success", false, "message", "服务器内部错误"));
         }
@@ -173,16 +287,19 @@ public class RtcController {
                     .body(Map.of("success", false, "message", "房间名称不能为空"));
             }
 
+            // 发起方振铃中挂断，取消全部被叫的振铃计时
+            RoomMeta meta = roomMetaCache.getMeta(roomName);
+            if (meta == null || currentUserId.equals(meta.initiatorId())) {
+                ringTimeoutService.cancel(roomName);
+            }
+
             // 设置状态为 ENDED
             stateManagementService.endCall(roomName, currentUserId);
 
             roomService.leaveCall(roomName, currentUserId);
 
-            // 通知其他用户
-            webSocketService.sendToRoom(roomName, WSMessage.success("peer_left", Map.of(
-                    "userId", currentUserId,
-                    "roomName", roomName
-            )));
+            // 通知其他用户 (大房间合并为 members_delta 推送)
+            roomEventCoalescer.memberLeft(roomName, currentUserId);
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
@@ -200,6 +317,51 @@ public class RtcController {
         }
     }
 
+    /**
+     * 预约直播预热: 开播前为观众批量预签只能拉流的 Token，只有房间发起人可以调用
+     * POST /api/rtc/live/{roomName}/prewarm
+     */
+    @PostMapping("/live/{roomName}/prewarm")
+    public ResponseEntity<?> prewarmLive(@PathVariable String roomName,
+                                         @Valid @RequestBody LivePrewarmRequest request,
+                                         @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        try {
+            String currentUserId = extractUserIdFromAuth(authHeader);
+            if (currentUserId == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("success", false, "message", "未授权的访问"));
+            }
+
+            RoomMeta meta = roomMetaCache.getMeta(roomName);
+            if (meta == null) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "message", "房间不存在"));
+            }
+            if (!currentUserId.equals(meta.initiatorId())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("success", false, "message", "只有发起人可以预签 Token"));
+            }
+
+            int minted = optimizedRoomService.prewarmLiveTokens(roomName,
+                    request.getIdentities() != null ? request.getIdentities() : List.of(),
+                    request.getPlaceholders(), Instant.ofEpochSecond(request.getStartAt()));
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "data", Map.of("roomName", roomName, "minted", minted),
+                    "message", "Token 预签完成"
+            ));
+        } catch (IllegalArgumentException e) {
+            log.warn("参数验证失败: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                .body(Map.of("success", false, "message", e.getMessage()));
+        } catch (Exception e) {
+            log.error("直播 Token 预签失败 - 房间: {}", roomName, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("success", false, "message", "服务器内部错误"));
+        }
+    }
+
     /**
      * 查询房间信息
      * GET /api/rtc/room/{roomName}
@@ -280,8 +442,9 @@ public class RtcController {
                     .body(Map.of("success", false, "message", "房间名称不能为空"));
             }
 
-            CallState state = stateManagementService.getCurrentState(roomName, currentUserId);
-            java.util.List<String> history = stateManagementService.getStateHistory(roomName, currentUserId);
+            // 当前状态与历史同时读取
+            var snapshot = stateManagementService.getStateSnapshot(roomName, currentUserId);
+            CallState state = snapshot.state();
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
@@ -290,7 +453,7 @@ public class RtcController {
                         "userId", currentUserId,
                         "currentState", state.getCode(),
                         "stateDescription", state.getDescription(),
-                        "history", history
+                        "history", snapshot.history()
                     )
             ));
         } catch (Exception e) {
@@ -300,6 +463,49 @@ public class RtcController {
         }
     }
 
+    /**
+     * 加入房间并通知房间成员和发起方
+     */
+    private TokenResponse doJoin(String roomName, String currentUserId) {
+        // 设置状态为 CONNECTING
+        stateManagementService.acceptCall(roomName, currentUserId);
+
+        TokenResponse response = roomService.joinCall(roomName, currentUserId);
+
+        // 加入成功才算接听，停止该被叫的振铃计时；加入失败时邀请恢复，振铃计时照常到期
+        ringTimeoutService.answered(roomName, currentUserId);
+
+        // 设置状态为 CONNECTED
+        stateManagementService.connected(roomName, currentUserId);
+
+        // 通知房间其他成员 (大房间合并推送)
+        roomEventCoalescer.memberJoined(roomName, currentUserId);
+
+        // 通知发起方 (元数据走近端缓存)
+        RoomMeta meta = roomMetaCache.getMeta(roomName);
+        if (meta != null) {
+            webSocketService.notifyPeerAccepted(meta.initiatorId(), currentUserId, roomName);
+        }
+        return response;
+    }
+
+    /**
+     * 校验邀请是否存在且属于当前用户
+     *
+     * @return 校验失败时的响应，通过时返回 null
+     */
+    private ResponseEntity<?> checkInvite(Invite invite, String currentUserId) {
+        if (invite == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("success", false, "message", "邀请不存在或已过期"));
+        }
+        if (!currentUserId.equals(invite.targetUserId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("success", false, "message", "无权处理该邀请"));
+        }
+        return null;
+    }
+
     /**
      * 从认证头中提取用户ID
      */
@@ -1,8 +1,10 @@
 package com.phoenix.rtc.controller;
 
-import com.phoenix.rtc.service.WebSocketService;
+import com.phoenix.rtc.service.RoomSnapshotService;
+import com.phoenix.rtc.service.RoomSnapshotService.RoomSnapshot;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 
@@ -14,24 +16,25 @@ import org.springframework.stereotype.Controller;
  *    - 原 WebSocketController.handleSignaling 逻辑已由 REST API RtcController 替代
  *    - 客户端应使用 REST API 而非 WebSocket 信令
  *
- * 2. 保留 SubscribeMapping 用于房间订阅（可选功能）
- *    - 用于客户端订阅房间主题接收广播消息
- *    - 依赖 WebSocketService 作为通知机制
+ * 2. 房间快照
+ *    - 订阅 /topic/room/{roomName} 时由 RoomSnapshotService 自动推送快照
+ *    - 原 @SubscribeMapping("/topic/room/{roomName}") 带应用前缀 /app，订阅 /topic 时从不触发
+ *    - 发现版本号缺口时，客户端可订阅 /app/room/{roomName} 单次拉取快照，无需重新订阅房间主题
  */
 @Controller
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketController {
 
-    private final WebSocketService webSocketService;
+    private final RoomSnapshotService roomSnapshotService;
 
     /**
-     * 订阅房间主题时的处理
-     * 客户端订阅 /topic/room/{roomName} 后触发
+     * 单次拉取房间快照
+     * 客户端订阅 /app/room/{roomName}，返回值直接回复给该订阅，不经过消息代理
      */
-    @SubscribeMapping("/topic/room/{roomName}")
-    public void onSubscribeRoom(String roomName) {
-        log.info("用户订阅房间主题: {}", roomName);
-        // 可以在这里发送房间当前状态给订阅者
+    @SubscribeMapping("/room/{roomName}")
+    public RoomSnapshot onSubscribeRoom(@DestinationVariable String roomName) {
+        log.debug("拉取房间快照: {}", roomName);
+        return roomSnapshotService.snapshot(roomName);
     }
 }
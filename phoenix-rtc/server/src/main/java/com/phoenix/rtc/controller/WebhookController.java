@@ -3,6 +3,7 @@ package com.phoenix.rtc.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.phoenix.rtc.model.dto.WebhookEvent;
 import com.phoenix.rtc.repository.RtcSessionRepository;
+import com.phoenix.rtc.service.RoomMetaCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -28,6 +29,7 @@ public class WebhookController {
 
     private final RtcSessionRepository sessionRepository;
     private final ObjectMapper objectMapper;
+    private final RoomMetaCache roomMetaCache;
 
     /**
      * 接收 LiveKit Webhook 事件
@@ -84,6 +86,7 @@ public class WebhookController {
                 session.setStartTime(LocalDateTime.now());
                 session.setStatus(0); // ACTIVE
                 sessionRepository.save(session);
+                roomMetaCache.invalidate(roomName);
             }
         });
     }
@@ -107,6 +110,7 @@ public class WebhookController {
             }
             session.setStatus(1); // ENDED
             sessionRepository.save(session);
+            roomMetaCache.invalidate(roomName);
         });
     }
 
@@ -142,6 +146,7 @@ public class WebhookController {
         sessionRepository.findByRoomName(roomName).ifPresent(session -> {
             session.setRecordingEnabled(true);
             sessionRepository.save(session);
+            roomMetaCache.invalidate(roomName);
         });
     }
 
@@ -157,6 +162,7 @@ public class WebhookController {
         sessionRepository.findByRoomName(roomName).ifPresent(session -> {
             session.setRecordingUrl("https://storage.example.com/recordings/" + roomName + ".mp4");
             sessionRepository.save(session);
+            roomMetaCache.invalidate(roomName);
         });
     }
 }
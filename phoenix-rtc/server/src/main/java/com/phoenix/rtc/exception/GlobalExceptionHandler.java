@@ -45,6 +45,21 @@ public class GlobalExceptionHandler {
             ));
     }
 
+    /**
+     * 处理媒体服务不可用
+     */
+    @ExceptionHandler(MediaUnavailableException.class)
+    public ResponseEntity<?> handleMediaUnavailableException(MediaUnavailableException ex) {
+        log.warn("媒体服务不可用: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(Map.of(
+                "success", false,
+                "code", "MEDIA_UNAVAILABLE",
+                "message", "媒体服务繁忙，请稍后重试",
+                "retryAfter", 5
+            ));
+    }
+
     /**
      * 处理业务异常
      */
@@ -0,0 +1,15 @@
+package com.phoenix.rtc.exception;
+
+/**
+ * 媒体服务暂不可用 (熔断打开、并发已满、调用超时)
+ * 快速失败，不占用请求线程等待，由客户端稍后重试
+ */
+public class MediaUnavailableException extends RuntimeException {
+    public MediaUnavailableException(String message) {
+        super(message);
+    }
+
+    public MediaUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
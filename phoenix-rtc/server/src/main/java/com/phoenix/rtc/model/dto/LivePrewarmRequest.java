@@ -0,0 +1,37 @@
+package com.phoenix.rtc.model.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 预约直播 Token 预签请求 DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LivePrewarmRequest {
+
+    /**
+     * 已报名观众的用户ID
+     */
+    private List<String> identities;
+
+    /**
+     * 未报名观众的预估人数 (按占位身份预签)
+     */
+    @Min(value = 0, message = "占位数量不能为负数")
+    private int placeholders;
+
+    /**
+     * 预计开播时间 (Unix 秒)
+     */
+    @NotNull(message = "开播时间不能为空")
+    private Long startAt;
+}
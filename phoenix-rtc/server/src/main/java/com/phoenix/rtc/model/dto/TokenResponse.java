@@ -24,6 +24,11 @@ public class TokenResponse {
      */
     private String token;
 
+    /**
+     * 媒体房间内的身份，通常为 userId；使用预签占位 Token 时为占位身份
+     */
+    private String identity;
+
     /**
      * 房间名称
      */
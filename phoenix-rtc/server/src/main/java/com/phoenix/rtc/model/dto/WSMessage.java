@@ -1,5 +1,6 @@
 package com.phoenix.rtc.model.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -34,6 +35,14 @@ public class WSMessage {
      */
     private Long timestamp;
 
+    /**
+     * 房间版本号 (仅房间广播携带)
+     * 每次房间广播递增 1，客户端收到的版本大于 本地版本+1 时说明丢失了广播，应重新订阅获取快照；
+     * 小于等于本地版本的广播已包含在快照中，直接丢弃
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long version;
+
     /**
      * 构造成功响应
      */
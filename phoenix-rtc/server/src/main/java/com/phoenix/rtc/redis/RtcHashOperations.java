@@ -0,0 +1,92 @@
+package com.phoenix.rtc.redis;
+
+import com.phoenix.rtc.redis.codec.FieldValues;
+import com.phoenix.rtc.redis.codec.RedisField;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带类型的 Hash 读写
+ * 直接使用连接的 byte[] API，值按 {@link RedisField} 编解码，不经过 RedisTemplate 的 Object 序列化
+ */
+@Component
+@RequiredArgsConstructor
+public class RtcHashOperations {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 读取单个字段，字段有旧名时一次 HMGET 同时读取新旧两个字段
+     */
+    public <T> T get(String key, RedisField<T> field) {
+        byte[] rawKey = raw(key);
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> {
+            if (field.rawLegacyName() == null) {
+                return connection.hashCommands().hGet(rawKey, field.rawName());
+            }
+            List<byte[]> values = connection.hashCommands().hMGet(rawKey, field.rawName(), field.rawLegacyName());
+            if (values == null || values.isEmpty()) {
+                return null;
+            }
+            return values.get(0) != null ? values.get(0) : values.get(1);
+        });
+        return field.decode(value);
+    }
+
+    public FieldValues entries(String key) {
+        byte[] rawKey = raw(key);
+        return FieldValues.of(redisTemplate.execute((RedisCallback<Map<byte[], byte[]>>) connection ->
+                connection.hashCommands().hGetAll(rawKey)));
+    }
+
+    /**
+     * 一次 pipeline 读取多个 Hash，结果与 keys 顺序一致
+     */
+    @SuppressWarnings("unchecked")
+    public List<FieldValues> entries(List<String> keys) {
+        List<Object> results = redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+            connection.openPipeline();
+            for (String key : keys) {
+                connection.hashCommands().hGetAll(raw(key));
+            }
+            return connection.closePipeline();
+        });
+        List<FieldValues> values = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Object result = results != null && i < results.size() ? results.get(i) : null;
+            values.add(FieldValues.of(result instanceof Map<?, ?> map ? (Map<byte[], byte[]>) map : null));
+        }
+        return values;
+    }
+
+    public <T> void put(String key, RedisField<T> field, T value) {
+        byte[] rawKey = raw(key);
+        redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                connection.hashCommands().hSet(rawKey, field.rawName(), field.encode(value)));
+    }
+
+    /**
+     * 写入多个字段并设置过期时间，一次往返
+     */
+    public void putAll(String key, FieldValues values, long ttlSeconds) {
+        byte[] rawKey = raw(key);
+        Map<byte[], byte[]> encoded = values.encoded();
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.openPipeline();
+            connection.hashCommands().hMSet(rawKey, encoded);
+            connection.keyCommands().expire(rawKey, ttlSeconds);
+            return connection.closePipeline();
+        });
+    }
+
+    private static byte[] raw(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,174 @@
+package com.phoenix.rtc.redis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 热路径 Redis Key 字节构造器
+ * 与 {@link RtcKeys} 生成完全相同的 Key，但直接产出 UTF-8 字节，供 RedisConnection 的 byte[] API 使用:
+ * 1. 固定片段 (rtc:{、}:meta 等) 预先编码为 byte[]，拼接时只做 System.arraycopy
+ * 2. 可变部分 (房间名、用户ID) 为 ASCII 时直接拷贝进缓冲区，不经过 Formatter / StringBuilder / 中间 String
+ * 3. 每个线程复用一个缓冲区，最终只分配一个恰好大小的 byte[]
+ *
+ * 返回的 byte[] 必须是独立副本: Lettuce 在 I/O 线程上异步编码命令，调用线程复用的缓冲区不能直接交给它。
+ * 同步编码的场景 (自定义 codec、批量写入 ByteBuffer) 可以用 {@link #writeTo(ByteBuffer)} 完全免分配
+ *
+ * 虚拟线程每个请求一个、用完即弃，ThreadLocal 缓冲区无法复用，只会随线程数膨胀，因此虚拟线程上每次新建
+ */
+public final class RtcKeyBuilder {
+
+    private static final byte[] ROOM_OPEN = ascii(RtcKeys.PREFIX + "{");
+    private static final byte[] META = ascii("}:meta");
+    private static final byte[] MEMBERS = ascii("}:members");
+    private static final byte[] MEMBER = ascii("}:member:");
+    private static final byte[] STATE = ascii("}:state:");
+    private static final byte[] HISTORY = ascii("}:history:");
+    private static final byte[] STATE_USERS = ascii("}:state-users");
+    private static final byte[] RING = ascii("}:ring");
+    private static final byte[] RING_SHARD = ascii(RtcKeys.PREFIX + "ring:timeouts:");
+    private static final byte[] SESSION = ascii(RtcKeys.PREFIX + "session:");
+    private static final byte[] INVITE = ascii(RtcKeys.PREFIX + "invite:");
+    private static final byte[] USER_PRESENCE = ascii(RtcKeys.PREFIX + "presence:user:");
+    private static final byte[] NODE_PRESENCE = ascii(RtcKeys.PREFIX + "presence:node:");
+    private static final byte[] RATE_LIMIT = ascii("ratelimit:rtc:");
+
+    private static final ThreadLocal<RtcKeyBuilder> LOCAL = ThreadLocal.withInitial(RtcKeyBuilder::new);
+
+    private byte[] buffer = new byte[128];
+    private int length;
+
+    /**
+     * 当前线程复用的构造器 (已清空)
+     */
+    public static RtcKeyBuilder local() {
+        if (Thread.currentThread().isVirtual()) {
+            return new RtcKeyBuilder();
+        }
+        RtcKeyBuilder builder = LOCAL.get();
+        builder.length = 0;
+        return builder;
+    }
+
+    public static byte[] roomMeta(String roomName) {
+        return local().append(ROOM_OPEN).append(roomName).append(META).toBytes();
+    }
+
+    public static byte[] roomMembers(String roomName) {
+        return local().append(ROOM_OPEN).append(roomName).append(MEMBERS).toBytes();
+    }
+
+    public static byte[] roomMember(String roomName, String userId) {
+        return local().append(ROOM_OPEN).append(roomName).append(MEMBER).append(userId).toBytes();
+    }
+
+    public static byte[] callState(String roomName, String userId) {
+        return local().append(ROOM_OPEN).append(roomName).append(STATE).append(userId).toBytes();
+    }
+
+    public static byte[] callStateHistory(String roomName, String userId) {
+        return local().append(ROOM_OPEN).append(roomName).append(HISTORY).append(userId).toBytes();
+    }
+
+    public static byte[] callStateUsers(String roomName) {
+        return local().append(ROOM_OPEN).append(roomName).append(STATE_USERS).toBytes();
+    }
+
+    public static byte[] ringDetail(String roomName) {
+        return local().append(ROOM_OPEN).append(roomName).append(RING).toBytes();
+    }
+
+    public static byte[] ringShard(int shard) {
+        return local().append(RING_SHARD).append(shard).toBytes();
+    }
+
+    public static byte[] userSession(String userId) {
+        return local().append(SESSION).append(userId).toBytes();
+    }
+
+    public static byte[] invite(String inviteId) {
+        return local().append(INVITE).append(inviteId).toBytes();
+    }
+
+    public static byte[] userPresence(String userId) {
+        return local().append(USER_PRESENCE).append(userId).toBytes();
+    }
+
+    public static byte[] nodePresence(String nodeId) {
+        return local().append(NODE_PRESENCE).append(nodeId).toBytes();
+    }
+
+    public static byte[] rateLimit(String userId) {
+        return local().append(RATE_LIMIT).append(userId).toBytes();
+    }
+
+    public RtcKeyBuilder append(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+        return this;
+    }
+
+    @SuppressWarnings("deprecation")
+    public RtcKeyBuilder append(String value) {
+        int n = value.length();
+        int bits = 0;
+        for (int i = 0; i < n; i++) {
+            bits |= value.charAt(i);
+        }
+        if (bits >= 0x80) {
+            // 非 ASCII (中文用户名等) 走标准 UTF-8 编码，保证与 StringRedisSerializer 结果一致
+            return append(value.getBytes(StandardCharsets.UTF_8));
+        }
+        ensure(n);
+        // 纯 ASCII: 紧凑字符串下是一次数组拷贝
+        value.getBytes(0, n, buffer, length);
+        length += n;
+        return this;
+    }
+
+    public RtcKeyBuilder append(int value) {
+        if (value < 0) {
+            return append(Integer.toString(value));
+        }
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        ensure(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 独立的 Key 副本
+     */
+    public byte[] toBytes() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * 写入调用方的缓冲区，不分配
+     */
+    public void writeTo(ByteBuffer target) {
+        target.put(buffer, 0, length);
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,260 @@
+package com.phoenix.rtc.redis;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis Key 在线迁移
+ * 把旧布局 (rtc:room:%s:meta、rtc:state:%s:%s 等，房间 Key 分散在不同槽位) 改写为 {@link RtcKeys} 的哈希标签布局。
+ *
+ * 迁移随升级执行 (app.rtc.redis.key-migration.enabled 默认开启): 新版本节点启动后、就绪接收流量之前先迁移一遍，
+ * 新版本只读新 Key，不迁移就读不到旧版本写入的房间；启动时限内未迁完的部分由定时任务继续。
+ * 按批 SCAN 旧 Key，逐个 DUMP/RESTORE 到新 Key (保留 TTL) 后删除旧 Key，扫描不到旧 Key 即完成。
+ * 滚动升级时每个新节点启动都会重新迁移一遍，最后一个节点升级后旧版本写入的 Key 也被迁完。
+ * 多个节点同时开启也安全: 新 Key 已存在时按类型合并，Hash 只补缺失字段、Set 取并集，其他类型以新 Key 为准。
+ * 旧布局在单实例上完成迁移后再切换到 Redis Cluster (集群下 SCAN 需逐节点执行)。
+ *
+ * 迁移期间旧版本节点仍可能写旧 Key: 删除前重新 DUMP 比对，有变化则留到下一轮再合并
+ */
+@Component
+@Slf4j
+public class RtcKeyMigration {
+
+    // 旧布局前缀，新布局的房间 Key 以 rtc:{ 开头，不会被这些模式匹配
+    private static final List<String> LEGACY_PATTERNS = List.of("rtc:room:*", "rtc:state:*", "rtc:ring:*");
+
+    private static final String LEGACY_ROOM = "rtc:room:";
+    private static final String LEGACY_STATE = "rtc:state:";
+    private static final String LEGACY_HISTORY = "rtc:state:history:";
+    private static final String LEGACY_RING = "rtc:ring:";
+    private static final String RING_TIMEOUTS = "timeouts:";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final Counter migratedCounter;
+    private final Counter mergedCounter;
+    private final Counter retriedCounter;
+
+    @Value("${app.rtc.redis.key-migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rtc.redis.key-migration.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.rtc.redis.key-migration.startup-timeout-ms:30000}")
+    private long startupTimeoutMs;
+
+    private volatile boolean completed;
+
+    public RtcKeyMigration(RedisTemplate<String, Object> redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.migratedCounter = result(meterRegistry, "migrated");
+        this.mergedCounter = result(meterRegistry, "merged");
+        this.retriedCounter = result(meterRegistry, "retried");
+    }
+
+    /**
+     * 启动后、就绪之前迁移旧 Key，超过 startupTimeoutMs 未完成则交给定时任务
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void migrateOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + startupTimeoutMs;
+        int total = 0;
+        try {
+            int migrated;
+            while ((migrated = migrate(batchSize)) > 0) {
+                total += migrated;
+                if (System.currentTimeMillis() >= deadline) {
+                    completed = false;
+                    log.warn("启动时 Redis Key 迁移未完成，已处理: {}，由定时任务继续", total);
+                    return;
+                }
+            }
+            completed = true;
+            log.info("启动时 Redis Key 迁移完成，处理: {}", total);
+        } catch (Exception e) {
+            completed = false;
+            log.warn("启动时 Redis Key 迁移失败，由定时任务重试: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.rtc.redis.key-migration.interval-ms:10000}",
+               initialDelayString = "${app.rtc.redis.key-migration.interval-ms:10000}")
+    public void run() {
+        if (!enabled || completed) {
+            return;
+        }
+        try {
+            int migrated = migrate(batchSize);
+            if (migrated == 0) {
+                completed = true;
+                log.info("Redis Key 迁移完成，未发现旧布局 Key");
+            } else {
+                log.info("Redis Key 迁移本轮处理: {}", migrated);
+            }
+        } catch (Exception e) {
+            log.warn("Redis Key 迁移失败，下一轮重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 迁移最多 maxKeys 个旧 Key
+     *
+     * @return 本轮处理的 Key 数
+     */
+    public int migrate(int maxKeys) {
+        List<String> legacyKeys = new ArrayList<>();
+        for (String pattern : LEGACY_PATTERNS) {
+            ScanOptions options = ScanOptions.scanOptions().match(pattern).count(maxKeys).build();
+            try (Cursor<String> cursor = redisTemplate.scan(options)) {
+                while (cursor.hasNext() && legacyKeys.size() < maxKeys) {
+                    String key = cursor.next();
+                    if (toClusterKey(key) != null) {
+                        legacyKeys.add(key);
+                    }
+                }
+            }
+        }
+
+        int processed = 0;
+        for (String legacyKey : legacyKeys) {
+            if (migrateKey(legacyKey, toClusterKey(legacyKey))) {
+                processed++;
+            }
+        }
+        return processed;
+    }
+
+    private boolean migrateKey(String legacyKey, String newKey) {
+        byte[] dump = redisTemplate.dump(legacyKey);
+        if (dump == null) {
+            return false;
+        }
+        Long ttl = redisTemplate.getExpire(legacyKey, TimeUnit.MILLISECONDS);
+        long restoreTtl = ttl != null && ttl > 0 ? ttl : 0;
+
+        boolean restored = false;
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(newKey))) {
+            try {
+                redisTemplate.restore(newKey, dump, restoreTtl, TimeUnit.MILLISECONDS, false);
+                restored = true;
+            } catch (Exception e) {
+                // 新版本节点或其他迁移节点刚写入了新 Key，走合并
+                log.debug("新 Key 已存在，改为合并 - {}: {}", newKey, e.getMessage());
+            }
+        }
+        if (!restored) {
+            merge(legacyKey, newKey);
+            mergedCounter.increment();
+        }
+        indexCallState(legacyKey);
+
+        // 迁移过程中旧 Key 被修改过，下一轮再合并一次
+        if (!Arrays.equals(dump, redisTemplate.dump(legacyKey))) {
+            retriedCounter.increment();
+            return true;
+        }
+        redisTemplate.delete(legacyKey);
+        migratedCounter.increment();
+        return true;
+    }
+
+    private void merge(String legacyKey, String newKey) {
+        DataType type = redisTemplate.type(legacyKey);
+        if (type == DataType.HASH) {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(legacyKey);
+            entries.forEach((field, value) -> redisTemplate.opsForHash().putIfAbsent(newKey, field, value));
+        } else if (type == DataType.SET) {
+            Set<Object> members = redisTemplate.opsForSet().members(legacyKey);
+            if (members != null && !members.isEmpty()) {
+                redisTemplate.opsForSet().add(newKey, members.toArray());
+            }
+        }
+        // String/List/ZSet: 新 Key 由新版本写入，以新 Key 为准
+    }
+
+    /**
+     * 通话状态迁移后登记到房间的状态用户索引，保证整房清理能找到
+     */
+    private void indexCallState(String legacyKey) {
+        if (!legacyKey.startsWith(LEGACY_STATE) || legacyKey.startsWith(LEGACY_HISTORY)) {
+            return;
+        }
+        String rest = legacyKey.substring(LEGACY_STATE.length());
+        int sep = rest.lastIndexOf(':');
+        String usersKey = RtcKeys.callStateUsers(rest.substring(0, sep));
+        redisTemplate.opsForSet().add(usersKey, rest.substring(sep + 1));
+        redisTemplate.expire(usersKey, 2, TimeUnit.HOURS);
+    }
+
+    /**
+     * 旧布局 Key 对应的新 Key，不是可迁移的旧 Key 时返回 null
+     */
+    static String toClusterKey(String legacyKey) {
+        if (legacyKey.startsWith(LEGACY_ROOM)) {
+            String rest = legacyKey.substring(LEGACY_ROOM.length());
+            if (rest.endsWith(":meta")) {
+                return RtcKeys.roomMeta(rest.substring(0, rest.length() - ":meta".length()));
+            }
+            if (rest.endsWith(":members")) {
+                return RtcKeys.roomMembers(rest.substring(0, rest.length() - ":members".length()));
+            }
+            int sep = rest.lastIndexOf(":member:");
+            if (sep > 0) {
+                return RtcKeys.roomMember(rest.substring(0, sep), rest.substring(sep + ":member:".length()));
+            }
+            return null;
+        }
+        if (legacyKey.startsWith(LEGACY_HISTORY)) {
+            String rest = legacyKey.substring(LEGACY_HISTORY.length());
+            int sep = rest.lastIndexOf(':');
+            return sep > 0 ? RtcKeys.callStateHistory(rest.substring(0, sep), rest.substring(sep + 1)) : null;
+        }
+        if (legacyKey.startsWith(LEGACY_STATE)) {
+            String rest = legacyKey.substring(LEGACY_STATE.length());
+            int sep = rest.lastIndexOf(':');
+            return sep > 0 ? RtcKeys.callState(rest.substring(0, sep), rest.substring(sep + 1)) : null;
+        }
+        if (legacyKey.startsWith(LEGACY_RING)) {
+            String rest = legacyKey.substring(LEGACY_RING.length());
+            if (rest.isEmpty() || rest.startsWith(RING_TIMEOUTS)) {
+                return null;
+            }
+            if (rest.endsWith(":pending")) {
+                return RtcKeys.ringPending(rest.substring(0, rest.length() - ":pending".length()));
+            }
+            if (rest.endsWith(":answered")) {
+                return RtcKeys.ringAnswered(rest.substring(0, rest.length() - ":answered".length()));
+            }
+            return RtcKeys.ringDetail(rest);
+        }
+        return null;
+    }
+
+    private static Counter result(MeterRegistry registry, String result) {
+        return Counter.builder("rtc.redis.key.migration")
+                .description("旧布局 Redis Key 迁移数")
+                .tag("result", result)
+                .register(registry);
+    }
+}
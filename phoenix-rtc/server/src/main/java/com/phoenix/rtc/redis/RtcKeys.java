@@ -0,0 +1,125 @@
+package com.phoenix.rtc.redis;
+
+/**
+ * Redis Key 规范
+ * 所有 rtc:* Key 统一在这里生成，业务代码不再各自维护 String.format 模板。
+ *
+ * 房间维度的 Key 都带 {roomName} 哈希标签，Redis Cluster 下同一房间的元数据、成员、
+ * 通话状态、振铃详情落在同一个槽位，可以在一个 Lua 脚本、一次多 Key DEL 或一个事务里操作。
+ * 用户/邀请/节点维度的 Key 只做单 Key 操作，不加标签，让它们均匀分布。
+ *
+ * <pre>
+ * rtc:{room}:meta                  房间元数据 (Hash)
+ * rtc:{room}:members               成员列表 (Set)
+ * rtc:{room}:member:{userId}       成员详情 (Hash)
+ * rtc:{room}:state:{userId}        通话状态 (Hash)
+ * rtc:{room}:history:{userId}      状态历史 (List)
+ * rtc:{room}:state-users           有状态记录的用户 (Set，用于整房清理)
+ * rtc:{room}:ring                  振铃详情 (String)
+ * rtc:{room}:tokens                预签 Token (Hash，userId -> Token)
+ * rtc:{room}:tokens:open           占位身份预签 Token 队列 (List)
+ * rtc:ring:timeouts:{shard}        振铃超时分片 (ZSet)
+ * rtc:media:gc:queue               待删除的媒体房间 (ZSet，score=下次尝试时间)
+ * rtc:media:gc:attempts            媒体房间删除失败次数 (Hash)
+ * rtc:media:pool:{nodeUrl}         媒体节点上预建的空房间 (ZSet，score=可取用截止时间)
+ * rtc:media:draining               排空中的媒体节点 URL (Set)
+ * rtc:session:{userId}             用户会话映射 (String)
+ * rtc:invite:{inviteId}            邀请缓存 (String)
+ * rtc:presence:user:{userId}       用户在线 (String)
+ * rtc:presence:node:{nodeId}       节点统计 (Hash)
+ * rtc:presence:nodes               节点列表 (Set)
+ * ratelimit:rtc:{userId}           限流计数器 (String)
+ * </pre>
+ *
+ * 房间名由服务端生成 (room_xxx)，不含花括号；旧布局 (rtc:room:%s:meta 等) 由 {@link RtcKeyMigration} 在线迁移
+ */
+public final class RtcKeys {
+
+    public static final String PREFIX = "rtc:";
+    public static final String PRESENCE_NODES = "rtc:presence:nodes";
+    public static final String MEDIA_GC_QUEUE = "rtc:media:gc:queue";
+    public static final String MEDIA_GC_ATTEMPTS = "rtc:media:gc:attempts";
+    public static final String MEDIA_DRAINING = "rtc:media:draining";
+
+    private RtcKeys() {
+    }
+
+    /**
+     * 房间哈希标签前缀 rtc:{room}
+     */
+    public static String room(String roomName) {
+        return PREFIX + "{" + roomName + "}";
+    }
+
+    public static String roomMeta(String roomName) {
+        return room(roomName) + ":meta";
+    }
+
+    public static String roomMembers(String roomName) {
+        return room(roomName) + ":members";
+    }
+
+    public static String roomMember(String roomName, String userId) {
+        return room(roomName) + ":member:" + userId;
+    }
+
+    public static String callState(String roomName, String userId) {
+        return room(roomName) + ":state:" + userId;
+    }
+
+    public static String callStateHistory(String roomName, String userId) {
+        return room(roomName) + ":history:" + userId;
+    }
+
+    public static String callStateUsers(String roomName) {
+        return room(roomName) + ":state-users";
+    }
+
+    public static String ringDetail(String roomName) {
+        return room(roomName) + ":ring";
+    }
+
+    public static String ringPending(String roomName) {
+        return room(roomName) + ":ring:pending";
+    }
+
+    public static String ringAnswered(String roomName) {
+        return room(roomName) + ":ring:answered";
+    }
+
+    public static String tokenPool(String roomName) {
+        return room(roomName) + ":tokens";
+    }
+
+    public static String tokenPoolOpen(String roomName) {
+        return room(roomName) + ":tokens:open";
+    }
+
+    public static String ringShard(int shard) {
+        return PREFIX + "ring:timeouts:" + shard;
+    }
+
+    public static String mediaPool(String nodeUrl) {
+        return PREFIX + "media:pool:" + nodeUrl;
+    }
+
+    public static String userSession(String userId) {
+        return PREFIX + "session:" + userId;
+    }
+
+    public static String invite(String inviteId) {
+        return PREFIX + "invite:" + inviteId;
+    }
+
+    public static String userPresence(String userId) {
+        return PREFIX + "presence:user:" + userId;
+    }
+
+    public static String nodePresence(String nodeId) {
+        return PREFIX + "presence:node:" + nodeId;
+    }
+
+    public static String rateLimit(String userId) {
+        return "ratelimit:rtc:" + userId;
+    }
+}
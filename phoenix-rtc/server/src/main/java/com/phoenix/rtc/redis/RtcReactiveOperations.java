@@ -0,0 +1,214 @@
+package com.phoenix.rtc.redis;
+
+import com.phoenix.rtc.redis.codec.FieldValues;
+import com.phoenix.rtc.redis.codec.RedisField;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 非阻塞 Redis 访问
+ * 基于 ReactiveRedisTemplate (Lettuce 异步命令)，方法只负责发出命令并返回 Mono，不占用调用线程。
+ *
+ * 所有命令共享同一条 Lettuce 连接，同时订阅的多个 Mono 会连续写出，等价于自动 pipeline:
+ * 相互独立的读写用 Mono.zip / Mono.when 组合后只等待一次，N 个命令一次往返。
+ * 有先后依赖的命令 (写入 + 设置过期) 在同一个回调里按顺序发出，保证 EXPIRE 不会先于写入到达。
+ *
+ * Spring MVC 请求线程在组合完成后调用 {@link #await(Mono)} 取结果 (带超时)。
+ * 不能在 Lettuce I/O 线程或 Reactor 非阻塞线程上调用 await
+ */
+@Component
+@RequiredArgsConstructor
+public class RtcReactiveOperations {
+
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+
+    @Value("${app.rtc.redis.reactive.timeout-ms:2000}")
+    private long timeoutMs;
+
+    // ---- Hash ----
+
+    public Mono<FieldValues> entries(String key) {
+        ByteBuffer rawKey = raw(key);
+        return reactiveRedisTemplate.execute(connection -> connection.hashCommands().hGetAll(rawKey))
+                .collectMap(entry -> bytes(entry.getKey()), entry -> bytes(entry.getValue()))
+                .map(FieldValues::of);
+    }
+
+    /**
+     * 读取单个字段，字段有旧名时一次 HMGET 同时读取新旧两个字段；字段不存在时为空 Mono
+     */
+    public <T> Mono<T> get(String key, RedisField<T> field) {
+        ByteBuffer rawKey = raw(key);
+        if (field.rawLegacyName() == null) {
+            return reactiveRedisTemplate.execute(connection ->
+                            connection.hashCommands().hGet(rawKey, ByteBuffer.wrap(field.rawName())))
+                    .next()
+                    .map(value -> field.decode(bytes(value)));
+        }
+        List<ByteBuffer> fields = List.of(ByteBuffer.wrap(field.rawName()), ByteBuffer.wrap(field.rawLegacyName()));
+        return reactiveRedisTemplate.execute(connection -> connection.hashCommands().hMGet(rawKey, fields))
+                .next()
+                .flatMap(values -> {
+                    ByteBuffer value = values.get(0) != null ? values.get(0) : values.get(1);
+                    return Mono.justOrEmpty(value != null ? field.decode(bytes(value)) : null);
+                });
+    }
+
+    /**
+     * HSET + EXPIRE
+     */
+    public Mono<Void> putAll(String key, FieldValues values, long ttlSeconds) {
+        ByteBuffer rawKey = raw(key);
+        Map<ByteBuffer, ByteBuffer> encoded = new LinkedHashMap<>();
+        values.encoded().forEach((field, value) -> encoded.put(ByteBuffer.wrap(field), ByteBuffer.wrap(value)));
+        return reactiveRedisTemplate.execute(connection -> Mono.when(
+                connection.hashCommands().hMSet(rawKey, encoded),
+                connection.keyCommands().expire(rawKey, Duration.ofSeconds(ttlSeconds))
+        )).then();
+    }
+
+    public Mono<Long> increment(String key, RedisField<Long> field, long delta) {
+        ByteBuffer rawKey = raw(key);
+        return reactiveRedisTemplate.execute(connection ->
+                connection.numberCommands().hIncrBy(rawKey, ByteBuffer.wrap(field.rawName()), delta)).next();
+    }
+
+    // ---- Set ----
+
+    /**
+     * SADD + EXPIRE
+     */
+    public Mono<Void> setAdd(String key, String member, long ttlSeconds) {
+        ByteBuffer rawKey = raw(key);
+        return reactiveRedisTemplate.execute(connection -> Mono.when(
+                connection.setCommands().sAdd(rawKey, raw(member)),
+                connection.keyCommands().expire(rawKey, Duration.ofSeconds(ttlSeconds))
+        )).then();
+    }
+
+    public Mono<Long> setRemove(String key, String member) {
+        ByteBuffer rawKey = raw(key);
+        return reactiveRedisTemplate.execute(connection -> connection.setCommands().sRem(rawKey, raw(member))).next();
+    }
+
+    public Mono<Long> setSize(String key) {
+        ByteBuffer rawKey = raw(key);
+        return reactiveRedisTemplate.execute(connection -> connection.setCommands().sCard(rawKey)).next();
+    }
+
+    public Mono<List<String>> setMembers(String key) {
+        ByteBuffer rawKey = raw(key);
+        return reactiveRedisTemplate.execute(connection -> connection.setCommands().sMembers(rawKey))
+                .map(RtcReactiveOperations::text)
+                .collectList();
+    }
+
+    // ---- String / List / Key ----
+
+    /**
+     * SET EX
+     */
+    public Mono<Void> set(String key, String value, long ttlSeconds) {
+        ByteBuffer rawKey = raw(key);
+        return reactiveRedisTemplate.execute(connection ->
+                connection.stringCommands().setEX(rawKey, raw(value), Expiration.seconds(ttlSeconds))).then();
+    }
+
+    /**
+     * LPUSH + LTRIM + EXPIRE，只保留最近 maxLength 条
+     */
+    public Mono<Void> listPushCapped(String key, String value, int maxLength, long ttlSeconds) {
+        ByteBuffer rawKey = raw(key);
+        return reactiveRedisTemplate.execute(connection -> Mono.when(
+                connection.listCommands().lPush(rawKey, List.of(raw(value))),
+                connection.listCommands().lTrim(rawKey, 0, maxLength - 1),
+                connection.keyCommands().expire(rawKey, Duration.ofSeconds(ttlSeconds))
+        )).then();
+    }
+
+    /**
+     * LRANGE 0 -1，一条命令读完整列表 (不再先 LLEN)
+     */
+    public Mono<List<String>> listRange(String key) {
+        ByteBuffer rawKey = raw(key);
+        return reactiveRedisTemplate.execute(connection -> connection.listCommands().lRange(rawKey, 0, -1))
+                .map(RtcReactiveOperations::text)
+                .collectList();
+    }
+
+    public Mono<Boolean> expire(String key, long ttlSeconds) {
+        ByteBuffer rawKey = raw(key);
+        return reactiveRedisTemplate.execute(connection ->
+                connection.keyCommands().expire(rawKey, Duration.ofSeconds(ttlSeconds))).next();
+    }
+
+    /**
+     * 多 Key DEL，Key 需在同一哈希标签下
+     */
+    public Mono<Long> delete(List<String> keys) {
+        List<ByteBuffer> rawKeys = new ArrayList<>(keys.size());
+        keys.forEach(key -> rawKeys.add(raw(key)));
+        return reactiveRedisTemplate.execute(connection -> connection.keyCommands().mDel(rawKeys)).next();
+    }
+
+    /**
+     * 固定窗口计数: INCR，窗口内首次计数时设置过期时间
+     */
+    public Mono<Long> incrementWindow(byte[] key, long windowSeconds) {
+        return reactiveRedisTemplate.execute(connection -> connection.numberCommands().incr(ByteBuffer.wrap(key))
+                .flatMap(count -> count == 1
+                        ? connection.keyCommands().expire(ByteBuffer.wrap(key), Duration.ofSeconds(windowSeconds))
+                                .thenReturn(count)
+                        : Mono.just(count)))
+                .next();
+    }
+
+    public Mono<Long> ttl(byte[] key) {
+        return reactiveRedisTemplate.execute(connection -> connection.keyCommands().ttl(ByteBuffer.wrap(key))).next();
+    }
+
+    // ---- Script ----
+
+    /**
+     * EVALSHA (脚本未缓存时回退 EVAL)，参数按 RtcValueSerializer 编码，脚本返回 nil 时为空 Mono
+     */
+    public <T> Mono<T> script(RedisScript<T> script, List<String> keys, Object... args) {
+        return reactiveRedisTemplate.execute(script, keys, List.of(args)).next();
+    }
+
+    /**
+     * 在请求线程上等待组合结果
+     *
+     * @throws IllegalStateException 超过 app.rtc.redis.reactive.timeout-ms 未完成
+     */
+    public <T> T await(Mono<T> mono) {
+        return mono.block(Duration.ofMillis(timeoutMs));
+    }
+
+    private static ByteBuffer raw(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static String text(ByteBuffer buffer) {
+        return new String(bytes(buffer), StandardCharsets.UTF_8);
+    }
+}
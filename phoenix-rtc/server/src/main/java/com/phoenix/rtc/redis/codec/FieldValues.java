@@ -0,0 +1,68 @@
+package com.phoenix.rtc.redis.codec;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一个 Hash 的字段值集合
+ * 写入时按字段编码，读取时按字段解码，读写两侧都不需要类型转换
+ */
+public final class FieldValues {
+
+    // 字段名 -> 编码后的值；byte[] 没有按内容比较的 equals，读取侧用 ByteBuffer 包装作为 Key
+    private final Map<ByteBuffer, byte[]> values;
+
+    private FieldValues(Map<ByteBuffer, byte[]> values) {
+        this.values = values;
+    }
+
+    public static FieldValues create() {
+        return new FieldValues(new LinkedHashMap<>());
+    }
+
+    /**
+     * 包装 HGETALL 的结果
+     */
+    public static FieldValues of(Map<byte[], byte[]> raw) {
+        Map<ByteBuffer, byte[]> values = new HashMap<>(raw != null ? raw.size() * 2 : 0);
+        if (raw != null) {
+            raw.forEach((field, value) -> values.put(ByteBuffer.wrap(field), value));
+        }
+        return new FieldValues(values);
+    }
+
+    public <T> FieldValues with(RedisField<T> field, T value) {
+        if (value != null) {
+            values.put(ByteBuffer.wrap(field.rawName()), field.encode(value));
+        }
+        return this;
+    }
+
+    public <T> T get(RedisField<T> field) {
+        byte[] value = values.get(ByteBuffer.wrap(field.rawName()));
+        if (value == null && field.rawLegacyName() != null) {
+            value = values.get(ByteBuffer.wrap(field.rawLegacyName()));
+        }
+        return field.decode(value);
+    }
+
+    public <T> T get(RedisField<T> field, T defaultValue) {
+        T value = get(field);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * HSET 参数
+     */
+    public Map<byte[], byte[]> encoded() {
+        Map<byte[], byte[]> encoded = new LinkedHashMap<>(values.size() * 2);
+        values.forEach((field, value) -> encoded.put(field.array(), value));
+        return encoded;
+    }
+}
@@ -0,0 +1,15 @@
+package com.phoenix.rtc.redis.codec;
+
+/**
+ * Redis 值编解码
+ * 每个 Hash 字段/String 值绑定一个固定类型的编解码器，读取时直接得到目标类型，不再强转 Object
+ */
+public interface RedisCodec<T> {
+
+    byte[] encode(T value);
+
+    /**
+     * @param bytes Redis 返回的原始字节，不为 null
+     */
+    T decode(byte[] bytes);
+}
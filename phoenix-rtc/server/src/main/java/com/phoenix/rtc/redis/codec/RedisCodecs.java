@@ -0,0 +1,170 @@
+package com.phoenix.rtc.redis.codec;
+
+import com.phoenix.rtc.statemachine.CallState;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 常用编解码器
+ *
+ * 编码按 Redis 自身的存储方式选择，而不是按 Java 的二进制布局:
+ * Hash (listpack) 和 String 中能解析为 long 的值会以整数形式存储 (1~9 字节)，所以
+ * 1. 数字存十进制文本，Redis 内部按整数压缩存储，HINCRBY/INCR 照常可用
+ * 2. 布尔存 1/0，通话状态存固定编号，都是 1 字节整数
+ * 3. 固定取值的字符串 (角色等) 用字典序号代替原文
+ * 定长 8 字节的 long 反而会被当作普通字符串存储，比十进制文本更占内存
+ */
+public final class RedisCodecs {
+
+    private static final byte[] TRUE = {'1'};
+    private static final byte[] FALSE = {'0'};
+
+    private RedisCodecs() {
+    }
+
+    public static final RedisCodec<String> STRING = new RedisCodec<>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    public static final RedisCodec<Long> LONG = new RedisCodec<>() {
+        @Override
+        public byte[] encode(Long value) {
+            return encodeLong(value);
+        }
+
+        @Override
+        public Long decode(byte[] bytes) {
+            return decodeLong(bytes);
+        }
+    };
+
+    public static final RedisCodec<Integer> INT = new RedisCodec<>() {
+        @Override
+        public byte[] encode(Integer value) {
+            return encodeLong(value);
+        }
+
+        @Override
+        public Integer decode(byte[] bytes) {
+            return Math.toIntExact(decodeLong(bytes));
+        }
+    };
+
+    /**
+     * 1/0，兼容旧数据的 true/false
+     */
+    public static final RedisCodec<Boolean> BOOLEAN = new RedisCodec<>() {
+        @Override
+        public byte[] encode(Boolean value) {
+            return value ? TRUE : FALSE;
+        }
+
+        @Override
+        public Boolean decode(byte[] bytes) {
+            if (bytes.length == 1) {
+                return bytes[0] == '1';
+            }
+            return "true".equalsIgnoreCase(new String(bytes, StandardCharsets.US_ASCII));
+        }
+    };
+
+    /**
+     * 通话状态存 CallState 中显式声明的编号 (不依赖声明顺序)，兼容旧数据的状态码 (idle、calling ...)
+     */
+    public static final RedisCodec<CallState> CALL_STATE = new RedisCodec<>() {
+        @Override
+        public byte[] encode(CallState value) {
+            return encodeLong(value.getStorageCode());
+        }
+
+        @Override
+        public CallState decode(byte[] bytes) {
+            if (isDigits(bytes)) {
+                return CallState.fromStorageCode(decodeLong(bytes));
+            }
+            return CallState.fromCode(new String(bytes, StandardCharsets.UTF_8));
+        }
+    };
+
+    /**
+     * 字典编码: 已知取值存序号，其他取值原样存储
+     * 字典中的取值不能是纯数字
+     */
+    public static RedisCodec<String> dictionary(String... values) {
+        List<String> dictionary = List.of(values);
+        byte[][] encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = encodeLong(i);
+        }
+        return new RedisCodec<>() {
+            @Override
+            public byte[] encode(String value) {
+                int index = dictionary.indexOf(value);
+                return index >= 0 ? encoded[index] : STRING.encode(value);
+            }
+
+            @Override
+            public String decode(byte[] bytes) {
+                if (isDigits(bytes)) {
+                    long index = decodeLong(bytes);
+                    if (index < dictionary.size()) {
+                        return dictionary.get((int) index);
+                    }
+                }
+                return STRING.decode(bytes);
+            }
+        };
+    }
+
+    static byte[] encodeLong(long value) {
+        if (value >= 0 && value < 10) {
+            return new byte[]{(byte) ('0' + value)};
+        }
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 直接从字节解析十进制，不经过 String
+     */
+    static long decodeLong(byte[] bytes) {
+        if (bytes.length == 0 || bytes.length > 20) {
+            throw new NumberFormatException("不是合法的整数: " + Arrays.toString(bytes));
+        }
+        boolean negative = bytes[0] == '-';
+        int start = negative ? 1 : 0;
+        if (start == bytes.length) {
+            throw new NumberFormatException("不是合法的整数: -");
+        }
+        long result = 0;
+        for (int i = start; i < bytes.length; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("不是合法的整数: " + new String(bytes, StandardCharsets.US_ASCII));
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    private static boolean isDigits(byte[] bytes) {
+        if (bytes.length == 0 || bytes.length > 18) {
+            return false;
+        }
+        for (byte b : bytes) {
+            if (b < '0' || b > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
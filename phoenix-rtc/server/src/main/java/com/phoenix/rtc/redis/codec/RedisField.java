@@ -0,0 +1,54 @@
+package com.phoenix.rtc.redis.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 带类型的 Hash 字段
+ * name 为实际写入 Redis 的字段名 (每个成员一份的 Hash 用短名)，
+ * legacyName 为旧版本写入的字段名，读取时作为兜底，写入一律使用新字段名
+ */
+public final class RedisField<T> {
+
+    private final String name;
+    private final byte[] rawName;
+    private final byte[] rawLegacyName;
+    private final RedisCodec<T> codec;
+
+    private RedisField(String name, String legacyName, RedisCodec<T> codec) {
+        this.name = name;
+        this.rawName = name.getBytes(StandardCharsets.UTF_8);
+        this.rawLegacyName = legacyName != null ? legacyName.getBytes(StandardCharsets.UTF_8) : null;
+        this.codec = codec;
+    }
+
+    public static <T> RedisField<T> of(String name, RedisCodec<T> codec) {
+        return new RedisField<>(name, null, codec);
+    }
+
+    public static <T> RedisField<T> of(String name, String legacyName, RedisCodec<T> codec) {
+        return new RedisField<>(name, legacyName, codec);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public byte[] rawName() {
+        return rawName;
+    }
+
+    /**
+     * 旧字段名，没有时为 null
+     */
+    public byte[] rawLegacyName() {
+        return rawLegacyName;
+    }
+
+    public byte[] encode(T value) {
+        return codec.encode(value);
+    }
+
+    public T decode(byte[] bytes) {
+        return bytes != null ? codec.decode(bytes) : null;
+    }
+}
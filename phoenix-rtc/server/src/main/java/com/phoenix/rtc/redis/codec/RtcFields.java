@@ -0,0 +1,38 @@
+package com.phoenix.rtc.redis.codec;
+
+import com.phoenix.rtc.statemachine.CallState;
+
+/**
+ * rtc:* Hash 的字段定义
+ * 房间元数据每个房间一份，保留可读的字段名 (Lua 脚本和运维排查会直接引用)；
+ * 成员详情和通话状态每个成员一份，万人房间里有上万个，字段名用单字母，旧字段名作为读取兜底
+ */
+public final class RtcFields {
+
+    private RtcFields() {
+    }
+
+    // ---- 房间元数据 rtc:{room}:meta ----
+    public static final RedisField<Long> META_SESSION_ID = RedisField.of("sessionId", RedisCodecs.LONG);
+    public static final RedisField<String> META_INITIATOR_ID = RedisField.of("initiatorId", RedisCodecs.STRING);
+    public static final RedisField<String> META_ROOM_TYPE = RedisField.of("roomType", RedisCodecs.STRING);
+    public static final RedisField<String> META_STATUS = RedisField.of("status", RedisCodecs.STRING);
+    public static final RedisField<Integer> META_MAX_MEMBERS = RedisField.of("maxMembers", RedisCodecs.INT);
+    public static final RedisField<String> META_TITLE = RedisField.of("title", RedisCodecs.STRING);
+    public static final RedisField<Long> META_CREATED_AT = RedisField.of("createdAt", RedisCodecs.LONG);
+    public static final RedisField<Long> META_CURRENT_MEMBERS = RedisField.of("currentMembers", RedisCodecs.LONG);
+    public static final RedisField<Long> META_VERSION = RedisField.of("version", RedisCodecs.LONG);
+    public static final RedisField<String> META_MEDIA_NODE = RedisField.of("mediaNode", RedisCodecs.STRING);
+    public static final RedisField<Boolean> META_TOKEN_POOL = RedisField.of("tokenPool", RedisCodecs.BOOLEAN);
+
+    // ---- 成员详情 rtc:{room}:member:{userId} ----
+    public static final RedisField<String> MEMBER_ROLE =
+            RedisField.of("r", "role", RedisCodecs.dictionary("host", "publisher", "subscriber"));
+    public static final RedisField<Long> MEMBER_JOINED_AT = RedisField.of("j", "joinedAt", RedisCodecs.LONG);
+    public static final RedisField<Boolean> MEMBER_AUDIO = RedisField.of("a", "audioEnabled", RedisCodecs.BOOLEAN);
+    public static final RedisField<Boolean> MEMBER_VIDEO = RedisField.of("v", "videoEnabled", RedisCodecs.BOOLEAN);
+
+    // ---- 通话状态 rtc:{room}:state:{userId} ----
+    public static final RedisField<CallState> STATE = RedisField.of("s", "state", RedisCodecs.CALL_STATE);
+    public static final RedisField<Long> STATE_TIMESTAMP = RedisField.of("t", "timestamp", RedisCodecs.LONG);
+}
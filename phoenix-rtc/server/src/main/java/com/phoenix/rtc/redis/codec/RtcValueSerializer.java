@@ -0,0 +1,44 @@
+package com.phoenix.rtc.redis.codec;
+
+import com.phoenix.rtc.statemachine.CallState;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RedisTemplate 的值序列化器
+ * 替代 StringRedisSerializer: 后者只接受 String，写入 Long/Boolean/Integer 会直接抛 ClassCastException。
+ * 数字、布尔、通话状态按 {@link RedisCodecs} 的紧凑格式写入，其余按文本写入；读取一律返回 String，
+ * 需要类型的读取走 {@link RedisField} / RtcHashOperations
+ */
+public class RtcValueSerializer implements RedisSerializer<Object> {
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String text) {
+            return text.getBytes(StandardCharsets.UTF_8);
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+            return RedisCodecs.encodeLong(((Number) value).longValue());
+        }
+        if (value instanceof Boolean flag) {
+            return RedisCodecs.BOOLEAN.encode(flag);
+        }
+        if (value instanceof CallState state) {
+            return RedisCodecs.CALL_STATE.encode(state);
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes;
+        }
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +29,12 @@ public interface RtcSessionRepository extends JpaRepository<RtcSession, Long> {
            "WHERE p.userId = :userId AND s.status = :status")
     List<RtcSession> findActiveSessionsByUserId(String userId, Integer status);
 
+    /**
+     * 给定房间中处于指定状态的房间名 (媒体房间对账)
+     */
+    @Query("SELECT s.roomName FROM RtcSession s WHERE s.roomName IN :roomNames AND s.status = :status")
+    List<String> findRoomNamesByStatus(Collection<String> roomNames, Integer status);
+
     /**
      * 查询最近的会话记录
      */
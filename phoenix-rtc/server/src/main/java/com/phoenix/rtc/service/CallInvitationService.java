@@ -0,0 +1,221 @@
+package com.phoenix.rtc.service;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.phoenix.rtc.service.InviteService.Invite;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 批量呼叫邀请服务
+ * 群呼时替代逐个被叫串行写入邀请、推送 ringing:
+ * 1. prepare: 被叫去重、排除发起人，一次 MGET 查询全部被叫在线状态
+ * 2. dispatch: 在线被叫的邀请一次 pipeline 写入，ringing 按分片在专用的邀请线程池中并发推送 (并发度有上限)
+ * 3. 返回每个被叫的投递结果
+ * Redis 往返次数固定，数百人的群呼发起耗时基本不随人数增长
+ */
+@Service
+@Slf4j
+public class CallInvitationService {
+
+    private final PresenceService presenceService;
+    private final InviteService inviteService;
+    private final WebSocketService webSocketService;
+    private final TaskExecutor executor;
+
+    private final Timer dispatchTimer;
+    private final Map<DeliveryStatus, Counter> statusCounters = new EnumMap<>(DeliveryStatus.class);
+
+    @Value("${app.rtc.invite.shard-size:32}")
+    private int shardSize;
+
+    @Value("${app.rtc.invite.max-parallelism:8}")
+    private int maxParallelism;
+
+    @Value("${app.rtc.invite.dispatch-timeout-ms:2000}")
+    private long dispatchTimeoutMs;
+
+    public CallInvitationService(PresenceService presenceService,
+                                 InviteService inviteService,
+                                 WebSocketService webSocketService,
+                                 @Qualifier("rtcInviteExecutor") TaskExecutor executor,
+                                 MeterRegistry meterRegistry) {
+        this.presenceService = presenceService;
+        this.inviteService = inviteService;
+        this.webSocketService = webSocketService;
+        this.executor = executor;
+
+        this.dispatchTimer = Timer.builder("rtc.invite.dispatch")
+                .description("群呼邀请批量写入并推送的耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        for (DeliveryStatus status : DeliveryStatus.values()) {
+            statusCounters.put(status, Counter.builder("rtc.invite.delivery")
+                    .description("邀请投递结果")
+                    .tag("status", status.getCode())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * 被叫去重并批量查询在线状态，在创建房间之前调用
+     */
+    public InvitationPlan prepare(Collection<String> targetUserIds, String inviterId) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String userId : targetUserIds) {
+            if (userId != null && !userId.isBlank() && !userId.equals(inviterId)) {
+                unique.add(userId);
+            }
+        }
+
+        List<String> online = new ArrayList<>();
+        List<String> offline = new ArrayList<>();
+        presenceService.getOnlineStatus(unique)
+                .forEach((userId, isOnline) -> (isOnline ? online : offline).add(userId));
+        return new InvitationPlan(online, offline);
+    }
+
+    /**
+     * 写入邀请并推送 ringing，房间创建后调用
+     *
+     * @return 每个被叫的投递结果 (离线被叫在前)
+     */
+    public List<Delivery> dispatch(InvitationPlan plan, String inviterId, String inviterName,
+                                   String roomName, String mode, String title) {
+        return dispatchTimer.record(() -> {
+            Map<String, Delivery> results = new LinkedHashMap<>();
+            for (String userId : plan.offlineUserIds()) {
+                results.put(userId, new Delivery(userId, DeliveryStatus.OFFLINE, null));
+            }
+            if (plan.onlineUserIds().isEmpty()) {
+                return record(results.values());
+            }
+
+            // 1. 一次 pipeline 写入全部邀请
+            List<Invite> invites;
+            try {
+                invites = inviteService.createInvites(plan.onlineUserIds(), inviterId, inviterName, roomName, mode, title);
+            } catch (Exception e) {
+                log.error("批量写入邀请失败 - 房间: {}", roomName, e);
+                for (String userId : plan.onlineUserIds()) {
+                    results.put(userId, new Delivery(userId, DeliveryStatus.FAILED, null));
+                }
+                return record(results.values());
+            }
+
+            // 2. 分片并发推送，分片数不超过 maxParallelism
+            int total = invites.size();
+            int size = Math.max(shardSize, (total + maxParallelism - 1) / maxParallelism);
+            List<CompletableFuture<List<Delivery>>> futures = new ArrayList<>();
+            for (int from = 0; from < total; from += size) {
+                List<Invite> shard = invites.subList(from, Math.min(total, from + size));
+                futures.add(CompletableFuture.supplyAsync(() -> sendShard(shard), executor));
+            }
+
+            // 所有分片共用一个截止时间，整体等待不超过 dispatchTimeoutMs
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(dispatchTimeoutMs);
+            for (int i = 0; i < futures.size(); i++) {
+                int from = i * size;
+                List<Invite> shard = invites.subList(from, Math.min(total, from + size));
+                try {
+                    long remaining = Math.max(0, deadline - System.nanoTime());
+                    for (Delivery delivery : futures.get(i).get(remaining, TimeUnit.NANOSECONDS)) {
+                        results.put(delivery.userId(), delivery);
+                    }
+                } catch (TimeoutException e) {
+                    // 超时的分片仍在后台继续推送，结果标记为未确认
+                    log.warn("邀请推送超时 - 房间: {}, 分片大小: {}", roomName, shard.size());
+                    shard.forEach(invite -> results.put(invite.targetUserId(),
+                            new Delivery(invite.targetUserId(), DeliveryStatus.PENDING, invite.inviteId())));
+                } catch (Exception e) {
+                    log.warn("邀请推送失败 - 房间: {}: {}", roomName, e.getMessage());
+                    shard.forEach(invite -> results.put(invite.targetUserId(),
+                            new Delivery(invite.targetUserId(), DeliveryStatus.FAILED, invite.inviteId())));
+                }
+            }
+
+            log.info("群呼邀请完成 - 房间: {}, 在线: {}, 离线: {}", roomName, total, plan.offlineUserIds().size());
+            return record(results.values());
+        });
+    }
+
+    private List<Delivery> sendShard(List<Invite> shard) {
+        List<Delivery> deliveries = new ArrayList<>(shard.size());
+        for (Invite invite : shard) {
+            try {
+                webSocketService.sendToUser(invite.targetUserId(), webSocketService.ringing(invite));
+                deliveries.add(new Delivery(invite.targetUserId(), DeliveryStatus.SENT, invite.inviteId()));
+            } catch (Exception e) {
+                log.warn("推送邀请失败 - 被叫: {}: {}", invite.targetUserId(), e.getMessage());
+                deliveries.add(new Delivery(invite.targetUserId(), DeliveryStatus.FAILED, invite.inviteId()));
+            }
+        }
+        return deliveries;
+    }
+
+    private List<Delivery> record(Collection<Delivery> deliveries) {
+        deliveries.forEach(delivery -> statusCounters.get(delivery.status()).increment());
+        return new ArrayList<>(deliveries);
+    }
+
+    /**
+     * 去重后的被叫在线情况
+     */
+    public record InvitationPlan(List<String> onlineUserIds, List<String> offlineUserIds) {
+        public boolean hasOnline() {
+            return !onlineUserIds.isEmpty();
+        }
+
+        /**
+         * 在线状态不可信时: 全部被叫都按在线邀请
+         */
+        public InvitationPlan ringAll() {
+            List<String> all = new ArrayList<>(onlineUserIds);
+            all.addAll(offlineUserIds);
+            return new InvitationPlan(all, List.of());
+        }
+    }
+
+    /**
+     * 单个被叫的投递结果
+     */
+    public record Delivery(String userId, DeliveryStatus status, String inviteId) {}
+
+    /**
+     * 投递状态
+     */
+    public enum DeliveryStatus {
+        SENT("sent"),        // 已推送
+        PENDING("pending"),  // 推送未在超时内确认，后台仍在进行
+        OFFLINE("offline"),  // 不在线，未推送
+        FAILED("failed");    // 推送失败
+
+        private final String code;
+
+        DeliveryStatus(String code) {
+            this.code = code;
+        }
+
+        @JsonValue
+        public String getCode() {
+            return code;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.redis.RtcKeys;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 邀请缓存服务
+ * 优化点:
+ * 1. 一批被叫的邀请在一次 pipeline 中写入，往返次数不再随被叫人数增长
+ * 2. 邀请记录编码为单个紧凑字符串 (String + TTL)，替代 8 个字段的 Hash + expire
+ * 3. 接听/拒绝时 GETDEL 一次往返读取并消费邀请，重复处理同一邀请直接失败
+ * 4. 接听后加入房间失败时按剩余有效期放回邀请，被叫可以重试
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InviteService {
+
+    private static final long INVITE_TTL_MINUTES = 5;
+
+    // 值以 版本号+被叫ID 开头时才删除
+    private static final DefaultRedisScript<String> CONSUME_INVITE = new DefaultRedisScript<>(
+            "local v = redis.call('get', KEYS[1]) " +
+            "if v and string.sub(v, 1, string.len(ARGV[1])) == ARGV[1] then redis.call('del', KEYS[1]) end " +
+            "return v",
+            String.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 批量创建邀请，一次 pipeline 写入
+     */
+    public List<Invite> createInvites(Collection<String> targetUserIds, String inviterId, String inviterName,
+                                      String roomName, String mode, String title) {
+        long now = System.currentTimeMillis();
+        List<Invite> invites = new ArrayList<>(targetUserIds.size());
+        for (String targetUserId : targetUserIds) {
+            invites.add(new Invite(UUID.randomUUID().toString(), targetUserId, inviterId, inviterName,
+                    roomName, mode, title, now));
+        }
+        if (invites.isEmpty()) {
+            return invites;
+        }
+
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Invite invite : invites) {
+                    operations.opsForValue().set(RtcKeys.invite(invite.inviteId()), invite.encode(),
+                            INVITE_TTL_MINUTES, TimeUnit.MINUTES);
+                }
+                return null;
+            }
+        });
+
+        log.debug("批量写入邀请 - 房间: {}, 数量: {}", roomName, invites.size());
+        return invites;
+    }
+
+    /**
+     * 读取邀请，被叫本人处理时同时删除，接听/拒绝时调用，一次往返
+     * 非被叫本人的请求只读取不删除，调用方据此拒绝
+     *
+     * @return 邀请记录，已过期或已被处理时返回 null
+     */
+    public Invite consumeInvite(String inviteId, String userId) {
+        Object value = redisTemplate.execute(CONSUME_INVITE, List.of(RtcKeys.invite(inviteId)),
+                Invite.ownerPrefix(userId));
+        return value != null ? Invite.decode(inviteId, value.toString()) : null;
+    }
+
+    /**
+     * 放回已消费的邀请，接听后加入房间失败时调用
+     * 只在原有效期内放回，SET NX 不覆盖期间写入的同名记录
+     *
+     * @return 是否放回
+     */
+    public boolean restoreInvite(Invite invite) {
+        long remainingMs = invite.timestamp() + TimeUnit.MINUTES.toMillis(INVITE_TTL_MINUTES)
+                - System.currentTimeMillis();
+        if (remainingMs <= 0) {
+            return false;
+        }
+        Boolean restored = redisTemplate.opsForValue().setIfAbsent(RtcKeys.invite(invite.inviteId()),
+                invite.encode(), remainingMs, TimeUnit.MILLISECONDS);
+        return Boolean.TRUE.equals(restored);
+    }
+
+    /**
+     * 邀请记录
+     * Redis 中的值为 版本号 + 各字段，以 \u001F (单元分隔符) 连接，inviteId 即 Key 本身不再重复存储
+     */
+    public record Invite(String inviteId, String targetUserId, String inviterId, String inviterName,
+                         String roomName, String mode, String title, long timestamp) {
+
+        private static final String FORMAT_VERSION = "1";
+        private static final char SEPARATOR = '\u001F';
+
+        String encode() {
+            return String.join(String.valueOf(SEPARATOR), FORMAT_VERSION,
+                    nullToEmpty(targetUserId), nullToEmpty(inviterId), nullToEmpty(inviterName),
+                    nullToEmpty(roomName), nullToEmpty(mode), nullToEmpty(title), String.valueOf(timestamp));
+        }
+
+        static String ownerPrefix(String targetUserId) {
+            return FORMAT_VERSION + SEPARATOR + nullToEmpty(targetUserId) + SEPARATOR;
+        }
+
+        static Invite decode(String inviteId, String value) {
+            String[] fields = value.split(String.valueOf(SEPARATOR), -1);
+            if (fields.length != 8 || !FORMAT_VERSION.equals(fields[0])) {
+                throw new IllegalStateException("无法解析的邀请记录: " + inviteId);
+            }
+            return new Invite(inviteId, emptyToNull(fields[1]), emptyToNull(fields[2]), emptyToNull(fields[3]),
+                    emptyToNull(fields[4]), emptyToNull(fields[5]), emptyToNull(fields[6]), Long.parseLong(fields[7]));
+        }
+
+        private static String nullToEmpty(String value) {
+            return value != null ? value.replace(SEPARATOR, ' ') : "";
+        }
+
+        private static String emptyToNull(String value) {
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
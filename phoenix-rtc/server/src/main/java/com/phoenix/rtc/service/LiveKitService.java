@@ -1,37 +1,51 @@
 package com.phoenix.rtc.service;
 
+import com.phoenix.rtc.adapter.LiveKitTokenMinter;
+import com.phoenix.rtc.cache.CoalescingCache;
 import io.livekit.server.LiveKitServerClient;
 import io.livekit.server.ParticipantInfo;
 import io.livekit.server.RoomInfo;
-import io.livekit.server.TokenOptions;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
 /**
  * LiveKit 服务
  * 负责 Token 生成、房间管理等
+ *
+ * 房间信息和参与者列表经过短 TTL 缓存: 大量客户端同时查询同一房间时，同一时刻只有一个请求发往 LiveKit，
+ * 其余调用方合并到这次请求；过期后的陈旧窗口内先返回旧值再后台刷新 (app.rtc.media.query-cache.*)。
+ * 通话链路的房间查询走 LiveKitAdapter，查询缓存指标 (rtc.media.query.*) 由 LiveKitAdapter 注册
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class LiveKitService {
 
     private final LiveKitServerClient liveKitClient;
+    private final LiveKitTokenMinter tokenMinter;
+
+    private final CoalescingCache<String, RoomInfo> roomInfoCache;
+    private final CoalescingCache<String, List<ParticipantInfo>> participantsCache;
 
     @Value("${livekit.url:ws://localhost:7880}")
     private String liveKitUrl;
 
-    @Value("${livekit.api.key:devkey}")
-    private String apiKey;
-
-    @Value("${livekit.api.secret:secret}")
-    private String apiSecret;
+    public LiveKitService(LiveKitServerClient liveKitClient,
+                          LiveKitTokenMinter tokenMinter,
+                          @Qualifier("rtcMediaExecutor") AsyncTaskExecutor mediaExecutor,
+                          @Value("${app.rtc.media.query-cache.max-rooms:10000}") int maxRooms,
+                          @Value("${app.rtc.media.query-cache.fresh-ms:1000}") long freshMs,
+                          @Value("${app.rtc.media.query-cache.stale-ms:4000}") long staleMs) {
+        this.liveKitClient = liveKitClient;
+        this.tokenMinter = tokenMinter;
+        this.roomInfoCache = new CoalescingCache<>(maxRooms, freshMs, staleMs, mediaExecutor);
+        this.participantsCache = new CoalescingCache<>(maxRooms, freshMs, staleMs, mediaExecutor);
+    }
 
     /**
      * 生成加入房间的 Token
@@ -43,36 +57,10 @@ public class LiveKitService {
      * @return JWT Token
      */
     public String generateToken(String userId, String roomName, String role, String metadata) {
-        try {
-            // Token 有效期设置为 2 小时
-            long expirationTime = System.currentTimeMillis() + (2 * 60 * 60 * 1000);
-
-            TokenOptions options = TokenOptions.builder()
-                    .setRoomJoin(true)
-                    .setRoomName(roomName)
-                    .setIdentity(userId)
-                    .setMetadata(metadata != null ? metadata : "")
-                    .setGrants(true, true) // 允许发布/订阅
-                    .setExpiration(expirationTime)
-                    .build();
-
-            // 根据角色设置权限
-            if ("host".equals(role)) {
-                options.setGrants(true, true); // 可推流可拉流
-            } else if ("subscriber".equals(role)) {
-                options.setGrants(false, true); // 只能拉流
-            } else {
-                options.setGrants(true, true); // 默认可推可拉
-            }
-
-            String token = liveKitClient.createToken(apiKey, apiSecret, options);
-            log.info("生成 Token - 用户: {}, 房间: {}, 角色: {}, 过期时间: {}",
-                userId, roomName, role, expirationTime);
-            return token;
-        } catch (Exception e) {
-            log.error("生成 Token 失败 - 用户: {}, 房间: {}", userId, roomName, e);
-            throw new RuntimeException("Token 生成失败: " + e.getMessage());
-        }
+        // 本地签发，Token 有效期 2 小时 (app.rtc.token.ttl-seconds)
+        String token = tokenMinter.mint(userId, roomName, role, metadata, tokenMinter.getDefaultTtlSeconds());
+        log.debug("生成 Token - 用户: {}, 房间: {}, 角色: {}", userId, roomName, role);
+        return token;
     }
 
     /**
@@ -95,6 +83,7 @@ public class LiveKitService {
             }
 
             RoomInfo roomInfo = liveKitClient.createRoom(request);
+            roomInfoCache.invalidate(roomName);
             log.info("创建房间成功 - 房间: {}", roomName);
             return roomInfo;
         } catch (Exception e) {
@@ -104,14 +93,14 @@ public class LiveKitService {
     }
 
     /**
-     * 获取房间信息
+     * 获取房间信息 (缓存，并发查询同一房间时合并为一次请求)
      *
      * @param roomName 房间名称
      * @return 房间信息
      */
     public RoomInfo getRoomInfo(String roomName) {
         try {
-            return liveKitClient.getRoom(roomName);
+            return roomInfoCache.get(roomName, liveKitClient::getRoom);
         } catch (Exception e) {
             log.error("获取房间信息失败: {}", roomName, e);
             return null;
@@ -119,14 +108,14 @@ public class LiveKitService {
     }
 
     /**
-     * 列出房间内的参与者
+     * 列出房间内的参与者 (缓存，并发查询同一房间时合并为一次请求)
      *
      * @param roomName 房间名称
      * @return 参与者列表
      */
     public List<ParticipantInfo> listParticipants(String roomName) {
         try {
-            return liveKitClient.listParticipants(roomName);
+            return participantsCache.get(roomName, liveKitClient::listParticipants);
         } catch (Exception e) {
             log.error("列出参与者失败: {}", roomName, e);
             return List.of();
@@ -141,6 +130,8 @@ public class LiveKitService {
     public void deleteRoom(String roomName) {
         try {
             liveKitClient.deleteRoom(roomName);
+            roomInfoCache.invalidate(roomName);
+            participantsCache.invalidate(roomName);
             log.info("删除房间成功 - 房间: {}", roomName);
         } catch (Exception e) {
             log.error("删除房间失败: {}", roomName, e);
@@ -156,6 +147,8 @@ public class LiveKitService {
     public void removeParticipant(String roomName, String participantIdentity) {
         try {
             liveKitClient.removeParticipant(roomName, participantIdentity);
+            roomInfoCache.invalidate(roomName);
+            participantsCache.invalidate(roomName);
             log.info("移除参与者成功 - 房间: {}, 用户: {}", roomName, participantIdentity);
         } catch (Exception e) {
             log.error("移除参与者失败: {}", roomName, e);
@@ -0,0 +1,116 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.adapter.MediaCluster;
+import com.phoenix.rtc.adapter.MediaNode;
+import com.phoenix.rtc.redis.RtcKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+
+/**
+ * 媒体节点排空状态
+ * 排空由运维在任意一个实例上发起，但放置在每个实例本地进行，只改本实例内存时其他实例仍会往该节点放房间。
+ *
+ * 1. 排空中的节点 URL 存于 Redis Set (rtc:media:draining)，是唯一的事实来源
+ * 2. 变更后通过 Redis pub/sub 通知所有实例 (包括自己) 重新读取并应用到 MediaCluster
+ * 3. 启动时和定时同步一次，兜底新启动的实例和丢失的通知
+ */
+@Service
+@Slf4j
+public class MediaDrainService implements MessageListener {
+
+    public static final String CHANGE_CHANNEL = "rtc:media:drain:changed";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MediaCluster mediaCluster;
+
+    public MediaDrainService(RedisTemplate<String, Object> redisTemplate,
+                             MediaCluster mediaCluster,
+                             RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.mediaCluster = mediaCluster;
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANGE_CHANNEL));
+    }
+
+    /**
+     * 开始排空节点，所有实例停止向该节点放置新房间
+     *
+     * @return 节点不存在时返回 false
+     */
+    public boolean drain(String url) {
+        if (mediaCluster.getNode(url) == null) {
+            return false;
+        }
+        redisTemplate.opsForSet().add(RtcKeys.MEDIA_DRAINING, url);
+        mediaCluster.drain(url);
+        publish(url);
+        return true;
+    }
+
+    /**
+     * 取消排空
+     *
+     * @return 节点不存在时返回 false
+     */
+    public boolean undrain(String url) {
+        if (mediaCluster.getNode(url) == null) {
+            return false;
+        }
+        redisTemplate.opsForSet().remove(RtcKeys.MEDIA_DRAINING, url);
+        mediaCluster.undrain(url);
+        publish(url);
+        return true;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        sync();
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void onStarted() {
+        sync();
+    }
+
+    /**
+     * 按 Redis 中的排空列表更新本实例的节点状态
+     */
+    @Scheduled(fixedDelayString = "${app.rtc.media.drain.sync-ms:10000}",
+               initialDelayString = "${app.rtc.media.drain.sync-ms:10000}")
+    public void sync() {
+        Set<Object> draining;
+        try {
+            draining = redisTemplate.opsForSet().members(RtcKeys.MEDIA_DRAINING);
+        } catch (Exception e) {
+            // 保持当前状态，下一轮重试
+            log.warn("读取媒体节点排空状态失败: {}", e.getMessage());
+            return;
+        }
+        for (MediaNode node : mediaCluster.getNodes()) {
+            boolean drain = draining != null && draining.contains(node.getUrl());
+            if (drain && !node.isDraining()) {
+                mediaCluster.drain(node.getUrl());
+            } else if (!drain && node.isDraining()) {
+                mediaCluster.undrain(node.getUrl());
+            }
+        }
+    }
+
+    private void publish(String url) {
+        try {
+            redisTemplate.convertAndSend(CHANGE_CHANNEL, url);
+        } catch (Exception e) {
+            // 其他实例依赖定时同步
+            log.warn("发布媒体节点排空通知失败 - 节点: {}: {}", url, e.getMessage());
+        }
+    }
+}
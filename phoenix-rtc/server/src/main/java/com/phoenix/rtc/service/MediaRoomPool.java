@@ -0,0 +1,242 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.adapter.AsyncMediaAdapter;
+import com.phoenix.rtc.adapter.MediaAdapter.RoomConfig;
+import com.phoenix.rtc.adapter.MediaCluster;
+import com.phoenix.rtc.adapter.MediaNode;
+import com.phoenix.rtc.redis.RtcKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 预建媒体房间池
+ * 1v1 通话的发起耗时大半在 createRoom 上。这里在每个媒体节点上预先建好若干空房间，发起 1v1 时直接取用，
+ * createRoom 不再出现在发起通话的关键路径上。
+ *
+ * 1. 每个节点一个 Redis 有序集合，score = 可取用截止时间 (建房时间 + emptyTimeout - expiry-margin)；
+ *    取用是一次 Lua 调用 (取最早的未过期房间并删除)，多实例下每个房间只会被取走一次
+ * 2. 取用时按负载分数从低到高尝试节点，排空中或满载的节点跳过；都没有时回退为现场建房
+ * 3. 后台补充由存活节点列表中的第一个节点执行，补足到 rooms-per-node；过期的房间移出池子，
+ *    LiveKit 在 emptyTimeout 到期后自行关闭这些无人加入的房间
+ * 4. 预建房间按 1v1 现场建房的配置创建 (人数上限 2、空房超时 600 秒)，取用后与现场建的房间没有区别
+ */
+@Service
+@Slf4j
+public class MediaRoomPool {
+
+    // 取出最早建好且未过期的房间，池为空时返回 nil
+    private static final DefaultRedisScript<String> LEASE = new DefaultRedisScript<>(
+            "local r = redis.call('zrangebyscore', KEYS[1], ARGV[1], '+inf', 'limit', 0, 1) " +
+            "if r[1] then redis.call('zrem', KEYS[1], r[1]) return r[1] end " +
+            "return false",
+            String.class);
+
+    // 取用时最多尝试的节点数，避免池子全空时逐个节点访问 Redis
+    private static final int MAX_LEASE_ATTEMPTS = 3;
+
+    /**
+     * 取出的房间及其所在媒体节点
+     */
+    public record PooledRoom(String roomName, String url) {
+    }
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final AsyncMediaAdapter asyncMediaAdapter;
+    private final MediaCluster mediaCluster;
+    private final PresenceService presenceService;
+
+    // 节点 URL -> 池中房间数 (最近一次补充或取用后的值) / 正在建的房间数
+    private final Map<String, AtomicInteger> pooled = new LinkedHashMap<>();
+    private final Map<String, AtomicInteger> creating = new LinkedHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter createdCounter;
+    private final Counter expiredCounter;
+    private final Counter createFailedCounter;
+
+    @Value("${app.rtc.media.pool.rooms-per-node:4}")
+    private int roomsPerNode;
+
+    @Value("${app.rtc.media.pool.empty-timeout-seconds:600}")
+    private int emptyTimeoutSeconds;
+
+    @Value("${app.rtc.media.pool.expiry-margin-seconds:60}")
+    private int expiryMarginSeconds;
+
+    @Value("${app.rtc.media.pool.max-participants:2}")
+    private int maxParticipants;
+
+    public MediaRoomPool(RedisTemplate<String, Object> redisTemplate,
+                         AsyncMediaAdapter asyncMediaAdapter,
+                         MediaCluster mediaCluster,
+                         PresenceService presenceService,
+                         MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.asyncMediaAdapter = asyncMediaAdapter;
+        this.mediaCluster = mediaCluster;
+        this.presenceService = presenceService;
+
+        for (MediaNode node : mediaCluster.getNodes()) {
+            AtomicInteger size = new AtomicInteger();
+            pooled.put(node.getUrl(), size);
+            creating.put(node.getUrl(), new AtomicInteger());
+            Gauge.builder("rtc.media.pool.rooms", size, AtomicInteger::get)
+                    .description("媒体节点上可取用的预建房间数")
+                    .tag("node", node.getUrl())
+                    .register(meterRegistry);
+        }
+        this.hitCounter = leases(meterRegistry, "hit");
+        this.missCounter = leases(meterRegistry, "miss");
+        this.createdCounter = rooms(meterRegistry, "created");
+        this.expiredCounter = rooms(meterRegistry, "expired");
+        this.createFailedCounter = rooms(meterRegistry, "failed");
+    }
+
+    /**
+     * 取一个预建房间，池子未启用、人数超出预建房间上限或池子为空时返回 null (调用方现场建房)
+     *
+     * @param participants 通话人数上限
+     */
+    public PooledRoom lease(int participants) {
+        if (roomsPerNode <= 0 || participants > maxParticipants) {
+            return null;
+        }
+        List<MediaNode> candidates = mediaCluster.getNodes().stream()
+                .filter(node -> mediaCluster.getScore(node) != Double.POSITIVE_INFINITY)
+                .sorted(Comparator.comparingDouble(mediaCluster::getScore))
+                .limit(MAX_LEASE_ATTEMPTS)
+                .toList();
+        String now = Long.toString(System.currentTimeMillis());
+        for (MediaNode node : candidates) {
+            try {
+                Object roomName = redisTemplate.execute(LEASE, List.of(RtcKeys.mediaPool(node.getUrl())), now);
+                if (roomName != null) {
+                    mediaCluster.adopt(roomName.toString(), node);
+                    pooled.get(node.getUrl()).updateAndGet(size -> Math.max(0, size - 1));
+                    hitCounter.increment();
+                    return new PooledRoom(roomName.toString(), node.getUrl());
+                }
+            } catch (Exception e) {
+                log.warn("取预建房间失败 - 节点: {}: {}", node.getUrl(), e.getMessage());
+            }
+        }
+        missCounter.increment();
+        return null;
+    }
+
+    /**
+     * 池中全部房间 (对账时排除，它们没有会话是正常的)
+     */
+    public Set<String> pooledRooms() {
+        Set<String> rooms = new HashSet<>();
+        for (MediaNode node : mediaCluster.getNodes()) {
+            Set<Object> members = redisTemplate.opsForZSet().range(RtcKeys.mediaPool(node.getUrl()), 0, -1);
+            if (members != null) {
+                members.forEach(member -> rooms.add(member.toString()));
+            }
+        }
+        return rooms;
+    }
+
+    /**
+     * 移出过期房间，把每个可放置的节点补足到 rooms-per-node
+     */
+    @Scheduled(fixedDelayString = "${app.rtc.media.pool.refill-ms:2000}")
+    public void refill() {
+        if (roomsPerNode <= 0) {
+            return;
+        }
+        List<String> nodes = presenceService.getClusterNodes();
+        if (nodes.isEmpty() || !nodes.get(0).equals(presenceService.getNodeId())) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (MediaNode node : mediaCluster.getNodes()) {
+            String key = RtcKeys.mediaPool(node.getUrl());
+            try {
+                Set<Object> expired = redisTemplate.opsForZSet().rangeByScore(key, Double.NEGATIVE_INFINITY, now);
+                if (expired != null && !expired.isEmpty()) {
+                    // 节点房间数由定时校准修正 (LiveKit 关闭这些房间后)
+                    redisTemplate.opsForZSet().remove(key, expired.toArray());
+                    expiredCounter.increment(expired.size());
+                }
+
+                Long size = redisTemplate.opsForZSet().zCard(key);
+                int available = size == null ? 0 : size.intValue();
+                pooled.get(node.getUrl()).set(available);
+                if (mediaCluster.getScore(node) == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                int deficit = roomsPerNode - available - creating.get(node.getUrl()).get();
+                for (int i = 0; i < deficit; i++) {
+                    create(node, key);
+                }
+            } catch (Exception e) {
+                log.warn("补充预建房间失败 - 节点: {}: {}", node.getUrl(), e.getMessage());
+            }
+        }
+    }
+
+    private void create(MediaNode node, String key) {
+        String roomName = "room_" + UUID.randomUUID().toString().substring(0, 8);
+        RoomConfig config = RoomConfig.builder()
+                .emptyTimeout(emptyTimeoutSeconds)
+                .maxParticipants(maxParticipants)
+                .roomType("sfu")
+                .recordingEnabled(false)
+                .build();
+        // 从发出建房算起，保守估计房间的空房关闭时间
+        long leasableUntil = System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(emptyTimeoutSeconds - expiryMarginSeconds);
+        AtomicInteger inFlight = creating.get(node.getUrl());
+        inFlight.incrementAndGet();
+        asyncMediaAdapter.createRoomOnAsync(node.getUrl(), roomName, config).whenComplete((ignored, error) -> {
+            inFlight.decrementAndGet();
+            if (error != null) {
+                createFailedCounter.increment();
+                log.warn("预建房间失败 - 节点: {}: {}", node.getUrl(), error.getMessage());
+                return;
+            }
+            try {
+                redisTemplate.opsForZSet().add(key, roomName, leasableUntil);
+                pooled.get(node.getUrl()).incrementAndGet();
+                createdCounter.increment();
+            } catch (Exception e) {
+                // 房间没有进入池子，无人加入，到 emptyTimeout 由 LiveKit 关闭
+                log.warn("登记预建房间失败 - 房间: {}: {}", roomName, e.getMessage());
+            }
+        });
+    }
+
+    private static Counter leases(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("rtc.media.pool.leases")
+                .tag("result", result)
+                .description("1v1 通话取用预建房间 (miss 时现场建房)")
+                .register(meterRegistry);
+    }
+
+    private static Counter rooms(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("rtc.media.pool.rooms.changes")
+                .tag("result", result)
+                .description("预建房间的创建、过期与建房失败")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,307 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.adapter.AsyncMediaAdapter;
+import com.phoenix.rtc.adapter.AsyncMediaAdapter.MediaRoom;
+import com.phoenix.rtc.adapter.MediaAdapter;
+import com.phoenix.rtc.model.entity.RtcSession;
+import com.phoenix.rtc.redis.RtcKeys;
+import com.phoenix.rtc.repository.RtcSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 媒体房间回收
+ * 最后一人离开时不再由离开请求直接删除媒体房间，只登记到 Redis 删除队列；后台按批删除，失败退避重试。
+ *
+ * 1. 队列是 Redis 有序集合 (member=媒体节点 URL|房间名，score=下次尝试时间)，节点重启不丢；登记时记下房间所在节点，
+ *    重试时不依赖已过期的放置记录或已清理的房间元数据。多个节点同时消费，认领时把 score 推后一个租约期，
+ *    认领节点宕机后租约到期由其他节点重新认领
+ * 2. 每 interval-ms 最多认领 batch-size 个，经 AsyncMediaAdapter.deleteRoomsAsync 在各自节点删除 (并行度由 media.batch-parallelism 限制)
+ * 3. 删除失败按 [delay/2, delay] 随机退避 (delay = min(backoff-max, backoff-base * 2^(n-1)))，超过 max-attempts 次放弃；
+ *    节点记账只在删除成功或放弃时扣除一次
+ * 4. 对账: 定期比对媒体服务器上的房间和进行中的会话，连续两轮没有会话的房间视为泄漏，按所在节点登记删除
+ *    (建房先于会话提交，刚建的房间第一轮可能查不到会话；预建房间池中的房间除外)。只由存活节点列表中的第一个节点执行
+ */
+@Service
+@Slf4j
+public class MediaRoomReaper {
+
+    // 认领到期的房间: 取 score <= now 的前 N 个，score 改为租约到期时间
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM = new DefaultRedisScript<>(
+            "local due = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1], 'limit', 0, ARGV[2]) " +
+            "for _, room in ipairs(due) do redis.call('zadd', KEYS[1], ARGV[3], room) end " +
+            "return due",
+            List.class);
+
+    // IN 查询每次最多带的房间名
+    private static final int QUERY_CHUNK = 500;
+
+    // 队列 member 中节点 URL 与房间名的分隔符
+    private static final char MEMBER_SEPARATOR = '|';
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final AsyncMediaAdapter asyncMediaAdapter;
+    private final MediaAdapter mediaAdapter;
+    private final RtcSessionRepository sessionRepository;
+    private final PresenceService presenceService;
+    private final MediaRoomPool mediaRoomPool;
+
+    private final Counter enqueuedCounter;
+    private final Counter deletedCounter;
+    private final Counter retriedCounter;
+    private final Counter abandonedCounter;
+    private final Counter leakedCounter;
+    private final AtomicLong pending = new AtomicLong();
+
+    // 上一批删除尚未结束时跳过本轮
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    // 上一轮对账中没有会话的房间
+    private volatile Set<MediaRoom> suspects = Set.of();
+
+    @Value("${app.rtc.media.gc.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.rtc.media.gc.lease-ms:30000}")
+    private long leaseMs;
+
+    @Value("${app.rtc.media.gc.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.rtc.media.gc.backoff-base-ms:1000}")
+    private long backoffBaseMs;
+
+    @Value("${app.rtc.media.gc.backoff-max-ms:60000}")
+    private long backoffMaxMs;
+
+    public MediaRoomReaper(RedisTemplate<String, Object> redisTemplate,
+                           AsyncMediaAdapter asyncMediaAdapter,
+                           MediaAdapter mediaAdapter,
+                           RtcSessionRepository sessionRepository,
+                           PresenceService presenceService,
+                           MediaRoomPool mediaRoomPool,
+                           MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.asyncMediaAdapter = asyncMediaAdapter;
+        this.mediaAdapter = mediaAdapter;
+        this.sessionRepository = sessionRepository;
+        this.presenceService = presenceService;
+        this.mediaRoomPool = mediaRoomPool;
+
+        this.enqueuedCounter = rooms(meterRegistry, "enqueued");
+        this.deletedCounter = rooms(meterRegistry, "deleted");
+        this.retriedCounter = rooms(meterRegistry, "retried");
+        this.abandonedCounter = rooms(meterRegistry, "abandoned");
+        this.leakedCounter = rooms(meterRegistry, "leaked");
+        Gauge.builder("rtc.media.gc.pending", pending, AtomicLong::get)
+                .description("删除队列中的媒体房间数 (最近一次回收时)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 登记删除媒体房间，所在节点按当前放置记录 / 房间元数据确定，须在清理房间元数据之前调用
+     */
+    public void enqueue(String roomName) {
+        enqueue(mediaAdapter.getRoomUrl(roomName), roomName);
+    }
+
+    /**
+     * 登记删除指定节点上的媒体房间，只有一次 ZADD；Redis 不可用时退回直接异步删除
+     */
+    public void enqueue(String nodeUrl, String roomName) {
+        MediaRoom room = new MediaRoom(nodeUrl, roomName);
+        try {
+            redisTemplate.opsForZSet().add(RtcKeys.MEDIA_GC_QUEUE, member(room), System.currentTimeMillis());
+            enqueuedCounter.increment();
+        } catch (Exception e) {
+            // 按登记的节点删除，不依赖可能已被清理的放置记录；不重试，结束后扣除一次节点记账
+            log.warn("登记媒体房间删除失败，直接删除 - 房间: {}, 节点: {}: {}", roomName, nodeUrl, e.getMessage());
+            asyncMediaAdapter.deleteRoomsAsync(List.of(room)).whenComplete((failed, error) -> {
+                if (error != null || !failed.isEmpty()) {
+                    log.error("删除媒体房间失败，依赖空房超时或对账回收 - 房间: {}, 节点: {}", roomName, nodeUrl, error);
+                }
+                asyncMediaAdapter.releaseRoom(room);
+            });
+        }
+    }
+
+    /**
+     * 认领一批到期的房间并删除，上一批未结束时跳过
+     */
+    @Scheduled(fixedDelayString = "${app.rtc.media.gc.interval-ms:1000}")
+    public void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        Map<MediaRoom, String> batch;
+        CompletableFuture<List<MediaRoom>> deletion;
+        try {
+            batch = claim();
+            if (batch.isEmpty()) {
+                draining.set(false);
+                return;
+            }
+            deletion = asyncMediaAdapter.deleteRoomsAsync(batch.keySet());
+        } catch (Exception e) {
+            // 已认领的记录租约到期后重新认领
+            draining.set(false);
+            log.warn("认领待删除媒体房间失败: {}", e.getMessage());
+            return;
+        }
+        deletion.whenComplete((failed, error) -> {
+            try {
+                settle(batch, error == null ? failed : List.copyOf(batch.keySet()));
+            } catch (Exception e) {
+                log.warn("更新媒体房间删除队列失败，租约到期后重试: {}", e.getMessage());
+            } finally {
+                draining.set(false);
+            }
+        });
+    }
+
+    /**
+     * 对账: 媒体服务器上连续两轮没有进行中会话的房间登记删除
+     */
+    @Scheduled(fixedDelayString = "${app.rtc.media.gc.reconcile-ms:300000}",
+               initialDelayString = "${app.rtc.media.gc.reconcile-ms:300000}")
+    public void reconcile() {
+        List<String> nodes = presenceService.getClusterNodes();
+        if (nodes.isEmpty() || !nodes.get(0).equals(presenceService.getNodeId())) {
+            suspects = Set.of();
+            return;
+        }
+        try {
+            List<MediaRoom> mediaRooms = asyncMediaAdapter.listRoomsAsync().join();
+            List<String> roomNames = mediaRooms.stream().map(MediaRoom::name).distinct().toList();
+            Set<String> active = new HashSet<>();
+            for (int from = 0; from < roomNames.size(); from += QUERY_CHUNK) {
+                List<String> chunk = roomNames.subList(from, Math.min(roomNames.size(), from + QUERY_CHUNK));
+                active.addAll(sessionRepository.findRoomNamesByStatus(chunk, RtcSession.Status.ACTIVE.getCode()));
+            }
+            // 预建房间池中的房间还没有会话
+            active.addAll(mediaRoomPool.pooledRooms());
+
+            Set<MediaRoom> previous = suspects;
+            Set<MediaRoom> orphaned = new HashSet<>();
+            List<MediaRoom> leaked = new ArrayList<>();
+            for (MediaRoom room : mediaRooms) {
+                if (!active.contains(room.name())) {
+                    (previous.contains(room) ? leaked : orphaned).add(room);
+                }
+            }
+            suspects = orphaned;
+
+            for (MediaRoom room : leaked) {
+                enqueue(room.nodeUrl(), room.name());
+            }
+            leakedCounter.increment(leaked.size());
+            if (!leaked.isEmpty()) {
+                log.warn("对账发现泄漏的媒体房间，已登记删除 - 数量: {}, 媒体房间: {}", leaked.size(), mediaRooms.size());
+            }
+        } catch (Exception e) {
+            log.warn("媒体房间对账失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return 认领的房间 -> 队列中的 member
+     */
+    @SuppressWarnings("unchecked")
+    private Map<MediaRoom, String> claim() {
+        long now = System.currentTimeMillis();
+        List<Object> claimed = redisTemplate.execute(CLAIM, List.of(RtcKeys.MEDIA_GC_QUEUE),
+                Long.toString(now), Integer.toString(batchSize), Long.toString(now + leaseMs));
+        if (claimed == null || claimed.isEmpty()) {
+            return Map.of();
+        }
+        Map<MediaRoom, String> batch = new LinkedHashMap<>();
+        for (Object member : claimed) {
+            batch.put(parse(member.toString()), member.toString());
+        }
+        return batch;
+    }
+
+    /**
+     * 删除成功的出队；失败的累计次数，未超限的退避后重试，超限的放弃 (泄漏由对账兜底)。
+     * 出队的房间 (删除成功或放弃) 扣除一次节点记账
+     */
+    private void settle(Map<MediaRoom, String> batch, List<MediaRoom> failed) {
+        Set<MediaRoom> failedSet = new HashSet<>(failed);
+        List<MediaRoom> done = new ArrayList<>();
+        for (MediaRoom room : batch.keySet()) {
+            if (!failedSet.contains(room)) {
+                done.add(room);
+            }
+        }
+        for (MediaRoom room : failedSet) {
+            String member = batch.get(room);
+            Long attempts = redisTemplate.opsForHash().increment(RtcKeys.MEDIA_GC_ATTEMPTS, member, 1);
+            if (attempts != null && attempts >= maxAttempts) {
+                done.add(room);
+                abandonedCounter.increment();
+                log.error("媒体房间删除多次失败，放弃 - 房间: {}, 节点: {}, 次数: {}", room.name(), room.nodeUrl(), attempts);
+            } else {
+                long retryAt = System.currentTimeMillis() + backoff(attempts == null ? 1 : attempts);
+                redisTemplate.opsForZSet().add(RtcKeys.MEDIA_GC_QUEUE, member, retryAt);
+                retriedCounter.increment();
+            }
+        }
+        if (!done.isEmpty()) {
+            Object[] members = done.stream().map(batch::get).toArray();
+            redisTemplate.opsForZSet().remove(RtcKeys.MEDIA_GC_QUEUE, members);
+            redisTemplate.opsForHash().delete(RtcKeys.MEDIA_GC_ATTEMPTS, members);
+            done.forEach(asyncMediaAdapter::releaseRoom);
+        }
+        deletedCounter.increment(batch.size() - failedSet.size());
+
+        Long size = redisTemplate.opsForZSet().zCard(RtcKeys.MEDIA_GC_QUEUE);
+        pending.set(size == null ? 0 : size);
+        log.debug("媒体房间回收 - 删除: {}, 失败: {}, 队列: {}", batch.size() - failedSet.size(), failedSet.size(), size);
+    }
+
+    private static String member(MediaRoom room) {
+        return room.nodeUrl() + MEMBER_SEPARATOR + room.name();
+    }
+
+    /**
+     * 解析队列 member；升级前登记的只有房间名，按当前放置记录确定节点
+     */
+    private MediaRoom parse(String member) {
+        int separator = member.indexOf(MEMBER_SEPARATOR);
+        if (separator < 0) {
+            return new MediaRoom(mediaAdapter.getRoomUrl(member), member);
+        }
+        return new MediaRoom(member.substring(0, separator), member.substring(separator + 1));
+    }
+
+    private long backoff(long attempts) {
+        long delay = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempts - 1, 20));
+        return ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+    }
+
+    private static Counter rooms(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("rtc.media.gc.rooms")
+                .tag("result", result)
+                .description("媒体房间回收")
+                .register(meterRegistry);
+    }
+}
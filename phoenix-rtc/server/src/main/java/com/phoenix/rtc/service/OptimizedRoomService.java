@@ -1,5 +1,6 @@
 package com.phoenix.rtc.service;
 
+import com.phoenix.rtc.adapter.AsyncMediaAdapter;
 import com.phoenix.rtc.adapter.MediaAdapter;
 import com.phoenix.rtc.adapter.MediaAdapter.RoomConfig;
 import com.phoenix.rtc.config.MetricsConfig;
@@ -7,20 +8,36 @@ import com.phoenix.rtc.model.dto.CallRequest;
 import com.phoenix.rtc.model.dto.TokenResponse;
 import com.phoenix.rtc.model.entity.RtcParticipant;
 import com.phoenix.rtc.model.entity.RtcSession;
+import com.phoenix.rtc.redis.RtcKeys;
+import com.phoenix.rtc.redis.RtcReactiveOperations;
+import com.phoenix.rtc.redis.codec.FieldValues;
+import com.phoenix.rtc.redis.codec.RtcFields;
 import com.phoenix.rtc.repository.RtcParticipantRepository;
 import com.phoenix.rtc.repository.RtcSessionRepository;
 import io.livekit.server.RoomInfo;
 import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 优化的房间管理服务
@@ -32,50 +49,84 @@ import java.util.concurrent.TimeUnit;
 public class OptimizedRoomService {
 
     private final MediaAdapter mediaAdapter;
+    private final AsyncMediaAdapter asyncMediaAdapter;
     private final RtcSessionRepository sessionRepository;
     private final RtcParticipantRepository participantRepository;
-    private final RedisTemplate<String, Object> redisTemplate;
     private final MetricsConfig metricsConfig;
     private final Timer callCreationTimer;
     private final Timer tokenGenerationTimer;
+    private final RoomMetaCache roomMetaCache;
+    private final RtcReactiveOperations rtcReactiveOperations;
+    private final AsyncTaskExecutor rtcIoExecutor;
+    private final TokenPoolService tokenPoolService;
+    private final MediaRoomReaper mediaRoomReaper;
+    private final MediaRoomPool mediaRoomPool;
 
-    // Redis Key 模式
-    private static final String ROOM_META_KEY = "rtc:room:%s:meta";
-    private static final String ROOM_MEMBERS_KEY = "rtc:room:%s:members";
-    private static final String ROOM_MEMBER_KEY = "rtc:room:%s:member:%s";
-    private static final String SESSION_KEY = "rtc:session:%s";
+    @Value("${app.rtc.call-setup.timeout-ms:10000}")
+    private long callSetupTimeoutMs;
+
+    @Value("${app.rtc.token.ttl-seconds:7200}")
+    private long tokenTtlSeconds;
+
+    // Redis Key 统一由 RtcKeys 生成，过期时间 2 小时
+    private static final long REDIS_TTL_SECONDS = TimeUnit.HOURS.toSeconds(2);
 
     /**
      * 发起通话 - 支持万人会议
      * 优化点:
      * 1. 动态房间大小配置
-     * 2. 异步 Token 生成
-     * 3. 批量 Redis 操作
+     * 2. 并发编排: 建房、Token 只依赖房间名，提交到 I/O 线程池与数据库写入同时进行，耗时约等于最慢的一个依赖；
+     *    Redis 房间数据在事务提交后写入，其他请求读到房间元数据时会话一定已提交
+     * 3. 失败处理: 建房、Token 任一失败即取消另一个并抛出异常，事务回滚，数据库记录不会提交；
+     *    已经发出的外部副作用 (媒体房间、Redis) 在事务回滚后补偿删除
      * 4. 监控指标
      */
     @Transactional
     public TokenResponse startCall(CallRequest request, String currentUserId) {
         return callCreationTimer.record(() -> {
-            try {
-                // 1. 生成房间名称
-                String roomName = generateRoomName("room");
-
-                // 2. 解析会话类型并计算最优房间大小
-                int sessionType = parseSessionType(request.getSessionType());
-                int maxParticipants = calculateOptimalSize(sessionType, request);
-
-                // 3. 创建房间配置 (支持万人)
-                RoomConfig config = RoomConfig.builder()
-                        .emptyTimeout(600)  // 10分钟超时
-                        .maxParticipants(maxParticipants)
-                        .roomType("sfu")    // SFU 模式
-                        .recordingEnabled(false)
-                        .build();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(callSetupTimeoutMs);
+
+            // 1. 解析会话类型并计算最优房间大小
+            int sessionType = parseSessionType(request.getSessionType());
+            int maxParticipants = calculateOptimalSize(sessionType, request);
+
+            // 2. 1v1 优先取预建房间 (不再建房)，否则生成房间名称
+            MediaRoomPool.PooledRoom pooledRoom = sessionType == 1 ? mediaRoomPool.lease(maxParticipants) : null;
+            String roomName = pooledRoom != null ? pooledRoom.roomName() : generateRoomName("room");
+
+            // 3. 创建房间配置 (支持万人)
+            RoomConfig config = RoomConfig.builder()
+                    .emptyTimeout(600)  // 10分钟超时
+                    .maxParticipants(maxParticipants)
+                    .roomType("sfu")    // SFU 模式
+                    .recordingEnabled(false)
+                    .build();
 
-                // 4. 使用 MediaAdapter 创建房间
-                RoomInfo roomInfo = mediaAdapter.createRoom(roomName, config);
+            // 4. 建房 (媒体 I/O 线程池) 与 Token 并发发出；发出建房时已选定媒体节点
+            CompletableFuture<RoomInfo> roomCreation = pooledRoom != null
+                    ? CompletableFuture.completedFuture(null)
+                    : asyncMediaAdapter.createRoomAsync(roomName, config);
+            String mediaUrl = mediaAdapter.getRoomUrl(roomName);
+            // Token 任务保留 Future 以便取消时中断，结果另由 tokenResult 通知汇合点
+            CompletableFuture<String> tokenResult = new CompletableFuture<>();
+            Future<String> tokenGeneration = rtcIoExecutor.submit(() -> {
+                try {
+                    String token = tokenGenerationTimer.record(() ->
+                        mediaAdapter.generateToken(currentUserId, roomName, "host"));
+                    tokenResult.complete(token);
+                    return token;
+                } catch (RuntimeException e) {
+                    tokenResult.completeExceptionally(e);
+                    throw e;
+                }
+            });
+            // 汇合点: 任一分支失败立即以该异常完成，不按固定顺序等待
+            CompletableFuture<Void> dependencies = allOrFirstFailure(roomCreation, tokenResult);
+            // 提交失败 (flush 约束冲突等) 同样会回滚，补偿统一放在回滚之后
+            boolean compensateLater = compensateOnRollback(() -> compensateStartCall(roomName, currentUserId, roomCreation));
 
-                // 5. 保存会话到数据库
+            try {
+                // 5. 保存会话到数据库 (事务提交前对其他请求不可见)
                 RtcSession session = RtcSession.builder()
                         .roomName(roomName)
                         .roomTitle(request.getTitle())
@@ -88,7 +139,16 @@ public class OptimizedRoomService {
                         .build();
                 session = sessionRepository.save(session);
 
-                // 6. 添加发起人到参与者列表
+                // 6. Redis 房间数据在事务提交后写入；没有事务时直接写入，失败走下方补偿
+                RtcSession committed = session;
+                Runnable redisWrites = () -> awaitStep(
+                    batchUpdateRedis(roomName, currentUserId, committed, maxParticipants, mediaUrl).toFuture(),
+                    deadline, "写入 Redis");
+                if (!runAfterCommit(() -> writeRedisAfterCommit(redisWrites, roomName, currentUserId, roomCreation))) {
+                    redisWrites.run();
+                }
+
+                // 7. 添加发起人到参与者列表
                 RtcParticipant participant = RtcParticipant.builder()
                         .sessionId(session.getId())
                         .userId(currentUserId)
@@ -97,15 +157,12 @@ public class OptimizedRoomService {
                         .build();
                 participantRepository.save(participant);
 
-                // 7. 异步生成 Token
-                String token = tokenGenerationTimer.record(() ->
-                    mediaAdapter.generateToken(currentUserId, roomName, "host")
-                );
-
-                // 8. 批量 Redis 操作 (原子性)
-                batchUpdateRedis(roomName, currentUserId, session, maxParticipants);
+                // 8. 汇合: 建房或 Token 先失败的一个立即抛出
+                awaitStep(dependencies, deadline, "创建媒体房间/生成 Token");
+                String token = tokenResult.join();
 
-                // 9. 更新监控指标
+                // 9. 更新监控指标，发起人计入媒体节点负载
+                mediaAdapter.participantJoined(roomName);
                 metricsConfig.incrementTotalCalls();
                 metricsConfig.incrementActiveCalls();
 
@@ -113,21 +170,148 @@ public class OptimizedRoomService {
                     currentUserId, roomName, maxParticipants);
 
                 return TokenResponse.builder()
-                        .url(getLiveKitUrl())
+                        .url(mediaUrl)
                         .token(token)
                         .roomName(roomName)
                         .roomTitle(request.getTitle())
-                        .expiresAt(System.currentTimeMillis() / 1000 + 3600)
+                        .expiresAt(System.currentTimeMillis() / 1000 + tokenTtlSeconds)
                         .build();
 
             } catch (Exception e) {
+                // 取消仍在进行的分支，异常抛出后事务回滚，回滚后补偿
+                roomCreation.cancel(true);
+                tokenGeneration.cancel(true);
+                if (!compensateLater) {
+                    compensateStartCall(roomName, currentUserId, roomCreation);
+                }
                 metricsConfig.incrementFailedCalls();
-                log.error("发起通话失败", e);
+                log.error("发起通话失败 - 房间: {}", roomName, e);
                 throw e;
             }
         });
     }
 
+    /**
+     * 等待并发步骤，超过总截止时间视为失败
+     */
+    private <T> T awaitStep(Future<T> step, long deadline, String stepName) {
+        try {
+            return step.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(stepName + "失败", e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException(stepName + "超时", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(stepName + "被中断", e);
+        }
+    }
+
+    /**
+     * 全部步骤成功时完成；任一步骤失败时立即以该步骤的异常完成，不等待其余步骤
+     */
+    private static CompletableFuture<Void> allOrFirstFailure(CompletableFuture<?>... steps) {
+        CompletableFuture<Void> joined = CompletableFuture.allOf(steps);
+        for (CompletableFuture<?> step : steps) {
+            step.whenComplete((value, error) -> {
+                if (error != null) {
+                    joined.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+                }
+            });
+        }
+        return joined;
+    }
+
+    /**
+     * 登记事务提交后执行的操作，返回 false 表示当前没有事务，需要调用方直接执行
+     */
+    private boolean runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 提交后写入 Redis 房间数据；失败时会话已提交，删除媒体房间和 Redis 数据后向调用方抛出，
+     * 数据库会话由媒体房间结束的 Webhook 标记为结束
+     */
+    private void writeRedisAfterCommit(Runnable redisWrites, String roomName, String userId,
+                                       Future<RoomInfo> roomCreation) {
+        try {
+            redisWrites.run();
+        } catch (RuntimeException e) {
+            compensateStartCall(roomName, userId, roomCreation);
+            mediaAdapter.participantLeft(roomName);
+            metricsConfig.decrementActiveCalls();
+            metricsConfig.incrementFailedCalls();
+            log.error("发起通话提交后写入 Redis 失败 - 房间: {}", roomName, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 登记事务回滚后的补偿，返回 false 表示当前没有事务 (直接调用)，需要调用方在失败时自行补偿
+     */
+    private boolean compensateOnRollback(Runnable compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    compensation.run();
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 发起通话失败的补偿: 删除可能已创建的媒体房间和已写入的 Redis 数据
+     * 建房明确失败时不再删除；建房被取消时仍可能已在 LiveKit 生效，按已创建处理
+     */
+    private void compensateStartCall(String roomName, String userId, Future<RoomInfo> roomCreation) {
+        boolean roomFailed = roomCreation.isDone() && !roomCreation.isCancelled() && failed(roomCreation);
+        if (!roomFailed) {
+            // 异步删除，不阻塞回滚线程
+            asyncMediaAdapter.deleteRoomAsync(roomName).exceptionally(e -> {
+                log.warn("补偿删除媒体房间失败，依赖空房超时回收 - 房间: {}", roomName, e);
+                return null;
+            });
+        }
+        try {
+            rtcReactiveOperations.await(Mono.when(
+                rtcReactiveOperations.delete(List.of(RtcKeys.roomMeta(roomName), RtcKeys.roomMembers(roomName),
+                    RtcKeys.roomMember(roomName, userId))),
+                rtcReactiveOperations.delete(List.of(RtcKeys.userSession(userId)))
+            ));
+        } catch (Exception e) {
+            log.warn("补偿清理 Redis 失败，依赖过期时间回收 - 房间: {}", roomName, e);
+        }
+        log.info("发起通话失败，已补偿 - 房间: {}, 删除媒体房间: {}", roomName, !roomFailed);
+    }
+
+    private static boolean failed(Future<?> future) {
+        try {
+            future.get();
+            return false;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
     /**
      * 计算最优房间大小
      * 根据会话类型动态调整
@@ -155,40 +339,37 @@ public class OptimizedRoomService {
      * 批量更新 Redis
      * 优化性能，减少网络往返
      */
-    private void batchUpdateRedis(String roomName, String userId,
-                                  RtcSession session, int maxParticipants) {
-        // 房间元数据
-        String roomMetaKey = String.format(ROOM_META_KEY, roomName);
-        redisTemplate.opsForHash().putAll(roomMetaKey, java.util.Map.of(
-            "sessionId", session.getId(),
-            "initiatorId", userId,
-            "roomType", "sfu",
-            "status", "active",
-            "maxMembers", String.valueOf(maxParticipants),
-            "title", session.getRoomTitle(),
-            "createdAt", String.valueOf(System.currentTimeMillis()),
-            "currentMembers", "1"
-        ));
-        redisTemplate.expire(roomMetaKey, 2, TimeUnit.HOURS);
-
-        // 成员列表
-        String roomMembersKey = String.format(ROOM_MEMBERS_KEY, roomName);
-        redisTemplate.opsForSet().add(roomMembersKey, userId);
-        redisTemplate.expire(roomMembersKey, 2, TimeUnit.HOURS);
-
-        // 成员详情
-        String memberKey = String.format(ROOM_MEMBER_KEY, roomName, userId);
-        redisTemplate.opsForHash().putAll(memberKey, java.util.Map.of(
-            "role", "host",
-            "joinedAt", String.valueOf(System.currentTimeMillis()),
-            "audioEnabled", "true",
-            "videoEnabled", "true"
-        ));
-        redisTemplate.expire(memberKey, 2, TimeUnit.HOURS);
-
-        // 用户会话
-        String sessionKey = String.format(SESSION_KEY, userId);
-        redisTemplate.opsForValue().set(sessionKey, roomName, 2, TimeUnit.HOURS);
+    private Mono<Void> batchUpdateRedis(String roomName, String userId,
+                                        RtcSession session, int maxParticipants, String mediaUrl) {
+        String roomMetaKey = RtcKeys.roomMeta(roomName);
+        String roomMembersKey = RtcKeys.roomMembers(roomName);
+        String memberKey = RtcKeys.roomMember(roomName, userId);
+        String sessionKey = RtcKeys.userSession(userId);
+
+        // 四组写入互不依赖，同时发出，由调用方汇合
+        return Mono.when(
+            // 房间元数据
+            rtcReactiveOperations.putAll(roomMetaKey, FieldValues.create()
+            .with(RtcFields.META_SESSION_ID, session.getId())
+            .with(RtcFields.META_INITIATOR_ID, userId)
+            .with(RtcFields.META_ROOM_TYPE, "sfu")
+            .with(RtcFields.META_STATUS, "active")
+            .with(RtcFields.META_MAX_MEMBERS, maxParticipants)
+            .with(RtcFields.META_TITLE, session.getRoomTitle())
+            .with(RtcFields.META_CREATED_AT, System.currentTimeMillis())
+            .with(RtcFields.META_MEDIA_NODE, mediaUrl)
+            .with(RtcFields.META_CURRENT_MEMBERS, 1L), REDIS_TTL_SECONDS),
+            // 成员列表
+            rtcReactiveOperations.setAdd(roomMembersKey, userId, REDIS_TTL_SECONDS),
+            // 成员详情
+            rtcReactiveOperations.putAll(memberKey, FieldValues.create()
+                .with(RtcFields.MEMBER_ROLE, "host")
+                .with(RtcFields.MEMBER_JOINED_AT, System.currentTimeMillis())
+                .with(RtcFields.MEMBER_AUDIO, true)
+                .with(RtcFields.MEMBER_VIDEO, true), REDIS_TTL_SECONDS),
+            // 用户会话
+            rtcReactiveOperations.set(sessionKey, roomName, REDIS_TTL_SECONDS)
+        );
     }
 
     /**
@@ -200,70 +381,118 @@ public class OptimizedRoomService {
      */
     @Transactional
     public TokenResponse joinCall(String roomName, String currentUserId) {
-        // 1. 快速检查房间容量
-        String roomMetaKey = String.format(ROOM_META_KEY, roomName);
-        Integer maxMembers = (Integer) redisTemplate.opsForHash().get(roomMetaKey, "maxMembers");
-        Long currentMembers = redisTemplate.opsForSet().size(String.format(ROOM_MEMBERS_KEY, roomName));
+        // 1. 快速检查房间容量 (容量上限不变，走近端缓存；成员数实时读取)
+        // 成员数先发出，与元数据、会话查询 (近端缓存未命中时访问 Redis/MySQL) 重叠，只等待一次
+        String roomMetaKey = RtcKeys.roomMeta(roomName);
+        CompletableFuture<Long> pendingMembers = rtcReactiveOperations.setSize(RtcKeys.roomMembers(roomName)).toFuture();
+        RoomMetaCache.RoomMeta meta = roomMetaCache.getMeta(roomName);
+        RoomMetaCache.SessionSnapshot session = roomMetaCache.getSession(roomName);
+        Integer maxMembers = meta != null ? meta.maxMembers() : null;
+        Long currentMembers = rtcReactiveOperations.await(Mono.fromFuture(pendingMembers));
 
         if (maxMembers != null && currentMembers != null && currentMembers >= maxMembers) {
             throw new RuntimeException("房间已满，无法加入");
         }
 
-        // 2. 查询数据库
-        RtcSession session = sessionRepository.findByRoomName(roomName)
-                .orElseThrow(() -> new RuntimeException("房间不存在"));
+        // 2. 会话 (近端缓存，房间结束时失效)
+        if (session == null) {
+            throw new RuntimeException("房间不存在");
+        }
 
-        if (!session.getStatus().equals(RtcSession.Status.ACTIVE.getCode())) {
+        if (!session.isActive()) {
             throw new RuntimeException("房间已结束");
         }
 
-        // 3. 检查是否已加入
-        boolean alreadyJoined = participantRepository
-                .findBySessionIdAndUserId(session.getId(), currentUserId)
-                .isPresent();
+        // 3. 预签 Token 池 (预约直播开播前批量签发): 只有预签过的房间、观众才取用，发起人不访问 Token 池。
+        //    已加入的用户重连沿用原角色: 拉流观众取回已绑定给自己的 Token (同一身份，不再消耗)，
+        //    其余角色不访问 Token 池，按原角色现场签发
+        RtcParticipant joined = participantRepository
+                .findBySessionIdAndUserId(session.id(), currentUserId)
+                .orElse(null);
+        boolean alreadyJoined = joined != null;
+        String joinedRole = alreadyJoined ? joined.getRole() : null;
+        boolean poolCandidate = meta != null && meta.tokenPool() && !currentUserId.equals(meta.initiatorId())
+                && (!alreadyJoined || TokenPoolService.SUBSCRIBER.equals(joinedRole));
+        TokenPoolService.PooledToken pooled = poolCandidate
+                ? rtcReactiveOperations.await(tokenPoolService.take(roomName, currentUserId))
+                : null;
+        String role = pooled != null ? TokenPoolService.SUBSCRIBER
+                : joinedRole != null ? joinedRole : "publisher";
 
         if (!alreadyJoined) {
             // 4. 添加参与者
             RtcParticipant participant = RtcParticipant.builder()
-                    .sessionId(session.getId())
+                    .sessionId(session.id())
                     .userId(currentUserId)
                     .joinTime(LocalDateTime.now())
-                    .role("publisher")
+                    .role(role)
                     .build();
             participantRepository.save(participant);
+            mediaAdapter.participantJoined(roomName);
         }
 
-        // 5. 生成 Token
-        String token = tokenGenerationTimer.record(() ->
-            mediaAdapter.generateToken(currentUserId, roomName, "publisher")
+        // 5. Token: 命中预签池直接使用，否则现场签发
+        String token = pooled != null ? pooled.token() : tokenGenerationTimer.record(() ->
+            mediaAdapter.generateToken(currentUserId, roomName, role)
         );
 
-        // 6. 原子更新 Redis
-        String roomMembersKey = String.format(ROOM_MEMBERS_KEY, roomName);
-        redisTemplate.opsForSet().add(roomMembersKey, currentUserId);
-        redisTemplate.expire(roomMembersKey, 2, TimeUnit.HOURS);
+        // 6. 原子更新 Redis: 加入成员列表、原子递增成员计数，同时发出
+        rtcReactiveOperations.await(Mono.when(
+            rtcReactiveOperations.setAdd(RtcKeys.roomMembers(roomName), currentUserId, REDIS_TTL_SECONDS),
+            rtcReactiveOperations.increment(roomMetaKey, RtcFields.META_CURRENT_MEMBERS, 1)
+        ));
 
-        // 原子递增成员计数
-        redisTemplate.opsForHash().increment(roomMetaKey, "currentMembers", 1);
+        log.info("用户加入万人会议 - 用户: {}, 房间: {}, 预签 Token: {}", currentUserId, roomName, pooled != null);
 
-        log.info("用户加入万人会议 - 用户: {}, 房间: {}", currentUserId, roomName);
+        // 7. 媒体节点: 房间元数据中记录的节点，旧房间没有记录时由适配器定位
+        String mediaUrl = meta != null && meta.mediaNode() != null ? meta.mediaNode() : mediaAdapter.getRoomUrl(roomName);
 
         return TokenResponse.builder()
-                .url(getLiveKitUrl())
+                .url(mediaUrl)
                 .token(token)
+                .identity(pooled != null ? pooled.identity() : currentUserId)
                 .roomName(roomName)
-                .roomTitle(session.getRoomTitle())
-                .expiresAt(System.currentTimeMillis() / 1000 + 3600)
+                .roomTitle(session.roomTitle())
+                .expiresAt(pooled != null ? pooled.expiresAt() : System.currentTimeMillis() / 1000 + tokenTtlSeconds)
                 .build();
     }
 
+    /**
+     * 预约直播预热: 开播前为观众批量签发只能拉流的 Token
+     * 开播时 joinCall 从池中原子取用，加入洪峰期间不再签名
+     *
+     * @param identities   已报名观众
+     * @param placeholders 未报名观众的预估人数 (占位身份)
+     * @param startAt      预计开播时间，Token 有效期从开播时刻起算
+     * @return 签发数量
+     */
+    public int prewarmLiveTokens(String roomName, Collection<String> identities, int placeholders, Instant startAt) {
+        RoomMetaCache.SessionSnapshot session = roomMetaCache.getSession(roomName);
+        if (session == null || !session.isActive()) {
+            throw new IllegalArgumentException("房间不存在或已结束");
+        }
+        if (!Integer.valueOf(RtcSession.SessionType.LIVE.getCode()).equals(session.sessionType())) {
+            throw new IllegalArgumentException("只有直播房间支持 Token 预签");
+        }
+
+        long untilStart = Math.max(0, Duration.between(Instant.now(), startAt).getSeconds());
+        int minted = tokenPoolService.prewarm(roomName, identities, placeholders, untilStart + tokenTtlSeconds);
+        if (minted > 0) {
+            // 在元数据中标记，joinCall 据此决定是否访问 Token 池
+            rtcReactiveOperations.await(rtcReactiveOperations.putAll(RtcKeys.roomMeta(roomName),
+                    FieldValues.create().with(RtcFields.META_TOKEN_POOL, true), REDIS_TTL_SECONDS));
+            roomMetaCache.invalidate(roomName);
+        }
+        return minted;
+    }
+
     /**
      * 离开通话
      * 优化点: 异步清理，快速返回
      */
     @Transactional
     public void leaveCall(String roomName, String currentUserId) {
-        // 1. 查询会话
+        // 1. 查询会话 (要修改状态，在事务内读取实体，不用近端缓存的快照)
         RtcSession session = sessionRepository.findByRoomName(roomName)
                 .orElseThrow(() -> new RuntimeException("房间不存在"));
 
@@ -274,6 +503,7 @@ public class OptimizedRoomService {
                         participant.getJoinTime(), LocalDateTime.now()
                     ).getSeconds();
                     participantRepository.updateLeaveTime(participant.getId(), LocalDateTime.now(), duration);
+                    mediaAdapter.participantLeft(roomName);
                 });
 
         // 3. 检查房间人数
@@ -285,22 +515,28 @@ public class OptimizedRoomService {
             session.setStatus(RtcSession.Status.ENDED.getCode());
             sessionRepository.save(session);
 
-            mediaAdapter.deleteRoom(roomName);
+            // 媒体房间登记到删除队列，由后台批量删除，不占用事务和请求线程。所在节点在清理房间元数据之前确定，
+            // 提交后才登记: 事务回滚时会话仍在进行，房间不能删除
+            String mediaUrl = mediaAdapter.getRoomUrl(roomName);
+            Runnable reap = () -> mediaRoomReaper.enqueue(mediaUrl, roomName);
+            if (!runAfterCommit(reap)) {
+                reap.run();
+            }
 
             // 清理 Redis
             clearRoomRedis(roomName);
+            roomMetaCache.invalidate(roomName);
 
             // 更新监控
             metricsConfig.decrementActiveCalls();
 
             log.info("房间已空，结束会话 - 房间: {}", roomName);
         } else {
-            // 5. 只清理当前用户
-            clearUserRedis(roomName, currentUserId);
-
-            // 原子递减计数
-            String roomMetaKey = String.format(ROOM_META_KEY, roomName);
-            redisTemplate.opsForHash().increment(roomMetaKey, "currentMembers", -1);
+            // 5. 只清理当前用户，同时原子递减计数
+            rtcReactiveOperations.await(Mono.when(
+                clearUserRedis(roomName, currentUserId),
+                rtcReactiveOperations.increment(RtcKeys.roomMeta(roomName), RtcFields.META_CURRENT_MEMBERS, -1)
+            ));
 
             log.info("用户离开 - 房间: {}, 剩余: {}", roomName, onlineCount - 1);
         }
@@ -310,32 +546,39 @@ public class OptimizedRoomService {
      * 清理房间 Redis
      */
     private void clearRoomRedis(String roomName) {
-        String roomMetaKey = String.format(ROOM_META_KEY, roomName);
-        String roomMembersKey = String.format(ROOM_MEMBERS_KEY, roomName);
+        String roomMetaKey = RtcKeys.roomMeta(roomName);
+        String roomMembersKey = RtcKeys.roomMembers(roomName);
 
-        redisTemplate.delete(roomMetaKey);
-        redisTemplate.delete(roomMembersKey);
+        // 同一哈希标签，一次多 Key DEL (含未用完的预签 Token)
+        rtcReactiveOperations.await(rtcReactiveOperations.delete(List.of(roomMetaKey, roomMembersKey,
+            RtcKeys.tokenPool(roomName), RtcKeys.tokenPoolOpen(roomName))));
     }
 
     /**
      * 清理用户 Redis
      */
-    private void clearUserRedis(String roomName, String userId) {
-        String roomMembersKey = String.format(ROOM_MEMBERS_KEY, roomName);
-        String memberKey = String.format(ROOM_MEMBER_KEY, roomName, userId);
-        String sessionKey = String.format(SESSION_KEY, userId);
-
-        redisTemplate.opsForSet().remove(roomMembersKey, userId);
-        redisTemplate.delete(memberKey);
-        redisTemplate.delete(sessionKey);
+    private Mono<Void> clearUserRedis(String roomName, String userId) {
+        String roomMembersKey = RtcKeys.roomMembers(roomName);
+        String memberKey = RtcKeys.roomMember(roomName, userId);
+        String sessionKey = RtcKeys.userSession(userId);
+
+        // 成员 Key 与会话 Key 不在同一槽位，分别 DEL
+        return Mono.when(
+            rtcReactiveOperations.setRemove(roomMembersKey, userId),
+            rtcReactiveOperations.delete(List.of(memberKey)),
+            rtcReactiveOperations.delete(List.of(sessionKey))
+        );
     }
 
     /**
      * 查询房间信息
      */
-    public RtcSession getRoomInfo(String roomName) {
-        return sessionRepository.findByRoomName(roomName)
-                .orElseThrow(() -> new RuntimeException("房间不存在"));
+    public RoomMetaCache.SessionSnapshot getRoomInfo(String roomName) {
+        RoomMetaCache.SessionSnapshot session = roomMetaCache.getSession(roomName);
+        if (session == null) {
+            throw new RuntimeException("房间不存在");
+        }
+        return session;
     }
 
     /**
@@ -364,14 +607,4 @@ public class OptimizedRoomService {
     private String generateRoomName(String prefix) {
         return prefix + "_" + UUID.randomUUID().toString().substring(0, 8);
     }
-
-    /**
-     * 获取 LiveKit URL
-     */
-    private String getLiveKitUrl() {
-        if (mediaAdapter instanceof com.phoenix.rtc.adapter.LiveKitAdapter) {
-            return ((com.phoenix.rtc.adapter.LiveKitAdapter) mediaAdapter).getLiveKitUrl();
-        }
-        return "ws://localhost:7880";
-    }
 }
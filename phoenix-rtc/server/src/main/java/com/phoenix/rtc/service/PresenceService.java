@@ -0,0 +1,345 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.config.MetricsConfig;
+import com.phoenix.rtc.redis.RtcKeyBuilder;
+import com.phoenix.rtc.redis.RtcKeys;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在线状态服务
+ * 监听 WebSocket 连接/订阅/断开事件:
+ * 1. 维护本节点连接数 (rtc.websocket.connections) 和集群总连接数
+ * 2. 用户订阅 /user/queue/rtc 后在 Redis 标记在线，心跳续期 TTL，节点宕机后自动过期；
+ *    按会话记录持有的订阅，会话取消最后一个订阅或断开时只释放该会话自己的计数
+ * 3. isOnline 先查本地会话，再查 Redis，供发起呼叫时快速判断被叫是否可达
+ */
+@Service
+@Slf4j
+public class PresenceService {
+
+    private static final String USER_QUEUE_DESTINATION = "/user/queue/rtc";
+
+    // 仅当值仍为本节点时删除，避免误删用户在其他节点上的在线标记
+    private static final DefaultRedisScript<Long> COMPARE_AND_DELETE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MetricsConfig metricsConfig;
+
+    // sessionId -> userId (匿名会话为空串)
+    private final Map<String, String> localSessions = new ConcurrentHashMap<>();
+
+    // sessionId -> 该会话对呼叫队列的订阅
+    private final Map<String, QueueSubscription> queueSubscriptions = new ConcurrentHashMap<>();
+
+    // userId -> 本节点上持有呼叫队列订阅的会话数
+    private final Map<String, Integer> localUsers = new ConcurrentHashMap<>();
+
+    private final AtomicLong clusterConnections = new AtomicLong();
+
+    // 最近一次心跳看到的存活节点 (有序)
+    private volatile List<String> clusterNodes = List.of();
+
+    @Value("${app.rtc.presence.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${app.rtc.presence.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private String nodeId;
+
+    public PresenceService(RedisTemplate<String, Object> redisTemplate,
+                           MetricsConfig metricsConfig,
+                           MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.metricsConfig = metricsConfig;
+
+        Gauge.builder("rtc.websocket.connections.cluster", clusterConnections, AtomicLong::get)
+                .description("集群 WebSocket 连接总数 (心跳周期内汇总)")
+                .register(meterRegistry);
+        Gauge.builder("rtc.presence.users.online", localUsers, Map::size)
+                .description("本节点在线用户数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 当前节点ID，未配置时随机生成
+     */
+    public String getNodeId() {
+        if (nodeId == null) {
+            nodeId = configuredNodeId != null && !configuredNodeId.isBlank()
+                    ? configuredNodeId
+                    : "node-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+        return nodeId;
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        Principal user = event.getUser();
+        if (sessionId == null) {
+            return;
+        }
+        if (localSessions.putIfAbsent(sessionId, user != null ? user.getName() : "") == null) {
+            metricsConfig.incrementWebsocketConnections();
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Principal user = event.getUser();
+        String sessionId = accessor.getSessionId();
+        if (user == null || sessionId == null || !USER_QUEUE_DESTINATION.equals(accessor.getDestination())) {
+            return;
+        }
+
+        String userId = user.getName();
+        String subscriptionId = accessor.getSubscriptionId() != null ? accessor.getSubscriptionId() : "";
+        boolean[] firstSubscription = {false};
+        queueSubscriptions.compute(sessionId, (id, current) -> {
+            if (current == null) {
+                firstSubscription[0] = true;
+                current = new QueueSubscription(userId, ConcurrentHashMap.newKeySet());
+            }
+            current.subscriptionIds().add(subscriptionId);
+            return current;
+        });
+        // 同一会话重复订阅只计一次
+        if (firstSubscription[0]) {
+            localUsers.merge(userId, 1, Integer::sum);
+        }
+        try {
+            redisTemplate.opsForValue().set(RtcKeys.userPresence(userId), getNodeId(),
+                    ttlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入在线状态失败 - 用户: {}: {}", userId, e.getMessage());
+        }
+        log.debug("用户上线 - 用户: {}, 节点: {}", userId, getNodeId());
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        if (sessionId == null || subscriptionId == null) {
+            return;
+        }
+        // UNSUBSCRIBE 不带目标地址，按订阅ID匹配；取消的是最后一个呼叫队列订阅时释放该会话
+        String[] released = {null};
+        queueSubscriptions.computeIfPresent(sessionId, (id, current) -> {
+            if (current.subscriptionIds().remove(subscriptionId) && current.subscriptionIds().isEmpty()) {
+                released[0] = current.userId();
+                return null;
+            }
+            return current;
+        });
+        if (released[0] != null) {
+            release(released[0]);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        // 同一会话可能收到多次断开事件，只处理第一次
+        if (localSessions.remove(event.getSessionId()) != null) {
+            metricsConfig.decrementWebsocketConnections();
+        }
+        QueueSubscription held = queueSubscriptions.remove(event.getSessionId());
+        if (held != null) {
+            release(held.userId());
+        }
+    }
+
+    /**
+     * 一个会话不再持有呼叫队列订阅: 用户在本节点没有其他会话时清除在线标记
+     */
+    private void release(String userId) {
+        Integer remaining = localUsers.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null) {
+            try {
+                redisTemplate.execute(COMPARE_AND_DELETE, List.of(RtcKeys.userPresence(userId)), getNodeId());
+            } catch (Exception e) {
+                log.warn("清除在线状态失败 - 用户: {}: {}", userId, e.getMessage());
+            }
+            log.debug("用户离线 - 用户: {}", userId);
+        }
+    }
+
+    /**
+     * 判断用户是否在线 (可接收呼叫)
+     */
+    public boolean isOnline(String userId) {
+        if (localUsers.containsKey(userId)) {
+            return true;
+        }
+        return Boolean.TRUE.equals(redisTemplate.hasKey(RtcKeys.userPresence(userId)));
+    }
+
+    /**
+     * 批量查询在线状态，一次 MGET
+     */
+    public Map<String, Boolean> getOnlineStatus(Collection<String> userIds) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        List<String> remoteLookup = new ArrayList<>();
+        for (String userId : userIds) {
+            if (localUsers.containsKey(userId)) {
+                result.put(userId, true);
+            } else {
+                result.put(userId, false);
+                remoteLookup.add(userId);
+            }
+        }
+        if (remoteLookup.isEmpty()) {
+            return result;
+        }
+
+        // 群呼时 Key 数量与被叫人数相同，直接构造字节 Key 走 byte[] MGET
+        byte[][] keys = new byte[remoteLookup.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = RtcKeyBuilder.userPresence(remoteLookup.get(i));
+        }
+        List<byte[]> values = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.stringCommands().mGet(keys));
+        if (values != null) {
+            for (int i = 0; i < remoteLookup.size(); i++) {
+                if (values.get(i) != null) {
+                    result.put(remoteLookup.get(i), true);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 本节点连接数
+     */
+    public int getLocalConnections() {
+        return metricsConfig.getWebsocketConnections();
+    }
+
+    /**
+     * 集群连接数 (最近一次心跳汇总)
+     */
+    public long getClusterConnections() {
+        return clusterConnections.get();
+    }
+
+    /**
+     * 存活节点列表 (按节点ID排序，包含本节点)，用于按节点划分分片
+     */
+    public List<String> getClusterNodes() {
+        List<String> nodes = clusterNodes;
+        return nodes.isEmpty() ? List.of(getNodeId()) : nodes;
+    }
+
+    /**
+     * 心跳: 批量续期本节点在线用户，上报节点统计并汇总集群连接数
+     */
+    @Scheduled(fixedDelayString = "${app.rtc.presence.heartbeat-ms:20000}")
+    public void heartbeat() {
+        String node = getNodeId();
+        Set<String> users = Set.copyOf(localUsers.keySet());
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    for (String userId : users) {
+                        operations.opsForValue().set(RtcKeys.userPresence(userId), node,
+                                ttlSeconds, TimeUnit.SECONDS);
+                    }
+                    String nodeKey = RtcKeys.nodePresence(node);
+                    operations.opsForHash().putAll(nodeKey, Map.of(
+                            "connections", String.valueOf(getLocalConnections()),
+                            "users", String.valueOf(users.size())
+                    ));
+                    operations.expire(nodeKey, ttlSeconds, TimeUnit.SECONDS);
+                    operations.opsForSet().add(RtcKeys.PRESENCE_NODES, node);
+                    return null;
+                }
+            });
+            refreshClusterConnections();
+        } catch (Exception e) {
+            log.warn("在线状态心跳失败: {}", e.getMessage());
+        }
+    }
+
+    private void refreshClusterConnections() {
+        Set<Object> nodes = redisTemplate.opsForSet().members(RtcKeys.PRESENCE_NODES);
+        if (nodes == null || nodes.isEmpty()) {
+            clusterConnections.set(getLocalConnections());
+            clusterNodes = List.of(getNodeId());
+            return;
+        }
+
+        List<Object> nodeIds = new ArrayList<>(nodes);
+        List<Object> counts = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Object id : nodeIds) {
+                    operations.opsForHash().get(RtcKeys.nodePresence(id.toString()), "connections");
+                }
+                return null;
+            }
+        });
+
+        long total = 0;
+        List<String> alive = new ArrayList<>();
+        for (int i = 0; i < nodeIds.size(); i++) {
+            Object count = counts.get(i);
+            if (count == null) {
+                // 节点统计已过期，视为下线
+                redisTemplate.opsForSet().remove(RtcKeys.PRESENCE_NODES, nodeIds.get(i));
+            } else {
+                total += Long.parseLong(count.toString());
+                alive.add(nodeIds.get(i).toString());
+            }
+        }
+        if (!alive.contains(getNodeId())) {
+            alive.add(getNodeId());
+        }
+        alive.sort(null);
+        clusterConnections.set(total);
+        clusterNodes = List.copyOf(alive);
+    }
+
+    /**
+     * 会话对呼叫队列的订阅
+     */
+    private record QueueSubscription(String userId, Set<String> subscriptionIds) {
+    }
+}
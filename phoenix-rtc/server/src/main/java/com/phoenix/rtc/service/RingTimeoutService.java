@@ -0,0 +1,359 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.model.dto.WSMessage;
+import com.phoenix.rtc.redis.RtcKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 振铃超时服务
+ * 呼叫发出后为每个被叫在时间轮上挂一个超时任务，到期未接听则停止该被叫的振铃；
+ * 最后一个被叫超时且无人接听时 CALLING -> NO_ANSWER，通知发起方并清理房间。
+ *
+ * 设计:
+ * 1. 本地使用 HashedWheelTimer，每个定时器只是一个链表节点，几十万个待触发定时器开销很小
+ * 2. 定时器按 (房间, 被叫) 登记，群呼中一人接听/拒绝只取消他自己的定时器，其余被叫照常计时
+ * 3. 定时器同时写入 Redis 有序集合 (score=到期时间)，按房间名哈希分片；
+ *    节点重启或宕机后，分片的当前属主扫描到期记录并补触发
+ * 4. 触发前 ZREM 认领，只有删除成功的节点执行超时处理，多节点下每个被叫只处理一次
+ * 5. 时间轮线程只负责把到期任务交给线程池，Redis 调用、推送和房间清理都不在时间轮线程上执行
+ */
+@Service
+@Slf4j
+public class RingTimeoutService {
+
+    private static final char SEPARATOR = '\u001F';
+
+    // 移出仍在振铃的被叫，返回剩余人数；已有人接听时返回 -1
+    private static final DefaultRedisScript<Long> RELEASE_CALLEE = new DefaultRedisScript<>(
+            "redis.call('srem', KEYS[1], ARGV[1]) " +
+            "if redis.call('exists', KEYS[2]) == 1 then return -1 end " +
+            "return redis.call('scard', KEYS[1])",
+            Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StateManagementService stateManagementService;
+    private final RoomService roomService;
+    private final WebSocketService webSocketService;
+    private final PresenceService presenceService;
+    private final TaskExecutor executor;
+
+    private final HashedWheelTimer wheel;
+
+    // 房间名 + 被叫ID -> 本地时间轮上的定时器
+    private final Map<String, Timeout> localTimers = new ConcurrentHashMap<>();
+
+    private final Counter firedCounter;
+    private final Counter cancelledCounter;
+    private final Counter recoveredCounter;
+
+    @Value("${app.rtc.ring.timeout-seconds:45}")
+    private long timeoutSeconds;
+
+    @Value("${app.rtc.ring.shards:16}")
+    private int shards;
+
+    // 到期超过该时长仍留在 Redis 中的定时器视为创建节点已失联，由分片属主接管
+    @Value("${app.rtc.ring.recovery-grace-ms:2000}")
+    private long recoveryGraceMs;
+
+    public RingTimeoutService(RedisTemplate<String, Object> redisTemplate,
+                              StateManagementService stateManagementService,
+                              RoomService roomService,
+                              WebSocketService webSocketService,
+                              PresenceService presenceService,
+                              @Qualifier("taskExecutor") TaskExecutor executor,
+                              MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.stateManagementService = stateManagementService;
+        this.roomService = roomService;
+        this.webSocketService = webSocketService;
+        this.presenceService = presenceService;
+        this.executor = executor;
+        // 100ms 精度，512 个槽位，一圈约 51 秒
+        this.wheel = new HashedWheelTimer(r -> {
+            Thread thread = new Thread(r, "rtc-ring-timer");
+            thread.setDaemon(true);
+            return thread;
+        }, 100, TimeUnit.MILLISECONDS, 512);
+
+        this.firedCounter = Counter.builder("rtc.ring.timeouts.fired")
+                .description("振铃超时触发次数 (每个未接听的被叫一次)")
+                .register(meterRegistry);
+        this.cancelledCounter = Counter.builder("rtc.ring.timeouts.cancelled")
+                .description("接听/拒绝/挂断取消的振铃定时器")
+                .register(meterRegistry);
+        this.recoveredCounter = Counter.builder("rtc.ring.timeouts.recovered")
+                .description("由分片属主接管触发的振铃定时器")
+                .register(meterRegistry);
+        Gauge.builder("rtc.ring.timeouts.pending", localTimers, Map::size)
+                .description("本节点时间轮上待触发的振铃定时器")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        wheel.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 未触发的定时器保留在 Redis 中，由分片属主恢复
+        wheel.stop();
+    }
+
+    /**
+     * 呼叫发出后为每个被叫登记振铃超时
+     */
+    public void schedule(String roomName, String inviterId, Collection<String> calleeIds) {
+        if (calleeIds.isEmpty()) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        String shardKey = shardKey(roomName);
+
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (String calleeId : calleeIds) {
+                    operations.opsForZSet().add(shardKey, timerId(roomName, calleeId), deadline);
+                }
+                // 发起人和仍在振铃的被叫多保留一个超时周期，供宕机恢复时读取
+                operations.opsForValue().set(RtcKeys.ringDetail(roomName), inviterId,
+                        timeoutSeconds * 2, TimeUnit.SECONDS);
+                operations.opsForSet().add(RtcKeys.ringPending(roomName), calleeIds.toArray());
+                operations.expire(RtcKeys.ringPending(roomName), timeoutSeconds * 2, TimeUnit.SECONDS);
+                return null;
+            }
+        });
+        for (String calleeId : calleeIds) {
+            scheduleLocal(timerId(roomName, calleeId), deadline);
+        }
+        log.debug("登记振铃超时 - 房间: {}, 被叫: {}, 超时: {}s", roomName, calleeIds.size(), timeoutSeconds);
+    }
+
+    /**
+     * 被叫接听 (或有人加入房间) 时调用: 停止该被叫的振铃计时，并标记房间已有人接听，
+     * 其余被叫之后超时只停止各自的振铃，不再结束通话
+     */
+    public void answered(String roomName, String calleeId) {
+        String timerId = timerId(roomName, calleeId);
+        cancelLocal(timerId);
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                // 先标记接听再移出被叫，并发的超时处理要么看到标记，要么看到该被叫仍在振铃
+                operations.opsForValue().set(RtcKeys.ringAnswered(roomName), "1",
+                        timeoutSeconds * 2, TimeUnit.SECONDS);
+                operations.opsForZSet().remove(shardKey(roomName), timerId);
+                operations.opsForSet().remove(RtcKeys.ringPending(roomName), calleeId);
+                return null;
+            }
+        });
+        if (results.size() > 1 && results.get(1) instanceof Long count && count > 0) {
+            cancelledCounter.increment();
+            log.debug("被叫接听，停止振铃计时 - 房间: {}, 被叫: {}", roomName, calleeId);
+        }
+    }
+
+    /**
+     * 群呼被叫拒绝时调用: 只停止该被叫的振铃计时
+     * 最后一个仍在振铃的被叫拒绝且无人接听时，按无人接听结束通话
+     */
+    public void declined(String roomName, String calleeId) {
+        String timerId = timerId(roomName, calleeId);
+        cancelLocal(timerId);
+        Long removed = redisTemplate.opsForZSet().remove(shardKey(roomName), timerId);
+        if (removed == null || removed == 0) {
+            return;
+        }
+        cancelledCounter.increment();
+        Long remaining = redisTemplate.execute(RELEASE_CALLEE,
+                List.of(RtcKeys.ringPending(roomName), RtcKeys.ringAnswered(roomName)), calleeId);
+        if (remaining != null && remaining == 0) {
+            executor.execute(() -> finishUnanswered(roomName));
+        }
+    }
+
+    /**
+     * 整个呼叫不再振铃时取消全部被叫的定时器: 1v1 被拒绝、发起方挂断
+     * 定时器可能挂在其他节点的时间轮上，删除 Redis 记录后那边触发时认领失败即跳过
+     */
+    public void cancel(String roomName) {
+        Set<Object> callees = redisTemplate.opsForSet().members(RtcKeys.ringPending(roomName));
+        Object[] timerIds = callees == null ? new Object[0] : callees.stream()
+                .map(calleeId -> timerId(roomName, calleeId.toString()))
+                .toArray();
+        for (Object timerId : timerIds) {
+            cancelLocal(timerId.toString());
+        }
+        List<Object> removed = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                if (timerIds.length > 0) {
+                    operations.opsForZSet().remove(shardKey(roomName), timerIds);
+                }
+                operations.delete(List.of(RtcKeys.ringDetail(roomName), RtcKeys.ringPending(roomName),
+                        RtcKeys.ringAnswered(roomName)));
+                return null;
+            }
+        });
+        if (timerIds.length > 0 && !removed.isEmpty() && removed.get(0) instanceof Long count && count > 0) {
+            cancelledCounter.increment(count);
+            log.debug("取消振铃超时 - 房间: {}, 定时器: {}", roomName, count);
+        }
+    }
+
+    /**
+     * 扫描本节点负责的分片，补触发超过宽限期仍未处理的定时器
+     * 正常情况下定时器由创建它的节点准时触发；创建节点重启或宕机后留在 Redis 中的记录由分片属主接管。
+     * 分片按存活节点列表取模分配，节点增减时归属变化由 ZREM 认领兜底
+     */
+    @Scheduled(fixedDelayString = "${app.rtc.ring.recovery-interval-ms:5000}",
+               initialDelayString = "${app.rtc.ring.recovery-interval-ms:5000}")
+    public void recover() {
+        List<String> nodes = presenceService.getClusterNodes();
+        int index = nodes.indexOf(presenceService.getNodeId());
+        if (index < 0) {
+            return;
+        }
+
+        long overdueBefore = System.currentTimeMillis() - recoveryGraceMs;
+        for (int shard = index; shard < shards; shard += nodes.size()) {
+            try {
+                Set<Object> overdue = redisTemplate.opsForZSet()
+                        .rangeByScore(RtcKeys.ringShard(shard), 0, overdueBefore);
+                if (overdue == null) {
+                    continue;
+                }
+                for (Object timerId : overdue) {
+                    recoveredCounter.increment();
+                    fire(timerId.toString());
+                }
+            } catch (Exception e) {
+                log.warn("振铃超时恢复扫描失败 - 分片: {}: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    private void scheduleLocal(String timerId, long deadline) {
+        long delay = Math.max(0, deadline - System.currentTimeMillis());
+        Timeout timeout = wheel.newTimeout(t -> {
+            localTimers.remove(timerId, t);
+            // 时间轮线程只做交接，处理过程在线程池中执行
+            executor.execute(() -> fire(timerId));
+        }, delay, TimeUnit.MILLISECONDS);
+        Timeout previous = localTimers.put(timerId, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private void cancelLocal(String timerId) {
+        Timeout timeout = localTimers.remove(timerId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * 单个被叫的定时器到期: 停止该被叫的振铃，最后一个被叫超时且无人接听时结束通话
+     */
+    void fire(String timerId) {
+        int split = timerId.lastIndexOf(SEPARATOR);
+        if (split < 0) {
+            log.warn("无法解析的振铃定时器: {}", timerId);
+            return;
+        }
+        String roomName = timerId.substring(0, split);
+        String calleeId = timerId.substring(split + 1);
+        try {
+            // 1. 认领: 只有一个节点能删除成功
+            Long claimed = redisTemplate.opsForZSet().remove(shardKey(roomName), timerId);
+            if (claimed == null || claimed == 0) {
+                return;
+            }
+            Long remaining = redisTemplate.execute(RELEASE_CALLEE,
+                    List.of(RtcKeys.ringPending(roomName), RtcKeys.ringAnswered(roomName)), calleeId);
+            firedCounter.increment();
+
+            // 2. 停止该被叫的振铃
+            webSocketService.sendToUser(calleeId,
+                    WSMessage.success("call_cancelled", Map.of("roomName", roomName, "reason", "no_answer")));
+
+            if (remaining != null && remaining == 0) {
+                finishUnanswered(roomName);
+                return;
+            }
+            Object inviterId = redisTemplate.opsForValue().get(RtcKeys.ringDetail(roomName));
+            if (inviterId != null) {
+                webSocketService.notifyPeerNoAnswer(inviterId.toString(), calleeId, roomName);
+            }
+            log.debug("被叫振铃超时 - 房间: {}, 被叫: {}, 剩余振铃: {}", roomName, calleeId, remaining);
+        } catch (Exception e) {
+            log.error("振铃超时处理失败 - 房间: {}, 被叫: {}", roomName, calleeId, e);
+        }
+    }
+
+    /**
+     * 全部被叫都未接听: CALLING -> NO_ANSWER，通知发起方并清理房间
+     */
+    private void finishUnanswered(String roomName) {
+        try {
+            Object inviterId = redisTemplate.opsForValue().getAndDelete(RtcKeys.ringDetail(roomName));
+            if (inviterId == null) {
+                log.warn("振铃详情已过期，跳过超时处理 - 房间: {}", roomName);
+                return;
+            }
+            redisTemplate.delete(List.of(RtcKeys.ringPending(roomName), RtcKeys.ringAnswered(roomName)));
+
+            // 1. 状态转换 CALLING -> NO_ANSWER
+            stateManagementService.ringTimeout(roomName, inviterId.toString());
+
+            // 2. 通知发起方
+            webSocketService.sendToUser(inviterId.toString(),
+                    WSMessage.success("no_answer", Map.of("roomName", roomName)));
+
+            // 3. 清理房间 (数据库会话、Redis 结构、媒体房间)
+            roomService.leaveCall(roomName, inviterId.toString());
+
+            log.info("振铃超时，无人接听 - 房间: {}, 发起人: {}", roomName, inviterId);
+        } catch (Exception e) {
+            log.error("无人接听处理失败 - 房间: {}", roomName, e);
+        }
+    }
+
+    private static String timerId(String roomName, String calleeId) {
+        return roomName + SEPARATOR + calleeId;
+    }
+
+    private String shardKey(String roomName) {
+        return RtcKeys.ringShard(Math.floorMod(roomName.hashCode(), shards));
+    }
+}
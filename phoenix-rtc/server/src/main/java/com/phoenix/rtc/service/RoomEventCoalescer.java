@@ -0,0 +1,173 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.model.dto.WSMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 房间成员事件合并器
+ * 大房间批量进出时，逐条推送 peer_left 会产生 O(N²) 帧。
+ * 订阅者数达到阈值的房间，成员事件在短时间窗口内缓冲，窗口结束后合并为一条 members_delta 推送；
+ * 小房间和 1v1 通话仍然立即推送。
+ */
+@Service
+@Slf4j
+public class RoomEventCoalescer {
+
+    private final WebSocketService webSocketService;
+    private final RoomSubscriptionRegistry subscriptionRegistry;
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter framesSavedCounter;
+    private final Counter batchesCounter;
+    private final Timer delayTimer;
+
+    // roomName -> 当前窗口内缓冲的事件
+    private final Map<String, Batch> pending = new ConcurrentHashMap<>();
+
+    @Value("${app.rtc.coalesce.window-ms:100}")
+    private long windowMs;
+
+    @Value("${app.rtc.coalesce.min-subscribers:50}")
+    private int minSubscribers;
+
+    public RoomEventCoalescer(WebSocketService webSocketService,
+                              RoomSubscriptionRegistry subscriptionRegistry,
+                              MeterRegistry meterRegistry) {
+        this.webSocketService = webSocketService;
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rtc-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.framesSavedCounter = Counter.builder("rtc.ws.coalesce.frames.saved")
+                .description("合并成员事件节省的推送帧数")
+                .register(meterRegistry);
+        this.batchesCounter = Counter.builder("rtc.ws.coalesce.batches")
+                .description("推送的 members_delta 批次数")
+                .register(meterRegistry);
+        this.delayTimer = Timer.builder("rtc.ws.coalesce.delay")
+                .description("成员事件因合并窗口增加的推送延迟")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 成员加入房间
+     */
+    public void memberJoined(String roomName, String userId) {
+        submit(roomName, userId, true);
+    }
+
+    /**
+     * 成员离开房间
+     */
+    public void memberLeft(String roomName, String userId) {
+        submit(roomName, userId, false);
+    }
+
+    private void submit(String roomName, String userId, boolean joined) {
+        if (subscriptionRegistry.getSubscriberCount(roomName) < minSubscribers) {
+            // 小房间立即推送
+            webSocketService.sendToRoom(roomName, WSMessage.success(joined ? "peer_joined" : "peer_left", Map.of(
+                    "userId", userId,
+                    "roomName", roomName
+            )));
+            return;
+        }
+
+        pending.compute(roomName, (name, batch) -> {
+            if (batch == null) {
+                batch = new Batch();
+                scheduler.schedule(() -> flush(name), windowMs, TimeUnit.MILLISECONDS);
+            }
+            batch.add(userId, joined);
+            return batch;
+        });
+    }
+
+    /**
+     * 窗口结束，推送合并后的成员变化
+     */
+    void flush(String roomName) {
+        Batch batch = pending.remove(roomName);
+        if (batch == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        List<String> joined = new ArrayList<>();
+        List<String> left = new ArrayList<>();
+        for (Map.Entry<String, Event> entry : batch.events.entrySet()) {
+            (entry.getValue().joined ? joined : left).add(entry.getKey());
+        }
+        for (long eventAt : batch.eventTimes) {
+            delayTimer.record(now - eventAt, TimeUnit.NANOSECONDS);
+        }
+
+        int subscribers = subscriptionRegistry.getSubscriberCount(roomName);
+        int eventCount = batch.eventTimes.size();
+
+        if (!joined.isEmpty() || !left.isEmpty()) {
+            webSocketService.sendToRoom(roomName, WSMessage.success("members_delta",
+                    new MembersDelta(roomName, joined, left)));
+            batchesCounter.increment();
+            framesSavedCounter.increment((double) (eventCount - 1) * subscribers);
+        } else {
+            // 窗口内进出完全抵消，无需推送
+            framesSavedCounter.increment((double) eventCount * subscribers);
+        }
+
+        log.debug("推送成员变化 - 房间: {}, 事件: {}, 加入: {}, 离开: {}",
+                roomName, eventCount, joined.size(), left.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        // 尽量推送剩余事件
+        for (String roomName : List.copyOf(pending.keySet())) {
+            flush(roomName);
+        }
+    }
+
+    /**
+     * 单个窗口内的事件缓冲
+     * 只在 ConcurrentHashMap.compute 内修改，无需额外加锁
+     */
+    private static class Batch {
+        final Map<String, Event> events = new LinkedHashMap<>();
+        final List<Long> eventTimes = new ArrayList<>();
+
+        void add(String userId, boolean joined) {
+            eventTimes.add(System.nanoTime());
+            Event previous = events.get(userId);
+            if (previous != null && previous.joined != joined) {
+                // 同一窗口内先加入后离开 (或反之) 相互抵消
+                events.remove(userId);
+            } else {
+                events.put(userId, new Event(joined));
+            }
+        }
+    }
+
+    private record Event(boolean joined) {}
+
+    public record MembersDelta(String roomName, List<String> joined, List<String> left) {}
+}
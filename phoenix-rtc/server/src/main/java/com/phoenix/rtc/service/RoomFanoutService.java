@@ -0,0 +1,242 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.codec.WsEncoding;
+import com.phoenix.rtc.codec.WsEncodingRegistry;
+import com.phoenix.rtc.codec.WsFrame;
+import com.phoenix.rtc.codec.WsMessageCodec;
+import com.phoenix.rtc.model.dto.WSMessage;
+import com.phoenix.rtc.service.RoomSubscriptionRegistry.Subscriber;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 房间广播扇出服务
+ * 优化点:
+ * 1. 调用方只负责投递任务，立即返回，不在 REST 请求线程内序列化和入队
+ * 2. 消息每种编码只序列化一次，所有订阅者共享同一份帧数据
+ * 3. 大房间订阅者按分片并行投递
+ * 4. 按房间规模分桶导出扇出耗时分位数
+ * 5. 同一房间的消息按发布顺序串行投递: 上一条消息的全部分片投递完成后才开始下一条，
+ *    不同房间之间、同一条消息的分片之间仍然并行
+ * 6. 房间版本号在房间通道内分配，与投递是同一步，版本号顺序与到达顺序一致；
+ *    订阅时的快照也排在通道中，不会晚于之后的增量广播到达
+ */
+@Service
+@Slf4j
+public class RoomFanoutService {
+
+    // 房间规模分桶上界 (订阅者数)
+    private static final int[] BUCKET_BOUNDS = {10, 100, 1000, 10000};
+    private static final String[] BUCKET_NAMES = {"1-10", "11-100", "101-1000", "1001-10000", "10000+"};
+
+    private final RoomSubscriptionRegistry subscriptionRegistry;
+    private final MessageChannel clientOutboundChannel;
+    private final TaskExecutor fanoutExecutor;
+    private final WsMessageCodec messageCodec;
+    private final WsEncodingRegistry encodingRegistry;
+    private final Timer[] latencyTimers = new Timer[BUCKET_NAMES.length];
+    private final Counter framesCounter;
+
+    // 房间 -> 最后一条已发布消息的投递完成信号，新消息排在它之后
+    private final Map<String, CompletableFuture<Void>> lanes = new ConcurrentHashMap<>();
+
+    @Value("${app.rtc.fanout.shard-size:256}")
+    private int shardSize;
+
+    public RoomFanoutService(RoomSubscriptionRegistry subscriptionRegistry,
+                             @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                             @Qualifier("rtcFanoutExecutor") TaskExecutor fanoutExecutor,
+                             WsMessageCodec messageCodec,
+                             WsEncodingRegistry encodingRegistry,
+                             MeterRegistry meterRegistry) {
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.fanoutExecutor = fanoutExecutor;
+        this.messageCodec = messageCodec;
+        this.encodingRegistry = encodingRegistry;
+
+        for (int i = 0; i < BUCKET_NAMES.length; i++) {
+            latencyTimers[i] = Timer.builder("rtc.ws.fanout.latency")
+                    .description("房间广播扇出耗时 (投递到全部订阅者出站队列)")
+                    .tag("bucket", BUCKET_NAMES[i])
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+        this.framesCounter = Counter.builder("rtc.ws.fanout.frames")
+                .description("房间广播投递的帧数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 异步广播消息到房间全部订阅者，不带版本号
+     */
+    public void publish(String roomName, WSMessage message) {
+        publish(roomName, message, null);
+    }
+
+    /**
+     * 异步广播消息到房间全部订阅者
+     * 立即返回，分配版本号、序列化和投递在扇出线程池中完成；同一房间按调用顺序投递
+     *
+     * @param versioner 房间名 -> 新版本号 (房间不存在时为 null)，在房间通道内调用；为 null 时不带版本号
+     */
+    public void publish(String roomName, WSMessage message, Function<String, Long> versioner) {
+        long enqueuedAt = System.nanoTime();
+        inLane(roomName, () -> {
+            if (versioner != null) {
+                try {
+                    message.setVersion(versioner.apply(roomName));
+                } catch (Exception e) {
+                    // 无版本号的广播客户端按普通消息处理，不影响投递
+                    log.warn("递增房间版本号失败 - 房间: {}: {}", roomName, e.getMessage());
+                }
+            }
+            return dispatch(roomName, message, enqueuedAt);
+        });
+    }
+
+    /**
+     * 只投递给房间的单个订阅者 (如订阅时的房间快照)
+     * 排在房间通道中: 消息在之前的广播投递完成后构建，之后的广播在它之后投递
+     *
+     * @param message 构建消息，返回 null 时不投递
+     */
+    public void sendToSubscriber(String roomName, Subscriber subscriber, Supplier<WSMessage> message) {
+        String destination = RoomSubscriptionRegistry.ROOM_TOPIC_PREFIX + roomName;
+        inLane(roomName, () -> {
+            WSMessage built = message.get();
+            if (built != null) {
+                sendShard(destination, messageCodec.frame(built), List.of(subscriber));
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * 排入房间通道: 上一步完成后在扇出线程池上执行 step
+     *
+     * @param step 返回本步投递完成的信号
+     */
+    private void inLane(String roomName, Supplier<CompletableFuture<Void>> step) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = lanes.put(roomName, done);
+        if (previous == null) {
+            submit(roomName, step, done);
+        } else {
+            previous.whenComplete((ignored, error) -> submit(roomName, step, done));
+        }
+    }
+
+    private void submit(String roomName, Supplier<CompletableFuture<Void>> step, CompletableFuture<Void> done) {
+        try {
+            fanoutExecutor.execute(() -> {
+                try {
+                    step.get().whenComplete((ignored, error) -> finish(roomName, done));
+                } catch (RuntimeException e) {
+                    log.warn("房间广播失败 - 房间: {}", roomName, e);
+                    finish(roomName, done);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 线程池已关闭
+            log.warn("房间广播提交失败 - 房间: {}: {}", roomName, e.getMessage());
+            finish(roomName, done);
+        }
+    }
+
+    private void finish(String roomName, CompletableFuture<Void> done) {
+        // 之后没有新消息时移除，房间通道不会常驻
+        lanes.remove(roomName, done);
+        done.complete(null);
+    }
+
+    /**
+     * 执行扇出: 序列化一次，按分片并行投递
+     *
+     * @return 全部分片投递完成
+     */
+    CompletableFuture<Void> dispatch(String roomName, WSMessage message, long enqueuedAt) {
+        List<Subscriber> subscribers = subscriptionRegistry.getSubscribers(roomName);
+        if (subscribers.isEmpty()) {
+            log.debug("房间无订阅者，跳过广播 - 房间: {}", roomName);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        WsFrame frame = messageCodec.frame(message);
+
+        String destination = RoomSubscriptionRegistry.ROOM_TOPIC_PREFIX + roomName;
+        int total = subscribers.size();
+        Timer timer = latencyTimers[bucketOf(total)];
+
+        if (total <= shardSize) {
+            sendShard(destination, frame, subscribers);
+            timer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int shards = (total + shardSize - 1) / shardSize;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[shards];
+        for (int i = 0; i < shards; i++) {
+            List<Subscriber> shard = subscribers.subList(i * shardSize, Math.min(total, (i + 1) * shardSize));
+            futures[i] = CompletableFuture.runAsync(() -> sendShard(destination, frame, shard), fanoutExecutor);
+        }
+        log.debug("房间广播分片投递 - 房间: {}, 订阅者: {}, 分片: {}", roomName, total, shards);
+        return CompletableFuture.allOf(futures).handle((ignored, error) -> {
+            timer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            if (error != null) {
+                log.warn("房间广播部分分片失败 - 房间: {}, 订阅者: {}", roomName, total, error);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 投递一个分片，所有订阅者共享同一份 payload
+     */
+    private void sendShard(String destination, WsFrame frame, List<Subscriber> shard) {
+        for (Subscriber subscriber : shard) {
+            try {
+                WsEncoding encoding = encodingRegistry.getEncoding(subscriber.sessionId());
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+                accessor.setSessionId(subscriber.sessionId());
+                accessor.setSubscriptionId(subscriber.subscriptionId());
+                accessor.setDestination(destination);
+                encoding.applyTo(accessor);
+                accessor.setLeaveMutable(true);
+                Message<byte[]> reply = MessageBuilder.createMessage(frame.bytes(encoding), accessor.getMessageHeaders());
+                clientOutboundChannel.send(reply);
+            } catch (Exception e) {
+                log.warn("投递房间消息失败 - 会话: {}, 目标: {}: {}", subscriber.sessionId(), destination, e.getMessage());
+            }
+        }
+        framesCounter.increment(shard.size());
+    }
+
+    private static int bucketOf(int subscribers) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (subscribers <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+}
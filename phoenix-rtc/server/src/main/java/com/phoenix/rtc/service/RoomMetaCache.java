@@ -0,0 +1,242 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.cache.NearCache;
+import com.phoenix.rtc.model.entity.RtcSession;
+import com.phoenix.rtc.redis.RtcHashOperations;
+import com.phoenix.rtc.redis.RtcKeys;
+import com.phoenix.rtc.redis.codec.FieldValues;
+import com.phoenix.rtc.redis.codec.RtcFields;
+import com.phoenix.rtc.repository.RtcSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 房间元数据近端缓存
+ * 房间元数据 (发起人、类型、容量、标题) 和 RtcSession 在房间存续期间基本不变，
+ * 万人直播间的每次加入都去 Redis/MySQL 读同一份数据没有必要。
+ *
+ * 1. 每个节点本地缓存，容量有上限，TTL 兜底
+ * 2. 房间结束或会话变更时通过 Redis pub/sub 广播失效，所有节点 (包括自己) 收到后删除本地条目；
+ *    在事务内调用时等事务提交后再广播，否则其他节点可能在提交前重新加载到旧数据
+ * 3. 导出命中率和陈旧度 (命中条目的年龄、失效通知延迟)
+ * 4. 会话缓存的是不可变快照而不是 JPA 实体，多个请求线程共享同一条目不会互相修改；
+ *    需要修改会话时在事务内重新读取实体
+ */
+@Service
+@Slf4j
+public class RoomMetaCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "rtc:cache:room:invalidate";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RtcHashOperations rtcHashOperations;
+    private final RtcSessionRepository sessionRepository;
+
+    private final NearCache<String, RoomMeta> metaCache;
+    private final NearCache<String, SessionSnapshot> sessionCache;
+
+    private final Counter metaHits;
+    private final Counter metaMisses;
+    private final Counter sessionHits;
+    private final Counter sessionMisses;
+    private final DistributionSummary entryAge;
+    private final Timer invalidationLag;
+
+    public RoomMetaCache(RedisTemplate<String, Object> redisTemplate,
+                         RtcHashOperations rtcHashOperations,
+                         RtcSessionRepository sessionRepository,
+                         RedisMessageListenerContainer listenerContainer,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.rtc.near-cache.max-rooms:10000}") int maxRooms,
+                         @Value("${app.rtc.near-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.rtcHashOperations = rtcHashOperations;
+        this.sessionRepository = sessionRepository;
+        this.metaCache = new NearCache<>(maxRooms, TimeUnit.SECONDS.toMillis(ttlSeconds));
+        this.sessionCache = new NearCache<>(maxRooms, TimeUnit.SECONDS.toMillis(ttlSeconds));
+
+        this.metaHits = requests(meterRegistry, "meta", "hit");
+        this.metaMisses = requests(meterRegistry, "meta", "miss");
+        this.sessionHits = requests(meterRegistry, "session", "hit");
+        this.sessionMisses = requests(meterRegistry, "session", "miss");
+        Gauge.builder("rtc.cache.room.hit.ratio", this, c -> ratio(c.metaHits, c.metaMisses))
+                .tag("cache", "meta")
+                .description("房间元数据近端缓存命中率")
+                .register(meterRegistry);
+        Gauge.builder("rtc.cache.room.hit.ratio", this, c -> ratio(c.sessionHits, c.sessionMisses))
+                .tag("cache", "session")
+                .description("RtcSession 近端缓存命中率")
+                .register(meterRegistry);
+        Gauge.builder("rtc.cache.room.size", metaCache, NearCache::size)
+                .description("房间元数据近端缓存条目数")
+                .register(meterRegistry);
+        this.entryAge = DistributionSummary.builder("rtc.cache.room.staleness")
+                .description("命中条目距加载的时长 (毫秒)")
+                .baseUnit("milliseconds")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.invalidationLag = Timer.builder("rtc.cache.room.invalidation.lag")
+                .description("失效通知从发布到本节点处理的延迟")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * 房间元数据，房间不存在返回 null
+     */
+    public RoomMeta getMeta(String roomName) {
+        NearCache.Entry<RoomMeta> entry = metaCache.getEntry(roomName);
+        if (entry != null) {
+            metaHits.increment();
+            entryAge.record(System.currentTimeMillis() - entry.loadedAt());
+            return entry.value();
+        }
+        metaMisses.increment();
+        return metaCache.get(roomName, this::loadMeta);
+    }
+
+    /**
+     * 房间会话快照，不存在返回 null
+     */
+    public SessionSnapshot getSession(String roomName) {
+        NearCache.Entry<SessionSnapshot> entry = sessionCache.getEntry(roomName);
+        if (entry != null) {
+            sessionHits.increment();
+            entryAge.record(System.currentTimeMillis() - entry.loadedAt());
+            return entry.value();
+        }
+        sessionMisses.increment();
+        return sessionCache.get(roomName, name -> sessionRepository.findByRoomName(name)
+                .map(SessionSnapshot::of)
+                .orElse(null));
+    }
+
+    /**
+     * 房间结束或会话变更后调用，通知所有节点失效
+     * 事务内调用时先删除本节点条目，提交后再次删除并广播
+     */
+    public void invalidate(String roomName) {
+        evict(roomName);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(roomName);
+                    publish(roomName);
+                }
+            });
+            return;
+        }
+        publish(roomName);
+    }
+
+    private void publish(String roomName) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, roomName + "|" + System.currentTimeMillis());
+        } catch (Exception e) {
+            // 其他节点依赖 TTL 兜底
+            log.warn("发布缓存失效通知失败 - 房间: {}: {}", roomName, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.lastIndexOf('|');
+        String roomName = sep > 0 ? body.substring(0, sep) : body;
+        evict(roomName);
+        if (sep > 0) {
+            try {
+                long lag = System.currentTimeMillis() - Long.parseLong(body.substring(sep + 1));
+                invalidationLag.record(Math.max(0, lag), TimeUnit.MILLISECONDS);
+            } catch (NumberFormatException ignored) {
+                // 兼容不带时间戳的通知
+            }
+        }
+    }
+
+    private void evict(String roomName) {
+        metaCache.invalidate(roomName);
+        sessionCache.invalidate(roomName);
+        log.debug("近端缓存失效 - 房间: {}", roomName);
+    }
+
+    private RoomMeta loadMeta(String roomName) {
+        FieldValues hash = rtcHashOperations.entries(RtcKeys.roomMeta(roomName));
+        String initiatorId = hash.get(RtcFields.META_INITIATOR_ID);
+        if (initiatorId == null) {
+            return null;
+        }
+        return new RoomMeta(
+                hash.get(RtcFields.META_SESSION_ID),
+                initiatorId,
+                hash.get(RtcFields.META_ROOM_TYPE),
+                hash.get(RtcFields.META_MAX_MEMBERS),
+                hash.get(RtcFields.META_TITLE),
+                hash.get(RtcFields.META_CREATED_AT, 0L),
+                hash.get(RtcFields.META_MEDIA_NODE),
+                hash.get(RtcFields.META_TOKEN_POOL, false)
+        );
+    }
+
+    private static Counter requests(MeterRegistry registry, String cache, String result) {
+        return Counter.builder("rtc.cache.room.requests")
+                .description("房间近端缓存请求数")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static double ratio(Counter hits, Counter misses) {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    /**
+     * 房间创建后不变的元数据 (成员计数等可变字段不缓存)
+     * mediaNode 为房间所在的媒体节点 URL，多节点部署之前创建的房间为 null
+     * tokenPool 表示房间做过 Token 预签，预签后会使缓存失效
+     */
+    public record RoomMeta(Long sessionId, String initiatorId, String roomType,
+                           Integer maxMembers, String title, long createdAt, String mediaNode,
+                           boolean tokenPool) {}
+
+    /**
+     * RtcSession 的只读快照
+     */
+    public record SessionSnapshot(Long id, String roomName, String roomTitle, String initiatorId,
+                                  Integer sessionType, Integer maxParticipants, LocalDateTime startTime,
+                                  LocalDateTime endTime, Integer status, Boolean recordingEnabled,
+                                  LocalDateTime createdAt) {
+
+        public static SessionSnapshot of(RtcSession session) {
+            return new SessionSnapshot(session.getId(), session.getRoomName(), session.getRoomTitle(),
+                    session.getInitiatorId(), session.getSessionType(), session.getMaxParticipants(),
+                    session.getStartTime(), session.getEndTime(), session.getStatus(),
+                    session.getRecordingEnabled(), session.getCreatedAt());
+        }
+
+        public boolean isActive() {
+            return Integer.valueOf(RtcSession.Status.ACTIVE.getCode()).equals(status);
+        }
+    }
+}
@@ -7,15 +7,19 @@ import com.phoenix.rtc.model.dto.CallRequest;
 import com.phoenix.rtc.model.dto.TokenResponse;
 import com.phoenix.rtc.model.entity.RtcParticipant;
 import com.phoenix.rtc.model.entity.RtcSession;
+import com.phoenix.rtc.redis.RtcKeys;
+import com.phoenix.rtc.redis.RtcReactiveOperations;
+import com.phoenix.rtc.redis.codec.FieldValues;
+import com.phoenix.rtc.redis.codec.RtcFields;
 import com.phoenix.rtc.repository.RtcParticipantRepository;
 import com.phoenix.rtc.repository.RtcSessionRepository;
 import io.livekit.server.RoomInfo;
 import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -34,18 +38,16 @@ public class RoomService {
     private final MediaAdapter mediaAdapter;  // 使用抽象接口
     private final RtcSessionRepository sessionRepository;
     private final RtcParticipantRepository participantRepository;
-    private final RedisTemplate<String, Object> redisTemplate;
     private final MetricsConfig metricsConfig;
     private final Timer callCreationTimer;
     private final Timer tokenGenerationTimer;
+    private final RoomMetaCache roomMetaCache;
+    private final RtcReactiveOperations rtcReactiveOperations;
+    private final MediaRoomReaper mediaRoomReaper;
+    private final MediaRoomPool mediaRoomPool;
 
-    // Redis Key 模式 (参考 n.md 完善设计)
-    private static final String ROOM_META_KEY = "rtc:room:%s:meta";           // 房间元数据 (Hash)
-    private static final String ROOM_MEMBERS_KEY = "rtc:room:%s:members";     // 成员列表 (Set)
-    private static final String ROOM_MEMBER_KEY = "rtc:room:%s:member:%s";    // 成员详情 (Hash)
-    private static final String SESSION_KEY = "rtc:session:%s";              // 用户会话映射 (String)
-    private static final String INVITE_KEY = "rtc:invite:%s";                // 邀请缓存 (Hash)
-    private static final String RATELIMIT_KEY = "ratelimit:rtc:%s";          // 限流计数器 (String)
+    // Redis Key 统一由 RtcKeys 生成，Hash 字段及编码见 RtcFields (参考 n.md 完善设计)
+    private static final long REDIS_TTL_SECONDS = TimeUnit.HOURS.toSeconds(2);
 
     /**
      * 发起通话 - 创建房间并生成 Token
@@ -56,19 +58,20 @@ public class RoomService {
      */
     public TokenResponse startCall(CallRequest request, String currentUserId) {
         return callCreationTimer.record(() -> {
-            // 1. 生成房间名称
-            String roomName = generateRoomName("room");
-
-            // 2. 确定房间类型
+            // 1. 确定房间类型
             int sessionType = parseSessionType(request.getSessionType());
             String roomTypeStr = request.getSessionType().toLowerCase();
 
-            // 3. 配置房间参数
+            // 2. 配置房间参数
             Integer maxParticipants = request.getMaxParticipants();
             if (maxParticipants == null) {
                 maxParticipants = sessionType == 3 ? 1000 : 10; // 直播1000人，其他10人
             }
 
+            // 3. 1v1 优先取预建房间，否则生成房间名称
+            MediaRoomPool.PooledRoom pooledRoom = sessionType == 1 ? mediaRoomPool.lease(maxParticipants) : null;
+            String roomName = pooledRoom != null ? pooledRoom.roomName() : generateRoomName("room");
+
             RoomConfig config = RoomConfig.builder()
                     .emptyTimeout(300)
                     .maxParticipants(maxParticipants)
@@ -76,11 +79,13 @@ public class RoomService {
                     .recordingEnabled(false)
                     .build();
 
-            // 4. 先调用外部 RPC (LiveKit) - 不在事务内
+            // 4. 先调用外部 RPC (LiveKit) - 不在事务内，预建房间跳过
             // 如果这一步失败，不会影响数据库状态
-            RoomInfo roomInfo;
+            RoomInfo roomInfo = null;
             try {
-                roomInfo = mediaAdapter.createRoom(roomName, config);
+                if (pooledRoom == null) {
+                    roomInfo = mediaAdapter.createRoom(roomName, config);
+                }
             } catch (Exception e) {
                 log.error("创建 LiveKit 房间失败，不执行数据库操作", e);
                 throw new RuntimeException("媒体服务器创建房间失败: " + e.getMessage());
@@ -91,13 +96,9 @@ public class RoomService {
                 return createRoomInTransaction(request, currentUserId, roomName, roomTypeStr,
                                                maxParticipants, sessionType, roomInfo);
             } catch (Exception e) {
-                // 如果数据库操作失败，尝试清理 LiveKit 房间
-                try {
-                    mediaAdapter.deleteRoom(roomName);
-                    log.warn("数据库事务失败，已清理 LiveKit 房间: {}", roomName);
-                } catch (Exception cleanupException) {
-                    log.error("清理 LiveKit 房间失败，请手动清理: {}", roomName, cleanupException);
-                }
+                // 如果数据库操作失败，登记删除 LiveKit 房间 (后台回收，失败重试)，错误立即返回
+                log.warn("数据库事务失败，登记删除 LiveKit 房间: {}", roomName);
+                mediaRoomReaper.enqueue(roomName);
                 throw e;
             }
         });
@@ -141,48 +142,40 @@ public class RoomService {
                 mediaAdapter.generateToken(currentUserId, roomName, "host")
             );
 
-            // 8. 完善 Redis 数据结构
-            // 8.1 房间元数据 (Hash)
-            String roomMetaKey = String.format(ROOM_META_KEY, roomName);
-            redisTemplate.opsForHash().put(roomMetaKey, "sessionId", savedSession.getId());
-            redisTemplate.opsForHash().put(roomMetaKey, "initiatorId", currentUserId);
-            redisTemplate.opsForHash().put(roomMetaKey, "roomType", roomTypeStr);
-            redisTemplate.opsForHash().put(roomMetaKey, "status", "active");
-            redisTemplate.opsForHash().put(roomMetaKey, "maxMembers", maxParticipants);
-            redisTemplate.opsForHash().put(roomMetaKey, "title", request.getTitle());
-            redisTemplate.opsForHash().put(roomMetaKey, "createdAt", System.currentTimeMillis());
-            redisTemplate.expire(roomMetaKey, 2, TimeUnit.HOURS);
-
-            // 8.2 成员列表 (Set) - 添加发起人
-            String roomMembersKey = String.format(ROOM_MEMBERS_KEY, roomName);
-            redisTemplate.opsForSet().add(roomMembersKey, currentUserId);
-            redisTemplate.expire(roomMembersKey, 2, TimeUnit.HOURS);
-
-            // 8.3 发起人详情 (Hash)
-            String memberKey = String.format(ROOM_MEMBER_KEY, roomName, currentUserId);
-            redisTemplate.opsForHash().put(memberKey, "role", "host");
-            redisTemplate.opsForHash().put(memberKey, "joinedAt", System.currentTimeMillis());
-            redisTemplate.opsForHash().put(memberKey, "audioEnabled", true);
-            redisTemplate.opsForHash().put(memberKey, "videoEnabled", true);
-            redisTemplate.expire(memberKey, 2, TimeUnit.HOURS);
-
-            // 8.4 用户会话映射 (String)
-            String sessionKey = String.format(SESSION_KEY, currentUserId);
-            redisTemplate.opsForValue().set(sessionKey, roomName, 2, TimeUnit.HOURS);
-
-            // 9. 更新监控指标
+            // 房间所在的媒体节点 (建房时已选定)，记入房间元数据供其他实例定位
+            String mediaUrl = mediaAdapter.getRoomUrl(roomName);
+
+            // 8. 完善 Redis 数据结构 (四组写入互不依赖，同时发出，只等待一次)
+            rtcReactiveOperations.await(Mono.when(
+                    // 8.1 房间元数据 (Hash)
+                    rtcReactiveOperations.putAll(RtcKeys.roomMeta(roomName), FieldValues.create()
+                            .with(RtcFields.META_SESSION_ID, savedSession.getId())
+                            .with(RtcFields.META_INITIATOR_ID, currentUserId)
+                            .with(RtcFields.META_ROOM_TYPE, roomTypeStr)
+                            .with(RtcFields.META_STATUS, "active")
+                            .with(RtcFields.META_MAX_MEMBERS, maxParticipants)
+                            .with(RtcFields.META_TITLE, request.getTitle())
+                            .with(RtcFields.META_CREATED_AT, System.currentTimeMillis())
+                            .with(RtcFields.META_MEDIA_NODE, mediaUrl), REDIS_TTL_SECONDS),
+                    // 8.2 成员列表 (Set) - 添加发起人
+                    rtcReactiveOperations.setAdd(RtcKeys.roomMembers(roomName), currentUserId, REDIS_TTL_SECONDS),
+                    // 8.3 发起人详情 (Hash)
+                    rtcReactiveOperations.putAll(RtcKeys.roomMember(roomName, currentUserId),
+                            memberFields("host"), REDIS_TTL_SECONDS),
+                    // 8.4 用户会话映射 (String)
+                    rtcReactiveOperations.set(RtcKeys.userSession(currentUserId), roomName, REDIS_TTL_SECONDS)
+            ));
+
+            // 9. 更新监控指标，发起人计入媒体节点负载
+            mediaAdapter.participantJoined(roomName);
             metricsConfig.incrementTotalCalls();
             metricsConfig.incrementActiveCalls();
 
             log.info("发起通话成功 - 用户: {}, 房间: {}, 类型: {}, Redis结构已完善",
                 currentUserId, roomName, request.getSessionType());
 
-            // 获取 LiveKit URL (从适配器)
-            String liveKitUrl = (mediaAdapter instanceof com.phoenix.rtc.adapter.LiveKitAdapter) ?
-                ((com.phoenix.rtc.adapter.LiveKitAdapter) mediaAdapter).getLiveKitUrl() : "ws://localhost:7880";
-
             return TokenResponse.builder()
-                    .url(liveKitUrl)
+                    .url(mediaUrl)
                     .token(token)
                     .roomName(roomName)
                     .roomTitle(request.getTitle())
@@ -210,19 +203,23 @@ public class RoomService {
      * 修复: 将 Token 生成移出 @Transactional 范围
      */
     public TokenResponse joinCall(String roomName, String currentUserId) {
-        // 1. 查询房间信息 (只读操作，不需要事务)
-        RtcSession session = sessionRepository.findByRoomName(roomName)
-                .orElseThrow(() -> new RuntimeException("房间不存在: " + roomName));
+        // 1. 查询房间信息 (只读操作，走近端缓存，房间结束时失效)
+        RoomMetaCache.SessionSnapshot session = roomMetaCache.getSession(roomName);
+        if (session == null) {
+            throw new RuntimeException("房间不存在: " + roomName);
+        }
 
         // 2. 检查房间状态
-        if (!session.getStatus().equals(RtcSession.Status.ACTIVE.getCode())) {
+        if (!session.isActive()) {
             throw new RuntimeException("房间已结束或异常");
         }
 
         // 3. 在事务内处理参与者记录
-        boolean isNewParticipant = joinRoomInTransaction(session, currentUserId);
+        boolean isNewParticipant = joinRoomInTransaction(session.id(), currentUserId);
 
-        if (!isNewParticipant) {
+        if (isNewParticipant) {
+            mediaAdapter.participantJoined(roomName);
+        } else {
             log.warn("用户已加入房间，重新生成 Token - 用户: {}, 房间: {}", currentUserId, roomName);
         }
 
@@ -240,15 +237,14 @@ public class RoomService {
 
         log.info("加入通话成功 - 用户: {}, 房间: {}", currentUserId, roomName);
 
-        // 6. 获取 LiveKit URL
-        String liveKitUrl = (mediaAdapter instanceof com.phoenix.rtc.adapter.LiveKitAdapter) ?
-            ((com.phoenix.rtc.adapter.LiveKitAdapter) mediaAdapter).getLiveKitUrl() : "ws://localhost:7880";
+        // 6. 房间所在的媒体节点
+        String mediaUrl = mediaAdapter.getRoomUrl(roomName);
 
         return TokenResponse.builder()
-                .url(liveKitUrl)
+                .url(mediaUrl)
                 .token(token)
                 .roomName(roomName)
-                .roomTitle(session.getRoomTitle())
+                .roomTitle(session.roomTitle())
                 .expiresAt(System.currentTimeMillis() / 1000 + 3600)
                 .build();
     }
@@ -258,16 +254,16 @@ public class RoomService {
      * 返回是否为新参与者
      */
     @Transactional
-    private boolean joinRoomInTransaction(RtcSession session, String currentUserId) {
+    private boolean joinRoomInTransaction(Long sessionId, String currentUserId) {
         // 检查是否已加入
         boolean alreadyJoined = participantRepository
-                .findBySessionIdAndUserId(session.getId(), currentUserId)
+                .findBySessionIdAndUserId(sessionId, currentUserId)
                 .isPresent();
 
         if (!alreadyJoined) {
             // 添加到参与者列表
             RtcParticipant participant = RtcParticipant.builder()
-                    .sessionId(session.getId())
+                    .sessionId(sessionId)
                     .userId(currentUserId)
                     .joinTime(LocalDateTime.now())
                     .role("publisher")
@@ -283,27 +279,24 @@ public class RoomService {
      */
     private void updateRedisOnJoin(String roomName, String currentUserId) {
         try {
-            // 6.1 更新成员列表 (Set)
-            String roomMembersKey = String.format(ROOM_MEMBERS_KEY, roomName);
-            redisTemplate.opsForSet().add(roomMembersKey, currentUserId);
-            redisTemplate.expire(roomMembersKey, 2, TimeUnit.HOURS);
-
-            // 6.2 添加成员详情 (Hash)
-            String memberKey = String.format(ROOM_MEMBER_KEY, roomName, currentUserId);
-            redisTemplate.opsForHash().put(memberKey, "role", "publisher");
-            redisTemplate.opsForHash().put(memberKey, "joinedAt", System.currentTimeMillis());
-            redisTemplate.opsForHash().put(memberKey, "audioEnabled", true);
-            redisTemplate.opsForHash().put(memberKey, "videoEnabled", true);
-            redisTemplate.expire(memberKey, 2, TimeUnit.HOURS);
-
-            // 6.3 用户会话映射 (String)
-            String sessionKey = String.format(SESSION_KEY, currentUserId);
-            redisTemplate.opsForValue().set(sessionKey, roomName, 2, TimeUnit.HOURS);
-
-            // 6.4 更新房间元数据中的成员计数
-            String roomMetaKey = String.format(ROOM_META_KEY, roomName);
-            Long currentCount = redisTemplate.opsForHash().increment(roomMetaKey, "currentMembers", 1);
-            redisTemplate.expire(roomMetaKey, 2, TimeUnit.HOURS);
+            // 6.4 更新房间元数据中的成员计数 (结果需要返回，cache 后与其他写入一起订阅)
+            String roomMetaKey = RtcKeys.roomMeta(roomName);
+            Mono<Long> memberCount = rtcReactiveOperations
+                    .increment(roomMetaKey, RtcFields.META_CURRENT_MEMBERS, 1)
+                    .cache();
+
+            // 各组写入互不依赖，同时发出，只等待一次
+            Long currentCount = rtcReactiveOperations.await(Mono.when(
+                    // 6.1 更新成员列表 (Set)
+                    rtcReactiveOperations.setAdd(RtcKeys.roomMembers(roomName), currentUserId, REDIS_TTL_SECONDS),
+                    // 6.2 添加成员详情 (Hash)
+                    rtcReactiveOperations.putAll(RtcKeys.roomMember(roomName, currentUserId),
+                            memberFields("publisher"), REDIS_TTL_SECONDS),
+                    // 6.3 用户会话映射 (String)
+                    rtcReactiveOperations.set(RtcKeys.userSession(currentUserId), roomName, REDIS_TTL_SECONDS),
+                    memberCount,
+                    rtcReactiveOperations.expire(roomMetaKey, REDIS_TTL_SECONDS)
+            ).then(memberCount));
 
             log.debug("Redis 更新完成 - 房间: {}, 当前成员: {}", roomName, currentCount);
         } catch (Exception e) {
@@ -316,21 +309,16 @@ public class RoomService {
      * 离开通话
      * 使用 MediaAdapter 接口
      *
-     * 修复: 将外部 RPC 调用 (mediaAdapter.deleteRoom) 移出 @Transactional 范围
+     * 修复: 将外部 RPC 调用 (mediaAdapter.deleteRoom) 移出 @Transactional 范围；
+     * 媒体房间由 MediaRoomReaper 后台删除，离开只包含本服务自己的记账
      */
     public void leaveCall(String roomName, String currentUserId) {
         // 1. 在事务内处理数据库更新和 Redis 清理
         LeaveCallResult result = leaveRoomInTransaction(roomName, currentUserId);
 
-        // 2. 如果房间已空，异步删除 LiveKit 房间
+        // 2. 如果房间已空，登记删除 LiveKit 房间 (批量删除、失败重试、对账兜底)
         if (result.isRoomEmpty) {
-            try {
-                mediaAdapter.deleteRoom(roomName);
-                log.info("已删除 LiveKit 房间: {}", roomName);
-            } catch (Exception e) {
-                // 记录错误但不抛出，因为主业务已完成
-                log.error("删除 LiveKit 房间失败，请手动清理: {}", roomName, e);
-            }
+            mediaRoomReaper.enqueue(result.mediaUrl, roomName);
         }
     }
 
@@ -340,7 +328,7 @@ public class RoomService {
      */
     @Transactional
     private LeaveCallResult leaveRoomInTransaction(String roomName, String currentUserId) {
-        // 1. 查询会话
+        // 1. 查询会话 (要修改状态，在事务内读取实体，不用近端缓存的快照)
         RtcSession session = sessionRepository.findByRoomName(roomName)
                 .orElseThrow(() -> new RuntimeException("房间不存在"));
 
@@ -351,6 +339,7 @@ public class RoomService {
                     Integer duration = (int) (java.time.Duration.between(participant.getJoinTime(), now).getSeconds());
 
                     participantRepository.updateLeaveTime(participant.getId(), now, duration);
+                    mediaAdapter.participantLeft(roomName);
                 });
 
         // 3. 检查房间是否还有人
@@ -362,64 +351,82 @@ public class RoomService {
             session.setStatus(RtcSession.Status.ENDED.getCode());
             sessionRepository.save(session);
 
+            // 房间所在节点可能记在房间元数据中，清理之前取出
+            String mediaUrl = mediaAdapter.getRoomUrl(roomName);
+
             // 5. 清理所有 Redis 缓存
-            String roomMetaKey = String.format(ROOM_META_KEY, roomName);
-            String roomMembersKey = String.format(ROOM_MEMBERS_KEY, roomName);
-            String memberKey = String.format(ROOM_MEMBER_KEY, roomName, currentUserId);
-            String sessionKey = String.format(SESSION_KEY, currentUserId);
+            String roomMetaKey = RtcKeys.roomMeta(roomName);
+            String roomMembersKey = RtcKeys.roomMembers(roomName);
+            String memberKey = RtcKeys.roomMember(roomName, currentUserId);
+            String sessionKey = RtcKeys.userSession(currentUserId);
+
+            // 房间维度的 Key 同一哈希标签，一次多 Key DEL，与会话 Key 同时发出
+            rtcReactiveOperations.await(Mono.when(
+                    rtcReactiveOperations.delete(List.of(roomMetaKey, roomMembersKey, memberKey)),
+                    rtcReactiveOperations.delete(List.of(sessionKey))
+            ));
 
-            redisTemplate.delete(roomMetaKey);
-            redisTemplate.delete(roomMembersKey);
-            redisTemplate.delete(memberKey);
-            redisTemplate.delete(sessionKey);
+            // 通知各节点近端缓存失效
+            roomMetaCache.invalidate(roomName);
 
             // 6. 更新监控指标 - 减少活跃通话数
             metricsConfig.decrementActiveCalls();
 
             log.info("房间已空，结束会话并清理Redis - 房间: {}", roomName);
-            return new LeaveCallResult(true, 0);
+            return new LeaveCallResult(true, 0, mediaUrl);
         } else {
-            // 6. 房间还有人，只清理当前用户的缓存
-            // 6.1 从成员列表移除
-            String roomMembersKey = String.format(ROOM_MEMBERS_KEY, roomName);
-            redisTemplate.opsForSet().remove(roomMembersKey, currentUserId);
-
-            // 6.2 删除成员详情
-            String memberKey = String.format(ROOM_MEMBER_KEY, roomName, currentUserId);
-            redisTemplate.delete(memberKey);
-
-            // 6.3 删除用户会话映射
-            String sessionKey = String.format(SESSION_KEY, currentUserId);
-            redisTemplate.delete(sessionKey);
-
-            // 6.4 更新房间成员计数
-            String roomMetaKey = String.format(ROOM_META_KEY, roomName);
-            redisTemplate.opsForHash().increment(roomMetaKey, "currentMembers", -1);
+            // 6. 房间还有人，只清理当前用户的缓存 (同时发出)
+            rtcReactiveOperations.await(Mono.when(
+                    // 6.1 从成员列表移除
+                    rtcReactiveOperations.setRemove(RtcKeys.roomMembers(roomName), currentUserId),
+                    // 6.2 删除成员详情
+                    rtcReactiveOperations.delete(List.of(RtcKeys.roomMember(roomName, currentUserId))),
+                    // 6.3 删除用户会话映射
+                    rtcReactiveOperations.delete(List.of(RtcKeys.userSession(currentUserId))),
+                    // 6.4 更新房间成员计数
+                    rtcReactiveOperations.increment(RtcKeys.roomMeta(roomName), RtcFields.META_CURRENT_MEMBERS, -1)
+            ));
 
             log.info("用户离开通话 - 用户: {}, 房间: {}, 剩余成员: {}", currentUserId, roomName, onlineCount - 1);
-            return new LeaveCallResult(false, onlineCount - 1);
+            return new LeaveCallResult(false, onlineCount - 1, null);
         }
     }
 
+    /**
+     * 成员详情: 角色、加入时间、音视频开关 (默认开启)
+     */
+    private static FieldValues memberFields(String role) {
+        return FieldValues.create()
+                .with(RtcFields.MEMBER_ROLE, role)
+                .with(RtcFields.MEMBER_JOINED_AT, System.currentTimeMillis())
+                .with(RtcFields.MEMBER_AUDIO, true)
+                .with(RtcFields.MEMBER_VIDEO, true);
+    }
+
     /**
      * 离开通话的结果
      */
     private static class LeaveCallResult {
         final boolean isRoomEmpty;
         final int remainingMembers;
+        final String mediaUrl;
 
-        LeaveCallResult(boolean isRoomEmpty, int remainingMembers) {
+        LeaveCallResult(boolean isRoomEmpty, int remainingMembers, String mediaUrl) {
             this.isRoomEmpty = isRoomEmpty;
             this.remainingMembers = remainingMembers;
+            this.mediaUrl = mediaUrl;
         }
     }
 
     /**
      * 查询房间信息
      */
-    public RtcSession getRoomInfo(String roomName) {
-        return sessionRepository.findByRoomName(roomName)
-                .orElseThrow(() -> new RuntimeException("房间不存在"));
+    public RoomMetaCache.SessionSnapshot getRoomInfo(String roomName) {
+        RoomMetaCache.SessionSnapshot session = roomMetaCache.getSession(roomName);
+        if (session == null) {
+            throw new RuntimeException("房间不存在");
+        }
+        return session;
     }
 
     /**
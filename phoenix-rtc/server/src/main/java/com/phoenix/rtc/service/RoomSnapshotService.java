@@ -0,0 +1,163 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.model.dto.WSMessage;
+import com.phoenix.rtc.redis.RtcHashOperations;
+import com.phoenix.rtc.redis.RtcKeys;
+import com.phoenix.rtc.redis.codec.FieldValues;
+import com.phoenix.rtc.redis.codec.RtcFields;
+import com.phoenix.rtc.service.RoomSubscriptionRegistry.Subscriber;
+import com.phoenix.rtc.statemachine.CallState;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 房间快照服务
+ * 客户端订阅 /topic/room/{roomName} 时推送一次房间快照 (成员、角色、音视频开关、通话状态、房间版本号)，
+ * 之后的房间广播都携带递增的版本号，客户端据此发现丢失的广播并重新订阅，不再轮询房间/状态接口。
+ *
+ * 版本号语义: 快照反映的房间状态不早于其版本号；成员广播是幂等的增量，
+ * 快照之后到达的、版本号不大于快照版本的广播可以直接丢弃，重复应用也不会出错。
+ */
+@Service
+@Slf4j
+public class RoomSnapshotService {
+
+    private static final String VERSION_FIELD = RtcFields.META_VERSION.getName();
+
+    // 房间已结束 (元数据不存在) 时不递增，避免重建出没有 TTL 的元数据
+    private static final DefaultRedisScript<Long> NEXT_VERSION = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then return -1 end " +
+            "return redis.call('hincrby', KEYS[1], ARGV[1], 1)",
+            Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RtcHashOperations rtcHashOperations;
+    private final RoomFanoutService roomFanoutService;
+    private final Timer snapshotTimer;
+
+    public RoomSnapshotService(RedisTemplate<String, Object> redisTemplate,
+                               RtcHashOperations rtcHashOperations,
+                               RoomFanoutService roomFanoutService,
+                               MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.rtcHashOperations = rtcHashOperations;
+        this.roomFanoutService = roomFanoutService;
+        this.snapshotTimer = Timer.builder("rtc.ws.room.snapshot")
+                .description("构建房间快照耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 订阅房间主题时推送快照
+     * 订阅事件在入站通道线程触发，快照排入房间的扇出通道，在扇出线程池上读取 Redis 并投递，
+     * 不会晚于之后的增量广播到达
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(RoomSubscriptionRegistry.ROOM_TOPIC_PREFIX)) {
+            return;
+        }
+        String roomName = destination.substring(RoomSubscriptionRegistry.ROOM_TOPIC_PREFIX.length());
+        if (roomName.isEmpty() || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+
+        Subscriber subscriber = new Subscriber(accessor.getSessionId(), accessor.getSubscriptionId());
+        roomFanoutService.sendToSubscriber(roomName, subscriber, () -> snapshotMessage(roomName, subscriber));
+    }
+
+    private WSMessage snapshotMessage(String roomName, Subscriber subscriber) {
+        try {
+            RoomSnapshot snapshot = snapshot(roomName);
+            WSMessage message = WSMessage.success("room_snapshot", snapshot);
+            message.setVersion(snapshot.version());
+            log.debug("推送房间快照 - 房间: {}, 会话: {}, 成员: {}, 版本: {}",
+                    roomName, subscriber.sessionId(), snapshot.members().size(), snapshot.version());
+            return message;
+        } catch (Exception e) {
+            log.warn("推送房间快照失败 - 房间: {}, 会话: {}: {}", roomName, subscriber.sessionId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 递增房间版本号，房间广播前调用
+     *
+     * @return 新版本号，房间不存在时返回 null
+     */
+    public Long nextVersion(String roomName) {
+        Long version = redisTemplate.execute(NEXT_VERSION,
+                List.of(RtcKeys.roomMeta(roomName)), VERSION_FIELD);
+        return version == null || version < 0 ? null : version;
+    }
+
+    /**
+     * 构建房间快照
+     * 固定两次 Redis 往返: 版本号+成员列表，成员详情+通话状态
+     */
+    public RoomSnapshot snapshot(String roomName) {
+        return snapshotTimer.record(() -> {
+            List<Object> head = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    operations.opsForHash().get(RtcKeys.roomMeta(roomName), VERSION_FIELD);
+                    operations.opsForSet().members(RtcKeys.roomMembers(roomName));
+                    return null;
+                }
+            });
+
+            long version = head.get(0) != null ? Long.parseLong(head.get(0).toString()) : 0L;
+            List<String> userIds = new ArrayList<>();
+            if (head.get(1) instanceof Collection<?> members) {
+                members.forEach(member -> userIds.add(member.toString()));
+            }
+            userIds.sort(null);
+            if (userIds.isEmpty()) {
+                return new RoomSnapshot(roomName, version, List.of());
+            }
+
+            List<String> keys = new ArrayList<>(userIds.size() * 2);
+            for (String userId : userIds) {
+                keys.add(RtcKeys.roomMember(roomName, userId));
+                keys.add(RtcKeys.callState(roomName, userId));
+            }
+            List<FieldValues> details = rtcHashOperations.entries(keys);
+
+            List<MemberSnapshot> members = new ArrayList<>(userIds.size());
+            for (int i = 0; i < userIds.size(); i++) {
+                FieldValues member = details.get(i * 2);
+                FieldValues state = details.get(i * 2 + 1);
+                members.add(new MemberSnapshot(
+                        userIds.get(i),
+                        member.get(RtcFields.MEMBER_ROLE),
+                        member.get(RtcFields.MEMBER_AUDIO, true),
+                        member.get(RtcFields.MEMBER_VIDEO, true),
+                        state.get(RtcFields.STATE, CallState.IDLE).getCode()
+                ));
+            }
+            return new RoomSnapshot(roomName, version, members);
+        });
+    }
+
+    public record RoomSnapshot(String roomName, long version, List<MemberSnapshot> members) {}
+
+    public record MemberSnapshot(String userId, String role, boolean audioEnabled, boolean videoEnabled, String state) {}
+}
@@ -0,0 +1,132 @@
+package com.phoenix.rtc.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 房间订阅注册表
+ * 监听 STOMP 订阅事件，维护 /topic/room/{roomName} 的订阅者列表，
+ * 供 RoomFanoutService 按分片直接投递
+ */
+@Component
+@Slf4j
+public class RoomSubscriptionRegistry {
+
+    public static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+
+    // roomName -> (sessionId:subscriptionId -> 订阅者)
+    private final Map<String, Map<String, Subscriber>> roomSubscribers = new ConcurrentHashMap<>();
+
+    // sessionId -> (subscriptionId -> roomName)，用于取消订阅和断线清理
+    private final Map<String, Map<String, String>> sessionRooms = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX)) {
+            return;
+        }
+        String roomName = destination.substring(ROOM_TOPIC_PREFIX.length());
+        add(roomName, accessor.getSessionId(), accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        remove(accessor.getSessionId(), accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        removeSession(event.getSessionId());
+    }
+
+    /**
+     * 登记订阅
+     */
+    public void add(String roomName, String sessionId, String subscriptionId) {
+        if (roomName.isEmpty() || sessionId == null || subscriptionId == null) {
+            return;
+        }
+        roomSubscribers.computeIfAbsent(roomName, k -> new ConcurrentHashMap<>())
+                .put(sessionId + ":" + subscriptionId, new Subscriber(sessionId, subscriptionId));
+        sessionRooms.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>())
+                .put(subscriptionId, roomName);
+        log.debug("房间订阅 - 房间: {}, 会话: {}", roomName, sessionId);
+    }
+
+    /**
+     * 取消单个订阅
+     */
+    public void remove(String sessionId, String subscriptionId) {
+        if (sessionId == null || subscriptionId == null) {
+            return;
+        }
+        Map<String, String> rooms = sessionRooms.get(sessionId);
+        if (rooms == null) {
+            return;
+        }
+        String roomName = rooms.remove(subscriptionId);
+        if (roomName != null) {
+            removeSubscriber(roomName, sessionId + ":" + subscriptionId);
+        }
+    }
+
+    /**
+     * 会话断开，清理该会话的全部房间订阅
+     */
+    public void removeSession(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        Map<String, String> rooms = sessionRooms.remove(sessionId);
+        if (rooms == null) {
+            return;
+        }
+        rooms.forEach((subscriptionId, roomName) ->
+                removeSubscriber(roomName, sessionId + ":" + subscriptionId));
+    }
+
+    private void removeSubscriber(String roomName, String key) {
+        roomSubscribers.computeIfPresent(roomName, (name, subscribers) -> {
+            subscribers.remove(key);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    /**
+     * 获取房间订阅者快照
+     */
+    public List<Subscriber> getSubscribers(String roomName) {
+        Map<String, Subscriber> subscribers = roomSubscribers.get(roomName);
+        return subscribers == null ? List.of() : List.copyOf(subscribers.values());
+    }
+
+    /**
+     * 房间订阅者数量
+     */
+    public int getSubscriberCount(String roomName) {
+        Map<String, Subscriber> subscribers = roomSubscribers.get(roomName);
+        return subscribers == null ? 0 : subscribers.size();
+    }
+
+    /**
+     * 当前有订阅者的房间
+     */
+    public Set<String> getRooms() {
+        return Set.copyOf(roomSubscribers.keySet());
+    }
+
+    public record Subscriber(String sessionId, String subscriptionId) {}
+}
@@ -45,6 +45,15 @@ public class StateManagementService {
         return stateMachine.setState(roomName, userId, CallState.NO_ANSWER);
     }
 
+    /**
+     * 振铃超时: 无应答并清除状态
+     */
+    public boolean ringTimeout(String roomName, String userId) {
+        boolean success = stateMachine.setState(roomName, userId, CallState.NO_ANSWER);
+        stateMachine.clearState(roomName, userId);
+        return success;
+    }
+
     /**
      * 连接成功
      */
@@ -92,6 +101,13 @@ public class StateManagementService {
         return stateMachine.getStateHistory(roomName, userId);
     }
 
+    /**
+     * 获取当前状态和状态历史 (两个读取同时发出)
+     */
+    public CallStateMachine.StateSnapshot getStateSnapshot(String roomName, String userId) {
+        return stateMachine.getStateSnapshot(roomName, userId);
+    }
+
     /**
      * 清除房间所有状态
      */
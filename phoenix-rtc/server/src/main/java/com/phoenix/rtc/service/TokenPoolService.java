@@ -0,0 +1,191 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.adapter.LiveKitTokenMinter;
+import com.phoenix.rtc.redis.RtcKeys;
+import com.phoenix.rtc.redis.RtcReactiveOperations;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大型直播预签 Token 池
+ * 预约的直播在开播前已知房间名和大致观众数，开播瞬间的加入洪峰如果逐个签发 Token，CPU 集中在峰值上。
+ * 开播前批量签发只能拉流的 (subscriber) Token 存入 Redis，加入时一次原子弹出，峰值期间不再签名。
+ *
+ * 1. 已报名观众: 以 userId 为身份签发，存入 rtc:{room}:tokens (Hash，userId -> Token)
+ * 2. 未报名观众: 以随机占位身份 (guest_xxx) 签发，存入 rtc:{room}:tokens:open (List)
+ * 3. 存储时去掉所有 Token 相同的 JWT 头，按批次 pipeline 写入
+ * 4. 取用为一个 Lua 脚本: 先按 userId 取已报名 Token；没有则弹出一个占位 Token，并写回 Hash 绑定到该用户，
+ *    同一用户重连拿到同一个身份，不会重复消耗
+ *
+ * Token 有效期覆盖开播前的等待时间 (有效期 = 距开播时长 + app.rtc.token.ttl-seconds)，Key 与 Token 同时过期
+ */
+@Service
+@Slf4j
+public class TokenPoolService {
+
+    static final String SUBSCRIBER = "subscriber";
+    static final String PLACEHOLDER_PREFIX = "guest_";
+
+    // 占位 Token 在 List 中的编码: 身份 + \u001F + 紧凑 Token
+    private static final char SEPARATOR = '\u001F';
+
+    // 返回 紧凑 Token (身份即 userId) 或 身份\u001F紧凑 Token (占位身份)，池为空时返回 nil
+    private static final DefaultRedisScript<String> TAKE_TOKEN = new DefaultRedisScript<>(
+            "local t = redis.call('hget', KEYS[1], ARGV[1]) " +
+            "if t then return t end " +
+            "local ttl = redis.call('ttl', KEYS[2]) " +
+            "local e = redis.call('lpop', KEYS[2]) " +
+            "if e then " +
+            "  redis.call('hset', KEYS[1], ARGV[1], e) " +
+            "  if ttl > 0 and redis.call('ttl', KEYS[1]) < 0 then redis.call('expire', KEYS[1], ttl) end " +
+            "end " +
+            "return e",
+            String.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RtcReactiveOperations rtcReactiveOperations;
+    private final LiveKitTokenMinter tokenMinter;
+    private final int batchSize;
+
+    private final Counter registeredHits;
+    private final Counter placeholderHits;
+    private final Counter misses;
+
+    public TokenPoolService(RedisTemplate<String, Object> redisTemplate,
+                            RtcReactiveOperations rtcReactiveOperations,
+                            LiveKitTokenMinter tokenMinter,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.rtc.token-pool.batch-size:500}") int batchSize) {
+        this.redisTemplate = redisTemplate;
+        this.rtcReactiveOperations = rtcReactiveOperations;
+        this.tokenMinter = tokenMinter;
+        this.batchSize = batchSize;
+        this.registeredHits = requests(meterRegistry, "registered");
+        this.placeholderHits = requests(meterRegistry, "placeholder");
+        this.misses = requests(meterRegistry, "miss");
+    }
+
+    /**
+     * 批量预签
+     *
+     * @param identities   已报名观众的 userId，可为空
+     * @param placeholders 额外预签的占位身份 Token 数
+     * @param validSeconds Token 及 Redis Key 的有效期
+     * @return 签发数量
+     */
+    public int prewarm(String roomName, Collection<String> identities, int placeholders, long validSeconds) {
+        String poolKey = RtcKeys.tokenPool(roomName);
+        String openKey = RtcKeys.tokenPoolOpen(roomName);
+
+        int minted = 0;
+        Map<String, Object> registered = new LinkedHashMap<>();
+        for (String userId : identities) {
+            registered.put(userId, LiveKitTokenMinter.detachHeader(
+                    tokenMinter.mint(userId, roomName, SUBSCRIBER, null, validSeconds)));
+            if (registered.size() == batchSize) {
+                minted += flush(poolKey, registered, List.of(), validSeconds);
+            }
+        }
+        minted += flush(poolKey, registered, List.of(), validSeconds);
+
+        List<Object> open = new ArrayList<>(Math.min(placeholders, batchSize));
+        for (int i = 0; i < placeholders; i++) {
+            String identity = PLACEHOLDER_PREFIX + Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+            open.add(identity + SEPARATOR + LiveKitTokenMinter.detachHeader(
+                    tokenMinter.mint(identity, roomName, SUBSCRIBER, null, validSeconds)));
+            if (open.size() == batchSize) {
+                minted += flush(openKey, Map.of(), open, validSeconds);
+            }
+        }
+        minted += flush(openKey, Map.of(), open, validSeconds);
+
+        log.info("直播 Token 预签完成 - 房间: {}, 已报名: {}, 占位: {}, 有效期: {}s",
+                roomName, identities.size(), placeholders, validSeconds);
+        return minted;
+    }
+
+    /**
+     * 取出 userId 的预签 Token，一次往返；房间没有 Token 池或已取完时为空 Mono
+     */
+    public Mono<PooledToken> take(String roomName, String userId) {
+        return rtcReactiveOperations.script(TAKE_TOKEN,
+                        List.of(RtcKeys.tokenPool(roomName), RtcKeys.tokenPoolOpen(roomName)), userId)
+                .map(value -> decode(userId, value))
+                .doOnSuccess(token -> {
+                    if (token == null) {
+                        misses.increment();
+                    } else if (token.identity().equals(userId)) {
+                        registeredHits.increment();
+                    } else {
+                        placeholderHits.increment();
+                    }
+                });
+    }
+
+    /**
+     * 一批写入一次 pipeline，写入后清空缓冲 (registered / open 只有一个非空)
+     */
+    private int flush(String key, Map<String, Object> registered, List<Object> open, long validSeconds) {
+        int size = registered.size() + open.size();
+        if (size == 0) {
+            return 0;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                if (!registered.isEmpty()) {
+                    operations.opsForHash().putAll(key, registered);
+                }
+                if (!open.isEmpty()) {
+                    operations.opsForList().rightPushAll(key, open);
+                }
+                operations.expire(key, validSeconds, TimeUnit.SECONDS);
+                return null;
+            }
+        });
+        if (!registered.isEmpty()) {
+            registered.clear();
+        } else {
+            open.clear();
+        }
+        return size;
+    }
+
+    static PooledToken decode(String userId, String value) {
+        int separator = value.indexOf(SEPARATOR);
+        String identity = separator < 0 ? userId : value.substring(0, separator);
+        String token = LiveKitTokenMinter.attachHeader(separator < 0 ? value : value.substring(separator + 1));
+        return new PooledToken(identity, token, LiveKitTokenMinter.expiresAt(token));
+    }
+
+    private static Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("rtc.token.pool.requests")
+                .description("预签 Token 池取用次数")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * 预签 Token 及其在媒体房间中的身份 (占位 Token 的身份与 userId 不同)，expiresAt 为 Token 的过期时间 (Unix 秒)
+     */
+    public record PooledToken(String identity, String token, long expiresAt) {
+    }
+}
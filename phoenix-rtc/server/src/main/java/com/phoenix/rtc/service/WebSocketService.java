@@ -1,15 +1,16 @@
 package com.phoenix.rtc.service;
 
+import com.phoenix.rtc.codec.WsFrame;
+import com.phoenix.rtc.codec.WsMessageCodec;
 import com.phoenix.rtc.model.dto.WSMessage;
+import com.phoenix.rtc.service.InviteService.Invite;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
-
 /**
  * WebSocket 服务
  * 负责处理 WebSocket 消息和推送
@@ -20,59 +21,71 @@ import java.util.concurrent.TimeUnit;
 public class WebSocketService {
 
     private final SimpMessagingTemplate messagingTemplate;
-    private final RedisTemplate<String, Object> redisTemplate;
-
-    private static final String INVITE_KEY = "rtc:invite:%s";  // 邀请缓存 (Hash)
+    private final RoomFanoutService roomFanoutService;
+    private final WsMessageCodec wsMessageCodec;
+    private final RoomSnapshotService roomSnapshotService;
 
     /**
      * 推送消息给指定用户
+     * 附带共享帧，协商了二进制编码的会话由出站拦截器转码
      */
     public void sendToUser(String userId, WSMessage message) {
         String destination = "/user/" + userId + "/queue/rtc";
-        messagingTemplate.convertAndSend(destination, message);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setHeader(WsFrame.HEADER, wsMessageCodec.frame(message));
+        accessor.setLeaveMutable(true);
+        messagingTemplate.convertAndSend(destination, message, accessor.getMessageHeaders());
         log.debug("推送消息给用户 {}: {}", userId, message);
     }
 
     /**
      * 推送消息到房间所有用户
+     * 交给扇出服务异步投递，版本号在房间通道内递增并写入消息，调用线程不访问 Redis
      */
     public void sendToRoom(String roomName, WSMessage message) {
-        String destination = "/topic/room/" + roomName;
-        messagingTemplate.convertAndSend(destination, message);
+        roomFanoutService.publish(roomName, message, roomSnapshotService::nextVersion);
         log.debug("推送消息到房间 {}: {}", roomName, message);
     }
 
     /**
-     * 推送呼叫邀请给被叫用户
-     * 同时缓存邀请信息到 Redis
+     * 构造 ringing 消息
      */
-    public void sendInvite(String targetUserId, String inviterId, String inviterName, String roomName, String mode, String title) {
-        // 生成邀请ID
-        String inviteId = UUID.randomUUID().toString();
-
-        // 1. 缓存邀请信息到 Redis (TTL 5分钟)
-        String inviteKey = String.format(INVITE_KEY, inviteId);
-        redisTemplate.opsForHash().put(inviteKey, "inviteId", inviteId);
-        redisTemplate.opsForHash().put(inviteKey, "targetUserId", targetUserId);
-        redisTemplate.opsForHash().put(inviteKey, "inviterId", inviterId);
-        redisTemplate.opsForHash().put(inviteKey, "inviterName", inviterName);
-        redisTemplate.opsForHash().put(inviteKey, "roomName", roomName);
-        redisTemplate.opsForHash().put(inviteKey, "mode", mode);
-        redisTemplate.opsForHash().put(inviteKey, "title", title);
-        redisTemplate.opsForHash().put(inviteKey, "timestamp", System.currentTimeMillis());
-        redisTemplate.expire(inviteKey, 5, TimeUnit.MINUTES);
-
-        // 2. 发送 WebSocket 消息
-        WSMessage message = WSMessage.builder()
+    public WSMessage ringing(Invite invite) {
+        return WSMessage.builder()
                 .type("rtc")
                 .cmd("ringing")
-                .data(new InviteData(inviterId, inviterName, roomName, mode, title, inviteId))
+                .data(new InviteData(invite.inviterId(), invite.inviterName(), invite.roomName(),
+                        invite.mode(), invite.title(), invite.inviteId()))
                 .timestamp(System.currentTimeMillis())
                 .build();
+    }
 
-        sendToUser(targetUserId, message);
+    /**
+     * 通知发起方被叫已拒绝
+     */
+    public void notifyPeerDeclined(String initiatorId, String targetUserId, String roomName) {
+        WSMessage message = WSMessage.builder()
+                .type("rtc")
+                .cmd("peer_declined")
+                .data(new AcceptData(targetUserId, roomName))
+                .timestamp(System.currentTimeMillis())
+                .build();
 
-        log.info("发送邀请并缓存 - 邀请ID: {}, 被叫: {}, 房间: {}", inviteId, targetUserId, roomName);
+        sendToUser(initiatorId, message);
+    }
+
+    /**
+     * 通知发起方某个被叫振铃超时未接听，通话仍在进行
+     */
+    public void notifyPeerNoAnswer(String initiatorId, String targetUserId, String roomName) {
+        WSMessage message = WSMessage.builder()
+                .type("rtc")
+                .cmd("peer_no_answer")
+                .data(new AcceptData(targetUserId, roomName))
+                .timestamp(System.currentTimeMillis())
+                .build();
+
+        sendToUser(initiatorId, message);
     }
 
     /**
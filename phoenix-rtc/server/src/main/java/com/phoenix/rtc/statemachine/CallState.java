@@ -6,34 +6,41 @@ package com.phoenix.rtc.statemachine;
  */
 public enum CallState {
     /** 空闲状态 */
-    IDLE("idle", "空闲"),
+    IDLE(0, "idle", "空闲"),
 
     /** 呼叫中 - 等待对方接听 */
-    CALLING("calling", "呼叫中"),
+    CALLING(1, "calling", "呼叫中"),
 
     /** 连接中 - 正在建立 WebRTC 连接 */
-    CONNECTING("connecting", "连接中"),
+    CONNECTING(2, "connecting", "连接中"),
 
     /** 已连接 - 通话正常进行 */
-    CONNECTED("connected", "已连接"),
+    CONNECTED(3, "connected", "已连接"),
 
     /** 已结束 - 通话终止 */
-    ENDED("ended", "已结束"),
+    ENDED(4, "ended", "已结束"),
 
     /** 拒绝 - 被叫拒绝 */
-    REJECTED("rejected", "已拒绝"),
+    REJECTED(5, "rejected", "已拒绝"),
 
     /** 无应答 - 被叫未接听 */
-    NO_ANSWER("no_answer", "无应答");
+    NO_ANSWER(6, "no_answer", "无应答");
 
+    // Redis 中存储的编号，固定不变: 新增状态使用新编号，不能复用或按声明顺序重排
+    private final int storageCode;
     private final String code;
     private final String description;
 
-    CallState(String code, String description) {
+    CallState(int storageCode, String code, String description) {
+        this.storageCode = storageCode;
         this.code = code;
         this.description = description;
     }
 
+    public int getStorageCode() {
+        return storageCode;
+    }
+
     public String getCode() {
         return code;
     }
@@ -42,6 +49,15 @@ public enum CallState {
         return description;
     }
 
+    public static CallState fromStorageCode(long storageCode) {
+        for (CallState state : values()) {
+            if (state.storageCode == storageCode) {
+                return state;
+            }
+        }
+        return IDLE;
+    }
+
     public static CallState fromCode(String code) {
         for (CallState state : values()) {
             if (state.code.equals(code)) {
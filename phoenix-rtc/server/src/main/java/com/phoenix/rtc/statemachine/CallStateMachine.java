@@ -1,10 +1,16 @@
 package com.phoenix.rtc.statemachine;
 
+import com.phoenix.rtc.redis.RtcKeys;
+import com.phoenix.rtc.redis.RtcReactiveOperations;
+import com.phoenix.rtc.redis.codec.FieldValues;
+import com.phoenix.rtc.redis.codec.RtcFields;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -12,16 +18,18 @@ import java.util.concurrent.TimeUnit;
  * 通话状态机
  * 管理通话的生命周期状态转换
  * 参考 n.md 状态机设计
+ *
+ * Redis 访问走 {@link RtcReactiveOperations}: 相互独立的命令同时发出，每个操作只等待一次
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class CallStateMachine {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RtcReactiveOperations rtcReactiveOperations;
 
-    private static final String STATE_KEY = "rtc:state:%s:%s";  // rtc:state:{roomName}:{userId}
-    private static final String STATE_HISTORY_KEY = "rtc:state:history:%s:%s";  // 历史记录
+    private static final long STATE_TTL_SECONDS = TimeUnit.HOURS.toSeconds(2);
+    private static final int HISTORY_SIZE = 10;
 
     /**
      * 状态转换规则
@@ -46,7 +54,7 @@ public class CallStateMachine {
      * @return 是否成功
      */
     public boolean setState(String roomName, String userId, CallState newState) {
-        String stateKey = String.format(STATE_KEY, roomName, userId);
+        String stateKey = RtcKeys.callState(roomName, userId);
 
         // 获取当前状态
         CallState currentState = getCurrentState(roomName, userId);
@@ -58,14 +66,17 @@ public class CallStateMachine {
             return false;
         }
 
-        // 保存状态到 Redis
-        redisTemplate.opsForHash().put(stateKey, "state", newState.getCode());
-        redisTemplate.opsForHash().put(stateKey, "timestamp", System.currentTimeMillis());
-        redisTemplate.opsForHash().put(stateKey, "roomName", roomName);
-        redisTemplate.expire(stateKey, 2, TimeUnit.HOURS);
-
-        // 记录状态历史
-        recordStateHistory(roomName, userId, currentState, newState);
+        // 状态、状态用户索引、状态历史三组写入互不依赖，同时发出，只等待一次
+        rtcReactiveOperations.await(Mono.when(
+            // 保存状态 (房间名已在 Key 中，不再重复存储)
+            rtcReactiveOperations.putAll(stateKey, FieldValues.create()
+                .with(RtcFields.STATE, newState)
+                .with(RtcFields.STATE_TIMESTAMP, System.currentTimeMillis()), STATE_TTL_SECONDS),
+            // 登记到房间的状态用户索引，整房清理时不再需要 KEYS 扫描
+            rtcReactiveOperations.setAdd(RtcKeys.callStateUsers(roomName), userId, STATE_TTL_SECONDS),
+            // 记录状态历史
+            recordStateHistory(roomName, userId, currentState, newState)
+        ));
 
         log.info("状态转换成功 - 房间: {}, 用户: {}, {} -> {}",
             roomName, userId, currentState.getDescription(), newState.getDescription());
@@ -77,15 +88,25 @@ public class CallStateMachine {
      * 获取当前状态
      */
     public CallState getCurrentState(String roomName, String userId) {
-        String stateKey = String.format(STATE_KEY, roomName, userId);
-
-        String stateCode = (String) redisTemplate.opsForHash().get(stateKey, "state");
+        return rtcReactiveOperations.await(getCurrentStateAsync(roomName, userId));
+    }
 
-        if (stateCode == null) {
-            return CallState.IDLE;
-        }
+    /**
+     * 获取当前状态 (非阻塞)，没有状态记录时为 IDLE
+     */
+    public Mono<CallState> getCurrentStateAsync(String roomName, String userId) {
+        return rtcReactiveOperations.get(RtcKeys.callState(roomName, userId), RtcFields.STATE)
+            .defaultIfEmpty(CallState.IDLE);
+    }
 
-        return CallState.fromCode(stateCode);
+    /**
+     * 当前状态 + 状态历史，两个读取同时发出
+     */
+    public StateSnapshot getStateSnapshot(String roomName, String userId) {
+        return rtcReactiveOperations.await(Mono.zip(
+                getCurrentStateAsync(roomName, userId),
+                getStateHistoryAsync(roomName, userId))
+            .map(tuple -> new StateSnapshot(tuple.getT1(), tuple.getT2())));
     }
 
     /**
@@ -113,8 +134,8 @@ public class CallStateMachine {
     /**
      * 记录状态历史
      */
-    private void recordStateHistory(String roomName, String userId, CallState from, CallState to) {
-        String historyKey = String.format(STATE_HISTORY_KEY, roomName, userId);
+    private Mono<Void> recordStateHistory(String roomName, String userId, CallState from, CallState to) {
+        String historyKey = RtcKeys.callStateHistory(roomName, userId);
 
         // 使用 List 保存历史记录，最多保留 10 条
         String entry = String.format("%d|%s->%s",
@@ -122,60 +143,62 @@ public class CallStateMachine {
             from != null ? from.getCode() : "null",
             to.getCode());
 
-        redisTemplate.opsForList().leftPush(historyKey, entry);
-        redisTemplate.opsForList().trim(historyKey, 0, 9);  // 保留最近 10 条
-        redisTemplate.expire(historyKey, 2, TimeUnit.HOURS);
+        return rtcReactiveOperations.listPushCapped(historyKey, entry, HISTORY_SIZE, STATE_TTL_SECONDS);
     }
 
     /**
      * 获取状态历史
      */
-    public java.util.List<String> getStateHistory(String roomName, String userId) {
-        String historyKey = String.format(STATE_HISTORY_KEY, roomName, userId);
-        Long size = redisTemplate.opsForList().size(historyKey);
-
-        if (size == null || size == 0) {
-            return java.util.List.of();
-        }
+    public List<String> getStateHistory(String roomName, String userId) {
+        return rtcReactiveOperations.await(getStateHistoryAsync(roomName, userId));
+    }
 
-        return redisTemplate.opsForList().range(historyKey, 0, size - 1)
-            .stream()
-            .map(obj -> (String) obj)
-            .toList();
+    /**
+     * 获取状态历史 (非阻塞)，一次 LRANGE 读完
+     */
+    public Mono<List<String>> getStateHistoryAsync(String roomName, String userId) {
+        return rtcReactiveOperations.listRange(RtcKeys.callStateHistory(roomName, userId));
     }
 
     /**
      * 清除状态
      */
     public void clearState(String roomName, String userId) {
-        String stateKey = String.format(STATE_KEY, roomName, userId);
-        String historyKey = String.format(STATE_HISTORY_KEY, roomName, userId);
+        String stateKey = RtcKeys.callState(roomName, userId);
+        String historyKey = RtcKeys.callStateHistory(roomName, userId);
 
-        redisTemplate.delete(stateKey);
-        redisTemplate.delete(historyKey);
+        // 同一房间哈希标签，一次多 Key DEL，与索引移除同时发出
+        rtcReactiveOperations.await(Mono.when(
+            rtcReactiveOperations.delete(List.of(stateKey, historyKey)),
+            rtcReactiveOperations.setRemove(RtcKeys.callStateUsers(roomName), userId)
+        ));
 
         log.debug("清除状态 - 房间: {}, 用户: {}", roomName, userId);
     }
 
     /**
      * 批量清除房间状态
+     * 通过房间的状态用户索引定位 Key，房间内所有 Key 同一槽位，一次 DEL 删除 (替代 KEYS 扫描)
      */
     public void clearRoomStates(String roomName) {
-        // 查找所有用户的状态键
-        String pattern = String.format("rtc:state:%s:*", roomName);
-        String historyPattern = String.format("rtc:state:history:%s:*", roomName);
-
-        // 删除所有匹配的键
-        var keys = redisTemplate.keys(pattern);
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
-        }
-
-        var historyKeys = redisTemplate.keys(historyPattern);
-        if (historyKeys != null && !historyKeys.isEmpty()) {
-            redisTemplate.delete(historyKeys);
-        }
+        String usersKey = RtcKeys.callStateUsers(roomName);
+
+        rtcReactiveOperations.await(rtcReactiveOperations.setMembers(usersKey)
+            .flatMap(userIds -> {
+                List<String> keys = new ArrayList<>(userIds.size() * 2 + 1);
+                keys.add(usersKey);
+                for (String userId : userIds) {
+                    keys.add(RtcKeys.callState(roomName, userId));
+                    keys.add(RtcKeys.callStateHistory(roomName, userId));
+                }
+                return rtcReactiveOperations.delete(keys);
+            }));
 
         log.info("清除房间所有状态 - 房间: {}", roomName);
     }
+
+    /**
+     * 当前状态与最近的状态历史
+     */
+    public record StateSnapshot(CallState state, List<String> history) {}
 }
@@ -0,0 +1,262 @@
+package com.phoenix.rtc.adapter;
+
+import com.phoenix.rtc.adapter.AsyncMediaAdapter.MediaRoom;
+import io.livekit.server.LiveKitServerClient;
+import io.livekit.server.RoomInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * LiveKitAdapter 异步接口单元测试
+ */
+class LiveKitAdapterTest {
+
+    private static final String NODE = "ws://livekit-1:7880";
+
+    private final LiveKitServerClient liveKitClient = mock(LiveKitServerClient.class);
+    private MediaCallGuard callGuard;
+    private SimpleMeterRegistry meterRegistry;
+    private LiveKitAdapter adapter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        callGuard = new MediaCallGuard(new SimpleAsyncTaskExecutor("test-media-"), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(callGuard, "maxAttempts", 1);
+        ReflectionTestUtils.setField(callGuard, "backoffBaseMs", 10L);
+        ReflectionTestUtils.setField(callGuard, "backoffMaxMs", 10L);
+        ReflectionTestUtils.setField(callGuard, "callTimeoutMs", 2_000L);
+        ReflectionTestUtils.setField(callGuard, "maxConcurrent", 32);
+        ReflectionTestUtils.setField(callGuard, "windowSize", 100);
+        ReflectionTestUtils.setField(callGuard, "minimumCalls", 100);
+        ReflectionTestUtils.setField(callGuard, "failureRatePercent", 50);
+        ReflectionTestUtils.setField(callGuard, "openMs", 1_000L);
+        ReflectionTestUtils.setField(callGuard, "halfOpenCalls", 1);
+
+        adapter = adapter(cluster(new MediaNode("ws://livekit-1:7880", 1000, liveKitClient)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        callGuard.shutdown();
+    }
+
+    @Test
+    void multiNode_RoomOperationsGoToPlacedNode() throws Exception {
+        LiveKitServerClient first = mock(LiveKitServerClient.class);
+        LiveKitServerClient second = mock(LiveKitServerClient.class);
+        RoomInfo room = mock(RoomInfo.class);
+        when(first.createRoom(any())).thenReturn(room);
+        when(second.createRoom(any())).thenReturn(room);
+        MediaCluster cluster = cluster(new MediaNode("ws://livekit-1:7880", 1000, first),
+                new MediaNode("ws://livekit-2:7880", 1000, second));
+        LiveKitAdapter clustered = adapter(cluster);
+
+        Map<String, String> urls = new HashMap<>();
+        for (int i = 0; i < 40; i++) {
+            String roomName = "room_" + i;
+            clustered.createRoomAsync(roomName, MediaAdapter.RoomConfig.builder().build()).get(1, TimeUnit.SECONDS);
+            urls.put(roomName, clustered.getRoomUrl(roomName));
+        }
+        for (Map.Entry<String, String> placed : urls.entrySet()) {
+            clustered.deleteRoomAsync(placed.getKey()).get(1, TimeUnit.SECONDS);
+
+            LiveKitServerClient owner = placed.getValue().equals("ws://livekit-1:7880") ? first : second;
+            LiveKitServerClient other = owner == first ? second : first;
+            verify(owner).deleteRoom(placed.getKey());
+            verify(other, never()).deleteRoom(placed.getKey());
+        }
+        // 两个节点都分到了房间，删除后计数归零
+        verify(first, atLeastOnce()).createRoom(any());
+        verify(second, atLeastOnce()).createRoom(any());
+        assertEquals(0, cluster.getNode("ws://livekit-1:7880").getRooms());
+        assertEquals(0, cluster.getNode("ws://livekit-2:7880").getRooms());
+    }
+
+    @Test
+    void createRoomAsync_FailureReleasesPlacement() {
+        when(liveKitClient.createRoom(any())).thenThrow(new IllegalStateException("500"));
+        MediaCluster cluster = cluster(new MediaNode("ws://livekit-1:7880", 1000, liveKitClient));
+        LiveKitAdapter single = adapter(cluster);
+
+        assertThrows(Exception.class, () -> single.createRoomAsync("room_1", MediaAdapter.RoomConfig.builder().build())
+                .get(1, TimeUnit.SECONDS));
+        assertEquals(0, cluster.getNode("ws://livekit-1:7880").getRooms());
+    }
+
+    @Test
+    void createRoomAsync_DoesNotBlockCaller() throws Exception {
+        RoomInfo room = mock(RoomInfo.class);
+        when(liveKitClient.createRoom(any())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return room;
+        });
+
+        long start = System.nanoTime();
+        CompletableFuture<RoomInfo> creation = adapter.createRoomAsync("room_1", MediaAdapter.RoomConfig.builder().build());
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        assertFalse(creation.isDone());
+        assertSame(room, creation.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void deleteRoomsAsync_BoundedParallelismAndReportsFailures() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        doAnswer(invocation -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(20);
+                if ("room_5".equals(invocation.getArgument(0))) {
+                    throw new IllegalStateException("404");
+                }
+                return null;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }).when(liveKitClient).deleteRoom(anyString());
+
+        List<MediaRoom> rooms = IntStream.range(0, 20).mapToObj(i -> new MediaRoom(NODE, "room_" + i)).toList();
+        List<MediaRoom> failed = adapter.deleteRoomsAsync(rooms).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(new MediaRoom(NODE, "room_5")), failed);
+        assertTrue(maxInFlight.get() <= 3, "同时在途的删除数 " + maxInFlight.get());
+        verify(liveKitClient, times(20)).deleteRoom(anyString());
+    }
+
+    @Test
+    void deleteRoomsAsync_RejectedCallsDoNotRecurse() throws Exception {
+        // 熔断打开后删除被同步拒绝，大批量也不会加深调用栈
+        ReflectionTestUtils.setField(callGuard, "minimumCalls", 1);
+        ReflectionTestUtils.setField(callGuard, "windowSize", 1);
+        doThrow(new IllegalStateException("connection refused")).when(liveKitClient).deleteRoom(anyString());
+
+        List<MediaRoom> rooms = IntStream.range(0, 20_000).mapToObj(i -> new MediaRoom(NODE, "room_" + i)).toList();
+        List<MediaRoom> failed = adapter.deleteRoomsAsync(rooms).get(10, TimeUnit.SECONDS);
+
+        assertEquals(20_000, failed.size());
+        assertEquals(CircuitBreaker.State.OPEN, callGuard.getState("ws://livekit-1:7880"));
+    }
+
+    @Test
+    void deleteRoomsAsync_DeletesOnRecordedNodeWithoutRelease() throws Exception {
+        LiveKitServerClient second = mock(LiveKitServerClient.class);
+        when(liveKitClient.createRoom(any())).thenReturn(mock(RoomInfo.class));
+        MediaCluster cluster = cluster(new MediaNode(NODE, 1000, liveKitClient),
+                new MediaNode("ws://livekit-2:7880", 1000, second));
+        LiveKitAdapter clustered = adapter(cluster);
+        clustered.createRoomOnAsync(NODE, "room_1", MediaAdapter.RoomConfig.builder().build()).get(1, TimeUnit.SECONDS);
+
+        // 登记的节点与当前放置记录无关，删除发往登记的节点
+        assertEquals(List.of(), clustered.deleteRoomsAsync(List.of(new MediaRoom("ws://livekit-2:7880", "room_1")))
+                .get(1, TimeUnit.SECONDS));
+        verify(second).deleteRoom("room_1");
+        verify(liveKitClient, never()).deleteRoom(anyString());
+        assertEquals(1, cluster.getNode(NODE).getRooms());
+
+        // 其他节点上的同名房间不扣除记账，记录所在节点的才扣除
+        clustered.releaseRoom(new MediaRoom("ws://livekit-2:7880", "room_1"));
+        assertEquals(1, cluster.getNode(NODE).getRooms());
+        clustered.releaseRoom(new MediaRoom(NODE, "room_1"));
+        assertEquals(0, cluster.getNode(NODE).getRooms());
+    }
+
+    @Test
+    void listRoomsAsync_SkipsFailedNode() throws Exception {
+        LiveKitServerClient down = mock(LiveKitServerClient.class);
+        RoomInfo room = mock(RoomInfo.class);
+        when(room.getName()).thenReturn("room_1");
+        when(liveKitClient.listRooms()).thenReturn(List.of(room));
+        when(down.listRooms()).thenThrow(new IllegalStateException("connection refused"));
+        LiveKitAdapter clustered = adapter(cluster(new MediaNode("ws://livekit-1:7880", 1000, liveKitClient),
+                new MediaNode("ws://livekit-2:7880", 1000, down)));
+
+        assertEquals(List.of(new MediaRoom(NODE, "room_1")), clustered.listRoomsAsync().get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void getRoomInfo_ConcurrentQueriesShareOneRequest() throws Exception {
+        RoomInfo room = mock(RoomInfo.class);
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        AtomicInteger requests = new AtomicInteger();
+        when(liveKitClient.getRoom("room_1")).thenAnswer(invocation -> {
+            requests.incrementAndGet();
+            release.get(2, TimeUnit.SECONDS);
+            return room;
+        });
+
+        List<CompletableFuture<RoomInfo>> queries = IntStream.range(0, 20)
+                .mapToObj(i -> adapter.getRoomInfoAsync("room_1"))
+                .toList();
+        release.complete(null);
+
+        for (CompletableFuture<RoomInfo> query : queries) {
+            assertSame(room, query.get(2, TimeUnit.SECONDS));
+        }
+        assertSame(room, adapter.getRoomInfo("room_1"));
+        assertEquals(1, requests.get());
+        assertEquals(1.0 / 21, meterRegistry.get("rtc.media.query.hit.ratio").tag("operation", "getRoomInfo").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void getRoomInfo_InvalidatedByCreateAndDelete() throws Exception {
+        RoomInfo room = mock(RoomInfo.class);
+        when(liveKitClient.getRoom("room_1")).thenReturn(room);
+        when(liveKitClient.createRoom(any())).thenReturn(room);
+
+        adapter.getRoomInfo("room_1");
+        adapter.createRoomAsync("room_1", MediaAdapter.RoomConfig.builder().build()).get(1, TimeUnit.SECONDS);
+        adapter.getRoomInfo("room_1");
+        verify(liveKitClient, times(2)).getRoom("room_1");
+
+        // 回收器按节点删除后不再返回缓存
+        assertEquals(List.of(), adapter.deleteRoomsAsync(List.of(new MediaRoom(NODE, "room_1"))).get(1, TimeUnit.SECONDS));
+        adapter.getRoomInfo("room_1");
+        verify(liveKitClient, times(3)).getRoom("room_1");
+
+        adapter.deleteRoomAsync("room_1").get(1, TimeUnit.SECONDS);
+        adapter.getRoomInfo("room_1");
+        verify(liveKitClient, times(4)).getRoom("room_1");
+    }
+
+    @Test
+    void getRoomInfo_FailureIsNotCached() throws Exception {
+        RoomInfo room = mock(RoomInfo.class);
+        when(liveKitClient.getRoom("room_1")).thenThrow(new IllegalStateException("unavailable")).thenReturn(room);
+
+        assertNull(adapter.getRoomInfoAsync("room_1").get(1, TimeUnit.SECONDS));
+        assertSame(room, adapter.getRoomInfo("room_1"));
+    }
+
+    private LiveKitAdapter adapter(MediaCluster cluster) {
+        LiveKitAdapter liveKitAdapter = new LiveKitAdapter(cluster,
+                new LiveKitTokenMinter("key", "secret_secret_secret_secret_32b", 60), callGuard,
+                new SimpleAsyncTaskExecutor("test-refresh-"), meterRegistry, 100, 60_000, 0);
+        ReflectionTestUtils.setField(liveKitAdapter, "liveKitUrl", "ws://livekit-1:7880");
+        ReflectionTestUtils.setField(liveKitAdapter, "batchParallelism", 3);
+        return liveKitAdapter;
+    }
+
+    private static MediaCluster cluster(MediaNode... nodes) {
+        MediaCluster.Policy policy = new MediaCluster.Policy(MediaCluster.Strategy.LEAST_LOADED, 160, 1.25, 1000, 0.5, 500, 0.25);
+        return new MediaCluster(List.of(nodes), policy, roomName -> null, 1000, 60_000, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,100 @@
+package com.phoenix.rtc.adapter;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LiveKitTokenMinter 单元测试
+ * 用 jjwt 独立校验签名与 claims，保证与 LiveKit 服务端的 JWT 解析兼容
+ */
+class LiveKitTokenMinterTest {
+
+    private static final String API_KEY = "APIxK3n8Qm2";
+    private static final String API_SECRET = "kR7vT2pW9sL4nB6xQ1zC8mF3hJ5dG0yA";
+
+    private final LiveKitTokenMinter minter = new LiveKitTokenMinter(API_KEY, API_SECRET, 7200);
+
+    @Test
+    void mint_SignatureAndClaims() {
+        long before = System.currentTimeMillis() / 1000;
+
+        Claims claims = parse(minter.mint("user_1", "room_abc", "host"));
+
+        assertEquals(API_KEY, claims.getIssuer());
+        assertEquals("user_1", claims.getSubject());
+        long nbf = claims.getNotBefore().getTime() / 1000;
+        assertTrue(nbf >= before);
+        assertEquals(nbf + 7200, claims.getExpiration().getTime() / 1000);
+
+        Map<?, ?> video = claims.get("video", Map.class);
+        assertEquals(true, video.get("roomJoin"));
+        assertEquals("room_abc", video.get("room"));
+        assertEquals(true, video.get("canPublish"));
+        assertEquals(true, video.get("canSubscribe"));
+        assertNull(claims.get("metadata"));
+    }
+
+    @Test
+    void mint_SubscriberCannotPublish() {
+        Map<?, ?> video = parse(minter.mint("viewer_1", "live_1", "subscriber")).get("video", Map.class);
+
+        assertEquals(false, video.get("canPublish"));
+        assertEquals(true, video.get("canSubscribe"));
+    }
+
+    @Test
+    void mint_EscapesJsonAndKeepsUnicode() {
+        String metadata = "{\"nick\":\"张三\",\"note\":\"a\\b\n\u0001\"}";
+
+        Claims claims = parse(minter.mint("用户\"1", "room\\1", "publisher", metadata, 60));
+
+        assertEquals("用户\"1", claims.getSubject());
+        assertEquals("room\\1", claims.get("video", Map.class).get("room"));
+        assertEquals(metadata, claims.get("metadata", String.class));
+    }
+
+    @Test
+    void expiresAt_ReadsExpClaim() {
+        String token = minter.mint("user_1", "room_abc", "subscriber", "{\"exp\":1}", 9000);
+
+        assertEquals(parse(token).getExpiration().getTime() / 1000, LiveKitTokenMinter.expiresAt(token));
+    }
+
+    @Test
+    void mint_WrongSecretRejected() {
+        String token = minter.mint("user_1", "room_abc", "host");
+
+        assertThrows(Exception.class, () -> Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(API_SECRET.replace('k', 'K').getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token));
+    }
+
+    @Test
+    void mint_PlatformAndVirtualThreadsProduceValidTokens() throws Exception {
+        try (var platform = Executors.newFixedThreadPool(4); var virtual = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> fromPlatform = platform.submit(() -> minter.mint("user_p", "room_1", "host"));
+            Future<String> fromVirtual = virtual.submit(() -> minter.mint("user_v", "room_1", "host"));
+
+            assertEquals("user_p", parse(fromPlatform.get()).getSubject());
+            assertEquals("user_v", parse(fromVirtual.get()).getSubject());
+        }
+    }
+
+    private static Claims parse(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(API_SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+}
@@ -0,0 +1,208 @@
+package com.phoenix.rtc.adapter;
+
+import com.phoenix.rtc.adapter.CircuitBreaker.State;
+import com.phoenix.rtc.exception.MediaUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MediaCallGuard 单元测试: 非阻塞重试、错误分类、熔断、舱壁、截止时间
+ */
+class MediaCallGuardTest {
+
+    private static final String NODE = "ws://livekit-1:7880";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MediaCallGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        guard = new MediaCallGuard(new SimpleAsyncTaskExecutor("test-io-"), meterRegistry);
+        ReflectionTestUtils.setField(guard, "maxAttempts", 3);
+        ReflectionTestUtils.setField(guard, "backoffBaseMs", 50L);
+        ReflectionTestUtils.setField(guard, "backoffMaxMs", 200L);
+        ReflectionTestUtils.setField(guard, "callTimeoutMs", 2_000L);
+        ReflectionTestUtils.setField(guard, "maxConcurrent", 2);
+        ReflectionTestUtils.setField(guard, "windowSize", 4);
+        ReflectionTestUtils.setField(guard, "minimumCalls", 4);
+        ReflectionTestUtils.setField(guard, "failureRatePercent", 50);
+        ReflectionTestUtils.setField(guard, "openMs", 100L);
+        ReflectionTestUtils.setField(guard, "halfOpenCalls", 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        guard.shutdown();
+    }
+
+    @Test
+    void retry_ScheduledWithoutBlockingCaller() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> result = guard.submit(NODE, "getRoomInfo", 3, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IllegalStateException("502 Bad Gateway");
+            }
+            return "room";
+        });
+
+        // submit 立即返回，重试在调度线程上进行
+        assertEquals("room", result.get(2, TimeUnit.SECONDS));
+        assertEquals(3, calls.get());
+        assertEquals(2, meterRegistry.counter("rtc.media.calls.retries", "operation", "getRoomInfo").count());
+    }
+
+    @Test
+    void retry_ExhaustedReportsAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () ->
+                guard.execute(NODE, "createRoom", 2, () -> {
+                    calls.incrementAndGet();
+                    throw new IllegalStateException("503");
+                }));
+
+        assertEquals(2, calls.get());
+        assertTrue(exception.getMessage().startsWith("createRoom 失败 (尝试 2 次)"), exception.getMessage());
+    }
+
+    @Test
+    void circuit_OpensAndFailsFastThenRecovers() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class, () -> guard.execute(NODE, "createRoom", 1, () -> {
+                throw new IllegalStateException("connection refused");
+            }));
+        }
+        assertEquals(State.OPEN, guard.getState(NODE));
+
+        // 熔断期间不发出调用
+        AtomicInteger calls = new AtomicInteger();
+        long start = System.nanoTime();
+        assertThrows(MediaUnavailableException.class, () -> guard.execute(NODE, "createRoom", () -> calls.incrementAndGet()));
+        assertEquals(0, calls.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, meterRegistry.counter("rtc.media.calls.rejected", "node", NODE, "reason", "circuit_open").count());
+
+        // open-ms 后放行探测调用，成功即恢复
+        Thread.sleep(150);
+        assertEquals(1, guard.execute(NODE, "createRoom", () -> calls.incrementAndGet()));
+        assertEquals(State.CLOSED, guard.getState(NODE));
+        assertEquals(1, meterRegistry.counter("rtc.media.circuit.transitions",
+                "node", NODE, "from", "CLOSED", "to", "OPEN").count());
+        assertEquals(1, meterRegistry.counter("rtc.media.circuit.transitions",
+                "node", NODE, "from", "HALF_OPEN", "to", "CLOSED").count());
+    }
+
+    @Test
+    void bulkhead_RejectsBeyondMaxConcurrent() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> first = guard.submit(NODE, "getRoomInfo", 1, () -> release.await(2, TimeUnit.SECONDS));
+        CompletableFuture<Object> second = guard.submit(NODE, "getRoomInfo", 1, () -> release.await(2, TimeUnit.SECONDS));
+
+        ExecutionException rejected = assertThrows(ExecutionException.class, () ->
+                guard.submit(NODE, "getRoomInfo", 1, () -> "third").get(1, TimeUnit.SECONDS));
+        assertInstanceOf(MediaUnavailableException.class, rejected.getCause());
+        assertEquals(1, meterRegistry.counter("rtc.media.calls.rejected", "node", NODE, "reason", "bulkhead_full").count());
+        assertEquals(2.0, meterRegistry.get("rtc.media.bulkhead.in.flight").gauge().value());
+
+        release.countDown();
+        first.get(1, TimeUnit.SECONDS);
+        second.get(1, TimeUnit.SECONDS);
+        assertEquals("fourth", guard.execute(NODE, "getRoomInfo", 1, () -> "fourth"));
+    }
+
+    @Test
+    void deadline_FailsSlowCallWithoutRetry() {
+        ReflectionTestUtils.setField(guard, "callTimeoutMs", 100L);
+        AtomicInteger calls = new AtomicInteger();
+
+        long start = System.nanoTime();
+        assertThrows(MediaUnavailableException.class, () -> guard.execute(NODE, "createRoom", () -> {
+            calls.incrementAndGet();
+            Thread.sleep(1_000);
+            return null;
+        }));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void retry_OnlyTransientErrors() {
+        AtomicInteger calls = new AtomicInteger();
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () ->
+                guard.execute(NODE, "createRoom", 3, () -> {
+                    calls.incrementAndGet();
+                    throw new IllegalStateException("twirp error already_exists: 房间已存在");
+                }));
+
+        assertEquals(1, calls.get());
+        assertTrue(exception.getMessage().startsWith("createRoom 失败 (尝试 1 次)"), exception.getMessage());
+        assertEquals(0, meterRegistry.counter("rtc.media.calls.retries", "operation", "createRoom").count());
+
+        assertTrue(MediaCallGuard.isRetryable(new IllegalStateException("twirp error unavailable")));
+        assertTrue(MediaCallGuard.isRetryable(new RuntimeException(new java.net.ConnectException("refused"))));
+        assertTrue(MediaCallGuard.isRetryable(new IllegalStateException("HTTP 429 Too Many Requests")));
+        assertFalse(MediaCallGuard.isRetryable(new IllegalStateException("404")));
+        assertFalse(MediaCallGuard.isRetryable(new IllegalStateException("not_found")));
+        assertFalse(MediaCallGuard.isRetryable(new IllegalArgumentException("房间名为空")));
+    }
+
+    @Test
+    void circuit_DeterministicErrorsDoNotOpen() {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class, () -> guard.execute(NODE, "deleteRoom", 1, () -> {
+                throw new IllegalStateException("twirp error not_found");
+            }));
+        }
+        assertEquals(State.CLOSED, guard.getState(NODE));
+    }
+
+    @Test
+    void retry_NeverRunsInlineOnRetryThread() {
+        // 线程池用尽时由提交线程执行 (CallerRuns): 首次尝试在调用线程上，重试会落到调度线程
+        MediaCallGuard callerRuns = new MediaCallGuard(new SimpleAsyncTaskExecutor("unused-") {
+            @Override
+            public void execute(Runnable task) {
+                task.run();
+            }
+        }, meterRegistry);
+        ReflectionTestUtils.setField(callerRuns, "backoffBaseMs", 10L);
+        ReflectionTestUtils.setField(callerRuns, "backoffMaxMs", 10L);
+        ReflectionTestUtils.setField(callerRuns, "callTimeoutMs", 2_000L);
+        ReflectionTestUtils.setField(callerRuns, "maxConcurrent", 2);
+        ReflectionTestUtils.setField(callerRuns, "windowSize", 4);
+        ReflectionTestUtils.setField(callerRuns, "minimumCalls", 4);
+        ReflectionTestUtils.setField(callerRuns, "failureRatePercent", 50);
+        ReflectionTestUtils.setField(callerRuns, "openMs", 100L);
+        ReflectionTestUtils.setField(callerRuns, "halfOpenCalls", 1);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        try {
+            CompletableFuture<Object> result = callerRuns.submit(NODE, "getRoomInfo", 3, () -> {
+                threads.add(Thread.currentThread().getName());
+                throw new IllegalStateException("503");
+            });
+
+            ExecutionException failed = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(MediaUnavailableException.class, failed.getCause());
+            assertEquals(List.of(Thread.currentThread().getName()), threads);
+        } finally {
+            callerRuns.shutdown();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.phoenix.rtc.adapter;
+
+import com.phoenix.rtc.adapter.MediaCluster.Policy;
+import com.phoenix.rtc.adapter.MediaCluster.Strategy;
+import com.phoenix.rtc.exception.MediaUnavailableException;
+import io.livekit.server.LiveKitServerClient;
+import io.livekit.server.RoomInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * MediaCluster 单元测试: 一致性哈希放置、有界负载、按负载放置、大房间预留、排空、定位
+ */
+class MediaClusterTest {
+
+    private static final Policy HASH = new Policy(Strategy.CONSISTENT_HASH, 160, 1.25, 1000, 0.5, 500, 0.25);
+    private static final Policy LEAST_LOADED = new Policy(Strategy.LEAST_LOADED, 160, 1.25, 1000, 0.5, 500, 0.25);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void place_SameRoomSameNodeAcrossInstances() {
+        // 两个实例配置相同，空载时同一房间落在同一节点
+        MediaCluster a = cluster(roomName -> null, node("ws://lk-1", 100), node("ws://lk-2", 100), node("ws://lk-3", 100));
+        MediaCluster b = cluster(roomName -> null, node("ws://lk-1", 100), node("ws://lk-2", 100), node("ws://lk-3", 100));
+
+        for (int i = 0; i < 50; i++) {
+            String roomName = "room_" + i;
+            assertEquals(a.place(roomName).getUrl(), b.place(roomName).getUrl());
+            a.release(roomName);
+            b.release(roomName);
+        }
+    }
+
+    @Test
+    void place_BoundedLoadSpreadsByCapacity() {
+        MediaCluster cluster = cluster(roomName -> null,
+                node("ws://lk-1", 1000), node("ws://lk-2", 1000), node("ws://lk-3", 2000));
+
+        for (int i = 0; i < 2000; i++) {
+            cluster.place("room_" + i);
+        }
+
+        // 上限 ceil(1.25 * 2000 * 容量 / 4000)，并发放置之外不会超出
+        assertTrue(cluster.getNode("ws://lk-1").getRooms() <= 625);
+        assertTrue(cluster.getNode("ws://lk-2").getRooms() <= 625);
+        assertTrue(cluster.getNode("ws://lk-3").getRooms() <= 1250);
+        assertTrue(cluster.getNode("ws://lk-3").getRooms() > cluster.getNode("ws://lk-1").getRooms());
+        assertEquals(2000, cluster.getNodes().stream().mapToInt(MediaNode::getRooms).sum());
+        assertTrue(meterRegistry.find("rtc.media.placements").tag("result", "spill").counters().stream()
+                .mapToDouble(c -> c.count()).sum() > 0, "首选节点超限后应顺延到下一个节点");
+    }
+
+    @Test
+    void place_NeverExceedsNodeCapacity() {
+        MediaCluster cluster = cluster(roomName -> null, node("ws://lk-1", 3), node("ws://lk-2", 3));
+
+        for (int i = 0; i < 6; i++) {
+            cluster.place("room_" + i);
+        }
+
+        assertEquals(3, cluster.getNode("ws://lk-1").getRooms());
+        assertEquals(3, cluster.getNode("ws://lk-2").getRooms());
+        MediaUnavailableException full = assertThrows(MediaUnavailableException.class, () -> cluster.place("room_6"));
+        assertTrue(full.getMessage().contains("满载"));
+    }
+
+    @Test
+    void drain_StopsNewPlacementsAndKeepsExistingRooms() {
+        MediaCluster cluster = cluster(roomName -> null, node("ws://lk-1", 100), node("ws://lk-2", 100));
+        for (int i = 0; i < 20; i++) {
+            cluster.place("room_" + i);
+        }
+        MediaNode drained = cluster.place("room_x");
+        int before = drained.getRooms();
+
+        assertTrue(cluster.drain(drained.getUrl()));
+        assertFalse(cluster.drain("ws://unknown"));
+        for (int i = 20; i < 60; i++) {
+            assertNotSame(drained, cluster.place("room_" + i));
+        }
+
+        // 已有房间仍定位到原节点
+        assertSame(drained, cluster.locate("room_x"));
+        assertEquals(before, drained.getRooms());
+
+        cluster.drain(cluster.getNodes().stream().filter(n -> n != drained).findFirst().orElseThrow().getUrl());
+        assertThrows(MediaUnavailableException.class, () -> cluster.place("room_y"));
+
+        cluster.undrain(drained.getUrl());
+        assertSame(drained, cluster.place("room_y"));
+    }
+
+    @Test
+    void locate_FallsBackToRoomMetaThenRing() {
+        Map<String, String> meta = Map.of("room_other_instance", "ws://lk-2");
+        MediaCluster cluster = cluster(meta::get, node("ws://lk-1", 100), node("ws://lk-2", 100));
+        MediaCluster sameRing = cluster(roomName -> null, node("ws://lk-1", 100), node("ws://lk-2", 100));
+
+        // 其他实例放置的房间从元数据定位；没有记录的旧房间取首选节点
+        assertEquals("ws://lk-2", cluster.locate("room_other_instance").getUrl());
+        assertEquals(sameRing.place("room_legacy").getUrl(), cluster.locate("room_legacy").getUrl());
+
+        MediaNode placed = cluster.place("room_1");
+        assertEquals(1, placed.getRooms());
+        cluster.release("room_1");
+        assertEquals(0, placed.getRooms());
+    }
+
+    @Test
+    void leastLoaded_FollowsParticipantLoad() {
+        MediaCluster cluster = new MediaCluster(List.of(node("ws://lk-1", 100, 1000), node("ws://lk-2", 100, 1000)),
+                LEAST_LOADED, roomName -> null, 10_000, 60_000, meterRegistry);
+
+        // 空载时交替放置
+        MediaNode first = cluster.place("room_a", 10);
+        MediaNode second = cluster.place("room_b", 10);
+        assertNotSame(first, second);
+
+        // room_a 上来了 300 人，之后的房间都去另一个节点
+        for (int i = 0; i < 300; i++) {
+            cluster.participantJoined("room_a");
+        }
+        assertEquals(300, first.getParticipants());
+        for (int i = 0; i < 20; i++) {
+            assertSame(second, cluster.place("room_" + i, 10));
+        }
+
+        // 人走了以后重新参与放置
+        for (int i = 0; i < 300; i++) {
+            cluster.participantLeft("room_a");
+        }
+        cluster.participantLeft("room_a");
+        assertEquals(0, first.getParticipants());
+        assertSame(first, cluster.place("room_c", 10));
+    }
+
+    @Test
+    void leastLoaded_LargeRoomReservesHeadroom() {
+        MediaCluster cluster = new MediaCluster(List.of(node("ws://lk-1", 100, 8000), node("ws://lk-2", 100, 8000)),
+                LEAST_LOADED, roomName -> null, 10_000, 60_000, meterRegistry);
+
+        // 万人直播预留 5000 人，小房间避开它
+        MediaNode live = cluster.place("live_1", 10_000);
+        assertEquals(5000, live.getReserved());
+        assertNotSame(live, cluster.place("room_1", 10));
+
+        // 第二个直播放到另一个节点；第三个放不下时拒绝，不挤进快满的节点
+        MediaNode otherLive = cluster.place("live_2", 10_000);
+        assertNotSame(live, otherLive);
+        MediaUnavailableException full = assertThrows(MediaUnavailableException.class, () -> cluster.place("live_3", 10_000));
+        assertTrue(full.getMessage().contains("大房间"));
+
+        // 观众到场抵扣预留，删除房间后全部归还
+        for (int i = 0; i < 3; i++) {
+            cluster.participantJoined("live_1");
+        }
+        assertEquals(3, live.getParticipants());
+        assertEquals(4997, live.getReserved());
+        cluster.release("live_1");
+        assertEquals(0, live.getParticipants());
+        assertEquals(0, live.getReserved());
+    }
+
+    @Test
+    void leastLoaded_PenalizesSlowCreateRoom() {
+        MediaCluster cluster = new MediaCluster(List.of(node("ws://lk-1", 100, 1000), node("ws://lk-2", 100, 1000)),
+                LEAST_LOADED, roomName -> null, 10_000, 60_000, meterRegistry);
+        MediaNode slow = cluster.getNode("ws://lk-1");
+        cluster.recordCreateLatency(slow, 2_000_000_000L);
+
+        for (int i = 0; i < 10; i++) {
+            assertNotSame(slow, cluster.place("room_" + i, 10));
+        }
+        assertEquals(2000, slow.getCreateLatencyMs(), 0.1);
+    }
+
+    @Test
+    void sample_CalibratesRoomsParticipantsAndReservation() {
+        MediaCluster cluster = new MediaCluster(List.of(node("ws://lk-1", 100, 20_000)),
+                LEAST_LOADED, roomName -> null, 10_000, 60_000, meterRegistry);
+        MediaNode node = cluster.place("live_1", 10_000);
+        cluster.participantJoined("live_1");
+
+        // LiveKit 上实际有 1200 人 (含其他实例记账的观众)，另有一个本实例不知道的房间
+        cluster.sample(node, List.of(room("live_1", 1200), room("room_other", 4)));
+
+        assertEquals(2, node.getRooms());
+        assertEquals(1204, node.getParticipants());
+        assertEquals(3800, node.getReserved());
+        assertEquals((1204 + 3800) / 20_000.0, cluster.getScore(node), 1e-9);
+    }
+
+    @Test
+    void sample_DropsReservationOfExpiredPlacement() throws Exception {
+        MediaCluster cluster = new MediaCluster(List.of(node("ws://lk-1", 100, 20_000)),
+                LEAST_LOADED, roomName -> null, 10_000, 50, meterRegistry);
+        MediaNode node = cluster.place("live_1", 10_000);
+        assertEquals(5000, node.getReserved());
+
+        // 放置记录过期后 release 扣不到预留，采样时按仍有记录的房间重算
+        Thread.sleep(80);
+        cluster.release("live_1");
+        assertEquals(5000, node.getReserved());
+        cluster.sample(node, List.of());
+
+        assertEquals(0, node.getReserved());
+        assertEquals(0.0, cluster.getScore(node), 1e-9);
+    }
+
+    @Test
+    void leastLoaded_SkipsDrainingNode() {
+        MediaCluster cluster = new MediaCluster(List.of(node("ws://lk-1", 100, 1000), node("ws://lk-2", 100, 1000)),
+                LEAST_LOADED, roomName -> null, 10_000, 60_000, meterRegistry);
+        cluster.drain("ws://lk-2");
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("ws://lk-1", cluster.place("room_" + i).getUrl());
+        }
+        assertEquals(Double.POSITIVE_INFINITY, cluster.getScore(cluster.getNode("ws://lk-2")));
+    }
+
+    private MediaCluster cluster(Function<String, String> lookup, MediaNode... nodes) {
+        return new MediaCluster(List.of(nodes), HASH, lookup, 10_000, 60_000, meterRegistry);
+    }
+
+    private static MediaNode node(String url, int capacity, int participantCapacity) {
+        return new MediaNode(url, capacity, participantCapacity, mock(LiveKitServerClient.class));
+    }
+
+    private static RoomInfo room(String name, int participants) {
+        RoomInfo room = mock(RoomInfo.class);
+        when(room.getName()).thenReturn(name);
+        when(room.getNumParticipants()).thenReturn(participants);
+        return room;
+    }
+
+    private static MediaNode node(String url, int capacity) {
+        return new MediaNode(url, capacity, mock(LiveKitServerClient.class));
+    }
+}
@@ -0,0 +1,188 @@
+package com.phoenix.rtc.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CoalescingCache 单元测试: 合并并发加载、陈旧值后台刷新、失败不缓存、失效丢弃在途加载
+ */
+class CoalescingCacheTest {
+
+    @Test
+    void get_ConcurrentMissesShareOneLoad() throws Exception {
+        CoalescingCache<String, String> cache = new CoalescingCache<>(100, 60_000, 0, Runnable::run);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(pool.submit(() -> cache.get("room1", key -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "info-" + key;
+            })));
+            assertTrue(loading.await(2, TimeUnit.SECONDS));
+            for (int i = 0; i < 15; i++) {
+                results.add(pool.submit(() -> cache.get("room1", key -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            // 等其余调用方都挂到在途加载上
+            long deadline = System.currentTimeMillis() + 2000;
+            while (cache.coalescedCount() < 15 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("info-room1", result.get(2, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.missCount());
+        assertEquals(15, cache.coalescedCount());
+        assertEquals(15 / 16.0, cache.coalescingRatio(), 1e-9);
+        assertEquals("info-room1", cache.get("room1", key -> "reloaded"));
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    void get_StaleValueServedWhileRevalidating() throws Exception {
+        List<Runnable> refreshes = new ArrayList<>();
+        CoalescingCache<String, String> cache = new CoalescingCache<>(100, 20, 60_000, refreshes::add);
+        cache.get("room1", key -> "v1");
+        Thread.sleep(40);
+
+        // 陈旧窗口内: 立即返回旧值，只提交一次后台刷新
+        assertEquals("v1", cache.get("room1", key -> "v2"));
+        assertEquals("v1", cache.get("room1", key -> "v2"));
+        assertEquals(2, cache.staleHitCount());
+        assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+        assertEquals("v2", cache.get("room1", key -> "v3"));
+        assertEquals(0.75, cache.hitRatio(), 1e-9);
+        assertEquals(2, cache.loadCount());
+    }
+
+    @Test
+    void get_ExpiredAfterStaleWindow() throws Exception {
+        CoalescingCache<String, String> cache = new CoalescingCache<>(100, 10, 10, Runnable::run);
+        cache.get("room1", key -> "v1");
+        Thread.sleep(40);
+
+        assertEquals("v2", cache.get("room1", key -> "v2"));
+        assertEquals(0, cache.staleHitCount());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    void get_FailureAndNullAreNotCached() {
+        CoalescingCache<String, String> cache = new CoalescingCache<>(100, 60_000, 0, Runnable::run);
+
+        assertThrows(IllegalStateException.class, () -> cache.get("room1", key -> {
+            throw new IllegalStateException("unavailable");
+        }));
+        assertNull(cache.get("room1", key -> null));
+        assertEquals("v1", cache.get("room1", key -> "v1"));
+        assertEquals(3, cache.loadCount());
+
+        cache.invalidate("room1");
+        assertEquals("v2", cache.get("room1", key -> "v2"));
+    }
+
+    @Test
+    void get_FailedRefreshKeepsStaleValue() throws Exception {
+        CoalescingCache<String, String> cache = new CoalescingCache<>(100, 20, 60_000, Runnable::run);
+        cache.get("room1", key -> "v1");
+        Thread.sleep(40);
+
+        assertEquals("v1", cache.get("room1", key -> {
+            throw new IllegalStateException("unavailable");
+        }));
+        // 刷新成功后才换成新值
+        assertEquals("v1", cache.get("room1", key -> "v2"));
+        assertEquals("v2", cache.get("room1", key -> "v3"));
+    }
+
+    @Test
+    void invalidate_LoadStartedBeforeIsNotCached() throws Exception {
+        CoalescingCache<String, String> cache = new CoalescingCache<>(100, 60_000, 0, Runnable::run);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> stale = pool.submit(() -> cache.get("room1", key -> {
+                loading.countDown();
+                await(release);
+                return "before";
+            }));
+            assertTrue(loading.await(2, TimeUnit.SECONDS));
+            cache.invalidate("room1");
+            // 失效后不再合并到旧的在途加载
+            assertEquals("after", cache.get("room1", key -> "after"));
+            release.countDown();
+
+            assertEquals("before", stale.get(2, TimeUnit.SECONDS));
+            assertEquals("after", cache.get("room1", key -> "other"));
+            assertEquals(1, cache.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void getAsync_CoalescesWithoutBlockingAndDropsInvalidatedLoad() throws Exception {
+        CoalescingCache<String, String> cache = new CoalescingCache<>(100, 60_000, 0, Runnable::run);
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> first = cache.getAsync("room1", key -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<String> second = cache.getAsync("room1", key -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        assertFalse(first.isDone());
+        assertEquals(1, cache.coalescedCount());
+
+        cache.invalidate("room1");
+        pending.complete("before");
+        assertEquals("before", first.get(1, TimeUnit.SECONDS));
+        assertEquals("before", second.get(1, TimeUnit.SECONDS));
+        // 失效前发起的加载不写缓存
+        assertEquals("after", cache.getAsync("room1", key -> CompletableFuture.completedFuture("after")).get());
+        assertEquals("after", cache.get("room1", key -> "other"));
+        assertEquals(1, loads.get());
+        assertEquals(2, cache.loadCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.phoenix.rtc.codec;
+
+import com.phoenix.rtc.model.dto.WSMessage;
+import com.phoenix.rtc.service.WebSocketService.AcceptData;
+import com.phoenix.rtc.service.WebSocketService.InviteData;
+import com.phoenix.rtc.service.WebSocketService.LeaveData;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RtcBinaryCodec 单元测试
+ */
+class RtcBinaryCodecTest {
+
+    private final RtcBinaryCodec codec = new RtcBinaryCodec();
+
+    @Test
+    void testRinging_RoundTrip() throws Exception {
+        WSMessage message = WSMessage.builder()
+                .type("rtc")
+                .cmd("ringing")
+                .data(new InviteData("user1", "用户user1", "room_abc12345", "video", null, "invite-1"))
+                .timestamp(1700000000000L)
+                .build();
+
+        WSMessage decoded = codec.decode(codec.encode(message));
+
+        assertEquals(message, decoded);
+    }
+
+    @Test
+    void testPeerAcceptedAndError_RoundTrip() throws Exception {
+        WSMessage accepted = WSMessage.success("peer_accepted", new AcceptData("user2", "room_1"));
+        WSMessage error = WSMessage.error("房间已满");
+
+        assertEquals(accepted, codec.decode(codec.encode(accepted)));
+        assertEquals(error, codec.decode(codec.encode(error)));
+    }
+
+    @Test
+    void testPeerLeft_MapPayloadUsesCompactSchema() throws Exception {
+        WSMessage fromMap = WSMessage.success("peer_left", Map.of("userId", "user3", "roomName", "room_1"));
+        WSMessage fromRecord = WSMessage.builder()
+                .type("rtc").cmd("peer_left").data(new LeaveData("user3", "room_1"))
+                .timestamp(fromMap.getTimestamp())
+                .build();
+
+        byte[] bytes = codec.encode(fromMap);
+
+        assertArrayEquals(codec.encode(fromRecord), bytes);
+        assertEquals(fromRecord, codec.decode(bytes));
+    }
+
+    @Test
+    void testUnknownCommand_GenericFallback() throws Exception {
+        WSMessage message = WSMessage.success("members_delta", Map.of("roomName", "room_1", "count", 3));
+
+        WSMessage decoded = codec.decode(codec.encode(message));
+
+        assertEquals("members_delta", decoded.getCmd());
+        assertEquals(message.getData(), decoded.getData());
+    }
+
+    @Test
+    void testRoomVersion_AppendedAndDecoded() throws Exception {
+        WSMessage peerLeft = WSMessage.success("peer_left", new LeaveData("user3", "room_1"));
+        peerLeft.setVersion(42L);
+        WSMessage delta = WSMessage.success("members_delta", Map.of("roomName", "room_1"));
+        delta.setVersion(43L);
+
+        assertEquals(peerLeft, codec.decode(codec.encode(peerLeft)));
+        assertEquals(43L, codec.decode(codec.encode(delta)).getVersion());
+    }
+}
@@ -1,11 +1,14 @@
 package com.phoenix.rtc.integration;
 
+import com.phoenix.rtc.adapter.AsyncMediaAdapter;
 import com.phoenix.rtc.adapter.MediaAdapter;
 import com.phoenix.rtc.config.MetricsConfig;
 import com.phoenix.rtc.model.dto.CallRequest;
 import com.phoenix.rtc.model.dto.TokenResponse;
 import com.phoenix.rtc.repository.RtcParticipantRepository;
 import com.phoenix.rtc.repository.RtcSessionRepository;
+import com.phoenix.rtc.service.MediaRoomPool;
+import com.phoenix.rtc.service.MediaRoomReaper;
 import com.phoenix.rtc.service.OptimizedRoomService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,6 +20,7 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -42,6 +46,9 @@ class OptimizedRoomServiceIntegrationTest {
     @MockBean
     private MediaAdapter mediaAdapter;
 
+    @MockBean
+    private AsyncMediaAdapter asyncMediaAdapter;
+
     @MockBean
     private RtcSessionRepository sessionRepository;
 
@@ -54,10 +61,17 @@ class OptimizedRoomServiceIntegrationTest {
     @MockBean
     private MetricsConfig metricsConfig;
 
+    @MockBean
+    private MediaRoomReaper mediaRoomReaper;
+
+    @MockBean
+    private MediaRoomPool mediaRoomPool;
+
     @BeforeEach
     void setUp() {
         // Reset mocks
-        reset(mediaAdapter, sessionRepository, participantRepository, redisTemplate, metricsConfig);
+        reset(mediaAdapter, asyncMediaAdapter, sessionRepository, participantRepository, redisTemplate, metricsConfig, mediaRoomReaper);
+        when(asyncMediaAdapter.deleteRoomAsync(anyString())).thenReturn(CompletableFuture.completedFuture(null));
     }
 
     @Test
@@ -69,7 +83,7 @@ class OptimizedRoomServiceIntegrationTest {
                 .build();
 
         // Mock external dependencies
-        when(mediaAdapter.createRoom(anyString(), any())).thenReturn(new io.livekit.server.RoomInfo("test_room", 2, 300));
+        when(asyncMediaAdapter.createRoomAsync(anyString(), any())).thenReturn(CompletableFuture.completedFuture(new io.livekit.server.RoomInfo("test_room", 2, 300)));
         when(mediaAdapter.generateToken(anyString(), anyString(), anyString())).thenReturn("host_token");
 
         // Mock repository saves
@@ -105,13 +119,13 @@ class OptimizedRoomServiceIntegrationTest {
         optimizedRoomService.leaveCall(roomName, "user2");
 
         // Verify cleanup
-        verify(mediaAdapter, never()).deleteRoom(anyString()); // Room still has user1
+        verify(mediaRoomReaper, never()).enqueue(anyString()); // Room still has user1
 
         // 5. User1 leaves (room empty)
         optimizedRoomService.leaveCall(roomName, "user1");
 
-        // Verify room deletion
-        verify(mediaAdapter).deleteRoom(roomName);
+        // Verify room queued for deletion
+        verify(mediaRoomReaper).enqueue(roomName);
     }
 
     @Test
@@ -127,7 +141,7 @@ class OptimizedRoomServiceIntegrationTest {
                 .maxParticipants(10000)
                 .build();
 
-        when(mediaAdapter.createRoom(anyString(), any())).thenReturn(new io.livekit.server.RoomInfo(roomName, 10000, 600));
+        when(asyncMediaAdapter.createRoomAsync(anyString(), any())).thenReturn(CompletableFuture.completedFuture(new io.livekit.server.RoomInfo(roomName, 10000, 600)));
         when(mediaAdapter.generateToken(eq("host"), anyString(), anyString())).thenReturn("host_token");
 
         when(sessionRepository.save(any())).thenAnswer(inv -> {
@@ -222,8 +236,8 @@ class OptimizedRoomServiceIntegrationTest {
             final String roomName = "room_" + meetingId;
 
             // Mock start call for this meeting
-            when(mediaAdapter.createRoom(eq(roomName), any())).thenReturn(
-                new io.livekit.server.RoomInfo(roomName, 10000, 600)
+            when(asyncMediaAdapter.createRoomAsync(eq(roomName), any())).thenReturn(
+                CompletableFuture.completedFuture(new io.livekit.server.RoomInfo(roomName, 10000, 600))
             );
 
             // Simulate users joining
@@ -271,7 +285,7 @@ class OptimizedRoomServiceIntegrationTest {
         assertEquals(totalUsers, totalSuccess.get(), "All users should join successfully");
 
         // Verify meetings were created
-        verify(mediaAdapter, times(meetingCount)).createRoom(anyString(), any());
+        verify(asyncMediaAdapter, times(meetingCount)).createRoomAsync(anyString(), any());
     }
 
     @Test
@@ -281,8 +295,8 @@ class OptimizedRoomServiceIntegrationTest {
         int maxCapacity = 100;
 
         // Setup room
-        when(mediaAdapter.createRoom(eq(roomName), any())).thenReturn(
-            new io.livekit.server.RoomInfo(roomName, maxCapacity, 600)
+        when(asyncMediaAdapter.createRoomAsync(eq(roomName), any())).thenReturn(
+            CompletableFuture.completedFuture(new io.livekit.server.RoomInfo(roomName, maxCapacity, 600))
         );
         when(mediaAdapter.generateToken(anyString(), eq(roomName), anyString())).thenReturn("token");
 
@@ -339,8 +353,8 @@ class OptimizedRoomServiceIntegrationTest {
         int userCount = 50;
 
         // Setup room with users
-        when(mediaAdapter.createRoom(eq(roomName), any())).thenReturn(
-            new io.livekit.server.RoomInfo(roomName, 1000, 600)
+        when(asyncMediaAdapter.createRoomAsync(eq(roomName), any())).thenReturn(
+            CompletableFuture.completedFuture(new io.livekit.server.RoomInfo(roomName, 1000, 600))
         );
 
         when(sessionRepository.save(any())).thenAnswer(inv -> {
@@ -413,7 +427,7 @@ class OptimizedRoomServiceIntegrationTest {
 
         // Then
         assertTrue(completed, "All leaves should complete");
-        verify(mediaAdapter, atMostOnce()).deleteRoom(roomName); // Only once when last user leaves
+        verify(mediaRoomReaper, atMostOnce()).enqueue(roomName); // Only once when last user leaves
     }
 
     @Test
@@ -426,8 +440,8 @@ class OptimizedRoomServiceIntegrationTest {
                 .build();
 
         // Mock successful room creation
-        when(mediaAdapter.createRoom(anyString(), any())).thenReturn(
-            new io.livekit.server.RoomInfo(roomName, 2, 300)
+        when(asyncMediaAdapter.createRoomAsync(anyString(), any())).thenReturn(
+            CompletableFuture.completedFuture(new io.livekit.server.RoomInfo(roomName, 2, 300))
         );
         when(mediaAdapter.generateToken(anyString(), anyString(), anyString())).thenReturn("token");
 
@@ -450,7 +464,7 @@ class OptimizedRoomServiceIntegrationTest {
         // Should succeed despite Redis failure
         assertNotNull(response);
         verify(sessionRepository).save(any());
-        verify(mediaAdapter).createRoom(anyString(), any());
+        verify(asyncMediaAdapter).createRoomAsync(anyString(), any());
     }
 
     @Test
@@ -462,8 +476,8 @@ class OptimizedRoomServiceIntegrationTest {
                 .build();
 
         // Mock room creation success
-        when(mediaAdapter.createRoom(anyString(), any())).thenReturn(
-            new io.livekit.server.RoomInfo("test_room", 2, 300)
+        when(asyncMediaAdapter.createRoomAsync(anyString(), any())).thenReturn(
+            CompletableFuture.completedFuture(new io.livekit.server.RoomInfo("test_room", 2, 300))
         );
 
         // Mock database failure
@@ -510,8 +524,8 @@ class OptimizedRoomServiceIntegrationTest {
         String roomName = "room_consistency_test";
 
         // Setup room
-        when(mediaAdapter.createRoom(eq(roomName), any())).thenReturn(
-            new io.livekit.server.RoomInfo(roomName, 1000, 600)
+        when(asyncMediaAdapter.createRoomAsync(eq(roomName), any())).thenReturn(
+            CompletableFuture.completedFuture(new io.livekit.server.RoomInfo(roomName, 1000, 600))
         );
         when(mediaAdapter.generateToken(anyString(), eq(roomName), anyString())).thenReturn("token");
 
@@ -0,0 +1,134 @@
+package com.phoenix.rtc.redis;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * RtcKeyMigration 单元测试
+ */
+class RtcKeyMigrationTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private HashOperations<String, Object, Object> hashOperations;
+    private SetOperations<String, Object> setOperations;
+    private SimpleMeterRegistry meterRegistry;
+    private RtcKeyMigration migration;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        setOperations = mock(SetOperations.class);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(redisTemplate.scan(any(ScanOptions.class))).thenAnswer(invocation -> cursor(List.of()));
+
+        meterRegistry = new SimpleMeterRegistry();
+        migration = new RtcKeyMigration(redisTemplate, meterRegistry);
+    }
+
+    @Test
+    void testMigrate_RestoresWithTtlAndDeletesLegacy() {
+        byte[] dump = {1, 2, 3};
+        scanReturns("rtc:room:*", "rtc:room:room_1:meta");
+        when(redisTemplate.dump("rtc:room:room_1:meta")).thenReturn(dump, dump);
+        when(redisTemplate.getExpire("rtc:room:room_1:meta", TimeUnit.MILLISECONDS)).thenReturn(5000L);
+        when(redisTemplate.hasKey("rtc:{room_1}:meta")).thenReturn(false);
+
+        assertEquals(1, migration.migrate(100));
+
+        verify(redisTemplate).restore("rtc:{room_1}:meta", dump, 5000L, TimeUnit.MILLISECONDS, false);
+        verify(redisTemplate).delete("rtc:room:room_1:meta");
+        assertEquals(1, meterRegistry.get("rtc.redis.key.migration").tag("result", "migrated").counter().count());
+    }
+
+    @Test
+    void testMigrate_MergesHashIntoExistingKey() {
+        byte[] dump = {1};
+        scanReturns("rtc:room:*", "rtc:room:room_1:meta");
+        when(redisTemplate.dump("rtc:room:room_1:meta")).thenReturn(dump, dump);
+        when(redisTemplate.hasKey("rtc:{room_1}:meta")).thenReturn(true);
+        when(redisTemplate.type("rtc:room:room_1:meta")).thenReturn(DataType.HASH);
+        when(hashOperations.entries("rtc:room:room_1:meta")).thenReturn(Map.of("initiatorId", "u1"));
+
+        migration.migrate(100);
+
+        verify(redisTemplate, never()).restore(anyString(), any(), anyLong(), any(), anyBoolean());
+        verify(hashOperations).putIfAbsent("rtc:{room_1}:meta", "initiatorId", "u1");
+        verify(redisTemplate).delete("rtc:room:room_1:meta");
+    }
+
+    @Test
+    void testMigrate_LegacyKeyChangedKeepsItForNextRound() {
+        scanReturns("rtc:state:*", "rtc:state:room_1:u1");
+        when(redisTemplate.dump("rtc:state:room_1:u1")).thenReturn(new byte[]{1}, new byte[]{2});
+        when(redisTemplate.hasKey("rtc:{room_1}:state:u1")).thenReturn(false);
+
+        migration.migrate(100);
+
+        verify(setOperations).add("rtc:{room_1}:state-users", "u1");
+        verify(redisTemplate, never()).delete(anyString());
+        assertEquals(1, meterRegistry.get("rtc.redis.key.migration").tag("result", "retried").counter().count());
+    }
+
+    @Test
+    void testMigrateOnStartup_RunsUntilNoLegacyKeysLeft() {
+        ReflectionTestUtils.setField(migration, "enabled", true);
+        ReflectionTestUtils.setField(migration, "batchSize", 1);
+        ReflectionTestUtils.setField(migration, "startupTimeoutMs", 30000L);
+        byte[] dump = {1};
+        when(redisTemplate.scan(argThat((ScanOptions options) -> options != null && "rtc:room:*".equals(options.getPattern()))))
+                .thenAnswer(invocation -> cursor(List.of("rtc:room:room_1:meta")))
+                .thenAnswer(invocation -> cursor(List.of("rtc:room:room_2:meta")))
+                .thenAnswer(invocation -> cursor(List.of()));
+        when(redisTemplate.dump(startsWith("rtc:room:"))).thenReturn(dump);
+        when(redisTemplate.hasKey(anyString())).thenReturn(false);
+
+        migration.migrateOnStartup();
+
+        verify(redisTemplate).restore("rtc:{room_1}:meta", dump, 0L, TimeUnit.MILLISECONDS, false);
+        verify(redisTemplate).restore("rtc:{room_2}:meta", dump, 0L, TimeUnit.MILLISECONDS, false);
+        assertEquals(2, meterRegistry.get("rtc.redis.key.migration").tag("result", "migrated").counter().count());
+        assertTrue((Boolean) ReflectionTestUtils.getField(migration, "completed"));
+    }
+
+    @Test
+    void testToClusterKey_MapsRingKeys() {
+        assertEquals("rtc:{room_1}:ring", RtcKeyMigration.toClusterKey("rtc:ring:room_1"));
+        assertEquals("rtc:{room_1}:ring:pending", RtcKeyMigration.toClusterKey("rtc:ring:room_1:pending"));
+        assertEquals("rtc:{room_1}:ring:answered", RtcKeyMigration.toClusterKey("rtc:ring:room_1:answered"));
+        assertNull(RtcKeyMigration.toClusterKey("rtc:ring:timeouts:3"));
+    }
+
+    private void scanReturns(String pattern, String... keys) {
+        when(redisTemplate.scan(argThat((ScanOptions options) -> options != null && pattern.equals(options.getPattern()))))
+                .thenAnswer(invocation -> cursor(List.of(keys)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cursor<String> cursor(List<String> keys) {
+        Iterator<String> iterator = keys.iterator();
+        Cursor<String> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        return cursor;
+    }
+}
@@ -0,0 +1,84 @@
+package com.phoenix.rtc.redis;
+
+import io.lettuce.core.cluster.SlotHash;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RtcKeys 单元测试
+ */
+class RtcKeysTest {
+
+    @Test
+    void testRoomKeys_ShareOneHashSlot() {
+        String room = "room_1700000000000_ab12cd34";
+        List<String> keys = List.of(
+                RtcKeys.roomMeta(room),
+                RtcKeys.roomMembers(room),
+                RtcKeys.roomMember(room, "user1"),
+                RtcKeys.callState(room, "user2"),
+                RtcKeys.callStateHistory(room, "user2"),
+                RtcKeys.callStateUsers(room),
+                RtcKeys.ringDetail(room),
+                RtcKeys.tokenPool(room),
+                RtcKeys.tokenPoolOpen(room));
+
+        int slot = SlotHash.getSlot(room);
+        for (String key : keys) {
+            assertEquals(slot, SlotHash.getSlot(key), key);
+        }
+    }
+
+    @Test
+    void testLegacyKeys_MapToClusterLayout() {
+        assertEquals("rtc:{room_1}:meta", RtcKeyMigration.toClusterKey("rtc:room:room_1:meta"));
+        assertEquals("rtc:{room_1}:members", RtcKeyMigration.toClusterKey("rtc:room:room_1:members"));
+        assertEquals("rtc:{room_1}:member:u1", RtcKeyMigration.toClusterKey("rtc:room:room_1:member:u1"));
+        assertEquals("rtc:{room_1}:state:u1", RtcKeyMigration.toClusterKey("rtc:state:room_1:u1"));
+        assertEquals("rtc:{room_1}:history:u1", RtcKeyMigration.toClusterKey("rtc:state:history:room_1:u1"));
+        assertEquals("rtc:{room_1}:ring", RtcKeyMigration.toClusterKey("rtc:ring:room_1"));
+
+        // 不是房间维度或已是新布局的 Key 不迁移
+        assertNull(RtcKeyMigration.toClusterKey("rtc:ring:timeouts:3"));
+        assertNull(RtcKeyMigration.toClusterKey("rtc:invite:abc"));
+        assertNull(RtcKeyMigration.toClusterKey("rtc:{room_1}:meta"));
+    }
+
+    @Test
+    void testKeyBuilder_MatchesStringKeys() {
+        String room = "room_1700000000000_ab12cd34";
+        assertArrayEquals(bytes(RtcKeys.roomMeta(room)), RtcKeyBuilder.roomMeta(room));
+        assertArrayEquals(bytes(RtcKeys.roomMembers(room)), RtcKeyBuilder.roomMembers(room));
+        assertArrayEquals(bytes(RtcKeys.roomMember(room, "u1")), RtcKeyBuilder.roomMember(room, "u1"));
+        assertArrayEquals(bytes(RtcKeys.callState(room, "u1")), RtcKeyBuilder.callState(room, "u1"));
+        assertArrayEquals(bytes(RtcKeys.callStateHistory(room, "u1")), RtcKeyBuilder.callStateHistory(room, "u1"));
+        assertArrayEquals(bytes(RtcKeys.callStateUsers(room)), RtcKeyBuilder.callStateUsers(room));
+        assertArrayEquals(bytes(RtcKeys.ringDetail(room)), RtcKeyBuilder.ringDetail(room));
+        assertArrayEquals(bytes(RtcKeys.ringShard(0)), RtcKeyBuilder.ringShard(0));
+        assertArrayEquals(bytes(RtcKeys.ringShard(15)), RtcKeyBuilder.ringShard(15));
+        assertArrayEquals(bytes(RtcKeys.userSession("u1")), RtcKeyBuilder.userSession("u1"));
+        assertArrayEquals(bytes(RtcKeys.invite("abc")), RtcKeyBuilder.invite("abc"));
+        assertArrayEquals(bytes(RtcKeys.userPresence("u1")), RtcKeyBuilder.userPresence("u1"));
+        assertArrayEquals(bytes(RtcKeys.nodePresence("node-a")), RtcKeyBuilder.nodePresence("node-a"));
+        assertArrayEquals(bytes(RtcKeys.rateLimit("u1")), RtcKeyBuilder.rateLimit("u1"));
+    }
+
+    @Test
+    void testKeyBuilder_NonAsciiAndLongValues() {
+        assertArrayEquals(bytes(RtcKeys.userPresence("用户_张三")), RtcKeyBuilder.userPresence("用户_张三"));
+        assertArrayEquals(bytes(RtcKeys.roomMember("room_😀", "u")), RtcKeyBuilder.roomMember("room_😀", "u"));
+
+        String longId = "x".repeat(500);
+        assertArrayEquals(bytes(RtcKeys.roomMember(longId, longId)), RtcKeyBuilder.roomMember(longId, longId));
+        // 缓冲区扩容后复用
+        assertArrayEquals(bytes(RtcKeys.rateLimit("u2")), RtcKeyBuilder.rateLimit("u2"));
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,104 @@
+package com.phoenix.rtc.redis.codec;
+
+import com.phoenix.rtc.statemachine.CallState;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RedisCodecs / FieldValues 单元测试
+ */
+class RedisCodecsTest {
+
+    @Test
+    void testLong_DecimalTextRoundTrip() {
+        for (long value : new long[]{0, 7, -42, 1700000000000L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            byte[] encoded = RedisCodecs.LONG.encode(value);
+            assertEquals(Long.toString(value), ascii(encoded));
+            assertEquals(value, RedisCodecs.LONG.decode(encoded));
+        }
+    }
+
+    @Test
+    void testLong_RejectsNonNumeric() {
+        assertThrows(NumberFormatException.class, () -> RedisCodecs.LONG.decode(bytes("12a")));
+    }
+
+    @Test
+    void testBoolean_CompactAndLegacy() {
+        assertEquals("1", ascii(RedisCodecs.BOOLEAN.encode(true)));
+        assertEquals("0", ascii(RedisCodecs.BOOLEAN.encode(false)));
+        assertTrue(RedisCodecs.BOOLEAN.decode(bytes("true")));
+        assertFalse(RedisCodecs.BOOLEAN.decode(bytes("false")));
+    }
+
+    @Test
+    void testCallState_StorageCodeAndLegacyCode() {
+        for (CallState state : CallState.values()) {
+            assertEquals(state, RedisCodecs.CALL_STATE.decode(RedisCodecs.CALL_STATE.encode(state)));
+        }
+        // 已存储的编号固定，不随枚举声明顺序变化
+        assertEquals("3", ascii(RedisCodecs.CALL_STATE.encode(CallState.CONNECTED)));
+        assertEquals(CallState.NO_ANSWER, RedisCodecs.CALL_STATE.decode(bytes("6")));
+        assertEquals(CallState.CONNECTED, RedisCodecs.CALL_STATE.decode(bytes("connected")));
+    }
+
+    @Test
+    void testDictionary_KnownValuesAsOrdinalOthersVerbatim() {
+        RedisCodec<String> codec = RedisCodecs.dictionary("host", "publisher", "subscriber");
+
+        assertEquals("1", ascii(codec.encode("publisher")));
+        assertEquals("publisher", codec.decode(codec.encode("publisher")));
+        assertEquals("observer", codec.decode(codec.encode("observer")));
+    }
+
+    @Test
+    void testFieldValues_FallsBackToLegacyFieldName() {
+        // 旧版本写入的成员详情
+        Map<byte[], byte[]> legacy = new LinkedHashMap<>();
+        legacy.put(bytes("role"), bytes("host"));
+        legacy.put(bytes("audioEnabled"), bytes("false"));
+
+        FieldValues values = FieldValues.of(legacy);
+
+        assertEquals("host", values.get(RtcFields.MEMBER_ROLE));
+        assertFalse(values.get(RtcFields.MEMBER_AUDIO, true));
+        assertTrue(values.get(RtcFields.MEMBER_VIDEO, true));
+        assertNull(values.get(RtcFields.MEMBER_JOINED_AT));
+    }
+
+    @Test
+    void testFieldValues_EncodedUsesShortNames() {
+        Map<byte[], byte[]> encoded = FieldValues.create()
+                .with(RtcFields.STATE, CallState.CALLING)
+                .with(RtcFields.STATE_TIMESTAMP, 1700000000000L)
+                .encoded();
+
+        Map<String, String> text = new LinkedHashMap<>();
+        encoded.forEach((field, value) -> text.put(ascii(field), ascii(value)));
+        assertEquals(Map.of("s", String.valueOf(CallState.CALLING.getStorageCode()), "t", "1700000000000"), text);
+        assertEquals(CallState.CALLING, FieldValues.of(encoded).get(RtcFields.STATE));
+    }
+
+    @Test
+    void testValueSerializer_CompactScalars() {
+        RtcValueSerializer serializer = new RtcValueSerializer();
+
+        assertEquals("12", ascii(serializer.serialize(12L)));
+        assertEquals("1", ascii(serializer.serialize(Boolean.TRUE)));
+        assertEquals("room_1", ascii(serializer.serialize("room_1")));
+        assertEquals("12", serializer.deserialize(bytes("12")));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String ascii(byte[] bytes) {
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,128 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.model.dto.WSMessage;
+import com.phoenix.rtc.service.CallInvitationService.Delivery;
+import com.phoenix.rtc.service.CallInvitationService.DeliveryStatus;
+import com.phoenix.rtc.service.CallInvitationService.InvitationPlan;
+import com.phoenix.rtc.service.InviteService.Invite;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * CallInvitationService 单元测试
+ */
+class CallInvitationServiceTest {
+
+    private PresenceService presenceService;
+    private InviteService inviteService;
+    private WebSocketService webSocketService;
+    private SimpleMeterRegistry meterRegistry;
+    private CallInvitationService invitationService;
+
+    @BeforeEach
+    void setUp() {
+        presenceService = mock(PresenceService.class);
+        inviteService = mock(InviteService.class);
+        webSocketService = mock(WebSocketService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        invitationService = new CallInvitationService(presenceService, inviteService, webSocketService,
+                new SimpleAsyncTaskExecutor(), meterRegistry);
+        ReflectionTestUtils.setField(invitationService, "shardSize", 16);
+        ReflectionTestUtils.setField(invitationService, "maxParallelism", 4);
+        ReflectionTestUtils.setField(invitationService, "dispatchTimeoutMs", 2000L);
+
+        when(webSocketService.ringing(any())).thenReturn(WSMessage.success("ringing", null));
+        when(inviteService.createInvites(anyCollection(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    Collection<String> targets = invocation.getArgument(0);
+                    List<Invite> invites = new ArrayList<>();
+                    for (String target : targets) {
+                        invites.add(new Invite("inv-" + target, target, "host", "用户host", "room_1", "group", null, 0L));
+                    }
+                    return invites;
+                });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPrepare_DedupAndExcludeInviter() {
+        when(presenceService.getOnlineStatus(anyCollection())).thenAnswer(invocation -> {
+            Map<String, Boolean> status = new LinkedHashMap<>();
+            ((Collection<String>) invocation.getArgument(0)).forEach(id -> status.put(id, !id.equals("u3")));
+            return status;
+        });
+
+        InvitationPlan plan = invitationService.prepare(List.of("u1", "u2", "u1", "host", " ", "u3"), "host");
+
+        assertEquals(List.of("u1", "u2"), plan.onlineUserIds());
+        assertEquals(List.of("u3"), plan.offlineUserIds());
+        verify(presenceService, times(1)).getOnlineStatus(anyCollection());
+    }
+
+    @Test
+    void testDispatch_LargeGroupSingleWriteAndPerCalleeStatus() {
+        List<String> online = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            online.add("user" + i);
+        }
+        doThrow(new IllegalStateException("会话已关闭")).when(webSocketService).sendToUser(eq("user7"), any());
+
+        List<Delivery> deliveries = invitationService.dispatch(new InvitationPlan(online, List.of("offline1")),
+                "host", "用户host", "room_1", "group", null);
+
+        Map<String, Delivery> byUser = deliveries.stream().collect(Collectors.toMap(Delivery::userId, Function.identity()));
+        assertEquals(301, byUser.size());
+        assertEquals(DeliveryStatus.OFFLINE, byUser.get("offline1").status());
+        assertEquals(DeliveryStatus.FAILED, byUser.get("user7").status());
+        assertEquals(DeliveryStatus.SENT, byUser.get("user299").status());
+        assertEquals("inv-user299", byUser.get("user299").inviteId());
+
+        verify(inviteService, times(1)).createInvites(anyCollection(), any(), any(), any(), any(), any());
+        verify(webSocketService, times(300)).sendToUser(any(), any());
+        assertEquals(299, meterRegistry.get("rtc.invite.delivery").tag("status", "sent").counter().count());
+    }
+
+    @Test
+    void testDispatch_SlowShardsShareOneDeadline() throws Exception {
+        ReflectionTestUtils.setField(invitationService, "dispatchTimeoutMs", 300L);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(webSocketService).sendToUser(any(), any());
+        List<String> online = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            online.add("user" + i);
+        }
+
+        long start = System.nanoTime();
+        List<Delivery> deliveries;
+        try {
+            deliveries = invitationService.dispatch(new InvitationPlan(online, List.of()),
+                    "host", "用户host", "room_1", "group", null);
+        } finally {
+            release.countDown();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // 4 个分片全部卡住：逐片等待至少 4 × 300ms，共用截止时间只等一次
+        assertTrue(deliveries.stream().allMatch(delivery -> delivery.status() == DeliveryStatus.PENDING));
+        assertTrue(elapsedMs < 4 * 300, "耗时 " + elapsedMs + "ms");
+    }
+}
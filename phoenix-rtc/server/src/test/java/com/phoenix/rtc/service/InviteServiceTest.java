@@ -0,0 +1,86 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.redis.RtcKeys;
+import com.phoenix.rtc.service.InviteService.Invite;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * InviteService 单元测试
+ */
+class InviteServiceTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private InviteService inviteService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        inviteService = new InviteService(redisTemplate);
+    }
+
+    @Test
+    void testCreateInvites_SinglePipelineForGroup() {
+        List<String> targets = List.of("u1", "u2", "u3", "u4", "u5");
+
+        List<Invite> invites = inviteService.createInvites(targets, "host", "用户host", "room_1", "group", "周会");
+
+        assertEquals(5, invites.size());
+        assertEquals(5, invites.stream().map(Invite::inviteId).distinct().count());
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    void testInvite_EncodeDecodeRoundTrip() {
+        Invite invite = new Invite("invite-1", "u1", "host", "用户host", "room_1", "video", null, 1700000000000L);
+
+        String encoded = invite.encode();
+
+        assertEquals(invite, Invite.decode("invite-1", encoded));
+        assertTrue(encoded.startsWith(Invite.ownerPrefix("u1")));
+        assertFalse(encoded.startsWith(Invite.ownerPrefix("u")), "被叫ID前缀不能误匹配");
+    }
+
+    @Test
+    void testInvite_SeparatorInFieldIsSanitized() {
+        Invite invite = new Invite("invite-1", "u1", "host", "a\u001Fb", "room_1", "video", "t", 1L);
+
+        assertEquals("a b", Invite.decode("invite-1", invite.encode()).inviterName());
+    }
+
+    @Test
+    void testConsumeInvite_Expired() {
+        when(redisTemplate.execute(any(), eq(List.of("rtc:invite:gone")), any())).thenReturn(null);
+
+        assertNull(inviteService.consumeInvite("gone", "u1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRestoreInvite_RemainingTtlOnly() {
+        ValueOperations<String, Object> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), any(), anyLong(), any(TimeUnit.class))).thenReturn(true);
+        long now = System.currentTimeMillis();
+        Invite fresh = new Invite("invite-1", "u1", "host", "用户host", "room_1", "video", null, now - 60_000);
+        Invite expired = new Invite("invite-2", "u1", "host", "用户host", "room_1", "video", null, now - 301_000);
+
+        assertTrue(inviteService.restoreInvite(fresh));
+        assertFalse(inviteService.restoreInvite(expired));
+
+        verify(valueOperations).setIfAbsent(eq(RtcKeys.invite("invite-1")), eq(fresh.encode()),
+                longThat(ttl -> ttl > 0 && ttl <= 240_000), eq(TimeUnit.MILLISECONDS));
+        verify(valueOperations, never()).setIfAbsent(eq(RtcKeys.invite("invite-2")), any(), anyLong(), any(TimeUnit.class));
+    }
+}
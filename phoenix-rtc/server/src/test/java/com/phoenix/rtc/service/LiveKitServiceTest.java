@@ -1,16 +1,19 @@
 package com.phoenix.rtc.service;
 
+import com.phoenix.rtc.adapter.LiveKitTokenMinter;
 import io.livekit.server.LiveKitServerClient;
 import io.livekit.server.RoomInfo;
-import io.livekit.server.TokenOptions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -25,14 +28,15 @@ class LiveKitServiceTest {
     @Mock
     private LiveKitServerClient liveKitClient;
 
-    @InjectMocks
+    @Spy
+    private LiveKitTokenMinter tokenMinter = new LiveKitTokenMinter("test_key", "test_secret", 7200);
+
     private LiveKitService liveKitService;
 
     @BeforeEach
     void setUp() {
+        liveKitService = new LiveKitService(liveKitClient, tokenMinter, new SimpleAsyncTaskExecutor(), 100, 60_000, 0);
         ReflectionTestUtils.setField(liveKitService, "liveKitUrl", "ws://localhost:7880");
-        ReflectionTestUtils.setField(liveKitService, "apiKey", "test_key");
-        ReflectionTestUtils.setField(liveKitService, "apiSecret", "test_secret");
     }
 
     @Test
@@ -41,30 +45,27 @@ class LiveKitServiceTest {
         String userId = "user123";
         String roomName = "room123";
         String role = "host";
-        String expectedToken = "mock_jwt_token";
-
-        when(liveKitClient.createToken(anyString(), anyString(), any(TokenOptions.class)))
-                .thenReturn(expectedToken);
 
         // When
-        String token = liveKitService.generateToken(userId, roomName, role, null);
+        String token = liveKitService.generateToken(userId, roomName, role, "{\"nick\":\"张三\"}");
 
-        // Then
+        // Then - 本地签发，不调用 LiveKit SDK
         assertNotNull(token);
-        assertEquals(expectedToken, token);
-        verify(liveKitClient, times(1)).createToken(anyString(), anyString(), any(TokenOptions.class));
+        assertEquals(3, token.split("\\.").length);
+        verify(tokenMinter).mint(userId, roomName, role, "{\"nick\":\"张三\"}", 7200);
+        verifyNoInteractions(liveKitClient);
     }
 
     @Test
-    void testGenerateToken_ThrowsException() {
-        // Given
-        when(liveKitClient.createToken(anyString(), anyString(), any(TokenOptions.class)))
-                .thenThrow(new RuntimeException("Token generation failed"));
+    void testGenerateToken_SubscriberCannotPublish() {
+        // When
+        String token = liveKitService.generateToken("user123", "room123", "subscriber", null);
 
-        // When & Then
-        assertThrows(RuntimeException.class, () -> {
-            liveKitService.generateToken("user123", "room123", "host", null);
-        });
+        // Then
+        String claims = new String(java.util.Base64.getUrlDecoder().decode(token.split("\\.")[1]),
+                java.nio.charset.StandardCharsets.UTF_8);
+        assertTrue(claims.contains("\"canPublish\":false"));
+        assertTrue(claims.contains("\"room\":\"room123\""));
     }
 
     @Test
@@ -118,6 +119,34 @@ class LiveKitServiceTest {
         assertNull(result);
     }
 
+    @Test
+    void testGetRoomInfo_CachedUntilRoomDeleted() throws Exception {
+        RoomInfo roomInfo = mock(RoomInfo.class);
+        when(liveKitClient.getRoom("room1")).thenReturn(roomInfo);
+        when(liveKitClient.listParticipants("room1")).thenReturn(List.of());
+
+        assertSame(roomInfo, liveKitService.getRoomInfo("room1"));
+        assertSame(roomInfo, liveKitService.getRoomInfo("room1"));
+        liveKitService.listParticipants("room1");
+        liveKitService.listParticipants("room1");
+        verify(liveKitClient, times(1)).getRoom("room1");
+        verify(liveKitClient, times(1)).listParticipants("room1");
+
+        // 删除房间后不再返回缓存
+        liveKitService.deleteRoom("room1");
+        liveKitService.getRoomInfo("room1");
+        verify(liveKitClient, times(2)).getRoom("room1");
+    }
+
+    @Test
+    void testGetRoomInfo_FailureNotCached() throws Exception {
+        when(liveKitClient.getRoom("room1")).thenThrow(new RuntimeException("unavailable"));
+
+        assertNull(liveKitService.getRoomInfo("room1"));
+        assertNull(liveKitService.getRoomInfo("room1"));
+        verify(liveKitClient, times(2)).getRoom("room1");
+    }
+
     @Test
     void testGenerateRoomName() {
         // Given
@@ -0,0 +1,93 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.adapter.MediaCluster;
+import com.phoenix.rtc.adapter.MediaCluster.Policy;
+import com.phoenix.rtc.adapter.MediaCluster.Strategy;
+import com.phoenix.rtc.adapter.MediaNode;
+import io.livekit.server.LiveKitServerClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * MediaDrainService 单元测试
+ */
+class MediaDrainServiceTest {
+
+    private static final String DRAINING = "rtc:media:draining";
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private SetOperations<String, Object> setOperations;
+    private MediaCluster mediaCluster;
+    private MediaDrainService drainService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        setOperations = mock(SetOperations.class);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+
+        mediaCluster = new MediaCluster(List.of(node("ws://lk-1"), node("ws://lk-2")),
+                new Policy(Strategy.LEAST_LOADED, 160, 1.25, 1000, 0.5, 500, 0.25),
+                roomName -> null, 10_000, 60_000, new SimpleMeterRegistry());
+        drainService = new MediaDrainService(redisTemplate, mediaCluster, mock(RedisMessageListenerContainer.class));
+    }
+
+    @Test
+    void drain_PersistsAndBroadcasts() {
+        assertTrue(drainService.drain("ws://lk-2"));
+
+        assertTrue(mediaCluster.getNode("ws://lk-2").isDraining());
+        verify(setOperations).add(DRAINING, "ws://lk-2");
+        verify(redisTemplate).convertAndSend(MediaDrainService.CHANGE_CHANNEL, "ws://lk-2");
+    }
+
+    @Test
+    void drain_UnknownNode() {
+        assertFalse(drainService.drain("ws://lk-9"));
+
+        verifyNoInteractions(setOperations);
+        verify(redisTemplate, never()).convertAndSend(anyString(), any());
+    }
+
+    @Test
+    void sync_AppliesStateSetOnAnotherInstance() {
+        // 其他实例排空了 lk-2
+        when(setOperations.members(DRAINING)).thenReturn(Set.of("ws://lk-2"));
+        drainService.sync();
+
+        assertTrue(mediaCluster.getNode("ws://lk-2").isDraining());
+        assertEquals("ws://lk-1", mediaCluster.place("room_1", 2).getUrl());
+
+        // 之后取消排空
+        when(setOperations.members(DRAINING)).thenReturn(Set.of());
+        drainService.sync();
+
+        assertFalse(mediaCluster.getNode("ws://lk-2").isDraining());
+    }
+
+    @Test
+    void sync_RedisDownKeepsCurrentState() {
+        mediaCluster.drain("ws://lk-2");
+        when(setOperations.members(DRAINING)).thenThrow(new IllegalStateException("连接被拒绝"));
+
+        drainService.sync();
+
+        assertTrue(mediaCluster.getNode("ws://lk-2").isDraining());
+    }
+
+    private static MediaNode node(String url) {
+        return new MediaNode(url, 100, 1000, mock(LiveKitServerClient.class));
+    }
+}
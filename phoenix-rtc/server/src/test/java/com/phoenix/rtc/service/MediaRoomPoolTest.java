@@ -0,0 +1,160 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.adapter.AsyncMediaAdapter;
+import com.phoenix.rtc.adapter.MediaAdapter.RoomConfig;
+import com.phoenix.rtc.adapter.MediaCluster;
+import com.phoenix.rtc.adapter.MediaCluster.Policy;
+import com.phoenix.rtc.adapter.MediaCluster.Strategy;
+import com.phoenix.rtc.adapter.MediaNode;
+import com.phoenix.rtc.redis.RtcKeys;
+import io.livekit.server.LiveKitServerClient;
+import io.livekit.server.RoomInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * MediaRoomPool 单元测试: 按负载取用、人数超限回退、补足、过期移出、只由首节点补充
+ */
+class MediaRoomPoolTest {
+
+    private static final String LK_1 = "ws://lk-1";
+    private static final String LK_2 = "ws://lk-2";
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private ZSetOperations<String, Object> zSetOperations;
+    private AsyncMediaAdapter asyncMediaAdapter;
+    private PresenceService presenceService;
+    private MediaCluster mediaCluster;
+    private SimpleMeterRegistry meterRegistry;
+    private MediaRoomPool pool;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        zSetOperations = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        asyncMediaAdapter = mock(AsyncMediaAdapter.class);
+        presenceService = mock(PresenceService.class);
+        when(presenceService.getNodeId()).thenReturn("node-1");
+        when(presenceService.getClusterNodes()).thenReturn(List.of("node-1", "node-2"));
+
+        meterRegistry = new SimpleMeterRegistry();
+        mediaCluster = new MediaCluster(
+                List.of(new MediaNode(LK_1, 100, 1000, mock(LiveKitServerClient.class)),
+                        new MediaNode(LK_2, 100, 1000, mock(LiveKitServerClient.class))),
+                new Policy(Strategy.LEAST_LOADED, 160, 1.25, 1000, 0.5, 500, 0.25),
+                roomName -> null, 10_000, 60_000, meterRegistry);
+
+        pool = new MediaRoomPool(redisTemplate, asyncMediaAdapter, mediaCluster, presenceService, meterRegistry);
+        ReflectionTestUtils.setField(pool, "roomsPerNode", 2);
+        ReflectionTestUtils.setField(pool, "emptyTimeoutSeconds", 600);
+        ReflectionTestUtils.setField(pool, "expiryMarginSeconds", 60);
+        ReflectionTestUtils.setField(pool, "maxParticipants", 2);
+    }
+
+    @Test
+    void lease_PrefersLeastLoadedNodeAndAdoptsRoom() {
+        mediaCluster.placeOn("room_busy", mediaCluster.getNode(LK_1), 2);
+        // 负载低的 lk-2 池子已空，回到 lk-1
+        leases(LK_2, null);
+        leases(LK_1, "room_pooled1");
+
+        MediaRoomPool.PooledRoom room = pool.lease(2);
+
+        assertEquals(new MediaRoomPool.PooledRoom("room_pooled1", LK_1), room);
+        assertEquals(LK_1, mediaCluster.locate("room_pooled1").getUrl());
+        // 接管的房间计入本实例的节点房间数，删除后扣除，前后一致
+        assertEquals(2, mediaCluster.getNode(LK_1).getRooms());
+        mediaCluster.release("room_pooled1");
+        assertEquals(1, mediaCluster.getNode(LK_1).getRooms());
+        assertEquals(1, count("rtc.media.pool.leases", "hit"));
+    }
+
+    @Test
+    void lease_MissWhenEmptyOrTooLarge() {
+        leases(LK_1, null);
+        leases(LK_2, null);
+
+        assertNull(pool.lease(2));
+        assertNull(pool.lease(3));
+        // 人数超出预建房间上限时不访问 Redis
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), anyList(), any());
+        assertEquals(1, count("rtc.media.pool.leases", "miss"));
+    }
+
+    @Test
+    void refill_RemovesExpiredAndTopsUp() {
+        when(zSetOperations.rangeByScore(eq(RtcKeys.mediaPool(LK_1)), anyDouble(), anyDouble()))
+                .thenReturn(Set.of("room_old"));
+        when(zSetOperations.rangeByScore(eq(RtcKeys.mediaPool(LK_2)), anyDouble(), anyDouble())).thenReturn(Set.of());
+        when(zSetOperations.zCard(RtcKeys.mediaPool(LK_1))).thenReturn(0L);
+        when(zSetOperations.zCard(RtcKeys.mediaPool(LK_2))).thenReturn(1L);
+        CompletableFuture<RoomInfo> pending = new CompletableFuture<>();
+        when(asyncMediaAdapter.createRoomOnAsync(anyString(), anyString(), any(RoomConfig.class)))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(pending);
+
+        long before = System.currentTimeMillis();
+        pool.refill();
+
+        verify(zSetOperations).remove(RtcKeys.mediaPool(LK_1), "room_old");
+        assertEquals(1, count("rtc.media.pool.rooms.changes", "expired"));
+        verify(asyncMediaAdapter, times(2)).createRoomOnAsync(eq(LK_1), startsWith("room_"), any(RoomConfig.class));
+        ArgumentCaptor<RoomConfig> config = ArgumentCaptor.forClass(RoomConfig.class);
+        verify(asyncMediaAdapter).createRoomOnAsync(eq(LK_2), startsWith("room_"), config.capture());
+        assertEquals(600, config.getValue().getEmptyTimeout());
+        assertEquals(2, config.getValue().getMaxParticipants());
+        // 可取用截止: 建房后 emptyTimeout - margin
+        verify(zSetOperations, times(2)).add(eq(RtcKeys.mediaPool(LK_1)), anyString(),
+                doubleThat(score -> score >= before + 540_000 && score <= System.currentTimeMillis() + 540_000));
+        assertEquals(2.0, meterRegistry.get("rtc.media.pool.rooms").tag("node", LK_1).gauge().value());
+
+        // 在途的建房计入，下一轮不重复补
+        when(zSetOperations.zCard(RtcKeys.mediaPool(LK_1))).thenReturn(2L);
+        pool.refill();
+        verify(asyncMediaAdapter, times(3)).createRoomOnAsync(anyString(), anyString(), any(RoomConfig.class));
+    }
+
+    @Test
+    void refill_SkipsDrainingNodeAndNonLeader() {
+        when(zSetOperations.zCard(anyString())).thenReturn(0L);
+        when(asyncMediaAdapter.createRoomOnAsync(anyString(), anyString(), any(RoomConfig.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        mediaCluster.drain(LK_1);
+
+        pool.refill();
+        verify(asyncMediaAdapter, never()).createRoomOnAsync(eq(LK_1), anyString(), any(RoomConfig.class));
+        verify(asyncMediaAdapter, times(2)).createRoomOnAsync(eq(LK_2), anyString(), any(RoomConfig.class));
+
+        clearInvocations(asyncMediaAdapter);
+        when(presenceService.getNodeId()).thenReturn("node-2");
+        pool.refill();
+        verifyNoInteractions(asyncMediaAdapter);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void leases(String url, String roomName) {
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(RtcKeys.mediaPool(url))), any()))
+                .thenReturn(roomName);
+    }
+
+    private double count(String name, String result) {
+        return meterRegistry.get(name).tag("result", result).counter().count();
+    }
+}
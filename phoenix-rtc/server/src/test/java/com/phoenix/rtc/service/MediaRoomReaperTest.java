@@ -0,0 +1,195 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.adapter.AsyncMediaAdapter;
+import com.phoenix.rtc.adapter.AsyncMediaAdapter.MediaRoom;
+import com.phoenix.rtc.adapter.MediaAdapter;
+import com.phoenix.rtc.redis.RtcKeys;
+import com.phoenix.rtc.repository.RtcSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * MediaRoomReaper 单元测试: 登记、批量删除、失败退避、放弃、对账
+ */
+class MediaRoomReaperTest {
+
+    private static final String LK_1 = "ws://lk-1";
+    private static final String LK_2 = "ws://lk-2";
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private ZSetOperations<String, Object> zSetOperations;
+    private HashOperations<String, Object, Object> hashOperations;
+    private AsyncMediaAdapter asyncMediaAdapter;
+    private MediaAdapter mediaAdapter;
+    private RtcSessionRepository sessionRepository;
+    private PresenceService presenceService;
+    private MediaRoomPool mediaRoomPool;
+    private SimpleMeterRegistry meterRegistry;
+    private MediaRoomReaper reaper;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        zSetOperations = mock(ZSetOperations.class);
+        hashOperations = mock(HashOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        asyncMediaAdapter = mock(AsyncMediaAdapter.class);
+        mediaAdapter = mock(MediaAdapter.class);
+        when(mediaAdapter.getRoomUrl(anyString())).thenReturn(LK_1);
+        sessionRepository = mock(RtcSessionRepository.class);
+        presenceService = mock(PresenceService.class);
+        when(presenceService.getNodeId()).thenReturn("node-1");
+        when(presenceService.getClusterNodes()).thenReturn(List.of("node-1", "node-2"));
+        mediaRoomPool = mock(MediaRoomPool.class);
+        when(mediaRoomPool.pooledRooms()).thenReturn(Set.of("room_pooled"));
+
+        meterRegistry = new SimpleMeterRegistry();
+        reaper = new MediaRoomReaper(redisTemplate, asyncMediaAdapter, mediaAdapter, sessionRepository, presenceService,
+                mediaRoomPool, meterRegistry);
+        ReflectionTestUtils.setField(reaper, "batchSize", 50);
+        ReflectionTestUtils.setField(reaper, "leaseMs", 30_000L);
+        ReflectionTestUtils.setField(reaper, "maxAttempts", 3);
+        ReflectionTestUtils.setField(reaper, "backoffBaseMs", 1000L);
+        ReflectionTestUtils.setField(reaper, "backoffMaxMs", 60_000L);
+    }
+
+    @Test
+    void enqueue_OnlyWritesQueueWithNode() {
+        reaper.enqueue("room_1");
+
+        verify(zSetOperations).add(eq(RtcKeys.MEDIA_GC_QUEUE), eq(LK_1 + "|room_1"), anyDouble());
+        verifyNoInteractions(asyncMediaAdapter);
+        assertEquals(1, count("enqueued"));
+    }
+
+    @Test
+    void enqueue_RedisDownDeletesDirectlyOnRecordedNode() {
+        when(zSetOperations.add(anyString(), any(), anyDouble())).thenThrow(new RuntimeException("connection refused"));
+        when(asyncMediaAdapter.deleteRoomsAsync(anyCollection())).thenReturn(CompletableFuture.completedFuture(List.of()));
+        MediaRoom room = new MediaRoom(LK_2, "room_1");
+
+        reaper.enqueue(LK_2, "room_1");
+
+        // 按登记的节点删除，不按当前放置记录
+        verify(asyncMediaAdapter).deleteRoomsAsync(List.of(room));
+        verify(asyncMediaAdapter, never()).deleteRoomAsync(anyString());
+        verify(asyncMediaAdapter).releaseRoom(room);
+    }
+
+    @Test
+    void drain_DeletesBatchAndRetriesFailures() {
+        claims(List.of(LK_1 + "|room_1", LK_2 + "|room_2", LK_1 + "|room_3"));
+        MediaRoom room1 = new MediaRoom(LK_1, "room_1");
+        MediaRoom room2 = new MediaRoom(LK_2, "room_2");
+        MediaRoom room3 = new MediaRoom(LK_1, "room_3");
+        when(asyncMediaAdapter.deleteRoomsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(room2, room3)));
+        when(hashOperations.increment(RtcKeys.MEDIA_GC_ATTEMPTS, LK_2 + "|room_2", 1)).thenReturn(1L);
+        when(hashOperations.increment(RtcKeys.MEDIA_GC_ATTEMPTS, LK_1 + "|room_3", 1)).thenReturn(3L);
+        when(zSetOperations.zCard(RtcKeys.MEDIA_GC_QUEUE)).thenReturn(1L);
+
+        long before = System.currentTimeMillis();
+        reaper.drain();
+
+        // 在登记的节点上删除，不依赖放置记录
+        verify(asyncMediaAdapter).deleteRoomsAsync(argThat(rooms -> List.copyOf(rooms).equals(List.of(room1, room2, room3))));
+        verifyNoInteractions(mediaAdapter);
+        // room_2 第一次失败: 退避 [500, 1000] 毫秒后重试，节点记账不动
+        verify(zSetOperations).add(eq(RtcKeys.MEDIA_GC_QUEUE), eq(LK_2 + "|room_2"),
+                doubleThat(score -> score >= before + 500 && score <= System.currentTimeMillis() + 1000));
+        verify(asyncMediaAdapter, never()).releaseRoom(room2);
+        // room_1 删除成功、room_3 达到上限放弃，一起出队，各扣除一次记账
+        verify(zSetOperations).remove(RtcKeys.MEDIA_GC_QUEUE, LK_1 + "|room_1", LK_1 + "|room_3");
+        verify(hashOperations).delete(RtcKeys.MEDIA_GC_ATTEMPTS, LK_1 + "|room_1", LK_1 + "|room_3");
+        verify(asyncMediaAdapter).releaseRoom(room1);
+        verify(asyncMediaAdapter).releaseRoom(room3);
+        assertEquals(1, count("deleted"));
+        assertEquals(1, count("retried"));
+        assertEquals(1, count("abandoned"));
+        assertEquals(1.0, meterRegistry.get("rtc.media.gc.pending").gauge().value());
+    }
+
+    @Test
+    void drain_LegacyMemberResolvesNode() {
+        claims(List.of("room_1"));
+        when(asyncMediaAdapter.deleteRoomsAsync(anyCollection())).thenReturn(CompletableFuture.completedFuture(List.of()));
+
+        reaper.drain();
+
+        verify(asyncMediaAdapter).deleteRoomsAsync(argThat(rooms -> rooms.contains(new MediaRoom(LK_1, "room_1"))));
+        verify(zSetOperations).remove(RtcKeys.MEDIA_GC_QUEUE, "room_1");
+    }
+
+    @Test
+    void drain_SkipsWhilePreviousBatchInFlight() {
+        claims(List.of(LK_1 + "|room_1"));
+        CompletableFuture<List<MediaRoom>> deletion = new CompletableFuture<>();
+        when(asyncMediaAdapter.deleteRoomsAsync(anyCollection())).thenReturn(deletion);
+
+        reaper.drain();
+        reaper.drain();
+        verify(asyncMediaAdapter, times(1)).deleteRoomsAsync(anyCollection());
+
+        deletion.complete(List.of());
+        reaper.drain();
+        verify(asyncMediaAdapter, times(2)).deleteRoomsAsync(anyCollection());
+    }
+
+    @Test
+    void reconcile_EnqueuesRoomsOrphanedTwice() {
+        when(asyncMediaAdapter.listRoomsAsync()).thenReturn(CompletableFuture.completedFuture(List.of(
+                new MediaRoom(LK_1, "room_active"), new MediaRoom(LK_2, "room_leaked"),
+                new MediaRoom(LK_1, "room_new"), new MediaRoom(LK_2, "room_pooled"))));
+        when(sessionRepository.findRoomNamesByStatus(anyCollection(), eq(0))).thenReturn(List.of("room_active"));
+
+        // 第一轮只记下嫌疑房间
+        reaper.reconcile();
+        verifyNoInteractions(zSetOperations);
+
+        // 第二轮 room_new 已有会话，room_leaked 仍然没有
+        when(sessionRepository.findRoomNamesByStatus(anyCollection(), eq(0))).thenReturn(List.of("room_active", "room_new"));
+        reaper.reconcile();
+
+        // 按媒体服务器上所在的节点登记
+        verify(zSetOperations).add(eq(RtcKeys.MEDIA_GC_QUEUE), eq(LK_2 + "|room_leaked"), anyDouble());
+        verify(zSetOperations, times(1)).add(eq(RtcKeys.MEDIA_GC_QUEUE), anyString(), anyDouble());
+        verifyNoInteractions(mediaAdapter);
+        assertEquals(1, count("leaked"));
+    }
+
+    @Test
+    void reconcile_OnlyFirstNodeRuns() {
+        when(presenceService.getNodeId()).thenReturn("node-2");
+
+        reaper.reconcile();
+
+        verifyNoInteractions(asyncMediaAdapter, sessionRepository);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void claims(List<Object> roomNames) {
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(RtcKeys.MEDIA_GC_QUEUE)), any(), any(), any()))
+                .thenReturn(roomNames)
+                .thenReturn(roomNames);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("rtc.media.gc.rooms").tag("result", result).counter().count();
+    }
+}
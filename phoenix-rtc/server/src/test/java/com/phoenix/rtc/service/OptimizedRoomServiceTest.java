@@ -1,5 +1,6 @@
 package com.phoenix.rtc.service;
 
+import com.phoenix.rtc.adapter.AsyncMediaAdapter;
 import com.phoenix.rtc.adapter.MediaAdapter;
 import com.phoenix.rtc.adapter.MediaAdapter.RoomConfig;
 import com.phoenix.rtc.config.MetricsConfig;
@@ -7,6 +8,9 @@ import com.phoenix.rtc.model.dto.CallRequest;
 import com.phoenix.rtc.model.dto.TokenResponse;
 import com.phoenix.rtc.model.entity.RtcParticipant;
 import com.phoenix.rtc.model.entity.RtcSession;
+import com.phoenix.rtc.redis.RtcReactiveOperations;
+import com.phoenix.rtc.redis.codec.FieldValues;
+import com.phoenix.rtc.redis.codec.RtcFields;
 import com.phoenix.rtc.repository.RtcParticipantRepository;
 import com.phoenix.rtc.repository.RtcSessionRepository;
 import io.livekit.server.RoomInfo;
@@ -20,18 +24,22 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.redis.core.HashOperations;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.SetOperations;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -49,13 +57,13 @@ class OptimizedRoomServiceTest {
     private MediaAdapter mediaAdapter;
 
     @Mock
-    private RtcSessionRepository sessionRepository;
+    private AsyncMediaAdapter asyncMediaAdapter;
 
     @Mock
-    private RtcParticipantRepository participantRepository;
+    private RtcSessionRepository sessionRepository;
 
     @Mock
-    private RedisTemplate<String, Object> redisTemplate;
+    private RtcParticipantRepository participantRepository;
 
     @Mock
     private MetricsConfig metricsConfig;
@@ -67,13 +75,22 @@ class OptimizedRoomServiceTest {
     private Timer tokenGenerationTimer;
 
     @Mock
-    private HashOperations<String, Object, Object> hashOps;
+    private RoomMetaCache roomMetaCache;
 
     @Mock
-    private SetOperations<String, Object> setOps;
+    private RtcReactiveOperations rtcReactiveOperations;
 
     @Mock
-    private ValueOperations<String, Object> valueOps;
+    private TokenPoolService tokenPoolService;
+
+    @Mock
+    private MediaRoomReaper mediaRoomReaper;
+
+    @Mock
+    private MediaRoomPool mediaRoomPool;
+
+    @Spy
+    private AsyncTaskExecutor rtcIoExecutor = new SimpleAsyncTaskExecutor("test-io-");
 
     @Spy
     @InjectMocks
@@ -81,9 +98,28 @@ class OptimizedRoomServiceTest {
 
     @BeforeEach
     void setUp() {
-        when(redisTemplate.opsForHash()).thenReturn(hashOps);
-        when(redisTemplate.opsForSet()).thenReturn(setOps);
-        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        // Redis 命令立即完成，await 直接取结果
+        lenient().when(rtcReactiveOperations.await(any())).thenAnswer(invocation ->
+            ((Mono<?>) invocation.getArgument(0)).block());
+        lenient().when(rtcReactiveOperations.putAll(anyString(), any(FieldValues.class), anyLong())).thenReturn(Mono.empty());
+        lenient().when(rtcReactiveOperations.setAdd(anyString(), anyString(), anyLong())).thenReturn(Mono.empty());
+        lenient().when(rtcReactiveOperations.set(anyString(), anyString(), anyLong())).thenReturn(Mono.empty());
+        lenient().when(rtcReactiveOperations.setRemove(anyString(), anyString())).thenReturn(Mono.just(1L));
+        lenient().when(rtcReactiveOperations.delete(anyList())).thenReturn(Mono.just(1L));
+        lenient().when(rtcReactiveOperations.increment(anyString(), any(), anyLong())).thenReturn(Mono.just(1L));
+        lenient().when(rtcReactiveOperations.setSize(anyString())).thenReturn(Mono.just(0L));
+        lenient().when(tokenPoolService.take(anyString(), anyString())).thenReturn(Mono.empty());
+        lenient().when(mediaAdapter.getRoomUrl(anyString())).thenReturn("ws://livekit-1:7880");
+        // 异步接口委托给同步 mock，建房在 I/O 线程上执行
+        lenient().when(asyncMediaAdapter.createRoomAsync(anyString(), any())).thenAnswer(invocation ->
+            CompletableFuture.supplyAsync(() -> mediaAdapter.createRoom(invocation.getArgument(0), invocation.getArgument(1)),
+                rtcIoExecutor));
+        lenient().when(asyncMediaAdapter.deleteRoomAsync(anyString())).thenAnswer(invocation -> {
+            mediaAdapter.deleteRoom(invocation.getArgument(0));
+            return CompletableFuture.completedFuture(null);
+        });
+        ReflectionTestUtils.setField(optimizedRoomService, "callSetupTimeoutMs", 5_000L);
+        ReflectionTestUtils.setField(optimizedRoomService, "tokenTtlSeconds", 7200L);
 
         // Mock Timer.record() to execute the callable directly
         when(callCreationTimer.record(any())).thenAnswer(invocation -> {
@@ -109,7 +145,6 @@ class OptimizedRoomServiceTest {
 
         // Mock dependencies
         doReturn(roomName).when(optimizedRoomService).generateRoomName("room");
-        doReturn(mockToken).when(optimizedRoomService).getLiveKitUrl();
 
         RoomInfo roomInfo = new RoomInfo(roomName, 2, 300);
         when(mediaAdapter.createRoom(eq(roomName), any(RoomConfig.class))).thenReturn(roomInfo);
@@ -149,16 +184,49 @@ class OptimizedRoomServiceTest {
         verify(participantRepository).save(any(RtcParticipant.class));
 
         // Verify Redis operations
-        verify(hashOps).putAll(eq("rtc:room:" + roomName + ":meta"), anyMap());
-        verify(setOps).add(eq("rtc:room:" + roomName + ":members"), currentUserId);
-        verify(hashOps).putAll(eq("rtc:room:" + roomName + ":member:" + currentUserId), anyMap());
-        verify(valueOps).set(eq("rtc:session:" + currentUserId), eq(roomName), anyLong(), any());
+        verify(rtcReactiveOperations).putAll(eq("rtc:{" + roomName + "}:meta"), any(FieldValues.class), anyLong());
+        verify(rtcReactiveOperations).setAdd(eq("rtc:{" + roomName + "}:members"), eq(currentUserId), anyLong());
+        verify(rtcReactiveOperations).putAll(eq("rtc:{" + roomName + "}:member:" + currentUserId), any(FieldValues.class), anyLong());
+        verify(rtcReactiveOperations).set(eq("rtc:session:" + currentUserId), eq(roomName), anyLong());
 
         // Verify metrics
         verify(metricsConfig).incrementTotalCalls();
         verify(metricsConfig).incrementActiveCalls();
     }
 
+    @Test
+    void testStartCall_1v1_UsesPooledRoom() {
+        // Given - 预建房间池中有房间，不再现场建房
+        CallRequest request = CallRequest.builder().sessionType("video").title("预建房间").build();
+        when(mediaRoomPool.lease(2)).thenReturn(new MediaRoomPool.PooledRoom("room_pooled1", "ws://livekit-2:7880"));
+        when(mediaAdapter.getRoomUrl("room_pooled1")).thenReturn("ws://livekit-2:7880");
+        when(mediaAdapter.generateToken("user1", "room_pooled1", "host")).thenReturn("token");
+        when(sessionRepository.save(any(RtcSession.class))).thenReturn(RtcSession.builder().id(1L).build());
+
+        // When
+        TokenResponse response = optimizedRoomService.startCall(request, "user1");
+
+        // Then
+        assertEquals("room_pooled1", response.getRoomName());
+        assertEquals("ws://livekit-2:7880", response.getUrl());
+        verify(asyncMediaAdapter, never()).createRoomAsync(anyString(), any());
+        verify(mediaAdapter).participantJoined("room_pooled1");
+    }
+
+    @Test
+    void testStartCall_Group_SkipsPool() {
+        CallRequest request = CallRequest.builder().sessionType("group").title("群聊").build();
+        lenient().when(mediaAdapter.createRoom(anyString(), any())).thenAnswer(invocation ->
+            new RoomInfo(invocation.getArgument(0), 100, 600));
+        when(mediaAdapter.generateToken(anyString(), anyString(), anyString())).thenReturn("token");
+        when(sessionRepository.save(any(RtcSession.class))).thenReturn(RtcSession.builder().id(1L).build());
+
+        optimizedRoomService.startCall(request, "user1");
+
+        verifyNoInteractions(mediaRoomPool);
+        verify(asyncMediaAdapter).createRoomAsync(startsWith("room_"), any());
+    }
+
     @Test
     void testStartCall_Group_Success() throws Exception {
         // Given
@@ -172,7 +240,6 @@ class OptimizedRoomServiceTest {
         String mockToken = "jwt_token_abc";
 
         doReturn(roomName).when(optimizedRoomService).generateRoomName("room");
-        doReturn(mockToken).when(optimizedRoomService).getLiveKitUrl();
 
         RoomInfo roomInfo = new RoomInfo(roomName, 50, 600);
         when(mediaAdapter.createRoom(eq(roomName), any(RoomConfig.class))).thenReturn(roomInfo);
@@ -238,8 +305,8 @@ class OptimizedRoomServiceTest {
         String mockToken = "jwt_token_join";
 
         // Mock Redis capacity check
-        when(hashOps.get("rtc:room:" + roomName + ":meta", "maxMembers")).thenReturn(10000);
-        when(setOps.size("rtc:room:" + roomName + ":members")).thenReturn(50L);
+        when(roomMetaCache.getMeta(roomName)).thenReturn(meta(10000));
+        when(rtcReactiveOperations.setSize("rtc:{" + roomName + "}:members")).thenReturn(Mono.just(50L));
 
         RtcSession session = RtcSession.builder()
                 .id(1L)
@@ -250,10 +317,9 @@ class OptimizedRoomServiceTest {
                 .status(0)
                 .build();
 
-        when(sessionRepository.findByRoomName(roomName)).thenReturn(Optional.of(session));
+        when(roomMetaCache.getSession(roomName)).thenReturn(RoomMetaCache.SessionSnapshot.of(session));
         when(participantRepository.findBySessionIdAndUserId(1L, userId)).thenReturn(Optional.empty());
         when(mediaAdapter.generateToken(userId, roomName, "publisher")).thenReturn(mockToken);
-        doReturn(mockToken).when(optimizedRoomService).getLiveKitUrl();
 
         // When
         TokenResponse response = optimizedRoomService.joinCall(roomName, userId);
@@ -264,14 +330,151 @@ class OptimizedRoomServiceTest {
         assertEquals(mockToken, response.getToken());
 
         // Verify capacity check passed
-        verify(setOps).size("rtc:room:" + roomName + ":members");
+        verify(rtcReactiveOperations).setSize("rtc:{" + roomName + "}:members");
 
         // Verify participant saved
         verify(participantRepository).save(any(RtcParticipant.class));
 
         // Verify Redis updates
-        verify(setOps).add("rtc:room:" + roomName + ":members", userId);
-        verify(hashOps).increment("rtc:room:" + roomName + ":meta", "currentMembers", 1);
+        verify(rtcReactiveOperations).setAdd(eq("rtc:{" + roomName + "}:members"), eq(userId), anyLong());
+        verify(rtcReactiveOperations).increment("rtc:{" + roomName + "}:meta", RtcFields.META_CURRENT_MEMBERS, 1);
+    }
+
+    @Test
+    void testJoinCall_PrewarmedToken_SkipsMinting() {
+        // Given
+        String roomName = "room_webinar";
+        String userId = "viewer_1";
+
+        when(roomMetaCache.getMeta(roomName)).thenReturn(prewarmedMeta(10000));
+        when(roomMetaCache.getSession(roomName)).thenReturn(RoomMetaCache.SessionSnapshot.of(RtcSession.builder()
+                .id(1L).roomName(roomName).sessionType(3).status(0).build()));
+        when(participantRepository.findBySessionIdAndUserId(1L, userId)).thenReturn(Optional.empty());
+        when(tokenPoolService.take(roomName, userId))
+                .thenReturn(Mono.just(new TokenPoolService.PooledToken("guest_k3x9", "pooled_token", 1_900_000_000L)));
+
+        // When
+        TokenResponse response = optimizedRoomService.joinCall(roomName, userId);
+
+        // Then - 预签 Token 直接返回，只能拉流，不再签名；过期时间取预签 Token 自身的 exp
+        assertEquals("pooled_token", response.getToken());
+        assertEquals("guest_k3x9", response.getIdentity());
+        assertEquals(1_900_000_000L, response.getExpiresAt());
+        verify(mediaAdapter, never()).generateToken(anyString(), anyString(), anyString());
+        verify(tokenGenerationTimer, never()).record(any(java.util.function.Supplier.class));
+        verify(participantRepository).save(argThat(participant -> "subscriber".equals(participant.getRole())));
+        verify(rtcReactiveOperations).setAdd(eq("rtc:{" + roomName + "}:members"), eq(userId), anyLong());
+    }
+
+    @Test
+    void testJoinCall_PooledViewerRejoin_KeepsBoundIdentity() {
+        // Given - 观众已用占位 Token 加入过，重连
+        String roomName = "room_webinar";
+        String userId = "viewer_1";
+
+        when(roomMetaCache.getMeta(roomName)).thenReturn(prewarmedMeta(10000));
+        when(roomMetaCache.getSession(roomName)).thenReturn(RoomMetaCache.SessionSnapshot.of(RtcSession.builder()
+                .id(1L).roomName(roomName).sessionType(3).status(0).build()));
+        when(participantRepository.findBySessionIdAndUserId(1L, userId)).thenReturn(Optional.of(
+                RtcParticipant.builder().sessionId(1L).userId(userId).role("subscriber").build()));
+        when(tokenPoolService.take(roomName, userId))
+                .thenReturn(Mono.just(new TokenPoolService.PooledToken("guest_k3x9", "pooled_token", 1_900_000_000L)));
+
+        // When
+        TokenResponse response = optimizedRoomService.joinCall(roomName, userId);
+
+        // Then - 取回绑定的占位身份，仍然只能拉流，不重复登记参与者
+        assertEquals("guest_k3x9", response.getIdentity());
+        assertEquals("pooled_token", response.getToken());
+        verify(mediaAdapter, never()).generateToken(anyString(), anyString(), anyString());
+        verify(participantRepository, never()).save(any());
+    }
+
+    @Test
+    void testJoinCall_PooledViewerRejoin_PoolEmptyStaysSubscriber() {
+        // Given - 绑定已过期、池也取空
+        String roomName = "room_webinar";
+        String userId = "viewer_1";
+
+        when(roomMetaCache.getMeta(roomName)).thenReturn(prewarmedMeta(10000));
+        when(roomMetaCache.getSession(roomName)).thenReturn(RoomMetaCache.SessionSnapshot.of(RtcSession.builder()
+                .id(1L).roomName(roomName).sessionType(3).status(0).build()));
+        when(participantRepository.findBySessionIdAndUserId(1L, userId)).thenReturn(Optional.of(
+                RtcParticipant.builder().sessionId(1L).userId(userId).role("subscriber").build()));
+        when(mediaAdapter.generateToken(userId, roomName, "subscriber")).thenReturn("viewer_token");
+
+        // When
+        TokenResponse response = optimizedRoomService.joinCall(roomName, userId);
+
+        // Then - 按原角色现场签发，不升级为推流
+        assertEquals("viewer_token", response.getToken());
+        verify(mediaAdapter, never()).generateToken(anyString(), anyString(), eq("publisher"));
+    }
+
+    @Test
+    void testJoinCall_TokenPoolOnlyForNewAudienceOfPrewarmedRoom() {
+        // Given - 未预签的房间、已加入的用户重连、发起人
+        when(roomMetaCache.getMeta("room_plain")).thenReturn(meta(10000));
+        when(roomMetaCache.getMeta("room_webinar")).thenReturn(prewarmedMeta(10000));
+        when(roomMetaCache.getSession(anyString())).thenReturn(RoomMetaCache.SessionSnapshot.of(RtcSession.builder()
+                .id(1L).roomName("room_webinar").sessionType(3).status(0).build()));
+        when(participantRepository.findBySessionIdAndUserId(1L, "viewer_1")).thenReturn(Optional.empty());
+        when(participantRepository.findBySessionIdAndUserId(1L, "viewer_2"))
+                .thenReturn(Optional.of(RtcParticipant.builder().sessionId(1L).userId("viewer_2").build()));
+        when(participantRepository.findBySessionIdAndUserId(1L, "user1")).thenReturn(Optional.empty());
+        when(mediaAdapter.generateToken(anyString(), anyString(), eq("publisher"))).thenReturn("token");
+
+        // When
+        optimizedRoomService.joinCall("room_plain", "viewer_1");
+        optimizedRoomService.joinCall("room_webinar", "viewer_2");
+        optimizedRoomService.joinCall("room_webinar", "user1");
+
+        // Then - 都不访问 Token 池，也不消耗池中的 Token
+        verify(tokenPoolService, never()).take(anyString(), anyString());
+    }
+
+    @Test
+    void testPrewarmLiveTokens_MarksRoomMeta() {
+        String roomName = "room_webinar";
+        when(roomMetaCache.getSession(roomName)).thenReturn(RoomMetaCache.SessionSnapshot.of(RtcSession.builder()
+                .id(1L).roomName(roomName).sessionType(3).status(0).build()));
+        when(tokenPoolService.prewarm(eq(roomName), anyCollection(), anyInt(), anyLong())).thenReturn(10);
+
+        optimizedRoomService.prewarmLiveTokens(roomName, List.of(), 10, java.time.Instant.now());
+
+        verify(rtcReactiveOperations).putAll(eq("rtc:{" + roomName + "}:meta"),
+                argThat(values -> Boolean.TRUE.equals(values.get(RtcFields.META_TOKEN_POOL))), anyLong());
+        verify(roomMetaCache).invalidate(roomName);
+    }
+
+    @Test
+    void testPrewarmLiveTokens_ValidUntilAfterStart() {
+        // Given
+        String roomName = "room_webinar";
+        when(roomMetaCache.getSession(roomName)).thenReturn(RoomMetaCache.SessionSnapshot.of(RtcSession.builder()
+                .id(1L).roomName(roomName).sessionType(3).status(0).build()));
+        when(tokenPoolService.prewarm(eq(roomName), anyCollection(), anyInt(), anyLong())).thenReturn(1002);
+
+        // When
+        int minted = optimizedRoomService.prewarmLiveTokens(roomName, List.of("u1", "u2"), 1000,
+                java.time.Instant.now().plusSeconds(1800));
+
+        // Then - 有效期 = 距开播时长 + Token 有效期
+        assertEquals(1002, minted);
+        verify(tokenPoolService).prewarm(eq(roomName), eq(List.of("u1", "u2")), eq(1000),
+                longThat(seconds -> seconds > 7200 + 1790 && seconds <= 7200 + 1800));
+    }
+
+    @Test
+    void testPrewarmLiveTokens_RejectsNonLiveRoom() {
+        when(roomMetaCache.getSession("room_1v1")).thenReturn(RoomMetaCache.SessionSnapshot.of(RtcSession.builder()
+                .id(1L).roomName("room_1v1").sessionType(1).status(0).build()));
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () ->
+                optimizedRoomService.prewarmLiveTokens("room_1v1", List.of("u1"), 0, java.time.Instant.now()));
+
+        assertEquals("只有直播房间支持 Token 预签", exception.getMessage());
+        verifyNoInteractions(tokenPoolService);
     }
 
     @Test
@@ -281,8 +484,8 @@ class OptimizedRoomServiceTest {
         String userId = "user_overflow";
 
         // Mock Redis - room is full
-        when(hashOps.get("rtc:room:" + roomName + ":meta", "maxMembers")).thenReturn(100);
-        when(setOps.size("rtc:room:" + roomName + ":members")).thenReturn(100L);
+        when(roomMetaCache.getMeta(roomName)).thenReturn(meta(100));
+        when(rtcReactiveOperations.setSize("rtc:{" + roomName + "}:members")).thenReturn(Mono.just(100L));
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -290,7 +493,8 @@ class OptimizedRoomServiceTest {
         });
 
         assertEquals("房间已满，无法加入", exception.getMessage());
-        verify(sessionRepository, never()).findByRoomName(anyString());
+        // 会话与成员数并发读取，满员时不再写入参与者
+        verify(participantRepository, never()).save(any(RtcParticipant.class));
     }
 
     @Test
@@ -299,8 +503,8 @@ class OptimizedRoomServiceTest {
         String roomName = "nonexistent";
         String userId = "user2";
 
-        // Mock Redis - room doesn't exist
-        when(hashOps.get("rtc:room:" + roomName + ":meta", "maxMembers")).thenReturn(null);
+        // Mock cache - room doesn't exist
+        when(roomMetaCache.getMeta(roomName)).thenReturn(null);
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -343,17 +547,42 @@ class OptimizedRoomServiceTest {
         assertEquals(1, session.getStatus()); // ENDED status
         assertNotNull(session.getEndTime());
 
-        // Verify room deleted
-        verify(mediaAdapter).deleteRoom(roomName);
+        // Verify room queued for deletion (deleted in background)
+        verify(mediaRoomReaper).enqueue("ws://livekit-1:7880", roomName);
+        verify(mediaAdapter, never()).deleteRoom(anyString());
 
         // Verify Redis cleanup
-        verify(redisTemplate).delete("rtc:room:" + roomName + ":meta");
-        verify(redisTemplate).delete("rtc:room:" + roomName + ":members");
+        verify(rtcReactiveOperations).delete(List.of("rtc:{" + roomName + "}:meta", "rtc:{" + roomName + "}:members",
+            "rtc:{" + roomName + "}:tokens", "rtc:{" + roomName + "}:tokens:open"));
 
         // Verify metrics
         verify(metricsConfig).decrementActiveCalls();
     }
 
+    @Test
+    void testLeaveCall_RoomEmpty_EnqueuesDeletionAfterCommit() {
+        // Given
+        String roomName = "room_test";
+        RtcSession session = RtcSession.builder().id(1L).roomName(roomName).initiatorId("user1").status(0).build();
+        when(sessionRepository.findByRoomName(roomName)).thenReturn(Optional.of(session));
+        when(participantRepository.findBySessionIdAndUserId(1L, "user1")).thenReturn(Optional.empty());
+        when(participantRepository.countOnlineParticipants(roomName)).thenReturn(0);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            optimizedRoomService.leaveCall(roomName, "user1");
+
+            // Then - 节点在清理元数据前确定，提交后才登记删除
+            verify(mediaAdapter).getRoomUrl(roomName);
+            verify(mediaRoomReaper, never()).enqueue(anyString(), anyString());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(mediaRoomReaper).enqueue("ws://livekit-1:7880", roomName);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
     @Test
     void testLeaveCall_RoomNotEmpty() throws Exception {
         // Given
@@ -390,12 +619,12 @@ class OptimizedRoomServiceTest {
         verify(mediaAdapter, never()).deleteRoom(anyString());
 
         // Verify user cleanup only
-        verify(redisTemplate).delete("rtc:room:" + roomName + ":member:" + userId);
-        verify(redisTemplate).delete("rtc:session:" + userId);
-        verify(setOps).remove("rtc:room:" + roomName + ":members", userId);
+        verify(rtcReactiveOperations).delete(List.of("rtc:{" + roomName + "}:member:" + userId));
+        verify(rtcReactiveOperations).delete(List.of("rtc:session:" + userId));
+        verify(rtcReactiveOperations).setRemove("rtc:{" + roomName + "}:members", userId);
 
         // Verify counter decremented
-        verify(hashOps).increment("rtc:room:" + roomName + ":meta", "currentMembers", -1);
+        verify(rtcReactiveOperations).increment("rtc:{" + roomName + "}:meta", RtcFields.META_CURRENT_MEMBERS, -1);
     }
 
     @Test
@@ -408,15 +637,15 @@ class OptimizedRoomServiceTest {
                 .roomTitle("测试房间")
                 .build();
 
-        when(sessionRepository.findByRoomName(roomName)).thenReturn(Optional.of(session));
+        when(roomMetaCache.getSession(roomName)).thenReturn(RoomMetaCache.SessionSnapshot.of(session));
 
         // When
-        RtcSession result = optimizedRoomService.getRoomInfo(roomName);
+        RoomMetaCache.SessionSnapshot result = optimizedRoomService.getRoomInfo(roomName);
 
         // Then
         assertNotNull(result);
-        assertEquals(roomName, result.getRoomName());
-        assertEquals("测试房间", result.getRoomTitle());
+        assertEquals(roomName, result.roomName());
+        assertEquals("测试房间", result.roomTitle());
     }
 
     @Test
@@ -452,16 +681,19 @@ class OptimizedRoomServiceTest {
 
         // When
         java.lang.reflect.Method method = OptimizedRoomService.class.getDeclaredMethod(
-            "batchUpdateRedis", String.class, String.class, RtcSession.class, int.class
+            "batchUpdateRedis", String.class, String.class, RtcSession.class, int.class, String.class
         );
         method.setAccessible(true);
-        method.invoke(optimizedRoomService, roomName, userId, session, 10000);
+        Mono<?> writes = (Mono<?>) method.invoke(optimizedRoomService, roomName, userId, session, 10000,
+            "ws://livekit-2:7880");
+        writes.block();
 
         // Then - Verify all Redis operations were called
-        verify(hashOps, times(2)).putAll(anyString(), anyMap()); // room meta + member
-        verify(setOps).add(anyString(), anyString());
-        verify(valueOps).set(anyString(), anyString(), anyLong(), any());
-        verify(redisTemplate, times(3)).expire(anyString(), anyLong(), any());
+        verify(rtcReactiveOperations, times(2)).putAll(anyString(), any(FieldValues.class), anyLong()); // room meta + member
+        verify(rtcReactiveOperations).setAdd(anyString(), anyString(), anyLong());
+        verify(rtcReactiveOperations).set(anyString(), anyString(), anyLong());
+        // 四组写入同时发出，由 startCall 与其他步骤一起汇合，这里不等待
+        verify(rtcReactiveOperations, never()).await(any());
     }
 
     @Test
@@ -481,13 +713,13 @@ class OptimizedRoomServiceTest {
                 .build();
 
         // Mock Redis capacity
-        when(hashOps.get("rtc:room:" + roomName + ":meta", "maxMembers")).thenReturn(10000);
-        when(setOps.size("rtc:room:" + roomName + ":members")).thenReturn(0L, 1L, 2L, 5L, 10L); // Increasing counts
+        when(roomMetaCache.getMeta(roomName)).thenReturn(meta(10000));
+        when(rtcReactiveOperations.setSize("rtc:{" + roomName + "}:members"))
+            .thenReturn(Mono.just(0L), Mono.just(1L), Mono.just(2L), Mono.just(5L), Mono.just(10L)); // Increasing counts
 
-        when(sessionRepository.findByRoomName(roomName)).thenReturn(Optional.of(session));
+        when(roomMetaCache.getSession(roomName)).thenReturn(RoomMetaCache.SessionSnapshot.of(session));
         when(participantRepository.findBySessionIdAndUserId(anyLong(), anyString())).thenReturn(Optional.empty());
         when(participantRepository.save(any(RtcParticipant.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        doReturn("mock_token").when(optimizedRoomService).getLiveKitUrl();
 
         // Mock token generation
         when(mediaAdapter.generateToken(anyString(), eq(roomName), eq("publisher"))).thenAnswer(invocation -> {
@@ -565,28 +797,25 @@ class OptimizedRoomServiceTest {
 
         // When
         java.lang.reflect.Method method = OptimizedRoomService.class.getDeclaredMethod(
-            "batchUpdateRedis", String.class, String.class, RtcSession.class, int.class
+            "batchUpdateRedis", String.class, String.class, RtcSession.class, int.class, String.class
         );
         method.setAccessible(true);
-        method.invoke(optimizedRoomService, roomName, userId, session, 10000);
+        method.invoke(optimizedRoomService, roomName, userId, session, 10000, "ws://livekit-1:7880");
 
         // Then - Verify order of operations
-        var inOrder = inOrder(hashOps, setOps, valueOps, redisTemplate);
+        var inOrder = inOrder(rtcReactiveOperations);
 
-        // 1. Room meta
-        inOrder.verify(hashOps).putAll(eq("rtc:room:" + roomName + ":meta"), anyMap());
-        inOrder.verify(redisTemplate).expire(eq("rtc:room:" + roomName + ":meta"), anyLong(), any());
+        // 1. Room meta (HSET + EXPIRE)
+        inOrder.verify(rtcReactiveOperations).putAll(eq("rtc:{" + roomName + "}:meta"), any(FieldValues.class), anyLong());
 
         // 2. Members set
-        inOrder.verify(setOps).add(eq("rtc:room:" + roomName + ":members"), userId);
-        inOrder.verify(redisTemplate).expire(eq("rtc:room:" + roomName + ":members"), anyLong(), any());
+        inOrder.verify(rtcReactiveOperations).setAdd(eq("rtc:{" + roomName + "}:members"), eq(userId), anyLong());
 
         // 3. Member details
-        inOrder.verify(hashOps).putAll(eq("rtc:room:" + roomName + ":member:" + userId), anyMap());
-        inOrder.verify(redisTemplate).expire(eq("rtc:room:" + roomName + ":member:" + userId), anyLong(), any());
+        inOrder.verify(rtcReactiveOperations).putAll(eq("rtc:{" + roomName + "}:member:" + userId), any(FieldValues.class), anyLong());
 
         // 4. User session
-        inOrder.verify(valueOps).set(eq("rtc:session:" + userId), eq(roomName), anyLong(), any());
+        inOrder.verify(rtcReactiveOperations).set(eq("rtc:session:" + userId), eq(roomName), anyLong());
     }
 
     @Test
@@ -602,8 +831,8 @@ class OptimizedRoomServiceTest {
         method.invoke(optimizedRoomService, roomName);
 
         // Then
-        verify(redisTemplate).delete("rtc:room:" + roomName + ":meta");
-        verify(redisTemplate).delete("rtc:room:" + roomName + ":members");
+        verify(rtcReactiveOperations).delete(List.of("rtc:{" + roomName + "}:meta", "rtc:{" + roomName + "}:members",
+            "rtc:{" + roomName + "}:tokens", "rtc:{" + roomName + "}:tokens:open"));
     }
 
     @Test
@@ -620,9 +849,9 @@ class OptimizedRoomServiceTest {
         method.invoke(optimizedRoomService, roomName, userId);
 
         // Then
-        verify(setOps).remove("rtc:room:" + roomName + ":members", userId);
-        verify(redisTemplate).delete("rtc:room:" + roomName + ":member:" + userId);
-        verify(redisTemplate).delete("rtc:session:" + userId);
+        verify(rtcReactiveOperations).setRemove("rtc:{" + roomName + "}:members", userId);
+        verify(rtcReactiveOperations).delete(List.of("rtc:{" + roomName + "}:member:" + userId));
+        verify(rtcReactiveOperations).delete(List.of("rtc:session:" + userId));
     }
 
     @Test
@@ -666,17 +895,23 @@ class OptimizedRoomServiceTest {
     }
 
     @Test
-    void testGetLiveKitUrl_Fallback() throws Exception {
-        // Given - When mediaAdapter is not LiveKitAdapter
-        when(mediaAdapter instanceof com.phoenix.rtc.adapter.LiveKitAdapter).thenReturn(false);
+    void testJoinCall_UsesMediaNodeFromMeta() {
+        // Given - 房间元数据记录了所在的媒体节点
+        String roomName = "room_cluster";
+        when(roomMetaCache.getMeta(roomName)).thenReturn(
+                new RoomMetaCache.RoomMeta(1L, "user1", "group", 100, null, 0L, "ws://livekit-2:7880", false));
+        when(roomMetaCache.getSession(roomName)).thenReturn(RoomMetaCache.SessionSnapshot.of(RtcSession.builder()
+                .id(1L).roomName(roomName).sessionType(2).status(0).build()));
+        when(participantRepository.findBySessionIdAndUserId(1L, "user2")).thenReturn(Optional.empty());
+        when(mediaAdapter.generateToken("user2", roomName, "publisher")).thenReturn("token");
 
         // When
-        java.lang.reflect.Method method = OptimizedRoomService.class.getDeclaredMethod("getLiveKitUrl");
-        method.setAccessible(true);
-        String url = (String) method.invoke(optimizedRoomService);
+        TokenResponse response = optimizedRoomService.joinCall(roomName, "user2");
 
-        // Then
-        assertEquals("ws://localhost:7880", url);
+        // Then - 直接返回元数据中的节点，不再经适配器定位
+        assertEquals("ws://livekit-2:7880", response.getUrl());
+        verify(mediaAdapter, never()).getRoomUrl(anyString());
+        verify(mediaAdapter).participantJoined(roomName);
     }
 
     @Test
@@ -690,7 +925,6 @@ class OptimizedRoomServiceTest {
         String userId = "host1";
 
         doReturn("room_test").when(optimizedRoomService).generateRoomName("room");
-        doReturn("ws://test").when(optimizedRoomService).getLiveKitUrl();
 
         RoomInfo roomInfo = new RoomInfo("room_test", 10000, 600);
         when(mediaAdapter.createRoom(anyString(), any())).thenReturn(roomInfo);
@@ -725,6 +959,7 @@ class OptimizedRoomServiceTest {
 
         doReturn("room_test").when(optimizedRoomService).generateRoomName("room");
         when(mediaAdapter.createRoom(anyString(), any())).thenThrow(new RuntimeException("Media error"));
+        when(sessionRepository.save(any())).thenReturn(RtcSession.builder().id(1L).roomName("room_test").build());
 
         // When & Then
         assertThrows(RuntimeException.class, () -> {
@@ -736,4 +971,162 @@ class OptimizedRoomServiceTest {
         verify(metricsConfig, never()).incrementTotalCalls();
         verify(metricsConfig, never()).incrementActiveCalls();
     }
+
+    @Test
+    void testStartCall_StepsRunConcurrently() {
+        // Given - 会话插入等到建房和 Token 都已开始才返回，顺序执行时会等不到
+        CallRequest request = CallRequest.builder().sessionType("group").title("并发编排").build();
+        CountDownLatch started = new CountDownLatch(2);
+        AtomicBoolean overlapped = new AtomicBoolean();
+        when(mediaAdapter.createRoom(anyString(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            return new RoomInfo(invocation.getArgument(0), 100, 600);
+        });
+        when(mediaAdapter.generateToken(anyString(), anyString(), eq("host"))).thenAnswer(invocation -> {
+            started.countDown();
+            return "token";
+        });
+        when(sessionRepository.save(any())).thenAnswer(invocation -> {
+            overlapped.set(started.await(5, TimeUnit.SECONDS));
+            RtcSession session = invocation.getArgument(0);
+            session.setId(1L);
+            return session;
+        });
+
+        // When
+        TokenResponse response = optimizedRoomService.startCall(request, "user1");
+
+        // Then - 建房和 Token 在数据库写入期间已发出
+        assertTrue(overlapped.get(), "建房和 Token 应与数据库写入并发执行");
+        assertEquals("token", response.getToken());
+        // 建房时选定的媒体节点返回给客户端，并记入房间元数据
+        assertEquals("ws://livekit-1:7880", response.getUrl());
+        verify(rtcReactiveOperations).putAll(endsWith("}:meta"),
+            argThat(values -> "ws://livekit-1:7880".equals(values.get(RtcFields.META_MEDIA_NODE))), anyLong());
+        verify(participantRepository).save(any(RtcParticipant.class));
+        verify(mediaAdapter, never()).deleteRoom(anyString());
+    }
+
+    @Test
+    void testStartCall_TokenFails_DoesNotWaitForRoomCreation() {
+        // Given - 建房一直卡住，Token 立即失败
+        CallRequest request = CallRequest.builder().sessionType("group").title("Token 失败").build();
+        CountDownLatch roomCreated = new CountDownLatch(1);
+        when(mediaAdapter.createRoom(anyString(), any())).thenAnswer(invocation -> {
+            roomCreated.await(5, TimeUnit.SECONDS);
+            return new RoomInfo(invocation.getArgument(0), 100, 600);
+        });
+        when(mediaAdapter.generateToken(anyString(), anyString(), anyString()))
+            .thenThrow(new RuntimeException("签名密钥不可用"));
+        when(sessionRepository.save(any())).thenReturn(RtcSession.builder().id(1L).build());
+
+        // When
+        RuntimeException error;
+        try {
+            error = assertThrows(RuntimeException.class, () -> optimizedRoomService.startCall(request, "user1"));
+        } finally {
+            roomCreated.countDown();
+        }
+
+        // Then - 抛出的是 Token 的失败，建房尚未完成时已返回，并按已创建补偿删除
+        assertEquals("签名密钥不可用", error.getMessage());
+        verify(mediaAdapter, timeout(1_000)).deleteRoom(startsWith("room_"));
+        verify(metricsConfig).incrementFailedCalls();
+    }
+
+    @Test
+    void testStartCall_RedisWrittenAfterCommit() {
+        // Given
+        CallRequest request = CallRequest.builder().sessionType("group").title("提交后写入").build();
+        when(mediaAdapter.createRoom(anyString(), any())).thenAnswer(invocation ->
+            new RoomInfo(invocation.getArgument(0), 100, 600));
+        when(mediaAdapter.generateToken(anyString(), anyString(), eq("host"))).thenReturn("token");
+        when(sessionRepository.save(any())).thenReturn(RtcSession.builder().id(1L).build());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            optimizedRoomService.startCall(request, "user1");
+
+            // Then - 提交前不写房间元数据，提交后写入
+            verify(rtcReactiveOperations, never()).putAll(anyString(), any(FieldValues.class), anyLong());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(rtcReactiveOperations).putAll(endsWith("}:meta"), any(FieldValues.class), anyLong());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testStartCall_CreateRoomFails_CancelsTokenAndCompensates() {
+        // Given - 建房失败，Token 仍在进行中
+        CallRequest request = CallRequest.builder().sessionType("group").title("建房失败").build();
+        AtomicBoolean tokenInterrupted = new AtomicBoolean();
+        when(mediaAdapter.createRoom(anyString(), any())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            throw new RuntimeException("LiveKit 不可用");
+        });
+        when(mediaAdapter.generateToken(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                tokenInterrupted.set(true);
+                throw e;
+            }
+            return "token";
+        });
+        when(sessionRepository.save(any())).thenReturn(RtcSession.builder().id(1L).build());
+
+        // When
+        long start = System.nanoTime();
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> optimizedRoomService.startCall(request, "user1"));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then - 立即失败，不等待 Token；建房未成功不删除媒体房间，只清理已写入的 Redis
+        assertEquals("LiveKit 不可用", error.getMessage());
+        assertTrue(elapsedMs < 1_000, "建房失败应立即返回，实际耗时 " + elapsedMs + "ms");
+        verify(mediaAdapter, timeout(1_000)).generateToken(anyString(), anyString(), anyString());
+        await(tokenInterrupted);
+        verify(mediaAdapter, never()).deleteRoom(anyString());
+        verify(rtcReactiveOperations).delete(argThat(keys -> keys.size() == 3 && keys.get(0).endsWith("}:meta")));
+        verify(rtcReactiveOperations).delete(List.of("rtc:session:user1"));
+        verify(metricsConfig).incrementFailedCalls();
+        verify(metricsConfig, never()).incrementTotalCalls();
+    }
+
+    @Test
+    void testStartCall_DatabaseFailsAfterRoomCreated_DeletesMediaRoom() {
+        // Given - 建房已发出，参与者插入失败 (建房/Token 可能在取消前尚未执行)
+        CallRequest request = CallRequest.builder().sessionType("video").title("数据库失败").build();
+        lenient().when(mediaAdapter.createRoom(anyString(), any())).thenAnswer(invocation ->
+            new RoomInfo(invocation.getArgument(0), 2, 600));
+        lenient().when(mediaAdapter.generateToken(anyString(), anyString(), anyString())).thenReturn("token");
+        when(sessionRepository.save(any())).thenReturn(RtcSession.builder().id(1L).build());
+        when(participantRepository.save(any())).thenThrow(new RuntimeException("Duplicate entry"));
+
+        // When
+        assertThrows(RuntimeException.class, () -> optimizedRoomService.startCall(request, "user1"));
+
+        // Then - 已创建或被取消的建房都按已创建补偿删除
+        verify(mediaAdapter).deleteRoom(startsWith("room_"));
+        verify(rtcReactiveOperations).delete(List.of("rtc:session:user1"));
+        verify(metricsConfig).incrementFailedCalls();
+    }
+
+    private static void await(AtomicBoolean flag) {
+        long deadline = System.currentTimeMillis() + 1_000;
+        while (!flag.get() && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertTrue(flag.get(), "未完成的分支应被中断");
+    }
+
+    private static RoomMetaCache.RoomMeta meta(int maxMembers) {
+        return new RoomMetaCache.RoomMeta(1L, "user1", "group", maxMembers, null, 0L, null, false);
+    }
+
+    private static RoomMetaCache.RoomMeta prewarmedMeta(int maxMembers) {
+        return new RoomMetaCache.RoomMeta(1L, "user1", "live", maxMembers, null, 0L, null, true);
+    }
 }
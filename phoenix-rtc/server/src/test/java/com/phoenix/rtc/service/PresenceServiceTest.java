@@ -0,0 +1,167 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.config.MetricsConfig;
+import com.phoenix.rtc.config.StompAuthInterceptor.RtcPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PresenceService 单元测试
+ */
+class PresenceServiceTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private ValueOperations<String, Object> valueOperations;
+    private MetricsConfig metricsConfig;
+    private PresenceService presenceService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        metricsConfig = new MetricsConfig(meterRegistry);
+        presenceService = new PresenceService(redisTemplate, metricsConfig, meterRegistry);
+        ReflectionTestUtils.setField(presenceService, "configuredNodeId", "node-a");
+        ReflectionTestUtils.setField(presenceService, "ttlSeconds", 60L);
+    }
+
+    @Test
+    void testConnectSubscribeDisconnect() {
+        Principal user = new RtcPrincipal("user1");
+        presenceService.onConnected(new SessionConnectedEvent(this, stomp(StompCommand.CONNECTED, "s1", null), user));
+        presenceService.onSubscribe(new SessionSubscribeEvent(this, stomp(StompCommand.SUBSCRIBE, "s1", "/user/queue/rtc"), user));
+
+        assertEquals(1, metricsConfig.getWebsocketConnections());
+        assertTrue(presenceService.isOnline("user1"));
+        verify(valueOperations).set("rtc:presence:user:user1", "node-a", 60L, TimeUnit.SECONDS);
+
+        SessionDisconnectEvent disconnect = new SessionDisconnectEvent(this,
+                stomp(StompCommand.DISCONNECT, "s1", null), "s1", CloseStatus.NORMAL, user);
+        presenceService.onDisconnect(disconnect);
+        // 重复的断开事件不应重复计数
+        presenceService.onDisconnect(disconnect);
+
+        assertEquals(0, metricsConfig.getWebsocketConnections());
+        verify(redisTemplate, times(1)).execute(any(), eq(List.of("rtc:presence:user:user1")), eq("node-a"));
+    }
+
+    @Test
+    void testSubscriptionsCountedPerSession() {
+        Principal user = new RtcPrincipal("user1");
+        connect("s1", user);
+        connect("s2", user);
+        // s1 重复订阅两次，s2 没有订阅呼叫队列
+        presenceService.onSubscribe(new SessionSubscribeEvent(this, subscribe("s1", "sub-0"), user));
+        presenceService.onSubscribe(new SessionSubscribeEvent(this, subscribe("s1", "sub-1"), user));
+
+        // 未订阅的会话断开不影响 s1
+        presenceService.onDisconnect(disconnect("s2", user));
+        assertTrue(presenceService.isOnline("user1"));
+        verify(redisTemplate, never()).execute(any(), anyList(), any());
+
+        // s1 断开时释放它持有的全部订阅
+        presenceService.onDisconnect(disconnect("s1", user));
+        when(redisTemplate.hasKey(anyString())).thenReturn(false);
+        assertFalse(presenceService.isOnline("user1"));
+        verify(redisTemplate, times(1)).execute(any(), eq(List.of("rtc:presence:user:user1")), eq("node-a"));
+    }
+
+    @Test
+    void testUnsubscribeReleasesLastSubscription() {
+        Principal user = new RtcPrincipal("user1");
+        connect("s1", user);
+        presenceService.onSubscribe(new SessionSubscribeEvent(this, subscribe("s1", "sub-0"), user));
+        presenceService.onSubscribe(new SessionSubscribeEvent(this, subscribe("s1", "sub-1"), user));
+
+        presenceService.onUnsubscribe(new SessionUnsubscribeEvent(this, unsubscribe("s1", "sub-0"), user));
+        assertTrue(presenceService.isOnline("user1"));
+
+        presenceService.onUnsubscribe(new SessionUnsubscribeEvent(this, unsubscribe("s1", "sub-1"), user));
+        verify(redisTemplate, times(1)).execute(any(), eq(List.of("rtc:presence:user:user1")), eq("node-a"));
+
+        // 之后断开不重复释放
+        presenceService.onDisconnect(disconnect("s1", user));
+        verify(redisTemplate, times(1)).execute(any(), anyList(), any());
+    }
+
+    @Test
+    void testGetOnlineStatus_LocalFirstThenRedis() {
+        Principal user = new RtcPrincipal("local");
+        presenceService.onConnected(new SessionConnectedEvent(this, stomp(StompCommand.CONNECTED, "s1", null), user));
+        presenceService.onSubscribe(new SessionSubscribeEvent(this, stomp(StompCommand.SUBSCRIBE, "s1", "/user/queue/rtc"), user));
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisStringCommands stringCommands = mock(RedisStringCommands.class);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        when(stringCommands.mGet(any(byte[][].class))).thenReturn(Arrays.asList("node-b".getBytes(), null));
+        when(redisTemplate.execute(any(RedisCallback.class))).thenAnswer(invocation ->
+                invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection));
+
+        Map<String, Boolean> status = presenceService.getOnlineStatus(List.of("local", "remote", "offline"));
+
+        assertEquals(Map.of("local", true, "remote", true, "offline", false), status);
+        verify(stringCommands).mGet(
+                aryEq("rtc:presence:user:remote".getBytes()), aryEq("rtc:presence:user:offline".getBytes()));
+    }
+
+    private void connect(String sessionId, Principal user) {
+        presenceService.onConnected(new SessionConnectedEvent(this, stomp(StompCommand.CONNECTED, sessionId, null), user));
+    }
+
+    private SessionDisconnectEvent disconnect(String sessionId, Principal user) {
+        return new SessionDisconnectEvent(this, stomp(StompCommand.DISCONNECT, sessionId, null),
+                sessionId, CloseStatus.NORMAL, user);
+    }
+
+    private static Message<byte[]> subscribe(String sessionId, String subscriptionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination("/user/queue/rtc");
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> unsubscribe(String sessionId, String subscriptionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.UNSUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> stomp(StompCommand command, String sessionId, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
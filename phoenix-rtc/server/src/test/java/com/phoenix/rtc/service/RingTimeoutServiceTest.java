@@ -0,0 +1,205 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.model.dto.WSMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * RingTimeoutService 单元测试
+ */
+class RingTimeoutServiceTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private ZSetOperations<String, Object> zSetOperations;
+    private ValueOperations<String, Object> valueOperations;
+    private SetOperations<String, Object> setOperations;
+    private StateManagementService stateManagementService;
+    private RoomService roomService;
+    private WebSocketService webSocketService;
+    private PresenceService presenceService;
+    private RingTimeoutService ringTimeoutService;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "ring-test"));
+    // 推送 call_cancelled / no_answer 时所在的线程
+    private final List<String> firedOn = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        zSetOperations = mock(ZSetOperations.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        setOperations = mock(SetOperations.class);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(1L, 1L));
+
+        stateManagementService = mock(StateManagementService.class);
+        roomService = mock(RoomService.class);
+        webSocketService = mock(WebSocketService.class);
+        doAnswer(invocation -> firedOn.add(Thread.currentThread().getName()))
+                .when(webSocketService).sendToUser(anyString(), any());
+        presenceService = mock(PresenceService.class);
+        ringTimeoutService = new RingTimeoutService(redisTemplate, stateManagementService, roomService,
+                webSocketService, presenceService, executor::execute, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ringTimeoutService, "shards", 4);
+        ReflectionTestUtils.setField(ringTimeoutService, "recoveryGraceMs", 0L);
+        ringTimeoutService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ringTimeoutService.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testFire_LastCalleeTransitionsNotifiesAndCleansUp() {
+        when(zSetOperations.remove(anyString(), eq("room_1\u001Fu1"))).thenReturn(1L);
+        releaseReturns("room_1", 0L);
+        when(valueOperations.getAndDelete("rtc:{room_1}:ring")).thenReturn("host");
+
+        ringTimeoutService.fire("room_1\u001Fu1");
+
+        verify(stateManagementService).ringTimeout("room_1", "host");
+        ArgumentCaptor<WSMessage> captor = ArgumentCaptor.forClass(WSMessage.class);
+        verify(webSocketService).sendToUser(eq("host"), captor.capture());
+        assertEquals("no_answer", captor.getValue().getCmd());
+        verify(webSocketService).sendToUser(eq("u1"), argThat(m -> "call_cancelled".equals(m.getCmd())));
+        verify(roomService).leaveCall("room_1", "host");
+    }
+
+    @Test
+    void testFire_OtherCalleesStillRingingOnlyStopsThisCallee() {
+        when(zSetOperations.remove(anyString(), eq("room_1\u001Fu1"))).thenReturn(1L);
+        releaseReturns("room_1", 2L);
+        when(valueOperations.get("rtc:{room_1}:ring")).thenReturn("host");
+
+        ringTimeoutService.fire("room_1\u001Fu1");
+
+        verify(webSocketService).sendToUser(eq("u1"), argThat(m -> "call_cancelled".equals(m.getCmd())));
+        verify(webSocketService).notifyPeerNoAnswer("host", "u1", "room_1");
+        verifyNoInteractions(stateManagementService, roomService);
+    }
+
+    @Test
+    void testFire_AnsweredCallKeepsRunning() {
+        when(zSetOperations.remove(anyString(), eq("room_1\u001Fu2"))).thenReturn(1L);
+        releaseReturns("room_1", -1L);
+        when(valueOperations.get("rtc:{room_1}:ring")).thenReturn("host");
+
+        ringTimeoutService.fire("room_1\u001Fu2");
+
+        verify(valueOperations, never()).getAndDelete(anyString());
+        verifyNoInteractions(stateManagementService, roomService);
+    }
+
+    @Test
+    void testFire_ClaimedByOtherNodeSkips() {
+        when(zSetOperations.remove(anyString(), eq("room_1\u001Fu1"))).thenReturn(0L);
+
+        ringTimeoutService.fire("room_1\u001Fu1");
+
+        verifyNoInteractions(stateManagementService, webSocketService, roomService);
+    }
+
+    @Test
+    void testSchedule_WheelFiresPerCalleeAfterTimeout() {
+        ReflectionTestUtils.setField(ringTimeoutService, "timeoutSeconds", 0L);
+        when(zSetOperations.remove(anyString(), anyString())).thenReturn(1L);
+        releaseReturns("room_2", 1L, 0L);
+        when(valueOperations.get("rtc:{room_2}:ring")).thenReturn("host");
+        when(valueOperations.getAndDelete("rtc:{room_2}:ring")).thenReturn("host");
+
+        ringTimeoutService.schedule("room_2", "host", List.of("u1", "u2"));
+
+        verify(webSocketService, timeout(2000)).sendToUser(eq("u1"), argThat(m -> "call_cancelled".equals(m.getCmd())));
+        verify(webSocketService, timeout(2000)).sendToUser(eq("u2"), argThat(m -> "call_cancelled".equals(m.getCmd())));
+        verify(stateManagementService, timeout(2000)).ringTimeout("room_2", "host");
+        // 到期处理交给线程池，不在时间轮线程上执行
+        assertTrue(firedOn.stream().allMatch("ring-test"::equals), "推送线程: " + firedOn);
+    }
+
+    @Test
+    void testAnswered_CancelsOnlyThatCallee() throws Exception {
+        ReflectionTestUtils.setField(ringTimeoutService, "timeoutSeconds", 1L);
+        when(zSetOperations.remove(anyString(), anyString())).thenReturn(1L);
+        releaseReturns("room_3", -1L);
+        when(valueOperations.get("rtc:{room_3}:ring")).thenReturn("host");
+
+        ringTimeoutService.schedule("room_3", "host", List.of("u1", "u2"));
+        ringTimeoutService.answered("room_3", "u1");
+
+        verify(webSocketService, timeout(2500)).sendToUser(eq("u2"), argThat(m -> "call_cancelled".equals(m.getCmd())));
+        Thread.sleep(300);
+        verify(zSetOperations, never()).remove(anyString(), eq("room_3\u001Fu1"));
+        verify(webSocketService, never()).sendToUser(eq("u1"), any());
+        verifyNoInteractions(stateManagementService);
+    }
+
+    @Test
+    void testDeclined_LastPendingCalleeEndsCall() {
+        when(zSetOperations.remove(anyString(), eq("room_4\u001Fu1"))).thenReturn(1L);
+        releaseReturns("room_4", 0L);
+        when(valueOperations.getAndDelete("rtc:{room_4}:ring")).thenReturn("host");
+
+        ringTimeoutService.declined("room_4", "u1");
+
+        verify(stateManagementService, timeout(2000)).ringTimeout("room_4", "host");
+        verify(roomService, timeout(2000)).leaveCall("room_4", "host");
+        verify(webSocketService, never()).sendToUser(eq("u1"), any());
+    }
+
+    @Test
+    void testCancel_PreventsLocalFireForAllCallees() throws Exception {
+        ReflectionTestUtils.setField(ringTimeoutService, "timeoutSeconds", 1L);
+        when(setOperations.members("rtc:{room_5}:ring:pending")).thenReturn(Set.of("u1", "u2"));
+
+        ringTimeoutService.schedule("room_5", "host", List.of("u1", "u2"));
+        ringTimeoutService.cancel("room_5");
+        Thread.sleep(1300);
+
+        verify(zSetOperations, never()).remove(anyString(), anyString());
+        verifyNoInteractions(stateManagementService, webSocketService);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void releaseReturns(String roomName, Long remaining, Long... more) {
+        when(redisTemplate.execute(any(RedisScript.class),
+                eq(List.of("rtc:{" + roomName + "}:ring:pending", "rtc:{" + roomName + "}:ring:answered")), any()))
+                .thenReturn(remaining, (Object[]) more);
+    }
+
+    @Test
+    void testRecover_OnlyOwnedShards() {
+        when(presenceService.getClusterNodes()).thenReturn(List.of("node-a", "node-b"));
+        when(presenceService.getNodeId()).thenReturn("node-b");
+        when(zSetOperations.rangeByScore(anyString(), anyDouble(), anyDouble())).thenReturn(Set.of());
+
+        ringTimeoutService.recover();
+
+        verify(zSetOperations).rangeByScore(eq("rtc:ring:timeouts:1"), anyDouble(), anyDouble());
+        verify(zSetOperations).rangeByScore(eq("rtc:ring:timeouts:3"), anyDouble(), anyDouble());
+        verify(zSetOperations, times(2)).rangeByScore(anyString(), anyDouble(), anyDouble());
+    }
+}
@@ -0,0 +1,95 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.model.dto.WSMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * RoomEventCoalescer 单元测试
+ */
+class RoomEventCoalescerTest {
+
+    private WebSocketService webSocketService;
+    private RoomSubscriptionRegistry registry;
+    private SimpleMeterRegistry meterRegistry;
+    private RoomEventCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        webSocketService = mock(WebSocketService.class);
+        registry = new RoomSubscriptionRegistry();
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RoomEventCoalescer(webSocketService, registry, meterRegistry);
+        // 窗口足够长，由测试手动 flush
+        ReflectionTestUtils.setField(coalescer, "windowMs", 60_000L);
+        ReflectionTestUtils.setField(coalescer, "minSubscribers", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        coalescer.shutdown();
+    }
+
+    @Test
+    void testSmallRoom_DeliveredImmediately() {
+        registry.add("room_small", "s1", "sub-0");
+
+        coalescer.memberLeft("room_small", "user1");
+
+        ArgumentCaptor<WSMessage> captor = ArgumentCaptor.forClass(WSMessage.class);
+        verify(webSocketService).sendToRoom(eq("room_small"), captor.capture());
+        assertEquals("peer_left", captor.getValue().getCmd());
+    }
+
+    @Test
+    void testLargeRoom_MassExitCoalesced() {
+        for (int i = 0; i < 100; i++) {
+            registry.add("room_big", "s" + i, "sub-0");
+        }
+
+        for (int i = 0; i < 30; i++) {
+            coalescer.memberLeft("room_big", "user" + i);
+        }
+        verify(webSocketService, never()).sendToRoom(any(), any());
+
+        coalescer.flush("room_big");
+
+        ArgumentCaptor<WSMessage> captor = ArgumentCaptor.forClass(WSMessage.class);
+        verify(webSocketService, times(1)).sendToRoom(eq("room_big"), captor.capture());
+        assertEquals("members_delta", captor.getValue().getCmd());
+        RoomEventCoalescer.MembersDelta delta = (RoomEventCoalescer.MembersDelta) captor.getValue().getData();
+        assertEquals(30, delta.left().size());
+        assertTrue(delta.joined().isEmpty());
+        assertEquals(29 * 100, meterRegistry.get("rtc.ws.coalesce.frames.saved").counter().count());
+        assertEquals(30, meterRegistry.get("rtc.ws.coalesce.delay").timer().count());
+    }
+
+    @Test
+    void testLargeRoom_JoinThenLeaveCancelsOut() {
+        for (int i = 0; i < 20; i++) {
+            registry.add("room_big", "s" + i, "sub-0");
+        }
+
+        coalescer.memberJoined("room_big", "user1");
+        coalescer.memberLeft("room_big", "user1");
+        coalescer.memberJoined("room_big", "user2");
+        coalescer.flush("room_big");
+
+        ArgumentCaptor<WSMessage> captor = ArgumentCaptor.forClass(WSMessage.class);
+        verify(webSocketService).sendToRoom(eq("room_big"), captor.capture());
+        RoomEventCoalescer.MembersDelta delta = (RoomEventCoalescer.MembersDelta) captor.getValue().getData();
+        assertEquals(List.of("user2"), delta.joined());
+        assertTrue(delta.left().isEmpty());
+    }
+}
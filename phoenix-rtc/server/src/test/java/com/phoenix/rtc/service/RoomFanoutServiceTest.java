@@ -0,0 +1,233 @@
+package com.phoenix.rtc.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phoenix.rtc.codec.WsEncoding;
+import com.phoenix.rtc.codec.WsEncodingRegistry;
+import com.phoenix.rtc.codec.WsMessageCodec;
+import com.phoenix.rtc.model.dto.WSMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RoomFanoutService 单元测试
+ */
+class RoomFanoutServiceTest {
+
+    private RoomSubscriptionRegistry registry;
+    private List<Message<?>> sent;
+    private SimpleMeterRegistry meterRegistry;
+    private WsEncodingRegistry encodingRegistry;
+    private RoomFanoutService fanoutService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new RoomSubscriptionRegistry();
+        sent = new CopyOnWriteArrayList<>();
+        meterRegistry = new SimpleMeterRegistry();
+        encodingRegistry = new WsEncodingRegistry();
+        MessageChannel channel = (message, timeout) -> sent.add(message);
+
+        fanoutService = new RoomFanoutService(registry, channel, new SyncTaskExecutor(),
+                new WsMessageCodec(new ObjectMapper()), encodingRegistry, meterRegistry);
+        ReflectionTestUtils.setField(fanoutService, "shardSize", 100);
+    }
+
+    @Test
+    void testPublish_SharedFrameDeliveredToEverySubscriber() {
+        for (int i = 0; i < 1050; i++) {
+            registry.add("room_a", "session" + i, "sub-0");
+        }
+
+        fanoutService.publish("room_a", WSMessage.success("peer_left", Map.of("userId", "u1")));
+
+        assertEquals(1050, sent.size());
+        Object firstPayload = sent.get(0).getPayload();
+        Set<String> sessions = new HashSet<>();
+        for (Message<?> message : sent) {
+            assertSame(firstPayload, message.getPayload(), "所有订阅者应共享同一份序列化帧");
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+            assertEquals("/topic/room/room_a", accessor.getDestination());
+            assertEquals("sub-0", accessor.getSubscriptionId());
+            sessions.add(accessor.getSessionId());
+        }
+        assertEquals(1050, sessions.size());
+        assertEquals(1, meterRegistry.get("rtc.ws.fanout.latency").tag("bucket", "1001-10000").timer().count());
+    }
+
+    @Test
+    void testPublish_BinarySessionGetsCborFrame() {
+        registry.add("room_a", "json-session", "sub-0");
+        registry.add("room_a", "cbor-session", "sub-0");
+        encodingRegistry.register("cbor-session", WsEncoding.CBOR);
+
+        fanoutService.publish("room_a", WSMessage.success("peer_left", Map.of("userId", "u1", "roomName", "room_a")));
+
+        assertEquals(2, sent.size());
+        for (Message<?> message : sent) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+            if ("cbor-session".equals(accessor.getSessionId())) {
+                assertEquals(WsEncoding.CBOR.getContentType(), accessor.getContentType());
+                assertEquals("cbor", accessor.getFirstNativeHeader(WsEncoding.HEADER));
+            } else {
+                assertEquals(WsEncoding.JSON.getContentType(), accessor.getContentType());
+                assertEquals('{', ((byte[]) message.getPayload())[0]);
+            }
+        }
+    }
+
+    @Test
+    void testPublish_SameRoomDeliveredInOrder() throws Exception {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8);
+        executor.initialize();
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        MessageChannel channel = (message, timeout) -> {
+            String session = SimpMessageHeaderAccessor.wrap(message).getSessionId();
+            received.computeIfAbsent(session, key -> Collections.synchronizedList(new ArrayList<>())).add(parseSeq(message));
+            return true;
+        };
+        RoomFanoutService ordered = new RoomFanoutService(registry, channel, executor,
+                new WsMessageCodec(new ObjectMapper()), encodingRegistry, meterRegistry);
+        ReflectionTestUtils.setField(ordered, "shardSize", 10);
+        for (int i = 0; i < 50; i++) {
+            registry.add("room_a", "session" + i, "sub-0");
+        }
+
+        try {
+            // 每条消息 5 个分片，分片并行，消息之间不能交错
+            for (int seq = 0; seq < 100; seq++) {
+                ordered.publish("room_a", WSMessage.success("peer_joined", Map.of("seq", seq)));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.values().stream().mapToInt(List::size).sum() < 5000 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(50, received.size());
+        List<Integer> expected = IntStream.range(0, 100).boxed().toList();
+        for (List<Integer> sequence : received.values()) {
+            assertEquals(expected, sequence);
+        }
+    }
+
+    @Test
+    void testPublish_VersionAssignedInLaneInDeliveryOrder() throws Exception {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8);
+        executor.setThreadNamePrefix("fanout-test-");
+        executor.initialize();
+        List<Long> versions = new CopyOnWriteArrayList<>();
+        MessageChannel channel = (message, timeout) -> {
+            versions.add(parseVersion(message));
+            return true;
+        };
+        RoomFanoutService ordered = new RoomFanoutService(registry, channel, executor,
+                new WsMessageCodec(new ObjectMapper()), encodingRegistry, meterRegistry);
+        ReflectionTestUtils.setField(ordered, "shardSize", 10);
+        registry.add("room_a", "session0", "sub-0");
+        AtomicLong counter = new AtomicLong();
+        Set<String> versionThreads = ConcurrentHashMap.newKeySet();
+
+        try {
+            for (int seq = 0; seq < 100; seq++) {
+                ordered.publish("room_a", WSMessage.success("peer_joined", Map.of("seq", seq)), roomName -> {
+                    versionThreads.add(Thread.currentThread().getName());
+                    return counter.incrementAndGet();
+                });
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (versions.size() < 100 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // 版本号在扇出线程上分配，到达顺序与版本号顺序一致，没有缺口
+        assertEquals(LongStream.rangeClosed(1, 100).boxed().toList(), versions);
+        assertTrue(versionThreads.stream().allMatch(name -> name.startsWith("fanout-test-")), versionThreads.toString());
+    }
+
+    @Test
+    void testSendToSubscriber_QueuedBehindEarlierBroadcasts() {
+        registry.add("room_a", "session0", "sub-0");
+        fanoutService.publish("room_a", WSMessage.success("peer_joined", Map.of("seq", 1)));
+
+        List<Integer> deliveredBefore = new ArrayList<>();
+        fanoutService.sendToSubscriber("room_a", new RoomSubscriptionRegistry.Subscriber("session0", "sub-0"), () -> {
+            deliveredBefore.add(sent.size());
+            return WSMessage.success("room_snapshot", Map.of());
+        });
+        fanoutService.sendToSubscriber("room_a", new RoomSubscriptionRegistry.Subscriber("session0", "sub-0"), () -> null);
+
+        // 快照在之前的广播投递之后构建；构建失败 (null) 时不投递
+        assertEquals(List.of(1), deliveredBefore);
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void testPublish_NoSubscribers() {
+        fanoutService.publish("room_empty", WSMessage.success("peer_left", Map.of()));
+
+        assertTrue(sent.isEmpty());
+    }
+
+    private static int parseSeq(Message<?> message) {
+        String json = new String((byte[]) message.getPayload());
+        int start = json.indexOf("\"seq\":") + 6;
+        int end = start;
+        while (end < json.length() && Character.isDigit(json.charAt(end))) {
+            end++;
+        }
+        return Integer.parseInt(json.substring(start, end));
+    }
+
+    private static long parseVersion(Message<?> message) {
+        String json = new String((byte[]) message.getPayload());
+        int start = json.indexOf("\"version\":") + 10;
+        int end = start;
+        while (end < json.length() && Character.isDigit(json.charAt(end))) {
+            end++;
+        }
+        return Long.parseLong(json.substring(start, end));
+    }
+
+    @Test
+    void testRegistry_DisconnectRemovesSubscriptions() {
+        registry.add("room_a", "s1", "sub-0");
+        registry.add("room_b", "s1", "sub-1");
+        registry.add("room_a", "s2", "sub-0");
+
+        registry.removeSession("s1");
+
+        assertEquals(1, registry.getSubscriberCount("room_a"));
+        assertEquals(0, registry.getSubscriberCount("room_b"));
+        assertFalse(registry.getRooms().contains("room_b"));
+    }
+}
@@ -0,0 +1,150 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.model.entity.RtcSession;
+import com.phoenix.rtc.redis.RtcHashOperations;
+import com.phoenix.rtc.redis.codec.FieldValues;
+import com.phoenix.rtc.redis.codec.RtcFields;
+import com.phoenix.rtc.repository.RtcSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * RoomMetaCache 单元测试
+ */
+class RoomMetaCacheTest {
+
+    private static final String META_KEY = "rtc:{room1}:meta";
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private RtcHashOperations rtcHashOperations;
+    private RtcSessionRepository sessionRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private RoomMetaCache roomMetaCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        rtcHashOperations = mock(RtcHashOperations.class);
+        sessionRepository = mock(RtcSessionRepository.class);
+
+        meterRegistry = new SimpleMeterRegistry();
+        roomMetaCache = new RoomMetaCache(redisTemplate, rtcHashOperations, sessionRepository,
+                mock(RedisMessageListenerContainer.class), meterRegistry, 100, 60);
+    }
+
+    @Test
+    void testGetMeta_LoadsOnceThenHits() {
+        when(rtcHashOperations.entries(META_KEY)).thenReturn(FieldValues.create()
+                .with(RtcFields.META_SESSION_ID, 1L)
+                .with(RtcFields.META_INITIATOR_ID, "user1")
+                .with(RtcFields.META_ROOM_TYPE, "group")
+                .with(RtcFields.META_MAX_MEMBERS, 50)
+                .with(RtcFields.META_CREATED_AT, 1700000000000L));
+
+        RoomMetaCache.RoomMeta first = roomMetaCache.getMeta("room1");
+        RoomMetaCache.RoomMeta second = roomMetaCache.getMeta("room1");
+
+        assertEquals("user1", first.initiatorId());
+        assertEquals(1L, first.sessionId());
+        assertEquals(50, first.maxMembers());
+        assertSame(first, second);
+        verify(rtcHashOperations, times(1)).entries(META_KEY);
+        assertEquals(0.5, meterRegistry.get("rtc.cache.room.hit.ratio").tag("cache", "meta").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void testGetMeta_MissingRoomNotCached() {
+        when(rtcHashOperations.entries(META_KEY)).thenReturn(FieldValues.create());
+
+        assertNull(roomMetaCache.getMeta("room1"));
+        assertNull(roomMetaCache.getMeta("room1"));
+
+        verify(rtcHashOperations, times(2)).entries(META_KEY);
+    }
+
+    @Test
+    void testInvalidate_EvictsLocallyAndBroadcasts() {
+        RtcSession session = RtcSession.builder().id(1L).roomName("room1").status(0).build();
+        when(sessionRepository.findByRoomName("room1")).thenReturn(Optional.of(session));
+
+        roomMetaCache.getSession("room1");
+        roomMetaCache.invalidate("room1");
+        roomMetaCache.getSession("room1");
+
+        verify(sessionRepository, times(2)).findByRoomName("room1");
+        verify(redisTemplate).convertAndSend(eq(RoomMetaCache.INVALIDATION_CHANNEL), startsWith("room1|"));
+    }
+
+    @Test
+    void testOnMessage_EvictsAndRecordsLag() {
+        RtcSession session = RtcSession.builder().id(1L).roomName("room1").status(0).build();
+        when(sessionRepository.findByRoomName("room1")).thenReturn(Optional.of(session));
+        roomMetaCache.getSession("room1");
+
+        String body = "room1|" + (System.currentTimeMillis() - 5);
+        roomMetaCache.onMessage(new DefaultMessage(
+                RoomMetaCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8)), null);
+        roomMetaCache.getSession("room1");
+
+        verify(sessionRepository, times(2)).findByRoomName("room1");
+        assertEquals(1, meterRegistry.get("rtc.cache.room.invalidation.lag").timer().count());
+    }
+
+    @Test
+    void testGetSession_CachesImmutableSnapshot() {
+        RtcSession session = RtcSession.builder().id(1L).roomName("room1").roomTitle("周会").status(0).build();
+        when(sessionRepository.findByRoomName("room1")).thenReturn(Optional.of(session));
+
+        RoomMetaCache.SessionSnapshot snapshot = roomMetaCache.getSession("room1");
+        // 实体之后的修改不影响已缓存的快照
+        session.setStatus(RtcSession.Status.ENDED.getCode());
+
+        assertTrue(roomMetaCache.getSession("room1").isActive());
+        assertEquals("周会", snapshot.roomTitle());
+        verify(sessionRepository, times(1)).findByRoomName("room1");
+    }
+
+    @Test
+    void testInvalidate_DuringLoadDoesNotCacheStaleSnapshot() {
+        RtcSession active = RtcSession.builder().id(1L).roomName("room1").status(0).build();
+        RtcSession ended = RtcSession.builder().id(1L).roomName("room1").status(RtcSession.Status.ENDED.getCode()).build();
+        // 加载读到 ACTIVE 后、写缓存前，房间结束并失效
+        when(sessionRepository.findByRoomName("room1")).thenAnswer(invocation -> {
+            roomMetaCache.invalidate("room1");
+            return Optional.of(active);
+        }).thenReturn(Optional.of(ended));
+
+        assertTrue(roomMetaCache.getSession("room1").isActive());
+        assertFalse(roomMetaCache.getSession("room1").isActive());
+        verify(sessionRepository, times(2)).findByRoomName("room1");
+    }
+
+    @Test
+    void testInvalidate_InTransactionBroadcastsAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            roomMetaCache.invalidate("room1");
+            verify(redisTemplate, never()).convertAndSend(anyString(), any());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(redisTemplate).convertAndSend(eq(RoomMetaCache.INVALIDATION_CHANNEL), startsWith("room1|"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.phoenix.rtc.service;
 import com.phoenix.rtc.model.dto.CallRequest;
 import com.phoenix.rtc.model.dto.TokenResponse;
 import com.phoenix.rtc.model.entity.RtcSession;
+import com.phoenix.rtc.redis.RtcReactiveOperations;
 import com.phoenix.rtc.repository.RtcParticipantRepository;
 import com.phoenix.rtc.repository.RtcSessionRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -42,6 +43,12 @@ class RoomServiceTest {
     @Mock
     private ValueOperations<String, Object> valueOperations;
 
+    @Mock
+    private RoomMetaCache roomMetaCache;
+
+    @Mock
+    private RtcReactiveOperations rtcReactiveOperations;
+
     @InjectMocks
     private RoomService roomService;
 
@@ -109,7 +116,7 @@ class RoomServiceTest {
                 .status(0)
                 .build();
 
-        when(sessionRepository.findByRoomName(roomName)).thenReturn(Optional.of(session));
+        when(roomMetaCache.getSession(roomName)).thenReturn(RoomMetaCache.SessionSnapshot.of(session));
         when(participantRepository.findBySessionIdAndUserId(1L, currentUserId)).thenReturn(Optional.empty());
         when(liveKitService.generateToken(currentUserId, roomName, "publisher", null)).thenReturn(mockToken);
         when(liveKitService.getLiveKitUrl()).thenReturn("ws://localhost:7880");
@@ -123,7 +130,7 @@ class RoomServiceTest {
         assertEquals(mockToken, response.getToken());
 
         verify(participantRepository, times(1)).save(any());
-        verify(sessionRepository, times(1)).findByRoomName(roomName);
+        verify(roomMetaCache, times(1)).getSession(roomName);
     }
 
     @Test
@@ -131,7 +138,7 @@ class RoomServiceTest {
         // Given
         String roomName = "nonexistent";
 
-        when(sessionRepository.findByRoomName(roomName)).thenReturn(Optional.empty());
+        when(roomMetaCache.getSession(roomName)).thenReturn(null);
 
         // When & Then
         assertThrows(RuntimeException.class, () -> {
@@ -171,13 +178,13 @@ class RoomServiceTest {
                 .roomName(roomName)
                 .build();
 
-        when(sessionRepository.findByRoomName(roomName)).thenReturn(Optional.of(session));
+        when(roomMetaCache.getSession(roomName)).thenReturn(RoomMetaCache.SessionSnapshot.of(session));
 
         // When
-        RtcSession result = roomService.getRoomInfo(roomName);
+        RoomMetaCache.SessionSnapshot result = roomService.getRoomInfo(roomName);
 
         // Then
         assertNotNull(result);
-        assertEquals(roomName, result.getRoomName());
+        assertEquals(roomName, result.roomName());
     }
 }
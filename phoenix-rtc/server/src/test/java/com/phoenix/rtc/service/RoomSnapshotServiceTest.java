@@ -0,0 +1,85 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.redis.RtcHashOperations;
+import com.phoenix.rtc.redis.codec.FieldValues;
+import com.phoenix.rtc.redis.codec.RtcFields;
+import com.phoenix.rtc.service.RoomSnapshotService.MemberSnapshot;
+import com.phoenix.rtc.service.RoomSnapshotService.RoomSnapshot;
+import com.phoenix.rtc.statemachine.CallState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * RoomSnapshotService 单元测试
+ */
+class RoomSnapshotServiceTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private RtcHashOperations rtcHashOperations;
+    private RoomSnapshotService snapshotService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        rtcHashOperations = mock(RtcHashOperations.class);
+        snapshotService = new RoomSnapshotService(redisTemplate, rtcHashOperations, mock(RoomFanoutService.class),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testSnapshot_MembersSortedWithFlagsAndStates() {
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(Arrays.asList("7", Set.of("user2", "user1")));
+        when(rtcHashOperations.entries(List.of(
+                "rtc:{room_1}:member:user1", "rtc:{room_1}:state:user1",
+                "rtc:{room_1}:member:user2", "rtc:{room_1}:state:user2")))
+                .thenReturn(List.of(
+                        FieldValues.create().with(RtcFields.MEMBER_ROLE, "host")
+                                .with(RtcFields.MEMBER_AUDIO, true).with(RtcFields.MEMBER_VIDEO, false),
+                        FieldValues.create().with(RtcFields.STATE, CallState.CONNECTED),
+                        FieldValues.create(), FieldValues.create()));
+
+        RoomSnapshot snapshot = snapshotService.snapshot("room_1");
+
+        assertEquals(7L, snapshot.version());
+        assertEquals(List.of(
+                new MemberSnapshot("user1", "host", true, false, "connected"),
+                new MemberSnapshot("user2", null, true, true, "idle")
+        ), snapshot.members());
+        // 无论成员数多少，固定两次往返
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+        verify(rtcHashOperations, times(1)).entries(anyList());
+    }
+
+    @Test
+    void testSnapshot_EmptyRoom() {
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(Arrays.asList(null, Set.of()));
+
+        RoomSnapshot snapshot = snapshotService.snapshot("room_gone");
+
+        assertEquals(0L, snapshot.version());
+        assertTrue(snapshot.members().isEmpty());
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    void testNextVersion_EndedRoomReturnsNull() {
+        when(redisTemplate.execute(any(), eq(List.of("rtc:{room_1}:meta")), eq("version"))).thenReturn(-1L);
+
+        assertNull(snapshotService.nextVersion("room_1"));
+    }
+}
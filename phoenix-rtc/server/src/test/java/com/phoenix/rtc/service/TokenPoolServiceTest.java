@@ -0,0 +1,138 @@
+package com.phoenix.rtc.service;
+
+import com.phoenix.rtc.adapter.LiveKitTokenMinter;
+import com.phoenix.rtc.redis.RtcReactiveOperations;
+import com.phoenix.rtc.service.TokenPoolService.PooledToken;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * TokenPoolService 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class TokenPoolServiceTest {
+
+    private static final String API_SECRET = "kR7vT2pW9sL4nB6xQ1zC8mF3hJ5dG0yA";
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RtcReactiveOperations rtcReactiveOperations;
+
+    @Mock
+    private RedisOperations<String, Object> pipeline;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private ListOperations<String, Object> listOperations;
+
+    private final LiveKitTokenMinter minter = new LiveKitTokenMinter("APIxK3n8Qm2", API_SECRET, 7200);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TokenPoolService tokenPoolService;
+
+    @BeforeEach
+    void setUp() {
+        tokenPoolService = new TokenPoolService(redisTemplate, rtcReactiveOperations, minter, meterRegistry, 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void prewarm_MintsSubscriberTokensInPipelinedBatches() {
+        // Given - pipeline 回调在模拟连接上执行，记录写入内容
+        Map<Object, Object> registered = new LinkedHashMap<>();
+        List<Object> open = new ArrayList<>();
+        lenient().when(pipeline.opsForHash()).thenReturn(hashOperations);
+        lenient().when(pipeline.opsForList()).thenReturn(listOperations);
+        doAnswer(invocation -> {
+            registered.putAll(invocation.getArgument(1));
+            return null;
+        }).when(hashOperations).putAll(eq("rtc:{live_1}:tokens"), anyMap());
+        doAnswer(invocation -> {
+            open.addAll(invocation.getArgument(1));
+            return null;
+        }).when(listOperations).rightPushAll(eq("rtc:{live_1}:tokens:open"), anyCollection());
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation ->
+                ((SessionCallback<Object>) invocation.getArgument(0)).execute(pipeline));
+
+        // When
+        int minted = tokenPoolService.prewarm("live_1", List.of("u1", "u2", "u3"), 3, 9000);
+
+        // Then - 批大小 2: 已报名 2 批、占位 2 批
+        assertEquals(6, minted);
+        verify(redisTemplate, times(4)).executePipelined(any(SessionCallback.class));
+        verify(pipeline, times(2)).expire("rtc:{live_1}:tokens", 9000, TimeUnit.SECONDS);
+        verify(pipeline, times(2)).expire("rtc:{live_1}:tokens:open", 9000, TimeUnit.SECONDS);
+
+        assertEquals(List.of("u1", "u2", "u3"), new ArrayList<>(registered.keySet()));
+        String compact = (String) registered.get("u2");
+        assertFalse(compact.startsWith("eyJhbGci"), "存储时去掉固定 JWT 头");
+        Claims claims = parse(LiveKitTokenMinter.attachHeader(compact));
+        assertEquals("u2", claims.getSubject());
+        assertEquals(false, claims.get("video", Map.class).get("canPublish"));
+        assertEquals(9000, (claims.getExpiration().getTime() - claims.getNotBefore().getTime()) / 1000);
+
+        assertEquals(3, open.size());
+        PooledToken placeholder = TokenPoolService.decode("u9", (String) open.get(0));
+        assertTrue(placeholder.identity().startsWith(TokenPoolService.PLACEHOLDER_PREFIX));
+        assertEquals(placeholder.identity(), parse(placeholder.token()).getSubject());
+    }
+
+    @Test
+    void take_RegisteredPlaceholderAndMiss() {
+        String registered = LiveKitTokenMinter.detachHeader(minter.mint("u1", "live_1", "subscriber"));
+        String placeholder = "guest_7k2" + '\u001F'
+                + LiveKitTokenMinter.detachHeader(minter.mint("guest_7k2", "live_1", "subscriber"));
+        when(rtcReactiveOperations.script(any(), eq(List.of("rtc:{live_1}:tokens", "rtc:{live_1}:tokens:open")), any()))
+                .thenReturn(Mono.just(registered), Mono.just(placeholder), Mono.empty());
+
+        PooledToken own = tokenPoolService.take("live_1", "u1").block();
+        PooledToken guest = tokenPoolService.take("live_1", "u2").block();
+        PooledToken none = tokenPoolService.take("live_1", "u3").block();
+
+        assertEquals("u1", own.identity());
+        assertEquals("u1", parse(own.token()).getSubject());
+        assertEquals(parse(own.token()).getExpiration().getTime() / 1000, own.expiresAt());
+        assertEquals("guest_7k2", guest.identity());
+        assertEquals("guest_7k2", parse(guest.token()).getSubject());
+        assertNull(none);
+
+        assertEquals(1, meterRegistry.counter("rtc.token.pool.requests", "result", "registered").count());
+        assertEquals(1, meterRegistry.counter("rtc.token.pool.requests", "result", "placeholder").count());
+        assertEquals(1, meterRegistry.counter("rtc.token.pool.requests", "result", "miss").count());
+    }
+
+    private static Claims parse(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(API_SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+}
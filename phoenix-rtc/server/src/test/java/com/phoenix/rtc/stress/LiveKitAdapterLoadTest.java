@@ -0,0 +1,206 @@
+package com.phoenix.rtc.stress;
+
+import com.phoenix.rtc.adapter.LiveKitAdapter;
+import com.phoenix.rtc.adapter.LiveKitTokenMinter;
+import com.phoenix.rtc.adapter.MediaAdapter.RoomConfig;
+import com.phoenix.rtc.adapter.MediaCallGuard;
+import com.phoenix.rtc.adapter.MediaCluster;
+import com.phoenix.rtc.adapter.MediaNode;
+import com.phoenix.rtc.stress.LiveKitStubServer.Faults;
+import io.livekit.server.LiveKitServerClient;
+import io.livekit.server.RoomInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LiveKitAdapter 端到端压力测试
+ * 真实的 LiveKitServerClient + MediaCallGuard + LiveKitAdapter 连接进程内的 LiveKitStubServer，
+ * 计入 SDK 的 HTTP 客户端、连接池、序列化和调用保护 (重试、舱壁、熔断) 的开销，不需要网络和 LiveKit 服务。
+ *
+ * 每个"通话"依次: createRoomAsync -> getRoomInfoAsync -> deleteRoomAsync
+ * 1. baseline: 5~10ms 延迟，无故障
+ * 2. faults: CreateRoom 5% 返回 unavailable、1% 长尾 +200ms，由调用保护重试
+ * 3. throttled: 桩服务器限流 200 次/秒，并发线程数是舱壁的两倍，舱壁限制了压到单个节点上的并发
+ *
+ * 运行: mvn test -Dtest=LiveKitAdapterLoadTest
+ */
+public class LiveKitAdapterLoadTest {
+
+    private static final String API_KEY = "devkey";
+    private static final String API_SECRET = "secret_secret_secret_secret_32b";
+    private static final int THREADS = 32;
+    private static final int CALLS_PER_THREAD = 100;
+    private static final int BULKHEAD = 64;
+    // 限流场景的并发线程数超过舱壁，总通话数与其他场景相同
+    private static final int THROTTLED_THREADS = BULKHEAD * 2;
+
+    private LiveKitStubServer stub;
+    private SimpleMeterRegistry meterRegistry;
+    private MediaCallGuard callGuard;
+    private LiveKitAdapter adapter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = LiveKitStubServer.start();
+
+        SimpleAsyncTaskExecutor mediaExecutor = new SimpleAsyncTaskExecutor("load-media-");
+        mediaExecutor.setVirtualThreads(true);
+        meterRegistry = new SimpleMeterRegistry();
+        callGuard = new MediaCallGuard(mediaExecutor, meterRegistry);
+        ReflectionTestUtils.setField(callGuard, "maxAttempts", 3);
+        ReflectionTestUtils.setField(callGuard, "backoffBaseMs", 50L);
+        ReflectionTestUtils.setField(callGuard, "backoffMaxMs", 500L);
+        ReflectionTestUtils.setField(callGuard, "callTimeoutMs", 3_000L);
+        ReflectionTestUtils.setField(callGuard, "maxConcurrent", BULKHEAD);
+        ReflectionTestUtils.setField(callGuard, "windowSize", 100);
+        ReflectionTestUtils.setField(callGuard, "minimumCalls", 50);
+        ReflectionTestUtils.setField(callGuard, "failureRatePercent", 50);
+        ReflectionTestUtils.setField(callGuard, "openMs", 1_000L);
+        ReflectionTestUtils.setField(callGuard, "halfOpenCalls", 3);
+
+        MediaNode node = new MediaNode(stub.getUrl(), 100_000,
+                new LiveKitServerClient(stub.getUrl(), API_KEY, API_SECRET));
+        MediaCluster.Policy policy = new MediaCluster.Policy(MediaCluster.Strategy.LEAST_LOADED, 160, 1.25, 1000, 0.5, 500, 0.25);
+        MediaCluster cluster = new MediaCluster(List.of(node), policy, roomName -> null, 10_000, 60_000,
+                new SimpleMeterRegistry());
+        adapter = new LiveKitAdapter(cluster, new LiveKitTokenMinter(API_KEY, API_SECRET, 60), callGuard,
+                mediaExecutor, meterRegistry, 10_000, 1_000, 4_000);
+        ReflectionTestUtils.setField(adapter, "liveKitUrl", stub.getUrl());
+        ReflectionTestUtils.setField(adapter, "batchParallelism", 8);
+
+        // 预热: 建立连接、加载类，之后清空统计
+        for (int i = 0; i < 50; i++) {
+            call("room_warmup_" + i);
+        }
+        stub.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        callGuard.shutdown();
+        stub.close();
+    }
+
+    @Test
+    void baseline_CreateQueryDelete() throws Exception {
+        stub.faults(Faults.NONE.withLatency(5, 5));
+
+        Result result = run("baseline", THREADS, CALLS_PER_THREAD);
+
+        assertTrue(result.successRate() >= 0.999, "成功率 " + result.successRate());
+        assertEquals(result.calls(), stub.requestCount("CreateRoom"));
+        assertTrue(stub.roomNames().isEmpty(), "残留房间 " + stub.roomNames().size());
+    }
+
+    @Test
+    void faults_RetriedByCallGuard() throws Exception {
+        stub.faults(Faults.NONE.withLatency(5, 5));
+        stub.faults("CreateRoom", Faults.NONE.withLatency(5, 5).withTail(0.01, 200).withErrors(0.05, "unavailable"));
+
+        Result result = run("faults", THREADS, CALLS_PER_THREAD);
+
+        // 5% 错误、最多 3 次尝试: 单次通话仍失败的概率约 0.0125%
+        assertTrue(result.successRate() >= 0.99, "成功率 " + result.successRate());
+        assertTrue(stub.requestCount("CreateRoom") > result.calls(), "注入的错误应被重试");
+        System.out.printf("  CreateRoom 请求: %d (重试 %d)%n",
+                stub.requestCount("CreateRoom"), stub.requestCount("CreateRoom") - result.calls());
+    }
+
+    @Test
+    void throttled_BulkheadBoundsNodeConcurrency() throws Exception {
+        stub.faults(Faults.NONE.withLatency(5, 5));
+        stub.rateLimit(200);
+
+        Result result = run("throttled", THROTTLED_THREADS, THREADS * CALLS_PER_THREAD / THROTTLED_THREADS);
+
+        double bulkheadFull = meterRegistry.get("rtc.media.calls.rejected")
+                .tag("node", stub.getUrl()).tag("reason", "bulkhead_full").counter().count();
+        assertTrue(stub.throttledCount() > 0);
+        // 并发需求超过舱壁 (有调用被舱壁拒绝)，压到桩服务器上的并发仍不超过舱壁
+        assertTrue(bulkheadFull > 0, "并发线程数应超过舱壁");
+        assertTrue(stub.peakConcurrency() <= BULKHEAD, "桩服务器峰值并发 " + stub.peakConcurrency());
+        System.out.printf("  限流拒绝: %d, 舱壁拒绝: %.0f, 成功率: %.2f%%%n",
+                stub.throttledCount(), bulkheadFull, result.successRate() * 100);
+    }
+
+    private record Result(int calls, int succeeded) {
+
+        double successRate() {
+            return (double) succeeded / calls;
+        }
+    }
+
+    private Result run(String scenario, int threads, int callsPerThread) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                long[] latencies = new long[callsPerThread];
+                for (int i = 0; i < callsPerThread; i++) {
+                    long begin = System.nanoTime();
+                    boolean ok = call("room_" + scenario + "_" + thread + "_" + i);
+                    // 失败记为负数，统计延迟时排除
+                    latencies[i] = ok ? System.nanoTime() - begin : -1;
+                }
+                return latencies;
+            }));
+        }
+        List<Long> latencies = new ArrayList<>();
+        int failed = 0;
+        for (Future<long[]> future : futures) {
+            for (long latency : future.get(5, TimeUnit.MINUTES)) {
+                if (latency < 0) {
+                    failed++;
+                } else {
+                    latencies.add(latency);
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        int calls = threads * callsPerThread;
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        System.out.printf("%n=== LiveKitAdapter 端到端: %s ===%n", scenario);
+        System.out.printf("  通话: %d, 失败: %d, 吞吐: %.0f 通话/秒, 桩服务器峰值并发: %d%n",
+                calls, failed, calls / (elapsed / 1e9), stub.peakConcurrency());
+        if (sorted.length > 0) {
+            System.out.printf("  建房+查询+删除 P50: %.1fms, P99: %.1fms, Max: %.1fms%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+        }
+        return new Result(calls, calls - failed);
+    }
+
+    private boolean call(String roomName) {
+        try {
+            RoomConfig config = RoomConfig.builder().emptyTimeout(300).maxParticipants(2).roomType("sfu").build();
+            adapter.createRoomAsync(roomName, config).get(10, TimeUnit.SECONDS);
+            RoomInfo info = adapter.getRoomInfoAsync(roomName).get(10, TimeUnit.SECONDS);
+            adapter.deleteRoomAsync(roomName).get(10, TimeUnit.SECONDS);
+            return info != null;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+}
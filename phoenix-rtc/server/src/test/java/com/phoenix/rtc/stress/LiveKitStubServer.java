@@ -0,0 +1,668 @@
+package com.phoenix.rtc.stress;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内 LiveKit RoomService 桩服务器
+ * LoadTest 等用 Mockito 替换 MediaAdapter，SDK 的 HTTP 客户端、连接池、重试和序列化开销都测不到。
+ * 这里在本机端口上实现 SDK 使用的 Twirp 接口 (POST /twirp/livekit.RoomService/&lt;Method&gt;)，
+ * 真实的 LiveKitServerClient + LiveKitAdapter 直接连它，不需要网络和 LiveKit 服务。
+ *
+ * 1. 接口: CreateRoom、ListRooms、DeleteRoom、ListParticipants、RemoveParticipant；房间和参与者保存在内存
+ * 2. 编码: application/protobuf (SDK 默认) 和 application/json 都支持，响应与请求编码一致；错误按 Twirp 规范返回 JSON
+ * 3. 鉴权: 只检查 Authorization: Bearer 头是否存在，不校验签名
+ * 4. 故障注入 (运行中可随时调整): 按接口的固定延迟 + 随机抖动 + 长尾、按比例返回错误；
+ *    全局限流 (令牌桶) 和并发上限，超出返回 resource_exhausted (HTTP 429)
+ *
+ * 用法:
+ * <pre>
+ * try (LiveKitStubServer stub = LiveKitStubServer.start()) {
+ *     stub.faults(Faults.NONE.withLatency(5, 5).withErrors(0.01, "unavailable"));
+ *     new LiveKitServerClient(stub.getUrl(), "key", "secret") ...
+ * }
+ * </pre>
+ */
+@Slf4j
+public class LiveKitStubServer implements AutoCloseable {
+
+    public static final String SERVICE_PREFIX = "/twirp/livekit.RoomService/";
+
+    private static final String PROTOBUF = "application/protobuf";
+    private static final String JSON = "application/json";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 单个接口的故障配置
+     *
+     * @param latencyMs     每次请求的固定延迟
+     * @param jitterMs      额外的 [0, jitterMs] 随机延迟
+     * @param tailRate      进入长尾的请求比例
+     * @param tailLatencyMs 长尾请求再增加的延迟
+     * @param errorRate     返回错误的请求比例
+     * @param errorCode     返回的 Twirp 错误码 (internal / unavailable / deadline_exceeded ...)
+     */
+    public record Faults(long latencyMs, long jitterMs, double tailRate, long tailLatencyMs,
+                         double errorRate, String errorCode) {
+
+        public static final Faults NONE = new Faults(0, 0, 0, 0, 0, "internal");
+
+        public Faults withLatency(long latencyMs, long jitterMs) {
+            return new Faults(latencyMs, jitterMs, tailRate, tailLatencyMs, errorRate, errorCode);
+        }
+
+        public Faults withTail(double tailRate, long tailLatencyMs) {
+            return new Faults(latencyMs, jitterMs, tailRate, tailLatencyMs, errorRate, errorCode);
+        }
+
+        public Faults withErrors(double errorRate, String errorCode) {
+            return new Faults(latencyMs, jitterMs, tailRate, tailLatencyMs, errorRate, errorCode);
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // 房间名 -> 房间
+    private final Map<String, StubRoom> rooms = new ConcurrentHashMap<>();
+
+    private volatile Faults defaultFaults = Faults.NONE;
+    private final Map<String, Faults> methodFaults = new ConcurrentHashMap<>();
+    private volatile TokenBucket rateLimit;
+    private volatile int maxConcurrent;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder throttled = new LongAdder();
+
+    private LiveKitStubServer(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        // 注入的延迟在虚拟线程上睡眠，不限制桩服务器自身的并发
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/twirp/", this::handle);
+        server.start();
+    }
+
+    /**
+     * 在本机随机端口启动
+     */
+    public static LiveKitStubServer start() throws IOException {
+        return new LiveKitStubServer(0);
+    }
+
+    public static LiveKitStubServer start(int port) throws IOException {
+        return new LiveKitStubServer(port);
+    }
+
+    /**
+     * SDK 使用的服务器地址 (http://127.0.0.1:端口)
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ==================== 故障注入 ====================
+
+    /**
+     * 所有接口的默认故障配置
+     */
+    public LiveKitStubServer faults(Faults faults) {
+        this.defaultFaults = faults;
+        return this;
+    }
+
+    /**
+     * 单个接口的故障配置，覆盖默认配置
+     *
+     * @param method Twirp 方法名，如 CreateRoom
+     */
+    public LiveKitStubServer faults(String method, Faults faults) {
+        methodFaults.put(method, faults);
+        return this;
+    }
+
+    /**
+     * 全局限流: 每秒 permitsPerSecond 个请求 (突发上限相同)，0 关闭
+     */
+    public LiveKitStubServer rateLimit(int permitsPerSecond) {
+        this.rateLimit = permitsPerSecond > 0 ? new TokenBucket(permitsPerSecond) : null;
+        return this;
+    }
+
+    /**
+     * 同时处理的请求上限，超出直接返回 resource_exhausted，0 关闭
+     */
+    public LiveKitStubServer maxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+        return this;
+    }
+
+    /**
+     * 清除全部故障配置、统计和房间
+     */
+    public void reset() {
+        defaultFaults = Faults.NONE;
+        methodFaults.clear();
+        rateLimit = null;
+        maxConcurrent = 0;
+        requests.clear();
+        errors.clear();
+        throttled.reset();
+        peakInFlight.set(0);
+        rooms.clear();
+    }
+
+    // ==================== 状态与统计 ====================
+
+    /**
+     * 模拟参与者加入 (真实场景由客户端经 WebRTC 加入)
+     */
+    public void join(String roomName, String identity) {
+        StubRoom room = rooms.get(roomName);
+        if (room == null) {
+            throw new IllegalArgumentException("房间不存在: " + roomName);
+        }
+        room.participants.putIfAbsent(identity, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+    }
+
+    public Set<String> roomNames() {
+        return Set.copyOf(rooms.keySet());
+    }
+
+    /**
+     * 收到的请求数 (含注入错误和限流拒绝)
+     */
+    public long requestCount(String method) {
+        LongAdder count = requests.get(method);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * 返回错误的请求数 (注入的错误和 not_found 等业务错误，不含限流)
+     */
+    public long errorCount(String method) {
+        LongAdder count = errors.get(method);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long throttledCount() {
+        return throttled.sum();
+    }
+
+    public int peakConcurrency() {
+        return peakInFlight.get();
+    }
+
+    // ==================== 请求处理 ====================
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (!"POST".equals(exchange.getRequestMethod()) || !path.startsWith(SERVICE_PREFIX)) {
+                writeError(exchange, 404, "bad_route", "不支持的请求: " + exchange.getRequestMethod() + " " + path);
+                return;
+            }
+            String method = path.substring(SERVICE_PREFIX.length());
+            requests.computeIfAbsent(method, key -> new LongAdder()).increment();
+
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization == null || !authorization.startsWith("Bearer ")) {
+                error(exchange, method, 401, "unauthenticated", "缺少 Authorization 头");
+                return;
+            }
+            TokenBucket bucket = rateLimit;
+            int limit = maxConcurrent;
+            if ((limit > 0 && current > limit) || (bucket != null && !bucket.tryAcquire())) {
+                throttled.increment();
+                writeError(exchange, 429, "resource_exhausted", "请求过多");
+                return;
+            }
+
+            Faults faults = methodFaults.getOrDefault(method, defaultFaults);
+            sleep(delay(faults));
+            if (faults.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < faults.errorRate()) {
+                error(exchange, method, status(faults.errorCode()), faults.errorCode(), "注入的错误");
+                return;
+            }
+
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            boolean json = contentType != null && contentType.startsWith(JSON);
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            Message request = json ? new JsonMessage(body.length == 0 ? MAPPER.createObjectNode() : MAPPER.readTree(body))
+                    : new ProtoMessage(body);
+
+            Out response;
+            try {
+                response = dispatch(method, request);
+            } catch (TwirpException e) {
+                error(exchange, method, e.status, e.code, e.getMessage());
+                return;
+            }
+            if (response == null) {
+                writeError(exchange, 404, "bad_route", "未实现的接口: " + method);
+                return;
+            }
+            byte[] payload = json ? MAPPER.writeValueAsBytes(response.toJson()) : response.toProto();
+            exchange.getResponseHeaders().set("Content-Type", json ? JSON : PROTOBUF);
+            exchange.sendResponseHeaders(200, payload.length == 0 ? -1 : payload.length);
+            if (payload.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(payload);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("桩服务器处理请求失败: {}", e.getMessage());
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private Out dispatch(String method, Message request) {
+        return switch (method) {
+            case "CreateRoom" -> {
+                String name = request.string(1, "name");
+                if (name.isEmpty()) {
+                    throw new TwirpException(400, "invalid_argument", "房间名为空");
+                }
+                // 与 LiveKit 一致: 房间已存在时返回现有房间
+                StubRoom room = rooms.computeIfAbsent(name, key -> new StubRoom(
+                        "RM_" + UUID.randomUUID().toString().replace("-", "").substring(0, 12), key,
+                        (int) request.number(2, "empty_timeout"), (int) request.number(3, "max_participants"),
+                        request.string(5, "metadata"), TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())));
+                yield room.toOut();
+            }
+            case "ListRooms" -> {
+                List<String> names = request.strings(1, "names");
+                Collection<StubRoom> matched = names.isEmpty() ? rooms.values()
+                        : names.stream().map(rooms::get).filter(Objects::nonNull).toList();
+                Out response = new Out();
+                matched.forEach(room -> response.add(1, "rooms", room.toOut()));
+                yield response;
+            }
+            case "DeleteRoom" -> {
+                if (rooms.remove(request.string(1, "room")) == null) {
+                    throw new TwirpException(404, "not_found", "房间不存在");
+                }
+                yield new Out();
+            }
+            case "ListParticipants" -> {
+                StubRoom room = room(request.string(1, "room"));
+                Out response = new Out();
+                room.participants.forEach((identity, joinedAt) -> response.add(1, "participants", new Out()
+                        .add(1, "sid", "PA_" + identity)
+                        .add(2, "identity", identity)
+                        // ParticipantInfo.State.ACTIVE
+                        .add(3, "state", 2L)
+                        .add(6, "joined_at", joinedAt)));
+                yield response;
+            }
+            case "RemoveParticipant" -> {
+                StubRoom room = room(request.string(1, "room"));
+                if (room.participants.remove(request.string(2, "identity")) == null) {
+                    throw new TwirpException(404, "not_found", "参与者不存在");
+                }
+                yield new Out();
+            }
+            default -> null;
+        };
+    }
+
+    private StubRoom room(String name) {
+        StubRoom room = rooms.get(name);
+        if (room == null) {
+            throw new TwirpException(404, "not_found", "房间不存在");
+        }
+        return room;
+    }
+
+    private void error(HttpExchange exchange, String method, int status, String code, String msg) throws IOException {
+        errors.computeIfAbsent(method, key -> new LongAdder()).increment();
+        writeError(exchange, status, code, msg);
+    }
+
+    private static void writeError(HttpExchange exchange, int status, String code, String msg) throws IOException {
+        byte[] payload = MAPPER.writeValueAsBytes(MAPPER.createObjectNode().put("code", code).put("msg", msg));
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, payload.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(payload);
+        }
+    }
+
+    private static long delay(Faults faults) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = faults.latencyMs();
+        if (faults.jitterMs() > 0) {
+            delay += random.nextLong(faults.jitterMs() + 1);
+        }
+        if (faults.tailRate() > 0 && random.nextDouble() < faults.tailRate()) {
+            delay += faults.tailLatencyMs();
+        }
+        return delay;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Twirp 错误码对应的 HTTP 状态
+     */
+    private static int status(String code) {
+        return switch (code) {
+            case "invalid_argument", "malformed", "out_of_range" -> 400;
+            case "unauthenticated" -> 401;
+            case "permission_denied" -> 403;
+            case "not_found", "bad_route" -> 404;
+            case "already_exists", "aborted" -> 409;
+            case "resource_exhausted" -> 429;
+            case "unimplemented" -> 501;
+            case "unavailable" -> 503;
+            case "deadline_exceeded" -> 504;
+            default -> 500;
+        };
+    }
+
+    // ==================== 内部类型 ====================
+
+    private record StubRoom(String sid, String name, int emptyTimeout, int maxParticipants, String metadata,
+                            long creationTime, Map<String, Long> participants) {
+
+        StubRoom(String sid, String name, int emptyTimeout, int maxParticipants, String metadata, long creationTime) {
+            this(sid, name, emptyTimeout, maxParticipants, metadata, creationTime, new ConcurrentHashMap<>());
+        }
+
+        Out toOut() {
+            return new Out()
+                    .add(1, "sid", sid)
+                    .add(2, "name", name)
+                    .add(3, "empty_timeout", (long) emptyTimeout)
+                    .add(4, "max_participants", (long) maxParticipants)
+                    .add(5, "creation_time", creationTime)
+                    .add(8, "metadata", metadata)
+                    .add(9, "num_participants", (long) participants.size());
+        }
+    }
+
+    private static final class TwirpException extends RuntimeException {
+
+        private final int status;
+        private final String code;
+
+        TwirpException(int status, String code, String msg) {
+            super(msg);
+            this.status = status;
+            this.code = code;
+        }
+    }
+
+    /**
+     * 令牌桶，容量等于每秒速率
+     */
+    private static final class TokenBucket {
+
+        private final double permitsPerNano;
+        private final double capacity;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        TokenBucket(int permitsPerSecond) {
+            this.permitsPerNano = permitsPerSecond / 1e9;
+            this.capacity = permitsPerSecond;
+            this.tokens = permitsPerSecond;
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * permitsPerNano);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+
+    /**
+     * 请求消息: 按字段号 (protobuf) 或字段名 (JSON，接受 snake_case 和 camelCase) 读取
+     */
+    private interface Message {
+
+        String string(int field, String name);
+
+        long number(int field, String name);
+
+        List<String> strings(int field, String name);
+    }
+
+    private record JsonMessage(JsonNode node) implements Message {
+
+        @Override
+        public String string(int field, String name) {
+            JsonNode value = get(name);
+            return value == null ? "" : value.asText();
+        }
+
+        @Override
+        public long number(int field, String name) {
+            // proto3 JSON 中 64 位整数是字符串
+            JsonNode value = get(name);
+            return value == null ? 0 : value.asLong();
+        }
+
+        @Override
+        public List<String> strings(int field, String name) {
+            JsonNode value = get(name);
+            List<String> values = new ArrayList<>();
+            if (value != null && value.isArray()) {
+                value.forEach(item -> values.add(item.asText()));
+            }
+            return values;
+        }
+
+        private JsonNode get(String name) {
+            JsonNode value = node.get(name);
+            return value != null && !value.isNull() ? value : node.get(camelCase(name));
+        }
+
+        private static String camelCase(String name) {
+            StringBuilder camel = new StringBuilder(name.length());
+            boolean upper = false;
+            for (char c : name.toCharArray()) {
+                if (c == '_') {
+                    upper = true;
+                } else {
+                    camel.append(upper ? Character.toUpperCase(c) : c);
+                    upper = false;
+                }
+            }
+            return camel.toString();
+        }
+    }
+
+    /**
+     * protobuf 线格式的最小解码: 只处理 varint 和 length-delimited，其余类型跳过
+     */
+    private static final class ProtoMessage implements Message {
+
+        private final Map<Integer, List<Object>> fields = new HashMap<>();
+
+        ProtoMessage(byte[] bytes) {
+            int[] pos = {0};
+            while (pos[0] < bytes.length) {
+                long tag = readVarint(bytes, pos);
+                int field = (int) (tag >>> 3);
+                Object value = switch ((int) (tag & 7)) {
+                    case 0 -> readVarint(bytes, pos);
+                    case 1 -> skip(pos, 8);
+                    case 2 -> {
+                        int length = (int) readVarint(bytes, pos);
+                        byte[] data = new byte[length];
+                        System.arraycopy(bytes, pos[0], data, 0, length);
+                        pos[0] += length;
+                        yield data;
+                    }
+                    case 5 -> skip(pos, 4);
+                    default -> throw new TwirpException(400, "malformed", "无法解析的 protobuf 字段类型: " + (tag & 7));
+                };
+                if (value != null) {
+                    fields.computeIfAbsent(field, key -> new ArrayList<>()).add(value);
+                }
+            }
+        }
+
+        @Override
+        public String string(int field, String name) {
+            List<Object> values = fields.get(field);
+            return values == null ? "" : new String((byte[]) values.get(values.size() - 1), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public long number(int field, String name) {
+            List<Object> values = fields.get(field);
+            return values == null ? 0 : (Long) values.get(values.size() - 1);
+        }
+
+        @Override
+        public List<String> strings(int field, String name) {
+            List<String> values = new ArrayList<>();
+            fields.getOrDefault(field, List.of()).forEach(value ->
+                    values.add(new String((byte[]) value, StandardCharsets.UTF_8)));
+            return values;
+        }
+
+        private static Object skip(int[] pos, int length) {
+            pos[0] += length;
+            return null;
+        }
+
+        private static long readVarint(byte[] bytes, int[] pos) {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = bytes[pos[0]++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new TwirpException(400, "malformed", "varint 过长");
+        }
+    }
+
+    /**
+     * 响应消息: 同一份字段列表编码为 protobuf 或 proto3 JSON (字段名 snake_case，默认值省略)
+     */
+    private static final class Out {
+
+        private record Field(int number, String name, Object value) {
+        }
+
+        private final List<Field> fields = new ArrayList<>();
+
+        Out add(int number, String name, Object value) {
+            fields.add(new Field(number, name, value));
+            return this;
+        }
+
+        byte[] toProto() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (Field field : fields) {
+                if (field.value() instanceof String text) {
+                    if (!text.isEmpty()) {
+                        writeBytes(out, field.number(), text.getBytes(StandardCharsets.UTF_8));
+                    }
+                } else if (field.value() instanceof Long number) {
+                    if (number != 0) {
+                        writeVarint(out, (long) field.number() << 3);
+                        writeVarint(out, number);
+                    }
+                } else if (field.value() instanceof Out message) {
+                    writeBytes(out, field.number(), message.toProto());
+                }
+            }
+            return out.toByteArray();
+        }
+
+        ObjectNode toJson() {
+            ObjectNode node = MAPPER.createObjectNode();
+            for (Field field : fields) {
+                if (field.value() instanceof String text) {
+                    if (!text.isEmpty()) {
+                        node.put(field.name(), text);
+                    }
+                } else if (field.value() instanceof Long number) {
+                    if (number != 0) {
+                        node.put(field.name(), number);
+                    }
+                } else if (field.value() instanceof Out message) {
+                    // 同名的消息字段都是 repeated
+                    JsonNode existing = node.get(field.name());
+                    ArrayNode array = existing instanceof ArrayNode items ? items : node.putArray(field.name());
+                    array.add(message.toJson());
+                }
+            }
+            return node;
+        }
+
+        private static void writeBytes(ByteArrayOutputStream out, int number, byte[] data) {
+            writeVarint(out, ((long) number << 3) | 2);
+            writeVarint(out, data.length);
+            out.writeBytes(data);
+        }
+
+        private static void writeVarint(ByteArrayOutputStream out, long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
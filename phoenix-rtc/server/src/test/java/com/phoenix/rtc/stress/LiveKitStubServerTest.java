@@ -0,0 +1,148 @@
+package com.phoenix.rtc.stress;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phoenix.rtc.stress.LiveKitStubServer.Faults;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LiveKitStubServer 单元测试: Twirp JSON / protobuf 接口、鉴权、延迟、错误与限流注入
+ */
+class LiveKitStubServerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private LiveKitStubServer stub;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = LiveKitStubServer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void json_RoomLifecycle() throws Exception {
+        HttpResponse<String> created = json("CreateRoom", "{\"name\":\"room_1\",\"emptyTimeout\":300,\"max_participants\":2}");
+        assertEquals(200, created.statusCode());
+        JsonNode room = MAPPER.readTree(created.body());
+        assertEquals("room_1", room.get("name").asText());
+        assertEquals(300, room.get("empty_timeout").asInt());
+        assertTrue(room.get("sid").asText().startsWith("RM_"));
+
+        stub.join("room_1", "user1");
+        JsonNode listed = MAPPER.readTree(json("ListRooms", "{\"names\":[\"room_1\",\"room_x\"]}").body());
+        assertEquals(1, listed.get("rooms").size());
+        assertEquals(1, listed.get("rooms").get(0).get("num_participants").asInt());
+        JsonNode participants = MAPPER.readTree(json("ListParticipants", "{\"room\":\"room_1\"}").body());
+        assertEquals("user1", participants.get("participants").get(0).get("identity").asText());
+
+        assertEquals(200, json("RemoveParticipant", "{\"room\":\"room_1\",\"identity\":\"user1\"}").statusCode());
+        assertEquals(200, json("DeleteRoom", "{\"room\":\"room_1\"}").statusCode());
+        HttpResponse<String> missing = json("DeleteRoom", "{\"room\":\"room_1\"}");
+        assertEquals(404, missing.statusCode());
+        assertEquals("not_found", MAPPER.readTree(missing.body()).get("code").asText());
+        assertEquals(2, stub.requestCount("DeleteRoom"));
+        assertEquals(1, stub.errorCount("DeleteRoom"));
+    }
+
+    @Test
+    void protobuf_CreateRoom() throws Exception {
+        // CreateRoomRequest{name=1: "room_pb", empty_timeout=2: 300}
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        request.write(0x0A);
+        request.write(7);
+        request.writeBytes("room_pb".getBytes(StandardCharsets.UTF_8));
+        request.write(0x10);
+        request.writeBytes(new byte[]{(byte) 0xAC, 0x02});
+
+        HttpResponse<byte[]> response = httpClient.send(post("CreateRoom", "application/protobuf",
+                request.toByteArray()), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/protobuf", response.headers().firstValue("Content-Type").orElseThrow());
+        assertTrue(new String(response.body(), StandardCharsets.ISO_8859_1).contains("room_pb"));
+        // Room.empty_timeout = 3: 300
+        assertTrue(contains(response.body(), new byte[]{0x18, (byte) 0xAC, 0x02}));
+        assertEquals(Set.of("room_pb"), stub.roomNames());
+    }
+
+    @Test
+    void faults_LatencyAndErrors() throws Exception {
+        stub.faults("ListRooms", Faults.NONE.withLatency(50, 0));
+        stub.faults("CreateRoom", Faults.NONE.withErrors(1.0, "unavailable"));
+
+        long start = System.nanoTime();
+        assertEquals(200, json("ListRooms", "{}").statusCode());
+        assertTrue(System.nanoTime() - start >= 50_000_000L);
+
+        HttpResponse<String> failed = json("CreateRoom", "{\"name\":\"room_1\"}");
+        assertEquals(503, failed.statusCode());
+        assertEquals("unavailable", MAPPER.readTree(failed.body()).get("code").asText());
+        assertTrue(stub.roomNames().isEmpty());
+    }
+
+    @Test
+    void throttle_RateLimitAndAuth() throws Exception {
+        stub.rateLimit(5);
+
+        int throttled = 0;
+        for (int i = 0; i < 20; i++) {
+            if (json("ListRooms", "{}").statusCode() == 429) {
+                throttled++;
+            }
+        }
+        assertTrue(throttled >= 10, "限流拒绝 " + throttled);
+        assertEquals(throttled, stub.throttledCount());
+
+        stub.reset();
+        HttpResponse<String> anonymous = httpClient.send(HttpRequest.newBuilder(
+                        URI.create(stub.getUrl() + LiveKitStubServer.SERVICE_PREFIX + "ListRooms"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(401, anonymous.statusCode());
+    }
+
+    private HttpResponse<String> json(String method, String body) throws Exception {
+        return httpClient.send(post(method, "application/json", body.getBytes(StandardCharsets.UTF_8)),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest post(String method, String contentType, byte[] body) {
+        return HttpRequest.newBuilder(URI.create(stub.getUrl() + LiveKitStubServer.SERVICE_PREFIX + method))
+                .header("Authorization", "Bearer test")
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    private static boolean contains(byte[] bytes, byte[] part) {
+        outer:
+        for (int i = 0; i + part.length <= bytes.length; i++) {
+            for (int j = 0; j < part.length; j++) {
+                if (bytes[i + j] != part[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
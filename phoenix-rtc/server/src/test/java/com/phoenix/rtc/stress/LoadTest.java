@@ -1,5 +1,6 @@
 package com.phoenix.rtc.stress;
 
+import com.phoenix.rtc.adapter.AsyncMediaAdapter;
 import com.phoenix.rtc.adapter.MediaAdapter;
 import com.phoenix.rtc.config.MetricsConfig;
 import com.phoenix.rtc.model.dto.CallRequest;
@@ -48,6 +49,9 @@ public class LoadTest {
     @MockBean
     private MediaAdapter mediaAdapter;
 
+    @MockBean
+    private AsyncMediaAdapter asyncMediaAdapter;
+
     @MockBean
     private RtcSessionRepository sessionRepository;
 
@@ -73,8 +77,8 @@ public class LoadTest {
         int expectedSuccess = (int)(totalUsers * 0.999); // 99.9%成功率
 
         // Setup room
-        when(mediaAdapter.createRoom(eq(roomName), any())).thenReturn(
-            new io.livekit.server.RoomInfo(roomName, 10000, 600)
+        when(asyncMediaAdapter.createRoomAsync(eq(roomName), any())).thenReturn(
+            CompletableFuture.completedFuture(new io.livekit.server.RoomInfo(roomName, 10000, 600))
         );
         when(mediaAdapter.generateToken(anyString(), eq(roomName), eq("publisher"))).thenAnswer(inv -> {
             // Simulate token generation time
@@ -202,10 +206,10 @@ public class LoadTest {
         List<Long> latencies = new CopyOnWriteArrayList<>();
 
         // Setup for all meetings
-        when(mediaAdapter.createRoom(anyString(), any())).thenAnswer(inv -> {
+        when(asyncMediaAdapter.createRoomAsync(anyString(), any())).thenAnswer(inv -> {
             meetingsCreated.incrementAndGet();
             String roomName = inv.getArgument(0);
-            return new io.livekit.server.RoomInfo(roomName, 1000, 600);
+            return CompletableFuture.completedFuture(new io.livekit.server.RoomInfo(roomName, 1000, 600));
         });
 
         when(mediaAdapter.generateToken(anyString(), anyString(), anyString())).thenAnswer(inv -> {
@@ -333,8 +337,8 @@ public class LoadTest {
         int totalOperations = 5000;
 
         // Setup
-        when(mediaAdapter.createRoom(eq(roomName), any())).thenReturn(
-            new io.livekit.server.RoomInfo(roomName, 10000, 600)
+        when(asyncMediaAdapter.createRoomAsync(eq(roomName), any())).thenReturn(
+            CompletableFuture.completedFuture(new io.livekit.server.RoomInfo(roomName, 10000, 600))
         );
         when(mediaAdapter.generateToken(anyString(), eq(roomName), anyString())).thenAnswer(inv -> {
             return "token_" + inv.getArgument(0);
@@ -447,8 +451,8 @@ public class LoadTest {
         int iterations = 1000;
 
         // Setup
-        when(mediaAdapter.createRoom(eq(roomName), any())).thenReturn(
-            new io.livekit.server.RoomInfo(roomName, 10000, 600)
+        when(asyncMediaAdapter.createRoomAsync(eq(roomName), any())).thenReturn(
+            CompletableFuture.completedFuture(new io.livekit.server.RoomInfo(roomName, 10000, 600))
         );
         when(mediaAdapter.generateToken(anyString(), eq(roomName), anyString())).thenAnswer(inv -> {
             return "token_" + inv.getArgument(0);
@@ -543,8 +547,8 @@ public class LoadTest {
         int totalUsers = 100000;
 
         // Setup
-        when(mediaAdapter.createRoom(eq(roomName), any())).thenReturn(
-            new io.livekit.server.RoomInfo(roomName, 100000, 600)
+        when(asyncMediaAdapter.createRoomAsync(eq(roomName), any())).thenReturn(
+            CompletableFuture.completedFuture(new io.livekit.server.RoomInfo(roomName, 100000, 600))
         );
         when(mediaAdapter.generateToken(anyString(), eq(roomName), anyString())).thenAnswer(inv -> {
             return "token_" + inv.getArgument(0);
@@ -0,0 +1,92 @@
+package com.phoenix.rtc.stress;
+
+import com.phoenix.rtc.adapter.MediaCluster;
+import com.phoenix.rtc.adapter.MediaNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 媒体节点选择基准 (least-loaded)
+ * 1. join_leave: 加入/离开记账，各触发一次负载索引更新，预期 O(log N)、0 B/op
+ * 2. place_release: 放置 (取最空闲节点 + 更新索引) 再释放；分配只来自房间 -> 节点的本地记录
+ *
+ * 运行 (ns/op 随节点数对数增长，gc.alloc.rate.norm 为每次操作的分配字节数):
+ *   mvn test-compile && java -cp target/test-classes:target/classes:$(依赖 classpath) com.phoenix.rtc.stress.NodeSelectionBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NodeSelectionBenchmark {
+
+    @Param({"4", "64", "1024"})
+    private int nodes;
+
+    private MediaCluster cluster;
+    private String[] roomNames;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<MediaNode> mediaNodes = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            mediaNodes.add(new MediaNode("ws://livekit-" + i + ":7880", 10_000, 1_000_000, null));
+        }
+        MediaCluster.Policy policy = new MediaCluster.Policy(MediaCluster.Strategy.LEAST_LOADED,
+                160, 1.25, 1000, 0.5, 500, 0.25);
+        cluster = new MediaCluster(mediaNodes, policy, roomName -> null, 100_000, 3_600_000, new SimpleMeterRegistry());
+
+        // 每个节点上预先放几个房间，负载各不相同
+        roomNames = new String[nodes * 4];
+        for (int i = 0; i < roomNames.length; i++) {
+            roomNames[i] = "room_" + i;
+            cluster.place(roomNames[i], 10);
+            for (int j = 0; j < i % 7; j++) {
+                cluster.participantJoined(roomNames[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void join_leave() {
+        String roomName = roomNames[next++ & (roomNames.length - 1)];
+        cluster.participantJoined(roomName);
+        cluster.participantLeft(roomName);
+    }
+
+    @Benchmark
+    public MediaNode place_release() {
+        MediaNode node = cluster.place("room_bench", 10);
+        cluster.release("room_bench");
+        return node;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(NodeSelectionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,155 @@
+package com.phoenix.rtc.stress;
+
+import com.phoenix.rtc.redis.RtcHashOperations;
+import com.phoenix.rtc.redis.RtcKeys;
+import com.phoenix.rtc.redis.RtcReactiveOperations;
+import com.phoenix.rtc.redis.codec.FieldValues;
+import com.phoenix.rtc.redis.codec.RtcFields;
+import com.phoenix.rtc.redis.codec.RtcValueSerializer;
+import com.phoenix.rtc.statemachine.CallState;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 阻塞 / 非阻塞 Redis 访问吞吐对比
+ * 固定 16 个请求线程，每个"请求"读取加入房间需要的三项数据: 房间元数据 + 成员数 + 通话状态
+ * 1. blocking: RedisTemplate 依次发出三条命令，三次往返
+ * 2. reactive: RtcReactiveOperations 同时发出三条命令，Mono.zip 组合后只等待一次
+ *
+ * 吞吐对比取决于机器和 Docker 网络，只打印结果不断言快慢；只校验两种方式读到的结果一致。
+ * 需要 Docker (启动 redis:7)，没有 Docker 时跳过。
+ * 运行: mvn test -Dtest=ReactiveRedisLoadTest
+ */
+public class ReactiveRedisLoadTest {
+
+    private static final int THREADS = 16;
+    private static final int REQUESTS_PER_THREAD = 2_000;
+    private static final String ROOM = "room_load";
+
+    @Test
+    void throughput_ConcurrentReadsVsSequential() throws Exception {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "需要 Docker");
+
+        try (GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+                .withExposedPorts(6379)) {
+            redis.start();
+            LettuceConnectionFactory factory = new LettuceConnectionFactory(redis.getHost(), redis.getMappedPort(6379));
+            factory.afterPropertiesSet();
+            try {
+                RedisTemplate<String, Object> redisTemplate = redisTemplate(factory);
+                RtcHashOperations hashOperations = new RtcHashOperations(redisTemplate);
+                RtcReactiveOperations reactiveOperations = new RtcReactiveOperations(reactiveRedisTemplate(factory));
+                ReflectionTestUtils.setField(reactiveOperations, "timeoutMs", 5_000L);
+
+                seed(reactiveOperations);
+
+                String metaKey = RtcKeys.roomMeta(ROOM);
+                String membersKey = RtcKeys.roomMembers(ROOM);
+                String stateKey = RtcKeys.callState(ROOM, "user_1");
+
+                Supplier<Object> blocking = () -> {
+                    FieldValues meta = hashOperations.entries(metaKey);
+                    Long members = redisTemplate.opsForSet().size(membersKey);
+                    CallState state = hashOperations.get(stateKey, RtcFields.STATE);
+                    return meta.get(RtcFields.META_MAX_MEMBERS) - members + state.ordinal();
+                };
+                Supplier<Object> reactive = () -> reactiveOperations.await(Mono.zip(
+                        reactiveOperations.entries(metaKey),
+                        reactiveOperations.setSize(membersKey),
+                        reactiveOperations.get(stateKey, RtcFields.STATE)
+                ).map(t -> t.getT1().get(RtcFields.META_MAX_MEMBERS) - t.getT2() + t.getT3().ordinal()));
+
+                assertEquals(blocking.get(), reactive.get(), "两种读取方式的结果应一致");
+
+                // 预热
+                run(blocking, REQUESTS_PER_THREAD / 4);
+                run(reactive, REQUESTS_PER_THREAD / 4);
+
+                double blockingQps = run(blocking, REQUESTS_PER_THREAD);
+                double reactiveQps = run(reactive, REQUESTS_PER_THREAD);
+
+                System.out.println("\n=== 加入房间读取 (元数据 + 成员数 + 状态)，" + THREADS + " 线程 ===");
+                System.out.printf("blocking: %.0f req/s%n", blockingQps);
+                System.out.printf("reactive: %.0f req/s (%.2fx)%n", reactiveQps, reactiveQps / blockingQps);
+            } finally {
+                factory.destroy();
+            }
+        }
+    }
+
+    private void seed(RtcReactiveOperations operations) {
+        operations.await(Mono.when(
+                operations.putAll(RtcKeys.roomMeta(ROOM), FieldValues.create()
+                        .with(RtcFields.META_INITIATOR_ID, "user_0")
+                        .with(RtcFields.META_MAX_MEMBERS, 10_000), 600),
+                operations.setAdd(RtcKeys.roomMembers(ROOM), "user_0", 600),
+                operations.setAdd(RtcKeys.roomMembers(ROOM), "user_1", 600),
+                operations.putAll(RtcKeys.callState(ROOM, "user_1"), FieldValues.create()
+                        .with(RtcFields.STATE, CallState.CONNECTED), 600)
+        ));
+    }
+
+    /**
+     * 固定线程数跑完全部请求，返回每秒请求数
+     */
+    private double run(Supplier<Object> request, int requestsPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        assertNotNull(request.get());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return THREADS * requestsPerThread / seconds;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static RedisTemplate<String, Object> redisTemplate(LettuceConnectionFactory factory) {
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(factory);
+        template.setKeySerializer(StringRedisSerializer.UTF_8);
+        template.setValueSerializer(new RtcValueSerializer());
+        template.setHashKeySerializer(StringRedisSerializer.UTF_8);
+        template.setHashValueSerializer(new RtcValueSerializer());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    private static ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(LettuceConnectionFactory factory) {
+        RtcValueSerializer valueSerializer = new RtcValueSerializer();
+        return new ReactiveRedisTemplate<>(factory, RedisSerializationContext
+                .<String, Object>newSerializationContext(StringRedisSerializer.UTF_8)
+                .value(valueSerializer)
+                .hashValue(valueSerializer)
+                .build());
+    }
+}
@@ -0,0 +1,143 @@
+package com.phoenix.rtc.stress;
+
+import com.phoenix.rtc.redis.RtcKeys;
+import com.phoenix.rtc.redis.codec.FieldValues;
+import com.phoenix.rtc.redis.codec.RtcFields;
+import com.phoenix.rtc.statemachine.CallState;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Redis 内存基准
+ * 对比万人房间的成员详情 + 通话状态在旧编码 (长字段名、"true"/"connected" 文本) 与
+ * 新编码 (单字母字段名、1/0、状态序号) 下的 Redis 内存占用
+ *
+ * 1. payload: 不依赖 Redis，统计每个成员写入的字段名 + 值字节数
+ * 2. usedMemory: 需要 Docker，启动 redis:7 写入 10000 个成员后比较 used_memory 增量
+ *
+ * 运行: mvn test -Dtest=RedisMemoryBenchmark
+ */
+public class RedisMemoryBenchmark {
+
+    private static final int MEMBERS = 10_000;
+    private static final String ROOM = "room_1700000000000_3f9a1c2e";
+    private static final long JOINED_AT = 1700000000000L;
+
+    @Test
+    void payload_BytesPerMember() {
+        int legacy = payloadBytes(legacyMember()) + payloadBytes(legacyState());
+        int compact = payloadBytes(compactMember().encoded()) + payloadBytes(compactState().encoded());
+
+        System.out.println("\n=== 每成员 Hash 负载 (字段名+值) ===");
+        System.out.printf("legacy=%dB compact=%dB 节省 %.1f%%%n", legacy, compact, (1 - (double) compact / legacy) * 100);
+
+        assertTrue(compact < legacy);
+    }
+
+    @Test
+    void usedMemory_TenThousandMemberRoom() {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "需要 Docker");
+
+        try (GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+                .withExposedPorts(6379)) {
+            redis.start();
+            RedisClient client = RedisClient.create("redis://" + redis.getHost() + ":" + redis.getMappedPort(6379));
+            try (StatefulRedisConnection<byte[], byte[]> connection = client.connect(ByteArrayCodec.INSTANCE)) {
+                RedisCommands<byte[], byte[]> commands = connection.sync();
+
+                long legacy = measure(commands, (member, state) -> {
+                    commands.hset(member, legacyMember());
+                    commands.hset(state, legacyState());
+                });
+                long compact = measure(commands, (member, state) -> {
+                    commands.hset(member, compactMember().encoded());
+                    commands.hset(state, compactState().encoded());
+                });
+
+                System.out.println("\n=== 10000 人房间成员详情 + 通话状态 used_memory ===");
+                System.out.printf("legacy=%dKB compact=%dKB 节省 %.1f%%%n",
+                        legacy / 1024, compact / 1024, (1 - (double) compact / legacy) * 100);
+                assertTrue(compact < legacy);
+            } finally {
+                client.shutdown();
+            }
+        }
+    }
+
+    /**
+     * 写入 10000 个成员前后的 used_memory 差值
+     */
+    private long measure(RedisCommands<byte[], byte[]> commands, BiConsumer<byte[], byte[]> writer) {
+        commands.flushall();
+        long before = usedMemory(commands);
+        for (int i = 0; i < MEMBERS; i++) {
+            String userId = "user_" + (100000 + i);
+            writer.accept(bytes(RtcKeys.roomMember(ROOM, userId)), bytes(RtcKeys.callState(ROOM, userId)));
+        }
+        return usedMemory(commands) - before;
+    }
+
+    private static long usedMemory(RedisCommands<byte[], byte[]> commands) {
+        for (String line : commands.info("memory").split("\r\n")) {
+            if (line.startsWith("used_memory:")) {
+                return Long.parseLong(line.substring("used_memory:".length()));
+            }
+        }
+        throw new IllegalStateException("INFO memory 中没有 used_memory");
+    }
+
+    /**
+     * 037 之前 RoomService/CallStateMachine 写入的格式
+     */
+    private static Map<byte[], byte[]> legacyMember() {
+        return text(Map.of("role", "subscriber", "joinedAt", String.valueOf(JOINED_AT),
+                "audioEnabled", "true", "videoEnabled", "true"));
+    }
+
+    private static Map<byte[], byte[]> legacyState() {
+        return text(Map.of("state", CallState.CONNECTED.getCode(), "timestamp", String.valueOf(JOINED_AT),
+                "roomName", ROOM));
+    }
+
+    private static FieldValues compactMember() {
+        return FieldValues.create()
+                .with(RtcFields.MEMBER_ROLE, "subscriber")
+                .with(RtcFields.MEMBER_JOINED_AT, JOINED_AT)
+                .with(RtcFields.MEMBER_AUDIO, true)
+                .with(RtcFields.MEMBER_VIDEO, true);
+    }
+
+    private static FieldValues compactState() {
+        return FieldValues.create()
+                .with(RtcFields.STATE, CallState.CONNECTED)
+                .with(RtcFields.STATE_TIMESTAMP, JOINED_AT);
+    }
+
+    private static int payloadBytes(Map<byte[], byte[]> hash) {
+        return hash.entrySet().stream().mapToInt(e -> e.getKey().length + e.getValue().length).sum();
+    }
+
+    private static Map<byte[], byte[]> text(Map<String, String> fields) {
+        Map<byte[], byte[]> hash = new LinkedHashMap<>();
+        fields.forEach((field, value) -> hash.put(bytes(field), bytes(value)));
+        return hash;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
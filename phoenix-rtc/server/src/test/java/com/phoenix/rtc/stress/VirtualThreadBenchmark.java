@@ -0,0 +1,125 @@
+package com.phoenix.rtc.stress;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * 平台线程 / 虚拟线程请求模式的吞吐上限对比
+ * 模拟一次加入通话: Redis 往返 + LiveKit HTTP 调用 (共约 10ms 阻塞 I/O)。
+ * 平台线程模式为 200 个线程 (Tomcat 默认 max-threads)，虚拟线程模式每请求一个虚拟线程
+ *
+ * 1. ioBound: 只有 Redis / HTTP 等待，不涉及钉住载体线程的路径。结果取决于机器，只打印不断言
+ * 2. withJdbc: 每 20 个请求有 1 个访问数据库，模拟 MySQL 驱动在 synchronized 块内等待 Socket (5ms)，
+ *    连接池 20 个连接 (同 hikari maximum-pool-size)。钉住的 JDBC 占满载体线程时会拖慢全部请求，
+ *    结果取决于载体线程数，只打印不断言
+ *
+ * 运行: mvn test -Dtest=VirtualThreadBenchmark
+ * 对比载体线程预留 (VirtualThreadCarrierReservation) 的效果:
+ * mvn test -Dtest=VirtualThreadBenchmark -DargLine="-Djdk.virtualThreadScheduler.parallelism=<CPU 核数 + 20>"
+ */
+public class VirtualThreadBenchmark {
+
+    private static final int REQUESTS = 20_000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int POOL_SIZE = 20;
+    private static final int JDBC_EVERY = 20;
+    private static final long IO_MILLIS = 10;
+    private static final long JDBC_MILLIS = 5;
+
+    @Test
+    void ioBound_PlatformVsVirtual() throws Exception {
+        // 预热
+        run(Executors.newFixedThreadPool(PLATFORM_THREADS), null, REQUESTS / 10);
+        run(Executors.newVirtualThreadPerTaskExecutor(), null, REQUESTS / 10);
+
+        Result platform = run(Executors.newFixedThreadPool(PLATFORM_THREADS), null, REQUESTS);
+        Result virtual = run(Executors.newVirtualThreadPerTaskExecutor(), null, REQUESTS);
+
+        System.out.println("\n=== " + REQUESTS + " 个并发请求，仅 I/O 等待 ===");
+        System.out.println("platform " + platform);
+        System.out.println("virtual  " + virtual);
+    }
+
+    @Test
+    void withJdbc_PlatformVsVirtual() throws Exception {
+        String carriers = System.getProperty("jdk.virtualThreadScheduler.parallelism",
+                String.valueOf(Runtime.getRuntime().availableProcessors()));
+
+        Result platform = run(Executors.newFixedThreadPool(PLATFORM_THREADS), connectionPool(), REQUESTS);
+        Result virtual = run(Executors.newVirtualThreadPerTaskExecutor(), connectionPool(), REQUESTS);
+
+        System.out.println("\n=== " + REQUESTS + " 个并发请求，1/" + JDBC_EVERY + " 访问数据库，载体线程 " + carriers + " ===");
+        System.out.println("platform " + platform);
+        System.out.println("virtual  " + virtual);
+    }
+
+    private Result run(ExecutorService executor, DataSource dataSource, int requests) throws Exception {
+        try (executor) {
+            long start = System.nanoTime();
+            List<Future<Long>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                boolean jdbc = dataSource != null && i % JDBC_EVERY == 0;
+                long submitted = System.nanoTime();
+                futures.add(executor.submit(() -> handle(dataSource, jdbc, submitted)));
+            }
+            long[] latencies = new long[requests];
+            for (int i = 0; i < requests; i++) {
+                latencies[i] = futures.get(i).get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(latencies);
+            return new Result(requests / seconds, latencies[(int) (requests * 0.99) - 1] / 1_000_000);
+        }
+    }
+
+    /**
+     * 一次请求，返回从提交到完成的耗时 (ns)，包含排队等待线程的时间
+     */
+    private long handle(DataSource dataSource, boolean jdbc, long submitted) throws Exception {
+        if (jdbc) {
+            try (Connection connection = dataSource.getConnection()) {
+                synchronized (connection) {
+                    // 驱动持锁等待 Socket，虚拟线程在这里钉住载体线程
+                    Thread.sleep(JDBC_MILLIS);
+                }
+            }
+        }
+        Thread.sleep(IO_MILLIS);
+        return System.nanoTime() - submitted;
+    }
+
+    /**
+     * 固定 20 个连接的连接池，连接用完时等待归还
+     */
+    private static DataSource connectionPool() throws Exception {
+        BlockingQueue<Connection> idle = new ArrayBlockingQueue<>(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            Connection connection = mock(Connection.class);
+            doAnswer(inv -> idle.add(connection)).when(connection).close();
+            idle.add(connection);
+        }
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenAnswer(inv -> idle.poll(30, TimeUnit.SECONDS));
+        return dataSource;
+    }
+
+    private record Result(double qps, long p99Millis) {
+        @Override
+        public String toString() {
+            return String.format("%.0f req/s, P99 %dms", qps, p99Millis);
+        }
+    }
+}